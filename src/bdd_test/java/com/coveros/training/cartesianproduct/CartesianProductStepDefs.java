@@ -1,13 +1,12 @@
 package com.coveros.training.cartesianproduct;
 
 import io.cucumber.datatable.DataTable;
-import io.cucumber.java.PendingException;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import org.junit.Assert;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -20,11 +19,13 @@ public class CartesianProductStepDefs {
     @Given("lists as follows:")
     public void listsAsFollows(DataTable randomLists) {
         final List<String> oldLists = randomLists.asList();
-        setOfSets = new HashSet<>();
+        // in order, so the combinations come out in the order expected
+        setOfSets = new LinkedHashSet<>();
 
-        for (int i = 0; i < oldLists.size(); i++) {
-            StringTokenizer defaultTokenizer = new StringTokenizer(oldLists.get(i));
-            final Set<String> tempSet = new HashSet<>();
+        // the first cell is the "list" header
+        for (int i = 1; i < oldLists.size(); i++) {
+            StringTokenizer defaultTokenizer = new StringTokenizer(oldLists.get(i), ", ");
+            final Set<String> tempSet = new LinkedHashSet<>();
             while (defaultTokenizer.hasMoreTokens())
             {
                 tempSet.add(defaultTokenizer.nextToken());
@@ -37,7 +38,6 @@ public class CartesianProductStepDefs {
     @When("we calculate the combinations")
     public void weCalculateTheCombinations() {
         result = CartesianProduct.calculate(setOfSets);
-        throw new PendingException();
     }
 
     @Then("the resulting combinations should be as follows:")
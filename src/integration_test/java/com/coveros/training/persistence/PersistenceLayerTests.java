@@ -15,10 +15,15 @@ import java.time.LocalDate;
 import java.time.Month;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -148,6 +153,79 @@ public class PersistenceLayerTests {
         assertTrue(result);
     }
 
+    /**
+     * Rows from before we salted our hashes hold a plain SHA-256.  Logging in
+     * with the right password still works, and moves the row over to PBKDF2.
+     */
+    @Test
+    public void testShouldUpgradeLegacyPasswordHashOnLogin() {
+        runRestoreOneUser();
+        // the SHA-256 of "abc123"
+        ((PersistenceLayer) pl).executeUpdateTemplate("set a legacy hash",
+                "UPDATE auth.user SET password_hash = ? WHERE id = ?;",
+                "6ca13d52ca70c883e0f0bb101e425a89e8624de51db2d2392593af6a84118090", 1);
+
+        final boolean result = pl.areCredentialsValid(DEFAULT_USER.name, "abc123").orElseThrow();
+
+        assertTrue(result);
+        final String upgradedHash = ((PersistenceLayer) pl).runQuery(new SqlData<>("get the password hash",
+                "SELECT password_hash FROM auth.user WHERE id = ?;",
+                rs -> {
+                    try {
+                        rs.next();
+                        return Optional.of(rs.getString(1));
+                    } catch (SQLException ex) {
+                        throw new SqlRuntimeException(ex);
+                    }
+                }, 1L)).orElseThrow();
+        assertTrue(upgradedHash.startsWith("pbkdf2$"));
+        assertTrue(pl.areCredentialsValid(DEFAULT_USER.name, "abc123").orElseThrow());
+    }
+
+    @Test
+    public void testShouldNotValidateWrongPasswordOrUnknownUser() {
+        runRestoreOneUser();
+        pl.updateUserWithPassword(1, "abc123");
+
+        assertFalse(pl.areCredentialsValid(DEFAULT_USER.name, "wrong").isPresent());
+        assertFalse(pl.areCredentialsValid("nobody", "abc123").isPresent());
+    }
+
+    /**
+     * A name that was never registered is ruled out by the username filter, without a query
+     */
+    @Test
+    public void testShouldSkipQueryForUnknownUsername() {
+        final UsernameFilter usernameFilter = new UsernameFilter(0.01, 100);
+        pl = new PersistenceLayer(getFileBasedDatabaseConnectionPool(), usernameFilter);
+        runRestoreOneUser();
+
+        assertTrue(pl.searchForUserByName(DEFAULT_USER.name).isPresent());
+        assertFalse(pl.searchForUserByName("mallory").isPresent());
+        assertEquals(1, usernameFilter.getDefiniteMissCount());
+
+        pl.saveNewUser("mallory");
+        assertTrue(pl.searchForUserByName("mallory").isPresent());
+    }
+
+    /**
+     * Many users can be saved in one go, and then found with one query
+     */
+    @Test
+    public void testShouldSaveAndFindUsersInBulk() {
+        runRestoreOneUser();
+        final Map<String, String> newUsers = new LinkedHashMap<>();
+        newUsers.put("bulk1", "LpcVWwRkWSNVH");
+        newUsers.put("bulk2", "9ZbWeVxKwqP2m");
+
+        pl.saveNewUsersWithPasswords(newUsers);
+
+        assertEquals(new HashSet<>(Arrays.asList(DEFAULT_USER.name, "bulk1", "bulk2")),
+                pl.findRegisteredUsernames(Arrays.asList(DEFAULT_USER.name, "bulk1", "bulk2", "nobody")));
+        assertTrue(pl.areCredentialsValid("bulk2", "9ZbWeVxKwqP2m").isPresent());
+        assertEquals(Collections.emptySet(), pl.findRegisteredUsernames(Collections.singletonList("nobody")));
+    }
+
     @Test
     public void testWeCanCreateLoan() {
         runRestoreOneBookOneBorrower();
@@ -0,0 +1,80 @@
+package com.coveros.training.authentication;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a breached password lookup takes, for lists of different sizes.
+ * <p>
+ * The list is made of random hash prefixes, written straight to a file in
+ * the breached password format.  "searchOnly" is just the binary search through the
+ * mapped file; "breachedPassword" and "unknownPassword" include hashing the password.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BreachedPasswordBenchmark {
+
+    private static final String BREACHED_PASSWORD = "password1234";
+
+    @Param({"1000000", "50000000"})
+    public int entries;
+
+    private Path file;
+    private BreachedPasswordList list;
+
+    @Setup
+    public void setup() throws IOException {
+        final long[] prefixes = new long[entries];
+        final SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < entries - 1; i++) {
+            prefixes[i] = random.nextLong() ^ Long.MIN_VALUE;
+        }
+        prefixes[entries - 1] = BreachedPasswordList.prefixOf(BreachedPasswordList.sha1(BREACHED_PASSWORD), 8) ^ Long.MIN_VALUE;
+        Arrays.sort(prefixes);
+
+        file = Files.createTempFile("breached-benchmark", ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.write(BreachedPasswordList.MAGIC);
+            out.writeInt(8);
+            out.writeInt(0);
+            for (long prefix : prefixes) {
+                out.writeLong(prefix ^ Long.MIN_VALUE);
+            }
+        }
+        list = BreachedPasswordList.open(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public boolean searchOnly() {
+        return list.containsPrefix(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public boolean breachedPassword() {
+        return list.contains(BREACHED_PASSWORD);
+    }
+
+    @Benchmark
+    public boolean unknownPassword() {
+        return list.contains("LpcVWwRkWSNVH");
+    }
+}
@@ -0,0 +1,61 @@
+package com.coveros.training.authentication;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the failed-login throttle adds to each /login request, on four threads at once.
+ * <p>
+ * "knownKeys" spreads failures over a steady 10,000 usernames and addresses;
+ * "newKeys" uses a never-before-seen username each time, so the throttle is
+ * constantly dropping old keys to stay within its bounds.  For comparison, one
+ * password check at the default PBKDF2 cost takes about 100 milliseconds.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class LoginThrottleBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private LoginThrottle throttle;
+    private String[] usernames;
+    private String[] addresses;
+    private final AtomicLong newKeyCounter = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        throttle = new LoginThrottle(Integer.MAX_VALUE, Integer.MAX_VALUE, 300, 100_000, System::currentTimeMillis);
+        usernames = new String[KEYS];
+        addresses = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            usernames[i] = "user" + i;
+            addresses[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public boolean knownKeys() {
+        final int i = ThreadLocalRandom.current().nextInt(KEYS);
+        final boolean throttled = throttle.isThrottled(usernames[i], addresses[i]);
+        throttle.recordFailure(usernames[i], addresses[i]);
+        return throttled;
+    }
+
+    @Benchmark
+    public boolean newKeys() {
+        final String username = "new-user" + newKeyCounter.incrementAndGet();
+        final String address = addresses[ThreadLocalRandom.current().nextInt(KEYS)];
+        final boolean throttled = throttle.isThrottled(username, address);
+        throttle.recordFailure(username, address);
+        return throttled;
+    }
+}
@@ -0,0 +1,70 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.persistence.IPersistenceLayer;
+import com.coveros.training.persistence.PersistenceLayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many logins per second one core can handle at each PBKDF2 cost.
+ * <p>
+ * Every benchmark here runs on a single thread, so its score is logins per
+ * second per core.  Multiply by the cores given to the password workers (see
+ * {@link PasswordWork}) for the most the server can do, and pick the highest
+ * {@value PasswordHasher#ITERATIONS_PROPERTY} that still leaves headroom for the /login target.
+ * </p>
+ * <p>
+ * "verify" is just the hash check.  "login" is the whole thing, through
+ * {@link LoginUtils} against an in-memory database.  "legacySha256" is how
+ * we used to check passwords, for comparison.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+public class PasswordHashBenchmark {
+
+    private static final String USERNAME = "alice";
+    private static final String PASSWORD = "LpcVWwRkWSNVH";
+
+    @Param({"10000", "50000", "100000", "210000", "600000"})
+    public int iterations;
+
+    private PasswordHasher hasher;
+    private String storedHash;
+    private LoginUtils loginUtils;
+
+    @Setup
+    public void setup() {
+        // each set of params gets its own JVM, so this takes effect before the persistence layer loads
+        System.setProperty(PasswordHasher.ITERATIONS_PROPERTY, String.valueOf(iterations));
+        hasher = new PasswordHasher(iterations);
+        storedHash = hasher.hash(PASSWORD);
+
+        final IPersistenceLayer persistenceLayer = new PersistenceLayer();
+        persistenceLayer.cleanAndMigrateDatabase();
+        final long id = persistenceLayer.saveNewUser(USERNAME);
+        persistenceLayer.updateUserWithPassword(id, PASSWORD);
+        loginUtils = new LoginUtils(persistenceLayer);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public boolean login() {
+        return loginUtils.isUserRegistered(USERNAME, PASSWORD);
+    }
+
+    @Benchmark
+    public byte[] legacySha256() {
+        return PasswordHasher.legacySha256(PASSWORD);
+    }
+}
@@ -0,0 +1,51 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.PasswordResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the {@link PasswordResultCache} saves: scoring a password that was
+ * scored recently ("cached") against scoring it from scratch ("uncached").
+ * "keyedHashOnly" is the cost of a cache lookup on its own - mostly the HMAC.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PasswordResultCacheBenchmark {
+
+    private static final String PASSWORD = "LpcVWwRkWSNVH";
+
+    private PasswordResultCache cache;
+    private PasswordResultCache noCache;
+    private PasswordResult result;
+
+    @Setup
+    public void setup() {
+        cache = new PasswordResultCache(10_000, TimeUnit.HOURS.toMillis(1), System::currentTimeMillis);
+        noCache = new PasswordResultCache(0, 1, System::currentTimeMillis);
+        result = RegistrationUtils.isPasswordGood(PASSWORD);
+    }
+
+    @Benchmark
+    public PasswordResult cached() {
+        RegistrationUtils.passwordResultCache = cache;
+        return RegistrationUtils.isPasswordGood(PASSWORD);
+    }
+
+    @Benchmark
+    public PasswordResult uncached() {
+        RegistrationUtils.passwordResultCache = noCache;
+        return RegistrationUtils.isPasswordGood(PASSWORD);
+    }
+
+    @Benchmark
+    public PasswordResult keyedHashOnly() {
+        return cache.get(PASSWORD, password -> result);
+    }
+
+}
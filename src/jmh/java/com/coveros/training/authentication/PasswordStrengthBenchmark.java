@@ -0,0 +1,79 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.persistence.IPersistenceLayer;
+import com.coveros.training.persistence.PersistenceLayer;
+import me.gosimple.nbvcxz.Nbvcxz;
+import me.gosimple.nbvcxz.scoring.Result;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the cost of estimating password strength with a brand-new
+ * Nbvcxz for each call (how {@link RegistrationUtils#isPasswordGood} used to work)
+ * against the shared {@link PasswordStrengthEstimator}.
+ * <p>
+ * The "Concurrent" benchmarks run on four threads, to show throughput when
+ * many people register at once.  The last one runs the whole registration,
+ * against an in-memory database.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PasswordStrengthBenchmark {
+
+    private static final String PASSWORD = "LpcVWwRkWSNVH";
+
+    private PasswordStrengthEstimator sharedEstimator;
+    private RegistrationUtils registrationUtils;
+    private final AtomicLong userCounter = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        sharedEstimator = PasswordStrengthEstimator.createFromSystemProperties();
+        final IPersistenceLayer persistenceLayer = new PersistenceLayer();
+        persistenceLayer.cleanAndMigrateDatabase();
+        registrationUtils = new RegistrationUtils(persistenceLayer);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Result newNbvcxzPerCall() {
+        return new Nbvcxz().estimate(PASSWORD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Result sharedEstimator() {
+        return sharedEstimator.estimate(PASSWORD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public Result newNbvcxzPerCallConcurrent() {
+        return new Nbvcxz().estimate(PASSWORD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public Result sharedEstimatorConcurrent() {
+        return sharedEstimator.estimate(PASSWORD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public Object registrationConcurrent() {
+        return registrationUtils.processRegistration("user" + userCounter.incrementAndGet(), PASSWORD);
+    }
+}
@@ -0,0 +1,59 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.persistence.IPersistenceLayer;
+import com.coveros.training.persistence.PersistenceLayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How fast a session token can be checked, compared with checking a
+ * password the old way, with many threads at once.
+ * <p>
+ * The store is filled with {@code sessions} live sessions, and each call
+ * checks a random one of them.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class SessionStoreBenchmark {
+
+    private static final String PASSWORD = "LpcVWwRkWSNVH";
+
+    @Param({"1000", "100000"})
+    public int sessions;
+
+    private SessionStore store;
+    private String[] tokens;
+    private LoginUtils loginUtils;
+
+    @Setup
+    public void setup() {
+        store = new SessionStore(3600, sessions, System::currentTimeMillis);
+        tokens = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            tokens[i] = store.create("user" + i).orElseThrow().token;
+        }
+
+        final IPersistenceLayer persistenceLayer = new PersistenceLayer();
+        persistenceLayer.cleanAndMigrateDatabase();
+        persistenceLayer.updateUserWithPassword(persistenceLayer.saveNewUser("alice"), PASSWORD);
+        loginUtils = new LoginUtils(persistenceLayer);
+    }
+
+    @Benchmark
+    public Object validateToken() {
+        return store.validate(tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+    }
+
+    @Benchmark
+    public boolean checkPassword() {
+        return loginUtils.isUserRegistered("alice", PASSWORD);
+    }
+}
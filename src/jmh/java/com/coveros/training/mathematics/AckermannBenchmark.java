@@ -0,0 +1,58 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A(m, n) across a grid of m and n, by {@link AckermannClosedForm} - the value where /ackermann would
+ * write it out, otherwise the JSON description with 18 trailing digits - against stepping through
+ * the recursion with {@link AckermannIterative}, on the part of the grid it can finish.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AckermannBenchmark {
+
+    private static final long MAX_RESULT_BITS = 1L << 20;
+
+    @Param({"0", "1", "2", "3", "4", "5"})
+    public int m;
+
+    @Param({"0", "1", "2", "3", "10", "1000"})
+    public int n;
+
+    /**
+     * Where stepping through the recursion finishes in reasonable time
+     */
+    @State(Scope.Benchmark)
+    public static class SmallGrid {
+        @Param({"1", "2", "3"})
+        public int m;
+
+        @Param({"1", "3", "6"})
+        public int n;
+    }
+
+    @Benchmark
+    public Object closedForm() {
+        final AckermannClosedForm value = AckermannClosedForm.of(m, n);
+        final BigInteger exact = value.exact(MAX_RESULT_BITS);
+        return exact != null ? exact : value.toJson(AckermannClosedForm.MAX_LAST_DIGITS);
+    }
+
+    @Benchmark
+    public BigInteger closedFormSmallGrid(SmallGrid grid) {
+        return AckermannClosedForm.of(grid.m, grid.n).exact(MAX_RESULT_BITS);
+    }
+
+    @Benchmark
+    public BigInteger iterativeSmallGrid(SmallGrid grid) {
+        return AckermannIterative.calculate(grid.m, grid.n);
+    }
+
+}
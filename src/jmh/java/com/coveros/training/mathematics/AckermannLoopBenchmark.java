@@ -0,0 +1,75 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steps per second through Ackermann's recursion: {@link AckermannIterative#step} called in a plain
+ * loop, against {@link AckermannIterative#calculate}, which takes the same steps on the
+ * {@link TailRecursive#trampoline} - the cost of the trampoline, with its budget, over the loop.
+ * <p>
+ * Both report a "steps" counter alongside the calls per second - the one divided by the other is the
+ * steps per call.  Run with {@code -prof gc} for the allocation per call - divide gc.alloc.rate.norm by
+ * the steps per call for the allocation per step.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AckermannLoopBenchmark {
+
+    @Param({"3:6", "3:10", "3:60", "4:1"})
+    public String mn;
+
+    private int m;
+    private int n;
+    private long stepsPerCall;
+
+    /**
+     * Steps taken, for JMH to report as a rate
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Steps {
+        public long steps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            steps = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        final String[] parts = mn.split(":");
+        m = Integer.parseInt(parts[0]);
+        n = Integer.parseInt(parts[1]);
+        final AckermannIterative.State state = new AckermannIterative.State(m, n);
+        stepsPerCall = 1;
+        while (AckermannIterative.step(state)) {
+            stepsPerCall++;
+        }
+    }
+
+    @Benchmark
+    public BigInteger plainLoop(Steps counter) {
+        counter.steps += stepsPerCall;
+        final AckermannIterative.State state = new AckermannIterative.State(m, n);
+        while (AckermannIterative.step(state)) {
+            // nothing else to do between steps
+        }
+        return state.result();
+    }
+
+    @Benchmark
+    public BigInteger trampoline(Steps counter) {
+        counter.steps += stepsPerCall;
+        return AckermannIterative.calculate(m, n);
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding up a million pairs of ints, in sums a second: by {@link BatchArithmetic}, as CSV and as
+ * binary, against one pair at a time the way a single /math request handles it - each number
+ * parsed from its String, added by {@link Calculator#add(int, int)}, and the sum made into a String.
+ * That last leaves out the HTTP request and the JSP, which cost far more than the adding.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BatchArithmeticBenchmark.PAIRS)
+public class BatchArithmeticBenchmark {
+
+    static final int PAIRS = 1_000_000;
+
+    private String[][] pairs;
+    private byte[] csv;
+    private byte[] binary;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        pairs = new String[PAIRS][];
+        final StringBuilder text = new StringBuilder();
+        final ByteBuffer packed = ByteBuffer.allocate(PAIRS * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < PAIRS; i++) {
+            final int a = random.nextInt(2_000_000) - 1_000_000;
+            final int b = random.nextInt(2_000_000) - 1_000_000;
+            pairs[i] = new String[]{Integer.toString(a), Integer.toString(b)};
+            text.append(a).append(',').append(b).append('\n');
+            packed.putInt(a).putInt(b);
+        }
+        csv = text.toString().getBytes(StandardCharsets.US_ASCII);
+        binary = packed.array();
+    }
+
+    @Benchmark
+    public void onePairAtATime(Blackhole blackhole) {
+        for (String[] pair : pairs) {
+            blackhole.consume(Integer.toString(Calculator.add(Integer.parseInt(pair[0]), Integer.parseInt(pair[1]))));
+        }
+    }
+
+    @Benchmark
+    public long batchCsv() throws IOException {
+        return BatchArithmetic.addAll(new ByteArrayInputStream(csv), OutputStream.nullOutputStream(), BatchArithmetic.Encoding.CSV);
+    }
+
+    @Benchmark
+    public long batchBinary() throws IOException {
+        return BatchArithmetic.addAll(new ByteArrayInputStream(binary), OutputStream.nullOutputStream(), BatchArithmetic.Encoding.BINARY);
+    }
+
+}
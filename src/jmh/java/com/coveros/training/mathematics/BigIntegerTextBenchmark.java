@@ -0,0 +1,72 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing out a number of so many digits: {@link BigInteger#toString()} against
+ * {@link BigIntegerText} in each of its formats, all to a writer that throws the text away.
+ * <p>
+ * Decimal is all division, and on one core the JDK's own conversion - itself divide and
+ * conquer - is about as quick as ours: around a second for a million digits either way.  What
+ * writeDecimal buys there is not holding the whole String, and on more cores the parallel split.
+ * Hex, base64, a digit count and the last few digits are where the real savings are - for a
+ * million digits they take microseconds to milliseconds rather than a second.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BigIntegerTextBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int digits;
+
+    private BigInteger x;
+
+    @Setup
+    public void setup() {
+        x = new BigInteger((int) Math.ceil(digits / Math.log10(2)), new Random(42));
+    }
+
+    @Benchmark
+    public String jdkToString() {
+        return x.toString();
+    }
+
+    @Benchmark
+    public void decimal() throws IOException {
+        BigIntegerText.writeDecimal(x, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void hex() throws IOException {
+        BigIntegerText.write(x, BigIntegerText.Format.HEX, 0, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void base64() throws IOException {
+        BigIntegerText.write(x, BigIntegerText.Format.BASE64, 0, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public long digitCount() {
+        return BigIntegerText.digitCount(x);
+    }
+
+    @Benchmark
+    public void firstAndLast(Blackhole blackhole) {
+        blackhole.consume(BigIntegerText.firstDigits(x, 20));
+        blackhole.consume(BigIntegerText.lastDigits(x, 20));
+    }
+
+}
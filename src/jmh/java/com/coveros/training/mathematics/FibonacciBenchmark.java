@@ -0,0 +1,77 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways /fibonacci can work out F(n): the two algorithms from
+ * {@link FibonacciIterative}, fast doubling from scratch, and fast doubling through
+ * a {@link FibonacciCache} that has just worked out F(n) - both for the same n again
+ * ("cachedSameN") and for n+1, which starts from the pair for n/2 ("cachedNextN").
+ * <p>
+ * fibAlgo2 takes n additions of numbers up to n bits, so it is left out of the
+ * largest sizes with {@code -p n=1000,10000,100000} when time is short.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FibonacciBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int n;
+
+    private FibonacciCache cache;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        cache = new FibonacciCache(256L * 1024 * 1024);
+        cache.calculate(n);
+    }
+
+    /**
+     * A cache that has seen n and nothing else, made afresh for every call - otherwise n+1
+     * would be in the cache after the first call
+     */
+    @State(Scope.Thread)
+    public static class FreshCache {
+        FibonacciCache cache;
+
+        @Setup(Level.Invocation)
+        public void setup(FibonacciBenchmark benchmark) {
+            cache = new FibonacciCache(256L * 1024 * 1024);
+            cache.calculate(benchmark.n);
+        }
+    }
+
+    @Benchmark
+    public BigInteger fibAlgo1() {
+        return FibonacciIterative.fibAlgo1(n);
+    }
+
+    @Benchmark
+    public BigInteger fibAlgo2() {
+        return FibonacciIterative.fibAlgo2(n);
+    }
+
+    @Benchmark
+    public BigInteger fastDoubling() {
+        return FibonacciFastDoubling.calculate(n);
+    }
+
+    @Benchmark
+    public BigInteger cachedSameN() {
+        return cache.calculate(n);
+    }
+
+    @Benchmark
+    public BigInteger cachedNextN(FreshCache fresh) {
+        return fresh.cache.calculate(n + 1L);
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FibonacciIterative#fibAlgo1} - fast doubling over the bits of n, two
+ * squarings a step - with the matrix version it replaced (copied below as
+ * "fibAlgo1Original") and with {@link FibonacciFastDoubling}, from n = 10^3 to 10^8.
+ * <p>
+ * F(10^8) is about 69 million bits, so the largest sizes take seconds a call.  Run a subset
+ * with {@code -p n=1000,10000,100000,1000000} when time is short.  The parallel squaring in
+ * fibAlgo1 only starts above {@value ParallelSquaring#THRESHOLD_PROPERTY} bits, and only when
+ * the common fork-join pool has more than one thread, so on one core it measures the squaring
+ * alone.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FibonacciBitsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public long n;
+
+    @Benchmark
+    public BigInteger fibAlgo1() {
+        return FibonacciIterative.fibAlgo1(n);
+    }
+
+    @Benchmark
+    public BigInteger fibAlgo1Original() {
+        return originalFibAlgo1(n);
+    }
+
+    @Benchmark
+    public BigInteger fastDoubling() {
+        return FibonacciFastDoubling.calculate(n);
+    }
+
+    /**
+     * fibAlgo1 as it was, stepping a BigInteger counter down with mod and divide
+     */
+    static BigInteger originalFibAlgo1(long n) {
+        if (n <= 0)
+            return BigInteger.ZERO;
+
+        BigInteger i = (BigInteger.valueOf(n).subtract(BigInteger.ONE));
+        BigInteger a = BigInteger.ONE;
+        BigInteger b = BigInteger.ZERO;
+        BigInteger c = BigInteger.ZERO;
+        BigInteger d = BigInteger.ONE;
+        BigInteger tmp1;
+        BigInteger tmp2;
+
+        while (i.compareTo(BigInteger.ZERO) > 0) {
+            if (!i.mod(BigInteger.valueOf(2)).equals(BigInteger.ZERO)) {
+                tmp1 = d.multiply(b).add(c.multiply(a));
+                tmp2 = d.multiply(b.add(a)).add(c.multiply(b));
+                a = tmp1;
+                b = tmp2;
+            }
+
+            tmp1 = c.pow(2).add(d.pow(2));
+            tmp2 = d.multiply(c.multiply(BigInteger.valueOf(2)).add(d));
+
+            c = tmp1;
+            d = tmp2;
+
+            i = i.divide(BigInteger.valueOf(2));
+        }
+        return a.add(b);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * F(n) mod m by {@link FibonacciModular}, for n = 10^18: with a modulus whose products fit in
+ * a long, with an odd one around 10^18 whose products don't, with an even one that size, whose
+ * products are reduced a bit at a time, and reduced by the Pisano period first (which
+ * includes finding the period).  For scale, "wholeThenMod" works out F(10^5) in full and
+ * takes the remainder - the only way there was before.
+ * <p>
+ * Run with {@code -prof gc} to see that the modular versions allocate nothing.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FibonacciModularBenchmark {
+
+    public long n = 1_000_000_000_000_000_000L;
+    public long smallModulus = 1_000_000_007L;
+    public long largeModulus = 1_000_000_000_000_000_003L;
+    public long evenModulus = 1_000_000_000_000_000_000L;
+
+    @Benchmark
+    public long smallModulus() {
+        return FibonacciModular.calculate(n, smallModulus);
+    }
+
+    @Benchmark
+    public long largeModulus() {
+        return FibonacciModular.calculate(n, largeModulus);
+    }
+
+    @Benchmark
+    public long evenModulus() {
+        return FibonacciModular.calculate(n, evenModulus);
+    }
+
+    @Benchmark
+    public long reducedByPisanoPeriod() {
+        return FibonacciModular.calculateReduced(n, smallModulus);
+    }
+
+    @Benchmark
+    public long wholeThenMod() {
+        return FibonacciFastDoubling.calculate(100_000).mod(BigInteger.valueOf(smallModulus)).longValue();
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.coveros.training.mathematics;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1000 consecutive Fibonacci numbers from n: asked for one at a time through a
+ * {@link FibonacciCache}, the way the analytics jobs used to call /fibonacci, against
+ * one {@link FibonacciRange} - as values, and as digit counts.  Both ranges write to a
+ * writer that throws the text away, so the values' decimal conversion is counted too.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FibonacciRangeBenchmark {
+
+    private static final int COUNT = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public long n;
+
+    private FibonacciCache cache;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        cache = new FibonacciCache(256L * 1024 * 1024);
+    }
+
+    @Benchmark
+    public void oneAtATime(Blackhole blackhole) {
+        for (long i = n; i < n + COUNT; i++) {
+            final BigInteger value = cache.calculate(i);
+            blackhole.consume(value.toString());
+        }
+    }
+
+    @Benchmark
+    public void rangeValues() throws IOException {
+        write(FibonacciRange.of(n, n + COUNT - 1, FibonacciRange.Output.VALUE, 0, cache));
+    }
+
+    @Benchmark
+    public void rangeDigits() throws IOException {
+        write(FibonacciRange.of(n, n + COUNT - 1, FibonacciRange.Output.DIGITS, 0, cache));
+    }
+
+    private static void write(FibonacciRange range) throws IOException {
+        final Writer out = Writer.nullWriter();
+        while (range.hasNext()) {
+            range.writeNext(out);
+        }
+    }
+
+}
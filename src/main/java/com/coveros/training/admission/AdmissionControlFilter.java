@@ -0,0 +1,93 @@
+package com.coveros.training.admission;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Sheds load when the server is saturated.
+ * <p>
+ * Our performance testing notes describe response times "going through the roof"
+ * once the CPU maxes out around 80 users.  Past that point, accepting more work
+ * only makes every request slower.  This filter limits how many requests of
+ * each {@link EndpointGroup} run at once.  Excess requests wait briefly in a
+ * bounded queue, and if no slot opens up they get a 503 with a Retry-After header.
+ * </p>
+ * <p>
+ * It's mapped in web.xml, after {@link com.coveros.training.tracing.RequestTracingFilter}, so
+ * the requests it turns away are traced too.
+ * </p>
+ */
+public class AdmissionControlFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    /**
+     * How many seconds we suggest a rejected client wait before trying again
+     */
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    static Map<EndpointGroup, EndpointLimiter> limiters = createLimiters();
+
+    private static Map<EndpointGroup, EndpointLimiter> createLimiters() {
+        Map<EndpointGroup, EndpointLimiter> result = new EnumMap<>(EndpointGroup.class);
+        for (EndpointGroup group : EndpointGroup.values()) {
+            result.put(group, group.createLimiter());
+        }
+        return result;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final Optional<EndpointGroup> group = EndpointGroup.forPath(((HttpServletRequest) request).getServletPath());
+        if (!group.isPresent()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final EndpointLimiter limiter = limiters.get(group.get());
+        final boolean admitted;
+        try {
+            admitted = limiter.tryAcquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            reject((HttpServletResponse) response, limiter);
+            return;
+        }
+        if (!admitted) {
+            reject((HttpServletResponse) response, limiter);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private static void reject(HttpServletResponse response, EndpointLimiter limiter) throws IOException {
+        logger.debug("rejecting request - overloaded. {}", limiter);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Error: the server is too busy right now, please try again shortly");
+    }
+
+}
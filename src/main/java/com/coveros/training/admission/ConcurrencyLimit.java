@@ -0,0 +1,22 @@
+package com.coveros.training.admission;
+
+/**
+ * Decides how many requests an endpoint may be working on at once.
+ * See {@link FixedLimit} and {@link GradientLimit}
+ */
+public interface ConcurrencyLimit {
+
+    /**
+     * The current number of requests allowed in flight at once
+     */
+    int getLimit();
+
+    /**
+     * Tell the limit how long a request took, so an adaptive
+     * limit can adjust itself.
+     *
+     * @param rttNanos  how long the request took, in nanoseconds
+     * @param inFlight  how many requests were in flight when this one finished (including itself)
+     */
+    void onSample(long rttNanos, int inFlight);
+}
@@ -0,0 +1,105 @@
+package com.coveros.training.admission;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Our endpoints, grouped by how expensive they are to serve.  Each group
+ * gets its own {@link EndpointLimiter}, so a flood of expensive work
+ * (hashing passwords and estimating their strength on /register, or
+ * computing Ackermann's function) cannot crowd out the cheap catalog reads.
+ * <p>
+ * Every group can be tuned with system properties, where NAME is the
+ * lower-case group name, e.g. "demo.admission.catalog.queue":
+ * </p>
+ * <ul>
+ *     <li>demo.admission.NAME.fixedLimit - use this fixed limit instead of a latency-aware one</li>
+ *     <li>demo.admission.NAME.maxLimit - the most the latency-aware limit may grow to</li>
+ *     <li>demo.admission.NAME.queue - how many requests may wait for a slot</li>
+ *     <li>demo.admission.NAME.waitMillis - how long a request may wait for a slot</li>
+ * </ul>
+ */
+public enum EndpointGroup {
+
+    /**
+     * Cheap reads of the library catalog
+     */
+    CATALOG(Arrays.asList("/book", "/borrower", "/listavailable"), 50, 400, 200, 500),
+
+    /**
+     * Changes to the library - a few queries and an insert each
+     */
+    LIBRARY(Arrays.asList("/lend", "/registerbook", "/registerborrower"), 20, 100, 50, 1000),
+
+    /**
+     * CPU-heavy - password hashing and password strength estimation
+     */
+    AUTHENTICATION(Arrays.asList("/login", "/register", "/registerbulk", "/passwordstrength"), cores(), cores() * 4, 20, 2000),
+
+    /**
+     * CPU-heavy, and potentially unbounded in time
+     */
+    MATH(Arrays.asList("/ackermann", "/fibonacci", "/math", "/cartesianproduct"), cores(), cores() * 2, 10, 1000);
+
+    /**
+     * Our own endpoints that are deliberately in no group.  Each is a read of a few counters or a map
+     * in memory, and the stats and traces are most wanted just when the server is overloaded - so they
+     * should answer then.  /flyway is for setting up the database in development.
+     */
+    public static final List<String> UNLIMITED_PATHS = Collections.unmodifiableList(
+            Arrays.asList("/mathstats", "/authstats", "/traces", "/session", "/flyway"));
+
+    public final List<String> paths;
+    private final int initialLimit;
+    private final int maxLimit;
+    private final int queue;
+    private final long waitMillis;
+
+    EndpointGroup(List<String> paths, int initialLimit, int maxLimit, int queue, long waitMillis) {
+        this.paths = paths;
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.queue = queue;
+        this.waitMillis = waitMillis;
+    }
+
+    private static int cores() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Which group a servlet path belongs to.  Static files, the database console,
+     * {@link #UNLIMITED_PATHS} and the like are not in any group, and are never limited.
+     */
+    public static Optional<EndpointGroup> forPath(String servletPath) {
+        for (EndpointGroup group : values()) {
+            if (group.paths.contains(servletPath)) {
+                return Optional.of(group);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Builds a limiter for this group, with the defaults above
+     * overridden by any system properties that are set.
+     */
+    public EndpointLimiter createLimiter() {
+        final String prefix = "demo.admission." + name().toLowerCase() + ".";
+        final int fixedLimit = Integer.getInteger(prefix + "fixedLimit", 0);
+        final ConcurrencyLimit limit;
+        if (fixedLimit > 0) {
+            limit = new FixedLimit(fixedLimit);
+        } else {
+            final int max = Math.max(initialLimit, Integer.getInteger(prefix + "maxLimit", maxLimit));
+            limit = new GradientLimit(initialLimit, 1, max);
+        }
+        return new EndpointLimiter(
+                name().toLowerCase(),
+                limit,
+                Integer.getInteger(prefix + "queue", queue),
+                Long.getLong(prefix + "waitMillis", waitMillis));
+    }
+}
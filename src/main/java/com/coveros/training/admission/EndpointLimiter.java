@@ -0,0 +1,123 @@
+package com.coveros.training.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Guards one group of endpoints (see {@link EndpointGroup}) with a {@link ConcurrencyLimit}.
+ * <p>
+ * When the group is at its limit, a new request may wait in a short queue
+ * for a slot to open up.  If the queue is full, or the request waits longer than
+ * allowed, it is rejected - it is far better to quickly tell a few clients
+ * "try again" than to slowly fail all of them.
+ * </p>
+ */
+public final class EndpointLimiter {
+
+    public final String name;
+    private final ConcurrencyLimit limit;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private int inFlight;
+    private int queued;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name          a name for logs and metrics, e.g. "catalog"
+     * @param limit         decides how many requests may run at once
+     * @param maxQueued     how many requests may wait for a slot before we start rejecting outright
+     * @param maxWaitMillis the longest a request may wait for a slot
+     */
+    public EndpointLimiter(String name, ConcurrencyLimit limit, int maxQueued, long maxWaitMillis) {
+        this.name = name;
+        this.limit = limit;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * Try to get a slot for a request, waiting a bounded time if necessary.
+     * If this returns true, the caller must call {@link #release} when done.
+     *
+     * @return true if the request may go ahead, false if it should be rejected
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < limit.getLimit()) {
+                inFlight++;
+                admitted.incrementAndGet();
+                return true;
+            }
+            if (queued >= maxQueued) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= limit.getLimit()) {
+                    if (remaining <= 0) {
+                        rejected.incrementAndGet();
+                        return false;
+                    }
+                    remaining = slotFreed.awaitNanos(remaining);
+                }
+                inFlight++;
+                admitted.incrementAndGet();
+                return true;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back the slot from a successful {@link #tryAcquire}
+     *
+     * @param rttNanos how long the request took - feeds the latency-aware limits
+     */
+    public void release(long rttNanos) {
+        lock.lock();
+        try {
+            limit.onSample(rttNanos, inFlight);
+            inFlight--;
+            // wake everyone - the limit may have grown by more than one
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("%s: inFlight=%d queued=%d admitted=%d rejected=%d %s",
+                    name, inFlight, queued, admitted.get(), rejected.get(), limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
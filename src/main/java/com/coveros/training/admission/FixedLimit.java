@@ -0,0 +1,33 @@
+package com.coveros.training.admission;
+
+/**
+ * A limit that never changes, no matter how fast or slow requests are.
+ * Appropriate for work whose cost we know, like CPU-bound math, where the
+ * right limit is about the number of cores.
+ */
+public final class FixedLimit implements ConcurrencyLimit {
+
+    private final int limit;
+
+    public FixedLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("a concurrency limit must be 1 or above");
+        }
+        this.limit = limit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inFlight) {
+        // a fixed limit ignores latency
+    }
+
+    @Override
+    public String toString() {
+        return "FixedLimit{" + limit + "}";
+    }
+}
@@ -0,0 +1,87 @@
+package com.coveros.training.admission;
+
+/**
+ * A latency-aware limit.  It compares how long requests are taking right now
+ * against a slow-moving average of how long they usually take.  When the
+ * recent latency climbs above the usual, requests are queueing up somewhere
+ * (CPU, database connections) and the limit shrinks.  When latency is
+ * normal, the limit grows by a little headroom.
+ * <p>
+ * This follows the "gradient" approach described by Netflix's
+ * concurrency-limits library:
+ * </p>
+ * <pre>
+ *     gradient = clamp(0.5, 1.0, tolerance * longRtt / shortRtt)
+ *     newLimit = limit * gradient + queueSize
+ * </pre>
+ * <p>
+ * Synchronized, since every finishing request calls {@link #onSample}.
+ * </p>
+ */
+public final class GradientLimit implements ConcurrencyLimit {
+
+    /**
+     * how much worse than normal latency can get before we start backing off
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * how much of each new limit estimate we blend in.  Lower is smoother.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * roughly how many samples the long-term average remembers
+     */
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimatedLimit;
+    private double longRttNanos;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.longRttNanos = 0;
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        }
+
+        // if we are not even using half our limit, latency tells us nothing
+        // about whether a higher limit would be safe, so don't grow.
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / rttNanos));
+        final double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("GradientLimit{limit=%.1f, longRttMillis=%.3f, min=%d, max=%d}",
+                estimatedLimit, longRttNanos / 1_000_000d, minLimit, maxLimit);
+    }
+}
@@ -0,0 +1,186 @@
+package com.coveros.training.admission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts events per key (a username, an IP address...) over a sliding window
+ * of time, and says when a key has gone over its limit.
+ * <p>
+ * Rather than remembering every event, each key keeps just two counts: this
+ * window's and the last one's.  The count over the sliding window is estimated by
+ * taking all of this window's events, plus the share of last window's events
+ * that still falls inside the sliding window.  That's exact when events are spread evenly,
+ * and close enough when they aren't - at the cost of a few dozen bytes per key.
+ * </p>
+ * <p>
+ * Keys are spread across shards, each with its own lock, so threads working on
+ * different keys rarely wait for each other.  Each shard holds at most a fixed number of keys,
+ * dropping the least recently used when full, and drops keys that have gone quiet for a whole
+ * window as it goes - so memory stays bounded however many different keys turn up.
+ * </p>
+ */
+public final class SlidingWindowLimiter {
+
+    private final int limit;
+    private final long windowMillis;
+    private final LongSupplier clockMillis;
+    private final Shard[] shards;
+
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * The two counts we keep for a key
+     */
+    private static final class Counter {
+        long window;
+        int previous;
+        int current;
+
+        /**
+         * Move the counts along, if time has moved into a later window
+         */
+        void roll(long nowWindow) {
+            if (nowWindow == window) {
+                return;
+            }
+            previous = nowWindow == window + 1 ? current : 0;
+            current = 0;
+            window = nowWindow;
+        }
+    }
+
+    /**
+     * One part of the keys, in least-recently-used order
+     */
+    private final class Shard extends LinkedHashMap<String, Counter> {
+        private static final long serialVersionUID = 1L;
+        private final int maxKeys;
+        private long nowWindow;
+
+        Shard(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Counter> eldest) {
+            // nothing in a window before last still counts
+            final boolean remove = size() > maxKeys || eldest.getValue().window < nowWindow - 1;
+            if (remove) {
+                evicted.incrementAndGet();
+            }
+            return remove;
+        }
+    }
+
+    /**
+     * @param limit        how many events a key may have within the window
+     * @param windowMillis how long the sliding window is
+     * @param maxKeys      the most keys to keep track of at once
+     * @param clockMillis  the current time in milliseconds - {@link System#currentTimeMillis} outside of tests
+     */
+    public SlidingWindowLimiter(int limit, long windowMillis, int maxKeys, LongSupplier clockMillis) {
+        if (limit < 1 || windowMillis < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("the limit, window and number of keys must all be positive");
+        }
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.clockMillis = clockMillis;
+        final int shardCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(Math.max(1, maxKeys / shardCount));
+        }
+    }
+
+    /**
+     * Has this key already used up its limit?  Looking doesn't count as an event.
+     */
+    public boolean isOverLimit(String key) {
+        return estimate(key) >= limit;
+    }
+
+    /**
+     * @return about how many events this key has had in the sliding window
+     */
+    public double estimate(String key) {
+        final long now = clockMillis.getAsLong();
+        final long nowWindow = now / windowMillis;
+        final Shard shard = shardFor(key);
+        synchronized (shard) {
+            final Counter counter = shard.get(key);
+            if (counter == null) {
+                return 0;
+            }
+            counter.roll(nowWindow);
+            final double previousShare = 1.0 - (double) (now % windowMillis) / windowMillis;
+            return counter.previous * previousShare + counter.current;
+        }
+    }
+
+    /**
+     * Count an event for this key
+     */
+    public void record(String key) {
+        final long nowWindow = clockMillis.getAsLong() / windowMillis;
+        final Shard shard = shardFor(key);
+        synchronized (shard) {
+            shard.nowWindow = nowWindow;
+            Counter counter = shard.get(key);
+            if (counter == null) {
+                counter = new Counter();
+                counter.window = nowWindow;
+                shard.put(key, counter);
+            }
+            counter.roll(nowWindow);
+            counter.current++;
+        }
+    }
+
+    /**
+     * Forget this key's events
+     */
+    public void reset(String key) {
+        final Shard shard = shardFor(key);
+        synchronized (shard) {
+            shard.remove(key);
+        }
+    }
+
+    private Shard shardFor(String key) {
+        final int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    /**
+     * @return how many keys we're keeping track of
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return how many keys have been dropped, for being idle or to make room
+     */
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Admission control - limits how much work of each kind the server takes
+ * on at once, so that overload degrades gracefully instead of collapsing.
+ */
+package com.coveros.training.admission;
@@ -0,0 +1,42 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.StringUtils;
+import com.coveros.training.persistence.PersistenceLayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Web API reporting, as JSON, how the machinery behind login and
+ * registration is doing: the username filter, the password workers,
+ * the password result cache, the login sessions and the failed-login throttle.
+ */
+@WebServlet(name = "AuthStatsServlet", urlPatterns = {"/authstats"}, loadOnStartup = 1)
+public class AuthStatsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 4412837001934592517L;
+    private static final Logger logger = LoggerFactory.getLogger(AuthStatsServlet.class);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+        logger.info("received request for authentication stats");
+        request.setAttribute("result", toJson());
+        ServletUtils.forwardToRestfulResult(request, response, logger);
+    }
+
+    static String toJson() {
+        return String.format("{\"usernameFilter\": %s, \"passwordWorkers\": \"%s\", \"passwordResultCache\": %s, " +
+                        "\"sessions\": %d, \"loginThrottle\": %s}",
+                PersistenceLayer.getSharedUsernameFilter().toJson(),
+                StringUtils.escapeForJson(PasswordWork.getPool().toString()),
+                RegistrationUtils.passwordResultCache.toJson(),
+                Sessions.getStore().size(),
+                LoginServlet.loginThrottle.toJson());
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.coveros.training.authentication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Makes the file that {@link BreachedPasswordList} reads.
+ * <p>
+ * The input is a text file, one entry per line: either the breached passwords themselves,
+ * or their SHA-1 hashes in hex - the format the "Pwned Passwords" downloads use, where each
+ * line may end with {@code :count}, is fine.  The output is a 16-byte header followed by the
+ * sorted, de-duplicated hash prefixes, each the same number of bytes.
+ * </p>
+ * <p>
+ * Inputs too big to sort in memory are sorted in chunks, each written to a temporary file,
+ * and the chunks merged at the end.
+ * </p>
+ * <p>
+ * Usage: {@code gradle buildBreachedPasswordFile -Pinput=<file> -Poutput=<file> [-Phashes]},
+ * or run this class directly with
+ * {@code <input> <output> [--hashes] [--prefix-bytes 4..8]}
+ * </p>
+ */
+public final class BreachedPasswordFileBuilder {
+
+    /**
+     * How many hashes to sort in memory at once - 8 bytes each
+     */
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private BreachedPasswordFileBuilder() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    public static void main(String[] args) throws IOException {
+        final List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        final boolean inputIsHashes = arguments.remove("--hashes");
+        int recordBytes = BreachedPasswordList.MAX_RECORD_BYTES;
+        final int prefixOption = arguments.indexOf("--prefix-bytes");
+        if (prefixOption >= 0 && prefixOption + 1 < arguments.size()) {
+            recordBytes = Integer.parseInt(arguments.get(prefixOption + 1));
+            arguments.subList(prefixOption, prefixOption + 2).clear();
+        }
+        if (arguments.size() != 2) {
+            System.err.println("usage: BreachedPasswordFileBuilder <input> <output> [--hashes] [--prefix-bytes 4..8]");
+            System.exit(1);
+        }
+        final long start = System.nanoTime();
+        final long written = build(Paths.get(arguments.get(0)), Paths.get(arguments.get(1)),
+                inputIsHashes, recordBytes, DEFAULT_CHUNK_SIZE);
+        System.out.printf("wrote %d hashes to %s in %d ms%n", written, arguments.get(1), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Build a breached password file.
+     *
+     * @param input         one password, or one hex SHA-1 hash, per line
+     * @param output        where to write the file
+     * @param inputIsHashes true if the input lines are hashes rather than passwords
+     * @param recordBytes   how many bytes of each hash to keep, from 4 to 8
+     * @param chunkSize     how many hashes to sort in memory at once
+     * @return how many distinct hash prefixes were written
+     */
+    public static long build(Path input, Path output, boolean inputIsHashes, int recordBytes, int chunkSize) throws IOException {
+        if (recordBytes < BreachedPasswordList.MIN_RECORD_BYTES || recordBytes > BreachedPasswordList.MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("the prefix must be from 4 to 8 bytes, was " + recordBytes);
+        }
+        final List<Path> chunkFiles = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            final long[] chunk = new long[chunkSize];
+            int filled = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                chunk[filled++] = inputIsHashes
+                        ? prefixOfHexHash(line, recordBytes)
+                        : BreachedPasswordList.prefixOf(BreachedPasswordList.sha1(line), recordBytes);
+                if (filled == chunkSize) {
+                    chunkFiles.add(writeSortedChunk(chunk, filled));
+                    filled = 0;
+                }
+            }
+            if (filled > 0 || chunkFiles.isEmpty()) {
+                chunkFiles.add(writeSortedChunk(chunk, filled));
+            }
+        }
+        try {
+            return merge(chunkFiles, output, recordBytes);
+        } finally {
+            for (Path chunkFile : chunkFiles) {
+                Files.deleteIfExists(chunkFile);
+            }
+        }
+    }
+
+    /**
+     * Reads the first bytes of a hex hash, ignoring anything after a colon
+     */
+    static long prefixOfHexHash(String line, int recordBytes) {
+        final int digits = recordBytes * 2;
+        if (line.length() < digits) {
+            throw new IllegalArgumentException("not a SHA-1 hash: " + line);
+        }
+        return Long.parseUnsignedLong(line.substring(0, digits), 16);
+    }
+
+    private static Path writeSortedChunk(long[] chunk, int length) throws IOException {
+        // flipping the top bit makes a signed sort put them in unsigned order
+        for (int i = 0; i < length; i++) {
+            chunk[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(chunk, 0, length);
+        final Path chunkFile = Files.createTempFile("breached-passwords", ".chunk");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(chunkFile), 1 << 16))) {
+            for (int i = 0; i < length; i++) {
+                out.writeLong(chunk[i] ^ Long.MIN_VALUE);
+            }
+        }
+        return chunkFile;
+    }
+
+    /**
+     * Merges the sorted chunks into the output file, dropping duplicates
+     */
+    private static long merge(List<Path> chunkFiles, Path output, int recordBytes) throws IOException {
+        final List<ChunkReader> readers = new ArrayList<>();
+        final PriorityQueue<ChunkReader> queue = new PriorityQueue<>((a, b) -> Long.compareUnsigned(a.current, b.current));
+        long written = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16)) {
+            for (Path chunkFile : chunkFiles) {
+                final ChunkReader reader = new ChunkReader(chunkFile);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            out.write(header(recordBytes));
+            final byte[] record = new byte[Long.BYTES];
+            boolean first = true;
+            long previous = 0;
+            while (!queue.isEmpty()) {
+                final ChunkReader reader = queue.poll();
+                final long value = reader.current;
+                if (first || value != previous) {
+                    ByteBuffer.wrap(record).putLong(value << ((Long.BYTES - recordBytes) * 8));
+                    out.write(record, 0, recordBytes);
+                    written++;
+                    previous = value;
+                    first = false;
+                }
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (ChunkReader reader : readers) {
+                reader.in.close();
+            }
+        }
+        return written;
+    }
+
+    private static byte[] header(int recordBytes) {
+        final ByteBuffer header = ByteBuffer.allocate(BreachedPasswordList.HEADER_BYTES);
+        header.put(BreachedPasswordList.MAGIC);
+        header.putInt(recordBytes);
+        return header.array();
+    }
+
+    /**
+     * Walks through one sorted chunk file
+     */
+    private static final class ChunkReader {
+        final DataInputStream in;
+        long current;
+
+        ChunkReader(Path chunkFile) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(chunkFile), 1 << 16));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                current = in.readLong();
+                return true;
+            } catch (EOFException ex) {
+                return false;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.coveros.training.authentication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A list of passwords known to have leaked in breaches, which nobody should register with.
+ * <p>
+ * The list lives in a file of SHA-1 hash prefixes, sorted, each the same width (see
+ * {@link BreachedPasswordFileBuilder}, which makes the file).  We map the file into memory
+ * rather than reading it in, and binary-search it where it lies - so a file of hundreds of
+ * millions of entries costs no heap, starts instantly, and a lookup touches only a couple
+ * of dozen pages.  The operating system keeps the hot pages cached for us.
+ * </p>
+ * <p>
+ * Because only a prefix of each hash is kept, an unlucky password might match a breached
+ * one by chance.  At 8 bytes per entry that's about one in 20 billion for a list of a billion.
+ * </p>
+ * <p>
+ * The file is named by the system property {@value #FILE_PROPERTY}.  If that isn't set,
+ * the list is empty and no password is rejected by it.
+ * </p>
+ */
+public final class BreachedPasswordList {
+
+    private static final Logger logger = LoggerFactory.getLogger(BreachedPasswordList.class);
+
+    public static final String FILE_PROPERTY = "demo.password.breachedHashFile";
+
+    /**
+     * Marks the start of every breached password file, along with its version
+     */
+    static final byte[] MAGIC = "BRCHPW01".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER_BYTES = 16;
+    static final int MIN_RECORD_BYTES = 4;
+    static final int MAX_RECORD_BYTES = 8;
+
+    private final ByteBuffer[] segments;
+    private final int recordBytes;
+    private final long recordsPerSegment;
+    private final long recordCount;
+
+    private BreachedPasswordList(ByteBuffer[] segments, int recordBytes, long recordsPerSegment, long recordCount) {
+        this.segments = segments;
+        this.recordBytes = recordBytes;
+        this.recordsPerSegment = recordsPerSegment;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * A list with nothing in it
+     */
+    public static BreachedPasswordList empty() {
+        return new BreachedPasswordList(new ByteBuffer[0], MAX_RECORD_BYTES, 1, 0);
+    }
+
+    public static BreachedPasswordList createFromSystemProperties() {
+        final String path = System.getProperty(FILE_PROPERTY, "");
+        if (path.isEmpty()) {
+            return empty();
+        }
+        final BreachedPasswordList list = open(Paths.get(path));
+        logger.info("loaded {} breached password hashes from {}", list.size(), path);
+        return list;
+    }
+
+    /**
+     * Map a breached password file into memory.
+     *
+     * @throws UncheckedIOException if the file can't be read, or isn't a breached password file
+     */
+    public static BreachedPasswordList open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            final int recordBytes = header.getInt(MAGIC.length);
+            if (header.hasRemaining()
+                    || !Arrays.equals(Arrays.copyOf(header.array(), MAGIC.length), MAGIC)
+                    || recordBytes < MIN_RECORD_BYTES || recordBytes > MAX_RECORD_BYTES
+                    || (fileSize - HEADER_BYTES) % recordBytes != 0) {
+                throw new IOException("not a breached password file");
+            }
+
+            // a single mapping can't be bigger than 2 GB, so a big file gets mapped in pieces
+            final long recordsPerSegment = Integer.MAX_VALUE / recordBytes;
+            final long recordCount = (fileSize - HEADER_BYTES) / recordBytes;
+            final int segmentCount = (int) ((recordCount + recordsPerSegment - 1) / recordsPerSegment);
+            final ByteBuffer[] segments = new ByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                final long first = i * recordsPerSegment;
+                final long count = Math.min(recordsPerSegment, recordCount - first);
+                final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * recordBytes, count * recordBytes);
+                segments[i] = segment;
+            }
+            // the mappings stay valid after the channel is closed
+            return new BreachedPasswordList(segments, recordBytes, recordsPerSegment, recordCount);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("could not open the breached password file at " + path, ex);
+        }
+    }
+
+    /**
+     * Has this password turned up in a breach?
+     */
+    public boolean contains(String password) {
+        if (recordCount == 0) {
+            return false;
+        }
+        return containsPrefix(prefixOf(sha1(password), recordBytes));
+    }
+
+    /**
+     * Binary search for a hash prefix.  Reads straight from the mapped file, and allocates nothing.
+     */
+    boolean containsPrefix(long prefix) {
+        long low = 0;
+        long high = recordCount - 1;
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final int comparison = Long.compareUnsigned(recordAt(middle), prefix);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long recordAt(long index) {
+        final ByteBuffer segment = segments[(int) (index / recordsPerSegment)];
+        final int offset = (int) ((index % recordsPerSegment) * recordBytes);
+        if (recordBytes == Long.BYTES) {
+            return segment.getLong(offset);
+        }
+        long value = 0;
+        for (int i = 0; i < recordBytes; i++) {
+            value = (value << 8) | (segment.get(offset + i) & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * The first few bytes of a hash, as an unsigned big-endian number
+     */
+    static long prefixOf(byte[] hash, int recordBytes) {
+        long value = 0;
+        for (int i = 0; i < recordBytes; i++) {
+            value = (value << 8) | (hash[i] & 0xff);
+        }
+        return value;
+    }
+
+    static byte[] sha1(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("this JVM cannot do SHA-1", ex);
+        }
+    }
+
+    /**
+     * @return how many hashes are in the list
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    public int getRecordBytes() {
+        return recordBytes;
+    }
+
+}
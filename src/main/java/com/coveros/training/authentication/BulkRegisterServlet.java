@@ -0,0 +1,104 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.BulkRegistrationRow;
+import com.coveros.training.authentication.domainobjects.RegistrationResult;
+import com.coveros.training.helpers.StringUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides an API endpoint to register many users in one go.
+ * <p>
+ * POST the users as the request body, one per line - CSV, or NDJSON with a JSON content
+ * type (see {@link BulkRegistrationParser}).  The response is NDJSON, one line per user,
+ * in the order they were sent, each with that user's {@link RegistrationResult}:
+ * </p>
+ * <pre>
+ * {"line": 2, "username": "alice", "result": {"registered": true, "status": "SUCCESSFULLY_REGISTERED", "message": ""}}
+ * </pre>
+ * <p>
+ * The users are registered a hundred at a time, and each of those lines is written as
+ * soon as its part is checked and saved - so the client sees results as they come, and if we run out
+ * of time part way, the users already registered are still reported.  The rest then get one line,
+ * for the first of them, with an "error" instead of a "result".
+ * </p>
+ * <p>
+ * Configured through the system property {@value #MAX_ROWS_PROPERTY}, the most users one upload
+ * may hold, and {@link PasswordWork#BULK_REGISTER_TIMEOUT_PROPERTY}, how long it may take.
+ * </p>
+ */
+@WebServlet(name = "BulkRegisterServlet", urlPatterns = {"/registerbulk"}, loadOnStartup = 1)
+public class BulkRegisterServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LoggerFactory.getLogger(BulkRegisterServlet.class);
+
+    public static final String MAX_ROWS_PROPERTY = "demo.auth.bulkRegister.maxRows";
+    static int maxRows = Integer.getInteger(MAX_ROWS_PROPERTY, 1000);
+
+    static RegistrationUtils registrationUtils = new RegistrationUtils();
+    static final String BUSY_MESSAGE = "Error: the server is too busy to register these users right now, please try again";
+
+    /**
+     * How many users are checked and saved together, before their results are written out
+     */
+    static int chunkRows = 100;
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final BulkRegistrationParser.Format format = BulkRegistrationParser.Format.fromContentType(
+                StringUtils.makeNotNullable(request.getContentType()));
+        final List<BulkRegistrationRow> rows;
+        try {
+            rows = BulkRegistrationParser.parse(request.getReader(), format, maxRows);
+        } catch (IllegalArgumentException ex) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, ex.getMessage());
+            return;
+        }
+        logger.info("received request to register {} users", rows.size());
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        final PrintWriter writer = response.getWriter();
+        final Set<String> listed = new HashSet<>();
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PasswordWork.BULK_REGISTER_TIMEOUT_MILLIS);
+        for (int from = 0; from < rows.size(); from += chunkRows) {
+            final List<BulkRegistrationRow> chunk = rows.subList(from, Math.min(rows.size(), from + chunkRows));
+            final List<RegistrationResult> results;
+            try {
+                final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                results = PasswordWork.withTimeout(remainingMillis,
+                        () -> registrationUtils.processBulkRegistration(chunk, listed));
+            } catch (RejectedExecutionException | TaskTimeoutException ex) {
+                logger.warn("could not register {} of {} users in time: {}", rows.size() - from, rows.size(), ex.getMessage());
+                if (from == 0) {
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+                } else {
+                    writer.printf("{\"line\": %d, \"error\": \"%s\"}\n", chunk.get(0).lineNumber, BUSY_MESSAGE);
+                    writer.flush();
+                }
+                return;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                final BulkRegistrationRow row = chunk.get(i);
+                writer.printf("{\"line\": %d, \"username\": \"%s\", \"result\": %s}\n",
+                        row.lineNumber, StringUtils.escapeForJson(row.username), results.get(i).toJson());
+            }
+            writer.flush();
+        }
+    }
+
+}
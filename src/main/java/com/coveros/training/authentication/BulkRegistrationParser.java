@@ -0,0 +1,221 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.BulkRegistrationRow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the users to register out of a bulk registration upload, one user per line,
+ * in either of two formats:
+ * <ul>
+ *     <li>CSV - {@code username,password}.  A field holding a comma or a quote is wrapped
+ *     in double quotes, with any quote inside doubled, as usual.  A first line of
+ *     {@code username,password} is taken as a header and skipped.</li>
+ *     <li>NDJSON - one JSON object per line, {@code {"username": "alice", "password": "..."}}</li>
+ * </ul>
+ * <p>
+ * Blank lines are skipped.  A line that can't be read doesn't stop the rest being
+ * read - it comes back as a malformed row, so its user can be told what was wrong.
+ * </p>
+ */
+public final class BulkRegistrationParser {
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        /**
+         * Anything that says JSON is NDJSON, and everything else is CSV
+         */
+        public static Format fromContentType(String contentType) {
+            return contentType.toLowerCase(Locale.ROOT).contains("json") ? NDJSON : CSV;
+        }
+    }
+
+    private static final String USERNAME = "username";
+    private static final String PASSWORD = "password";
+
+    private BulkRegistrationParser() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * @param reader  the upload
+     * @param format  how the upload is written
+     * @param maxRows the most users we'll take in one upload
+     * @throws IllegalArgumentException if there are more than maxRows users
+     */
+    public static List<BulkRegistrationRow> parse(BufferedReader reader, Format format, int maxRows) throws IOException {
+        final List<BulkRegistrationRow> rows = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || (lineNumber == 1 && format == Format.CSV && isCsvHeader(line))) {
+                continue;
+            }
+            if (rows.size() == maxRows) {
+                throw new IllegalArgumentException("an upload may register at most " + maxRows + " users");
+            }
+            rows.add(format == Format.CSV ? parseCsvLine(lineNumber, line) : parseJsonLine(lineNumber, line));
+        }
+        return rows;
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.trim().equalsIgnoreCase(USERNAME + "," + PASSWORD);
+    }
+
+    static BulkRegistrationRow parseCsvLine(int lineNumber, String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (i < line.length()) {
+            final char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return BulkRegistrationRow.malformed(lineNumber, "a quoted field was not closed");
+        }
+        fields.add(field.toString());
+        if (fields.size() != 2) {
+            return BulkRegistrationRow.malformed(lineNumber, "expected 2 fields, username and password, but found " + fields.size());
+        }
+        return BulkRegistrationRow.of(lineNumber, fields.get(0).trim(), fields.get(1));
+    }
+
+    /**
+     * Reads a flat JSON object whose values are all strings - all a row needs.
+     */
+    static BulkRegistrationRow parseJsonLine(int lineNumber, String line) {
+        final JsonCursor cursor = new JsonCursor(line);
+        final Map<String, String> values = new HashMap<>();
+        try {
+            cursor.expect('{');
+            if (!cursor.skipIf('}')) {
+                do {
+                    final String key = cursor.readString();
+                    cursor.expect(':');
+                    values.put(key, cursor.readString());
+                } while (cursor.skipIf(','));
+                cursor.expect('}');
+            }
+            cursor.expectEnd();
+        } catch (IllegalArgumentException ex) {
+            return BulkRegistrationRow.malformed(lineNumber, "not a JSON object of strings: " + ex.getMessage());
+        }
+        if (!values.containsKey(USERNAME) || !values.containsKey(PASSWORD)) {
+            return BulkRegistrationRow.malformed(lineNumber, "expected both \"username\" and \"password\"");
+        }
+        return BulkRegistrationRow.of(lineNumber, values.get(USERNAME).trim(), values.get(PASSWORD));
+    }
+
+    /**
+     * Walks through one line of JSON
+     */
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        boolean skipIf(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!skipIf(c)) {
+                throw new IllegalArgumentException("expected '" + c + "' at character " + (position + 1));
+            }
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position < text.length()) {
+                throw new IllegalArgumentException("unexpected text at character " + (position + 1));
+            }
+        }
+
+        String readString() {
+            expect('"');
+            final StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                final char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                final char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("a \\u escape was cut short");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("a \\u escape was not hex");
+                        }
+                        position += 4;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append(escaped);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown escape \\" + escaped);
+                }
+            }
+            throw new IllegalArgumentException("a string was not closed");
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package com.coveros.training.authentication;
 
 import com.coveros.training.helpers.ServletUtils;
 import com.coveros.training.helpers.StringUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,12 +10,22 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Provides an API endpoint for login.
  * <p>
  * A user (librarian) enters their username and password to authenticate.
  * </p>
+ * <p>
+ * A client that will make more requests afterwards can ask for a session token by
+ * adding {@code token=true}.  If the credentials are good, it gets back JSON with
+ * the token, and it sends that token on later requests instead of the password.  See {@link Sessions}.
+ * </p>
+ * <p>
+ * Too many failed logins for a username, or from one address, and further
+ * attempts are turned away for a while.  See {@link LoginThrottle}.
+ * </p>
  */
 @WebServlet(name = "LoginServlet", urlPatterns = {"/login"}, loadOnStartup = 1)
 public class LoginServlet extends HttpServlet {
@@ -22,6 +33,12 @@ public class LoginServlet extends HttpServlet {
     private static final long serialVersionUID = 7302828964216520580L;
     private static final Logger logger = LoggerFactory.getLogger(LoginServlet.class);
     static LoginUtils loginUtils = new LoginUtils();
+    static LoginThrottle loginThrottle = LoginThrottle.createFromSystemProperties();
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    static final String THROTTLED_MESSAGE = "Error: too many failed logins, please wait a while and try again";
+    static final String TOO_MANY_SESSIONS_MESSAGE = "Error: too many people are logged in right now, please try again later";
+    static final String BUSY_MESSAGE = "Error: the server is too busy to check credentials right now, please try again";
+    static final String TIMEOUT_MESSAGE = "Error: checking credentials took too long, please try again";
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) {
@@ -31,17 +48,47 @@ public class LoginServlet extends HttpServlet {
         String password = StringUtils.makeNotNullable(request.getParameter("password"));
         request.setAttribute("password", password);
 
+        final boolean wantsToken = "true".equals(request.getParameter("token"));
+        final String address = StringUtils.makeNotNullable(request.getRemoteAddr());
+
         String responseText;
 
         if (username.isEmpty()) {
             responseText = "no username provided";
         } else if (password.isEmpty()) {
             responseText = "no password provided";
+        } else if (loginThrottle.isThrottled(username, address)) {
+            response.setStatus(SC_TOO_MANY_REQUESTS);
+            response.setHeader("Retry-After", String.valueOf(loginThrottle.getRetryAfterSeconds()));
+            responseText = THROTTLED_MESSAGE;
         } else {
             logger.info("received request to authenticate a user, {}", username);
 
-            final boolean userRegistered = loginUtils.isUserRegistered(username, password);
-            responseText = userRegistered ? "access granted" : "access denied";
+            try {
+                final boolean userRegistered = PasswordWork.withTimeout(PasswordWork.LOGIN_TIMEOUT_MILLIS,
+                        () -> loginUtils.isUserRegistered(username, password));
+                if (userRegistered) {
+                    loginThrottle.recordSuccess(username);
+                } else {
+                    loginThrottle.recordFailure(username, address);
+                }
+                responseText = userRegistered ? "access granted" : "access denied";
+                if (userRegistered && wantsToken) {
+                    request.setAttribute("result", issueToken(username));
+                    ServletUtils.forwardToRestfulResult(request, response, logger);
+                    return;
+                }
+            } catch (RejectedExecutionException ex) {
+                logger.warn("too busy to check the credentials of {}: {}", username, ex.getMessage());
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+                responseText = BUSY_MESSAGE;
+            } catch (TaskTimeoutException ex) {
+                logger.warn("could not check the credentials of {} in time: {}", username, ex.getMessage());
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+                responseText = TIMEOUT_MESSAGE;
+            }
         }
 
         request.setAttribute("result", responseText);
@@ -49,5 +96,15 @@ public class LoginServlet extends HttpServlet {
         ServletUtils.forwardToResult(request, response, logger);
     }
 
+    /**
+     * Start a session for a user whose credentials we just checked
+     * @return JSON with the token and when it expires, or an error message
+     */
+    private static String issueToken(String username) {
+        return Sessions.getStore().create(username)
+                .map(session -> String.format("{\"token\": \"%s\", \"expiresAtMillis\": %d}", session.token, session.expiresAtMillis))
+                .orElse(TOO_MANY_SESSIONS_MESSAGE);
+    }
+
 }
 
@@ -0,0 +1,96 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.admission.SlidingWindowLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Slows down password guessing at /login by limiting failed logins, both
+ * for each username and for each client address, over a sliding window.
+ * <p>
+ * A login that's throttled is turned away before we hash anything or touch the
+ * database - that's the point, since those are what make guessing expensive for us.
+ * Limiting by username stops one account from being hammered from many addresses;
+ * limiting by address stops one client from trying many accounts.  A successful
+ * login clears the failures for that username.
+ * </p>
+ * <p>
+ * Configured through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #USERNAME_LIMIT_PROPERTY} - failed logins allowed per username in the window</li>
+ *     <li>{@value #ADDRESS_LIMIT_PROPERTY} - failed logins allowed per client address in the window</li>
+ *     <li>{@value #WINDOW_PROPERTY} - how long the window is, in seconds</li>
+ *     <li>{@value #MAX_KEYS_PROPERTY} - the most usernames (and, separately, addresses) to keep track of</li>
+ * </ul>
+ */
+public final class LoginThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginThrottle.class);
+
+    public static final String USERNAME_LIMIT_PROPERTY = "demo.auth.throttle.usernameLimit";
+    public static final String ADDRESS_LIMIT_PROPERTY = "demo.auth.throttle.addressLimit";
+    public static final String WINDOW_PROPERTY = "demo.auth.throttle.windowSeconds";
+    public static final String MAX_KEYS_PROPERTY = "demo.auth.throttle.maxKeys";
+
+    private final SlidingWindowLimiter byUsername;
+    private final SlidingWindowLimiter byAddress;
+    private final AtomicLong throttled = new AtomicLong();
+
+    public LoginThrottle(int usernameLimit, int addressLimit, long windowSeconds, int maxKeys, LongSupplier clockMillis) {
+        final long windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        this.byUsername = new SlidingWindowLimiter(usernameLimit, windowMillis, maxKeys, clockMillis);
+        this.byAddress = new SlidingWindowLimiter(addressLimit, windowMillis, maxKeys, clockMillis);
+    }
+
+    public static LoginThrottle createFromSystemProperties() {
+        return new LoginThrottle(
+                Integer.getInteger(USERNAME_LIMIT_PROPERTY, 10),
+                Integer.getInteger(ADDRESS_LIMIT_PROPERTY, 100),
+                Long.getLong(WINDOW_PROPERTY, 300),
+                Integer.getInteger(MAX_KEYS_PROPERTY, 100_000),
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Should this login attempt be turned away, without even checking the password?
+     */
+    public boolean isThrottled(String username, String address) {
+        if (byUsername.isOverLimit(username) || byAddress.isOverLimit(address)) {
+            throttled.incrementAndGet();
+            logger.info("throttling login for {} from {} - too many recent failures", username, address);
+            return true;
+        }
+        return false;
+    }
+
+    public void recordFailure(String username, String address) {
+        byUsername.record(username);
+        byAddress.record(address);
+    }
+
+    public void recordSuccess(String username) {
+        byUsername.reset(username);
+    }
+
+    /**
+     * @return how long, at most, a throttled client should wait before trying again
+     */
+    public long getRetryAfterSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(byUsername.getWindowMillis());
+    }
+
+    /**
+     * The throttle's numbers, as JSON
+     */
+    public String toJson() {
+        return String.format("{\"throttled\": %d, \"usernamesTracked\": %d, \"addressesTracked\": %d, \"evicted\": %d}",
+                throttled.get(), byUsername.size(), byAddress.size(),
+                byUsername.getEvictedCount() + byAddress.getEvictedCount());
+    }
+
+}
@@ -3,6 +3,8 @@ package com.coveros.training.authentication;
 import com.coveros.training.helpers.CheckUtils;
 import com.coveros.training.persistence.IPersistenceLayer;
 import com.coveros.training.persistence.PersistenceLayer;
+import com.coveros.training.tracing.Span;
+import com.coveros.training.tracing.Tracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,15 +29,17 @@ public class LoginUtils {
      * @return true if the credentials are valid, false otherwise
      */
     public boolean isUserRegistered(String username, String password) {
-        CheckUtils.StringMustNotBeNullOrEmpty(username, password);
-        logger.info("checking if credentials for {} are valid for login", username);
-        boolean isValid = persistenceLayer.areCredentialsValid(username, password).orElse(false);
-        if (isValid) {
-            logger.info("credentials for {} are valid - granting access", username);
-        } else {
-            logger.info("credentials for {} were invalid - denying access", username);
+        try (Span span = Tracing.span("LoginUtils.isUserRegistered")) {
+            CheckUtils.StringMustNotBeNullOrEmpty(username, password);
+            logger.info("checking if credentials for {} are valid for login", username);
+            boolean isValid = persistenceLayer.areCredentialsValid(username, password).orElse(false);
+            if (isValid) {
+                logger.info("credentials for {} are valid - granting access", username);
+            } else {
+                logger.info("credentials for {} were invalid - denying access", username);
+            }
+            return isValid;
         }
-        return isValid;
     }
 
     public static LoginUtils createEmpty() {
@@ -0,0 +1,178 @@
+package com.coveros.training.authentication;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted, deliberately slow password hashing with PBKDF2 (HMAC-SHA256).
+ * <p>
+ * A stored hash looks like {@code pbkdf2$210000$<salt>$<hash>}, with the salt and hash
+ * in unpadded Base64.  Because the iteration count is stored with every hash,
+ * the cost can be raised later without breaking existing passwords - those simply
+ * get rehashed at the new cost on their owner's next successful login, see {@link #needsRehash}.
+ * </p>
+ * <p>
+ * Older rows hold a plain, unsalted SHA-256 of the password as 64 hex digits.  Those still
+ * verify, and always need rehashing.
+ * </p>
+ * <p>
+ * The cost is set with the system property {@value #ITERATIONS_PROPERTY}.  Higher is safer
+ * but makes every login slower - run the PasswordHashBenchmark to see how many logins per second
+ * each core manages at a given cost, and pick the highest cost that still meets the /login target.
+ * </p>
+ */
+public final class PasswordHasher {
+
+    public static final String ITERATIONS_PROPERTY = "demo.password.pbkdf2Iterations";
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final int LEGACY_HEX_LENGTH = 64;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * A hash of nothing in particular, checked against when there is no such user, so that
+     * a login for an unknown name takes as long as one for a known name.
+     */
+    private final String decoyHash;
+
+    /**
+     * @param iterations how many rounds of PBKDF2 to apply when hashing a new password
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("the PBKDF2 iteration count must be positive, was " + iterations);
+        }
+        this.iterations = iterations;
+        this.decoyHash = hash("decoy password");
+    }
+
+    public static PasswordHasher createFromSystemProperties() {
+        return new PasswordHasher(Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS));
+    }
+
+    /**
+     * Hash a password with a fresh random salt, at the configured cost
+     */
+    public String hash(String password) {
+        final byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        final byte[] hash = pbkdf2(password, salt, iterations);
+        final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Check a password against a stored hash, in either the current or the legacy format.
+     * The comparison takes the same time however many bytes match.
+     *
+     * @return true only if the password matches. A malformed stored hash never matches.
+     */
+    public boolean verify(String password, String storedHash) {
+        if (isLegacy(storedHash)) {
+            return MessageDigest.isEqual(legacySha256(password), hexToBytes(storedHash));
+        }
+        final String[] parts = storedHash.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) {
+            return false;
+        }
+        try {
+            final int storedIterations = Integer.parseInt(parts[1]);
+            final byte[] salt = Base64.getDecoder().decode(parts[2]);
+            final byte[] expected = Base64.getDecoder().decode(parts[3]);
+            if (storedIterations < 1 || expected.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(pbkdf2(password, salt, storedIterations, expected.length), expected);
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Does the same work as checking a password, for when there's nothing to check against.
+     *
+     * @return always false
+     */
+    public boolean verifyAgainstDecoy(String password) {
+        verify(password, decoyHash);
+        return false;
+    }
+
+    /**
+     * Should this stored hash be replaced after a successful login?  True for legacy
+     * SHA-256 hashes, and for hashes made at a lower cost than the current one.
+     */
+    public boolean needsRehash(String storedHash) {
+        if (isLegacy(storedHash)) {
+            return true;
+        }
+        final String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException ex) {
+            return true;
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    private static boolean isLegacy(String storedHash) {
+        if (storedHash.length() != LEGACY_HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < storedHash.length(); i++) {
+            if (Character.digit(storedHash.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        return pbkdf2(password, salt, iterations, HASH_BYTES);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations, int hashBytes) {
+        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, hashBytes * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("this JVM cannot do " + ALGORITHM, ex);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * How passwords used to be stored: a single unsalted SHA-256
+     */
+    static byte[] legacySha256(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("this JVM cannot do SHA-256", ex);
+        }
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4) + Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return bytes;
+    }
+
+}
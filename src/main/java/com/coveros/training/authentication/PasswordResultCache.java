@@ -0,0 +1,241 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.PasswordResult;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers recent password strength estimates, so a password that is scored
+ * again - someone retrying /register with small changes, or the password box
+ * asking after every keystroke - doesn't cost another Nbvcxz run.
+ * <p>
+ * Passwords are never kept, not even as plain hashes that could be looked up in a
+ * table.  Each is keyed by an HMAC of it, under a random key made when the cache is
+ * made, which lives only in memory.
+ * </p>
+ * <p>
+ * The cache holds at most a fixed number of estimates, dropping the least recently used
+ * when full, and each is forgotten once its time is up.  As in {@link com.coveros.training.admission.SlidingWindowLimiter},
+ * the entries are spread across shards with a lock each.
+ * </p>
+ * <p>
+ * Configured through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #MAX_ENTRIES_PROPERTY} - how many estimates to keep, default 10000.  0 turns the cache off.</li>
+ *     <li>{@value #TTL_PROPERTY} - how long to keep an estimate, default 600</li>
+ * </ul>
+ */
+public final class PasswordResultCache {
+
+    public static final String MAX_ENTRIES_PROPERTY = "demo.password.resultCache.maxEntries";
+    public static final String TTL_PROPERTY = "demo.password.resultCache.ttlSeconds";
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final long ttlMillis;
+    private final LongSupplier clockMillis;
+    private final Shard[] shards;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * A password's keyed hash - the first 128 bits of it are plenty to tell passwords apart
+     */
+    private static final class Key {
+        final long high;
+        final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+    }
+
+    private static final class CachedEstimate {
+        final PasswordResult result;
+        final long expiresAtMillis;
+
+        CachedEstimate(PasswordResult result, long expiresAtMillis) {
+            this.result = result;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * One part of the entries, in least-recently-used order
+     */
+    private final class Shard extends LinkedHashMap<Key, CachedEstimate> {
+        private static final long serialVersionUID = 1L;
+        private final int maxEntries;
+
+        Shard(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedEstimate> eldest) {
+            if (size() > maxEntries) {
+                evicted.incrementAndGet();
+                return true;
+            }
+            // the least recently used entry is the one most likely to have expired, so it's worth a look
+            if (eldest.getValue().expiresAtMillis <= clockMillis.getAsLong()) {
+                expired.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param maxEntries  the most estimates to keep at once, or 0 to keep none
+     * @param ttlMillis   how long to keep each estimate
+     * @param clockMillis the current time in milliseconds - {@link System#currentTimeMillis} outside of tests
+     */
+    public PasswordResultCache(int maxEntries, long ttlMillis, LongSupplier clockMillis) {
+        if (maxEntries < 0 || ttlMillis < 1) {
+            throw new IllegalArgumentException("the cache size can't be negative, and the time to live must be positive");
+        }
+        this.ttlMillis = ttlMillis;
+        this.clockMillis = clockMillis;
+        final int shardCount = maxEntries == 0
+                ? 0
+                : Math.min(Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1,
+                Integer.highestOneBit(maxEntries));
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(maxEntries / shardCount);
+        }
+        final byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, HMAC);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public static PasswordResultCache createFromSystemProperties() {
+        return new PasswordResultCache(
+                Integer.getInteger(MAX_ENTRIES_PROPERTY, 10_000),
+                TimeUnit.SECONDS.toMillis(Long.getLong(TTL_PROPERTY, 600)),
+                System::currentTimeMillis);
+    }
+
+    private Mac newMac() {
+        try {
+            final Mac newMac = Mac.getInstance(HMAC);
+            newMac.init(key);
+            return newMac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("this JVM cannot do " + HMAC, ex);
+        }
+    }
+
+    /**
+     * The estimate for this password - from the cache if we have it, otherwise
+     * worked out with the estimator and remembered.
+     */
+    public PasswordResult get(String password, Function<String, PasswordResult> estimator) {
+        if (shards.length == 0) {
+            misses.incrementAndGet();
+            return estimator.apply(password);
+        }
+        final Key cacheKey = keyFor(password);
+        final Shard shard = shards[cacheKey.hashCode() & (shards.length - 1)];
+        final long now = clockMillis.getAsLong();
+        synchronized (shard) {
+            final CachedEstimate entry = shard.get(cacheKey);
+            if (entry != null) {
+                if (entry.expiresAtMillis > now) {
+                    hits.incrementAndGet();
+                    return entry.result;
+                }
+                shard.remove(cacheKey);
+                expired.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        // estimated outside the lock, so a slow estimate doesn't hold up the shard.  If two
+        // threads miss on the same password at once, both estimate it, and the later one is kept.
+        final PasswordResult result = estimator.apply(password);
+        synchronized (shard) {
+            shard.put(cacheKey, new CachedEstimate(result, clockMillis.getAsLong() + ttlMillis));
+        }
+        return result;
+    }
+
+    private Key keyFor(String password) {
+        final ByteBuffer hash = ByteBuffer.wrap(mac.get().doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        return new Key(hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * @return how many estimates are being kept, including any that have expired but not yet been dropped
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * The cache's numbers, as JSON
+     */
+    public String toJson() {
+        final long hitCount = hits.get();
+        final long lookups = hitCount + misses.get();
+        return String.format(Locale.ROOT, "{\"hits\": %d, \"misses\": %d, \"hitRate\": %.4f, \"size\": %d, " +
+                        "\"expired\": %d, \"evicted\": %d}",
+                hitCount, misses.get(), lookups == 0 ? 0.0 : (double) hitCount / lookups, size(),
+                expired.get(), evicted.get());
+    }
+
+    @Override
+    public String toString() {
+        return "password result cache: " + toJson();
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.coveros.training.authentication;
+
+import me.gosimple.nbvcxz.Nbvcxz;
+import me.gosimple.nbvcxz.resources.Configuration;
+import me.gosimple.nbvcxz.resources.ConfigurationBuilder;
+import me.gosimple.nbvcxz.resources.Dictionary;
+import me.gosimple.nbvcxz.resources.DictionaryBuilder;
+import me.gosimple.nbvcxz.scoring.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A shared, pre-warmed pool of Nbvcxz password strength estimators.
+ * <p>
+ * Creating a new {@link Nbvcxz} builds its whole configuration - dictionaries
+ * of hundreds of thousands of words, keyboard adjacency graphs, leet tables - and
+ * that costs far more than actually estimating a password.  So we build the
+ * configuration once and reuse it.  An individual {@link Nbvcxz} keeps scratch state while
+ * it estimates, so it is not thread-safe; instead we keep a small pool of them,
+ * one per core, all sharing the same configuration.
+ * </p>
+ * <p>
+ * Configured through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #DICTIONARIES_PROPERTY} - a comma-separated list of the built-in dictionaries to
+ *     use (passwords, english, eff_large, male_names, female_names, surnames).  Default is all of them.</li>
+ *     <li>{@value #EXTRA_DICTIONARY_PROPERTY} - path to a file of extra words to treat as weak, one per line,
+ *     most common first</li>
+ *     <li>{@value #BUDGET_PROPERTY} - how many milliseconds one estimate may spend searching for
+ *     the best combination of matches before settling for a good-enough one.  This is what stops
+ *     long passwords from slowing to a crawl.</li>
+ * </ul>
+ */
+public final class PasswordStrengthEstimator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordStrengthEstimator.class);
+
+    public static final String DICTIONARIES_PROPERTY = "demo.password.dictionaries";
+    public static final String EXTRA_DICTIONARY_PROPERTY = "demo.password.extraDictionary";
+    public static final String BUDGET_PROPERTY = "demo.password.estimateBudgetMillis";
+
+    /**
+     * A password used to exercise each estimator once before any real request arrives
+     */
+    private static final String WARM_UP_PASSWORD = "correct horse battery staple 1";
+
+    private final Configuration configuration;
+    private final BlockingQueue<Nbvcxz> pool;
+
+    /**
+     * @param configuration the Nbvcxz configuration shared by every pooled estimator
+     * @param poolSize      how many estimators to keep ready
+     */
+    public PasswordStrengthEstimator(Configuration configuration, int poolSize) {
+        this.configuration = configuration;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            final Nbvcxz nbvcxz = new Nbvcxz(configuration);
+            nbvcxz.estimate(WARM_UP_PASSWORD);
+            pool.add(nbvcxz);
+        }
+    }
+
+    /**
+     * Builds an estimator configured by the system properties described above,
+     * with one pooled estimator per core.
+     */
+    public static PasswordStrengthEstimator createFromSystemProperties() {
+        final long start = System.nanoTime();
+        final ConfigurationBuilder builder = new ConfigurationBuilder()
+                .setDictionaries(chooseDictionaries(
+                        System.getProperty(DICTIONARIES_PROPERTY, ""),
+                        System.getProperty(EXTRA_DICTIONARY_PROPERTY, "")))
+                .setCombinationAlgorithmTimeout(
+                        Long.getLong(BUDGET_PROPERTY, ConfigurationBuilder.getDefaultCombinationAlgorithmTimeout()));
+        final PasswordStrengthEstimator estimator =
+                new PasswordStrengthEstimator(builder.createConfiguration(), Runtime.getRuntime().availableProcessors());
+        logger.info("password strength estimator ready in {} ms", (System.nanoTime() - start) / 1_000_000);
+        return estimator;
+    }
+
+    /**
+     * Picks out the dictionaries to use.
+     *
+     * @param builtInNames comma-separated names of the built-in dictionaries to keep.  Empty means keep all.
+     * @param extraDictionaryPath a file of extra words, one per line.  Empty means none.
+     */
+    static List<Dictionary> chooseDictionaries(String builtInNames, String extraDictionaryPath) {
+        final List<String> wanted = builtInNames.isEmpty()
+                ? new ArrayList<>()
+                : Arrays.asList(builtInNames.split("\\s*,\\s*"));
+        final List<Dictionary> dictionaries = new ArrayList<>();
+        for (Dictionary dictionary : ConfigurationBuilder.getDefaultDictionaries()) {
+            if (wanted.isEmpty() || wanted.contains(dictionary.getDictionaryName())) {
+                dictionaries.add(dictionary);
+            }
+        }
+        if (!extraDictionaryPath.isEmpty()) {
+            dictionaries.add(loadDictionary(extraDictionaryPath));
+        }
+        return dictionaries;
+    }
+
+    /**
+     * Reads a word list into a dictionary, ranking each word by its line number.
+     */
+    private static Dictionary loadDictionary(String path) {
+        final DictionaryBuilder builder = new DictionaryBuilder().setDictionaryName("extra");
+        try {
+            final List<String> words = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+            int rank = 1;
+            for (String word : words) {
+                if (!word.trim().isEmpty()) {
+                    builder.addWord(word.trim().toLowerCase(), rank++);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("could not read the password dictionary at " + path, ex);
+        }
+        return builder.createDictionary();
+    }
+
+    /**
+     * Estimate the strength of a password.  Safe to call from many threads at once.
+     */
+    public Result estimate(String password) {
+        Nbvcxz nbvcxz = pool.poll();
+        if (nbvcxz == null) {
+            // every pooled estimator is busy.  Making one from the shared
+            // configuration is cheap - it's the configuration that's expensive.
+            nbvcxz = new Nbvcxz(configuration);
+        }
+        try {
+            return nbvcxz.estimate(password);
+        } finally {
+            pool.offer(nbvcxz);
+        }
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+}
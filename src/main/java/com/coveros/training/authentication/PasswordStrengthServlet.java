@@ -0,0 +1,109 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.PasswordResult;
+import com.coveros.training.helpers.TaskTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides an API endpoint that says how strong a password is, without registering anyone -
+ * for the password box to ask as the user types.
+ * <p>
+ * POST either a single {@code password} parameter, or a plain-text body of many passwords,
+ * one per line.  The response is NDJSON, one line per password, each with its
+ * {@link PasswordResult}, written as soon as that password has been scored:
+ * </p>
+ * <pre>
+ * {"line": 1, "result": {"status": "SUCCESS", "entropy": 61.3, ...}}
+ * </pre>
+ * <p>
+ * Scoring goes through {@link RegistrationUtils#isPasswordGood}, so repeated passwords are
+ * answered from its {@link PasswordResultCache}.  At most {@value #MAX_PASSWORDS_PROPERTY}
+ * passwords (default 1000) are scored per request, and all of them together get the one time
+ * budget of a registration, {@link PasswordWork#REGISTER_TIMEOUT_MILLIS}.
+ * </p>
+ */
+@WebServlet(name = "PasswordStrengthServlet", urlPatterns = {"/passwordstrength"}, loadOnStartup = 1)
+public class PasswordStrengthServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LoggerFactory.getLogger(PasswordStrengthServlet.class);
+
+    public static final String MAX_PASSWORDS_PROPERTY = "demo.password.estimate.maxPasswords";
+    static int maxPasswords = Integer.getInteger(MAX_PASSWORDS_PROPERTY, 1000);
+    static long timeoutMillis = PasswordWork.REGISTER_TIMEOUT_MILLIS;
+
+    static final String BUSY_MESSAGE = "Error: the server is too busy to score passwords right now, please try again";
+    static final String TOO_MANY_MESSAGE = "Error: too many passwords in one request";
+
+    private static final String PASSWORD_PARAM = "password";
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        final PrintWriter writer = response.getWriter();
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        final String password = request.getParameter(PASSWORD_PARAM);
+        if (password != null) {
+            score(1, password, deadlineNanos, writer);
+            return;
+        }
+
+        final BufferedReader reader = request.getReader();
+        String line;
+        int lineNumber = 0;
+        int scored = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (scored++ == maxPasswords) {
+                writeError(lineNumber, TOO_MANY_MESSAGE, writer);
+                return;
+            }
+            if (!score(lineNumber, line, deadlineNanos, writer)) {
+                return;
+            }
+        }
+        logger.info("scored {} passwords", scored);
+    }
+
+    /**
+     * Score one password, in whatever is left of the request's time budget, and write out its line
+     *
+     * @return false if we're too busy to go on
+     */
+    private static boolean score(int lineNumber, String password, long deadlineNanos, PrintWriter writer) {
+        final PasswordResult result;
+        try {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            result = PasswordWork.withTimeout(remainingMillis, () -> RegistrationUtils.isPasswordGood(password));
+        } catch (RejectedExecutionException | TaskTimeoutException ex) {
+            logger.warn("could not score a password in time: {}", ex.getMessage());
+            writeError(lineNumber, BUSY_MESSAGE, writer);
+            return false;
+        }
+        writer.printf("{\"line\": %d, \"result\": %s}\n", lineNumber, result.toJson());
+        writer.flush();
+        return true;
+    }
+
+    private static void writeError(int lineNumber, String message, PrintWriter writer) {
+        writer.printf("{\"line\": %d, \"error\": \"%s\"}\n", lineNumber, message);
+        writer.flush();
+    }
+
+}
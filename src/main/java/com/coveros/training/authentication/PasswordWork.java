@@ -0,0 +1,125 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.helpers.BoundedWorkerPool;
+import com.coveros.training.helpers.TaskTimeoutException;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The CPU-heavy parts of authentication - hashing passwords and estimating
+ * their strength - run here, on a small dedicated {@link BoundedWorkerPool},
+ * instead of on the request threads.  That way a burst of registrations can
+ * use at most a few cores, and cheap catalog reads keep getting served.
+ * <p>
+ * The /login and /register endpoints each give their work a time budget
+ * with {@link #withTimeout}.  Every task run during that budget has to finish
+ * before it runs out.  Work turned away by a full pool, or not done in time, is
+ * answered with a 503 and a Retry-After of a second.
+ * </p>
+ * <p>
+ * Configured through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #THREADS_PROPERTY} - how many threads, default is half the cores (at least one)</li>
+ *     <li>{@value #QUEUE_PROPERTY} - how many tasks may wait for a thread</li>
+ *     <li>{@value #LOGIN_TIMEOUT_PROPERTY} - the time budget for a login, in milliseconds</li>
+ *     <li>{@value #REGISTER_TIMEOUT_PROPERTY} - the time budget for a registration, in milliseconds</li>
+ *     <li>{@value #BULK_REGISTER_TIMEOUT_PROPERTY} - the time budget for a bulk registration, in milliseconds</li>
+ * </ul>
+ */
+public final class PasswordWork {
+
+    public static final String THREADS_PROPERTY = "demo.password.workerThreads";
+    public static final String QUEUE_PROPERTY = "demo.password.workerQueue";
+    public static final String LOGIN_TIMEOUT_PROPERTY = "demo.auth.login.timeoutMillis";
+    public static final String REGISTER_TIMEOUT_PROPERTY = "demo.auth.register.timeoutMillis";
+    public static final String BULK_REGISTER_TIMEOUT_PROPERTY = "demo.auth.bulkRegister.timeoutMillis";
+
+    public static final long LOGIN_TIMEOUT_MILLIS = Long.getLong(LOGIN_TIMEOUT_PROPERTY, 3000);
+    public static final long REGISTER_TIMEOUT_MILLIS = Long.getLong(REGISTER_TIMEOUT_PROPERTY, 5000);
+    public static final long BULK_REGISTER_TIMEOUT_MILLIS = Long.getLong(BULK_REGISTER_TIMEOUT_PROPERTY, 120_000);
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * How long a task may take when it isn't run as part of a login or registration
+     */
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    static BoundedWorkerPool pool = new BoundedWorkerPool(
+            "password-work",
+            Integer.getInteger(THREADS_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Integer.getInteger(QUEUE_PROPERTY, 64),
+            0);
+
+    /**
+     * When the current thread's time budget runs out, as a {@link System#nanoTime()} value
+     */
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    private PasswordWork() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * Run some work with a time budget.  Any password work it does must finish within that budget.
+     *
+     * @throws RejectedExecutionException if the password workers are too busy
+     * @throws TaskTimeoutException if the password work didn't finish in time
+     */
+    public static <T> T withTimeout(long timeoutMillis, Supplier<T> work) {
+        final Long previous = deadline.get();
+        deadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                deadline.remove();
+            } else {
+                deadline.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Run a CPU-heavy task on the password workers, and wait for its result.
+     *
+     * @throws RejectedExecutionException if the password workers are too busy
+     * @throws TaskTimeoutException if the task didn't finish in the time remaining
+     */
+    public static <T> T run(String taskName, Callable<T> task) {
+        return pool.run(taskName, task, remainingNanos(taskName));
+    }
+
+    /**
+     * Run a batch of CPU-heavy tasks on the password workers, spread across
+     * all of them, and wait for their results.
+     *
+     * @return the results, in the same order as the tasks
+     * @throws RejectedExecutionException if the password workers are too busy
+     * @throws TaskTimeoutException if the batch didn't finish in the time remaining
+     */
+    public static <T> List<T> runAll(String taskName, List<? extends Callable<T>> tasks) {
+        return pool.runAll(taskName, tasks, remainingNanos(taskName));
+    }
+
+    private static long remainingNanos(String taskName) {
+        final Long currentDeadline = deadline.get();
+        final long timeoutNanos = currentDeadline == null
+                ? TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_MILLIS)
+                : currentDeadline - System.nanoTime();
+        if (timeoutNanos <= 0) {
+            throw new TaskTimeoutException(taskName + " was not started - the time budget was already used up");
+        }
+        return timeoutNanos;
+    }
+
+    public static BoundedWorkerPool getPool() {
+        return pool;
+    }
+
+}
@@ -3,6 +3,7 @@ package com.coveros.training.authentication;
 import com.coveros.training.authentication.domainobjects.RegistrationResult;
 import com.coveros.training.helpers.ServletUtils;
 import com.coveros.training.helpers.StringUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,6 +11,7 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Provides an API endpoint to register a new user, recording their username and (a hash of their) password
@@ -21,6 +23,8 @@ public class RegisterServlet extends HttpServlet {
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(RegisterServlet.class);
     private static final String USERNAME_PARAM = "username";
     static RegistrationUtils registrationUtils = new RegistrationUtils();
+    static final String BUSY_MESSAGE = "Error: the server is too busy to register users right now, please try again";
+    static final String TIMEOUT_MESSAGE = "Error: registering took too long, please try again";
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) {
@@ -40,9 +44,22 @@ public class RegisterServlet extends HttpServlet {
 
             logger.info("received request to register a user, {}", username);
 
-            RegistrationResult registrationResult = registrationUtils.processRegistration(username, password);
+            try {
+                RegistrationResult registrationResult = PasswordWork.withTimeout(PasswordWork.REGISTER_TIMEOUT_MILLIS,
+                        () -> registrationUtils.processRegistration(username, password));
 
-            responseText = registrationResult.toPrettyString();
+                responseText = registrationResult.toPrettyString();
+            } catch (RejectedExecutionException ex) {
+                logger.warn("too busy to register {}: {}", username, ex.getMessage());
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+                responseText = BUSY_MESSAGE;
+            } catch (TaskTimeoutException ex) {
+                logger.warn("could not register {} in time: {}", username, ex.getMessage());
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+                responseText = TIMEOUT_MESSAGE;
+            }
         }
 
         request.setAttribute("result", responseText);
@@ -1,16 +1,29 @@
 package com.coveros.training.authentication;
 
+import com.coveros.training.authentication.domainobjects.BulkRegistrationRow;
 import com.coveros.training.authentication.domainobjects.PasswordResult;
 import com.coveros.training.authentication.domainobjects.RegistrationResult;
+import com.coveros.training.authentication.domainobjects.RegistrationStatusEnums;
 import com.coveros.training.helpers.CheckUtils;
 import com.coveros.training.persistence.IPersistenceLayer;
 import com.coveros.training.persistence.PersistenceLayer;
-import me.gosimple.nbvcxz.Nbvcxz;
+import com.coveros.training.tracing.Span;
+import com.coveros.training.tracing.Tracing;
 import me.gosimple.nbvcxz.scoring.Result;
 import me.gosimple.nbvcxz.scoring.TimeEstimate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
 import static com.coveros.training.authentication.domainobjects.PasswordResultEnums.EMPTY_PASSWORD;
 import static com.coveros.training.authentication.domainobjects.PasswordResultEnums.*;
 import static com.coveros.training.authentication.domainobjects.RegistrationStatusEnums.*;
@@ -23,6 +36,23 @@ public class RegistrationUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(RegistrationUtils.class);
 
+    /**
+     * Built once, when this class is first loaded at startup, and shared by every
+     * registration.  Creating an Nbvcxz per call rebuilt all its dictionaries each time.
+     */
+    static PasswordStrengthEstimator passwordStrengthEstimator = PasswordStrengthEstimator.createFromSystemProperties();
+
+    /**
+     * Passwords known to have leaked.  See {@link BreachedPasswordList}
+     */
+    static BreachedPasswordList breachedPasswords = BreachedPasswordList.createFromSystemProperties();
+
+    /**
+     * Recent strength estimates, so a password scored again isn't re-run through Nbvcxz.
+     * See {@link PasswordResultCache}
+     */
+    static PasswordResultCache passwordResultCache = PasswordResultCache.createFromSystemProperties();
+
     private final IPersistenceLayer persistenceLayer;
 
     public RegistrationUtils(IPersistenceLayer persistenceLayer) {
@@ -43,27 +73,106 @@ public class RegistrationUtils {
      * </ol>
      */
     public RegistrationResult processRegistration(String username, String password) {
-        logger.info("Starting registration");
-        StringMustNotBeNullOrEmpty(username);
-        StringMustNotBeNullOrEmpty(password);
+        try (Span span = Tracing.span("RegistrationUtils.processRegistration")) {
+            logger.info("Starting registration");
+            StringMustNotBeNullOrEmpty(username);
+            StringMustNotBeNullOrEmpty(password);
 
-        if (isUserInDatabase(username)) {
-            logger.info("cannot register this user - they are already registered");
-            return new RegistrationResult(false, ALREADY_REGISTERED);
-        }
-        // at this point we know the user is not yet registered in the database
+            if (isUserInDatabase(username)) {
+                logger.info("cannot register this user - they are already registered");
+                return new RegistrationResult(false, ALREADY_REGISTERED);
+            }
+            // at this point we know the user is not yet registered in the database
+
+            // then we check if the password is good.
+            final PasswordResult passwordResult = isPasswordGood(password);
+            if (passwordResult.status != SUCCESS) {
+                logger.info("user provided a bad password during registration");
+                return new RegistrationResult(false, BAD_PASSWORD, passwordResult.toPrettyString());
+            }
 
-        // then we check if the password is good.
-        final PasswordResult passwordResult = isPasswordGood(password);
-        if (passwordResult.status != SUCCESS) {
-            logger.info("user provided a bad password during registration");
-            return new RegistrationResult(false, BAD_PASSWORD, passwordResult.toPrettyString());
+            // at this point, we feel assured it's ok to save to the database.
+            saveToDatabase(username, password);
+            logger.info("saving new user, {}, to database", username);
+            return new RegistrationResult(true, SUCCESSFULLY_REGISTERED);
         }
+    }
+
+    /**
+     * Registers many users at once, as uploaded to /registerbulk.  Each user gets the same
+     * checks as in {@link #processRegistration}, but the work is done for all of them together:
+     * <ol>
+     *     <li>Rows that couldn't be read, or are missing a username or password, are turned away,
+     *     as is a username listed more than once</li>
+     *     <li>One query finds which of the usernames are already registered</li>
+     *     <li>The passwords are checked in parallel, across all the password workers</li>
+     *     <li>Everyone left is saved in batched inserts</li>
+     * </ol>
+     *
+     * @return a result for each row, in the same order as the rows
+     */
+    public List<RegistrationResult> processBulkRegistration(List<BulkRegistrationRow> rows) {
+        return processBulkRegistration(rows, new HashSet<>());
+    }
+
+    /**
+     * Like {@link #processBulkRegistration(List)}, for one part of a bigger upload, done a part at a time
+     *
+     * @param listedBefore the usernames in the parts already done - a username listed again is turned
+     *                     away, and this part's usernames are added to it
+     * @return a result for each row, in the same order as the rows
+     */
+    public List<RegistrationResult> processBulkRegistration(List<BulkRegistrationRow> rows, Set<String> listedBefore) {
+        try (Span span = Tracing.span("RegistrationUtils.processBulkRegistration")) {
+            logger.info("Starting bulk registration of {} users", rows.size());
+            final RegistrationResult[] results = new RegistrationResult[rows.size()];
+            final Set<String> usernames = new HashSet<>();
+            final List<Integer> candidates = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                final BulkRegistrationRow row = rows.get(i);
+                if (row.isMalformed()) {
+                    results[i] = new RegistrationResult(false, INVALID_ROW, row.problem);
+                } else if (row.username.isEmpty()) {
+                    results[i] = new RegistrationResult(false, RegistrationStatusEnums.EMPTY_USERNAME);
+                } else if (row.password.isEmpty()) {
+                    results[i] = new RegistrationResult(false, RegistrationStatusEnums.EMPTY_PASSWORD);
+                } else if (!listedBefore.add(row.username)) {
+                    results[i] = new RegistrationResult(false, ALREADY_REGISTERED, "listed more than once in this upload");
+                } else {
+                    usernames.add(row.username);
+                    candidates.add(i);
+                }
+            }
 
-        // at this point, we feel assured it's ok to save to the database.
-        saveToDatabase(username, password);
-        logger.info("saving new user, {}, to database", username);
-        return new RegistrationResult(true, SUCCESSFULLY_REGISTERED);
+            final Set<String> registered = persistenceLayer.findRegisteredUsernames(usernames);
+            candidates.removeIf(i -> {
+                if (registered.contains(rows.get(i).username)) {
+                    results[i] = new RegistrationResult(false, ALREADY_REGISTERED);
+                    return true;
+                }
+                return false;
+            });
+
+            final List<Callable<PasswordResult>> passwordChecks = candidates.stream()
+                    .map(i -> (Callable<PasswordResult>) () -> isPasswordGood(rows.get(i).password))
+                    .collect(Collectors.toList());
+            final List<PasswordResult> passwordResults = PasswordWork.runAll("check password", passwordChecks);
+
+            final Map<String, String> newUsers = new LinkedHashMap<>();
+            for (int k = 0; k < candidates.size(); k++) {
+                final int i = candidates.get(k);
+                final PasswordResult passwordResult = passwordResults.get(k);
+                if (passwordResult.status != SUCCESS) {
+                    results[i] = new RegistrationResult(false, BAD_PASSWORD, passwordResult.toPrettyString());
+                } else {
+                    newUsers.put(rows.get(i).username, rows.get(i).password);
+                    results[i] = new RegistrationResult(true, SUCCESSFULLY_REGISTERED);
+                }
+            }
+            persistenceLayer.saveNewUsersWithPasswords(newUsers);
+            logger.info("bulk registration saved {} of {} users", newUsers.size(), rows.size());
+            return Arrays.asList(results);
+        }
     }
 
     public static RegistrationUtils createEmpty() {
@@ -85,55 +194,75 @@ public class RegistrationUtils {
      *    <li>it must not be too short (less than 6 characters)</li>
      *    <li>it cannot be too long (more than 100 characters - this is because the framework</li>
      *    <li>analysis slows to a crawl with more than 100 characters)</li>
+     *    <li>it must not be one we know has leaked in a breach</li>
      *    <li>Whether the entropy framework we're using considers the password good.</li>
      * </ol>
+     *  <p>That last check is slow, so its results are cached for a while - see {@link PasswordResultCache}</p>
      *  <p>See {@link PasswordResult}</p>
      */
     public static PasswordResult isPasswordGood(String password) {
-        if (password.isEmpty()) {
-            logger.info("password was empty");
-            return PasswordResult.createDefault(EMPTY_PASSWORD);
-        }
-        StringMustNotBeNullOrEmpty(password);
+        try (Span span = Tracing.span("RegistrationUtils.isPasswordGood")) {
+            if (password.isEmpty()) {
+                logger.info("password was empty");
+                return PasswordResult.createDefault(EMPTY_PASSWORD);
+            }
+            StringMustNotBeNullOrEmpty(password);
 
-        final boolean isTooSmall = password.length() < 10;
-        if (isTooSmall) {
-            logger.info("password was too short");
-            return PasswordResult.createDefault(TOO_SHORT);
-        }
-        CheckUtils.mustBeTrueAtThisPoint(isTooSmall == false,
-                "At this point, the password cannot be too small");
+            final boolean isTooSmall = password.length() < 10;
+            if (isTooSmall) {
+                logger.info("password was too short");
+                return PasswordResult.createDefault(TOO_SHORT);
+            }
+            CheckUtils.mustBeTrueAtThisPoint(isTooSmall == false,
+                    "At this point, the password cannot be too small");
 
-        final boolean isTooLarge = password.length() > 100;
-        if (isTooLarge) {
-            logger.info("password was too long");
-            return PasswordResult.createDefault(TOO_LONG);
+            final boolean isTooLarge = password.length() > 100;
+            if (isTooLarge) {
+                logger.info("password was too long");
+                return PasswordResult.createDefault(TOO_LONG);
+            }
+            CheckUtils.mustBeTrueAtThisPoint(isTooLarge == false,
+                    "At this point, the password cannot be too large");
+
+            if (breachedPasswords.contains(password)) {
+                logger.info("password is on the list of breached passwords");
+                return PasswordResult.createDefault(BREACHED);
+            }
+
+            return passwordResultCache.get(password, RegistrationUtils::estimateStrength);
         }
-        CheckUtils.mustBeTrueAtThisPoint(isTooLarge == false,
-                "At this point, the password cannot be too large");
-
-        // Nbvcxz is a tool that tests entropy on passwords
-        // See github.com/GoSimpleLLC/nbvcxz
-        final Nbvcxz nbvcxz = new Nbvcxz();
-        final Result result = nbvcxz.estimate(password);
-        final String suggestions = String.join(";", result.getFeedback().getSuggestion());
-
-        final Double entropy = result.getEntropy();
-        CheckUtils.mustBeTrueAtThisPoint(entropy > 0d, "There must be *some* entropy at this point, more than 0");
-
-        String timeToCrackOff = TimeEstimate.getTimeToCrackFormatted(result, "OFFLINE_BCRYPT_12");
-        String timeToCrackOn = TimeEstimate.getTimeToCrackFormatted(result, "ONLINE_THROTTLED");
-        if (!result.isMinimumEntropyMet()) {
-            logger.info("minimum entropy for password was not met");
-            return new PasswordResult(INSUFFICIENT_ENTROPY, entropy, timeToCrackOff, timeToCrackOn, suggestions);
-        } else {
-            logger.info("password met required entropy");
-            return new PasswordResult(SUCCESS, entropy, timeToCrackOff, timeToCrackOn, result.getFeedback().getResult());
+    }
+
+    /**
+     * The expensive part of {@link #isPasswordGood} - running the password through Nbvcxz
+     */
+    private static PasswordResult estimateStrength(String password) {
+        try (Span span = Tracing.span("RegistrationUtils.estimateStrength")) {
+            // Nbvcxz is a tool that tests entropy on passwords
+            // See github.com/GoSimpleLLC/nbvcxz, and PasswordStrengthEstimator
+            final Result result = PasswordWork.run("estimate password strength",
+                    () -> passwordStrengthEstimator.estimate(password));
+            final String suggestions = String.join(";", result.getFeedback().getSuggestion());
+
+            final Double entropy = result.getEntropy();
+            CheckUtils.mustBeTrueAtThisPoint(entropy > 0d, "There must be *some* entropy at this point, more than 0");
+
+            String timeToCrackOff = TimeEstimate.getTimeToCrackFormatted(result, "OFFLINE_BCRYPT_12");
+            String timeToCrackOn = TimeEstimate.getTimeToCrackFormatted(result, "ONLINE_THROTTLED");
+            if (!result.isMinimumEntropyMet()) {
+                logger.info("minimum entropy for password was not met");
+                return new PasswordResult(INSUFFICIENT_ENTROPY, entropy, timeToCrackOff, timeToCrackOn, suggestions);
+            } else {
+                logger.info("password met required entropy");
+                return new PasswordResult(SUCCESS, entropy, timeToCrackOff, timeToCrackOn, result.getFeedback().getResult());
+            }
         }
     }
 
     public boolean isUserInDatabase(String username) {
-        return persistenceLayer.searchForUserByName(username).isPresent();
+        try (Span span = Tracing.span("RegistrationUtils.isUserInDatabase")) {
+            return persistenceLayer.searchForUserByName(username).isPresent();
+        }
     }
 
     private void saveToDatabase(String username, String password) {
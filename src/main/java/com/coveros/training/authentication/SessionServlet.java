@@ -0,0 +1,48 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Optional;
+
+/**
+ * Web API for login sessions.
+ * <p>
+ * GET tells a client who its bearer token belongs to - handy for
+ * checking whether a session is still good.  DELETE ends the session (logs out).
+ * </p>
+ */
+@WebServlet(name = "SessionServlet", urlPatterns = {"/session"}, loadOnStartup = 1)
+public class SessionServlet extends HttpServlet {
+
+    private static final long serialVersionUID = -2981172735930458105L;
+    private static final Logger logger = LoggerFactory.getLogger(SessionServlet.class);
+    static final String INVALID_SESSION_MESSAGE = "invalid or expired session";
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+        final Optional<SessionStore.Session> session = Sessions.fromRequest(request);
+        if (session.isPresent()) {
+            request.setAttribute("result", String.format("{\"username\": \"%s\", \"expiresAtMillis\": %d}",
+                    StringUtils.escapeForJson(session.get().username), session.get().expiresAtMillis));
+        } else {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            request.setAttribute("result", INVALID_SESSION_MESSAGE);
+        }
+        ServletUtils.forwardToRestfulResult(request, response, logger);
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response) {
+        Sessions.bearerToken(request).ifPresent(Sessions.getStore()::invalidate);
+        request.setAttribute("result", "logged out");
+        ServletUtils.forwardToRestfulResult(request, response, logger);
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.coveros.training.authentication;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory login sessions, so a client that has logged in once can prove
+ * who it is with a token instead of sending its password (and paying for a
+ * hash and a database query) on every request.
+ * <p>
+ * Looking up a token is a single read of a {@link ConcurrentHashMap}, which
+ * doesn't lock, plus a comparison against the session's expiry time.
+ * </p>
+ * <p>
+ * Expired sessions are cleared out with a timing wheel: a ring of buckets, one per
+ * tick (a second), covering the whole session lifetime.  A new session's token
+ * goes in the bucket for the tick just after it expires.  As the clock moves past a tick, that bucket
+ * is emptied and its sessions removed - so clearing out costs only as much as the number
+ * of sessions actually expiring, never a scan of them all.  That work is done by whichever
+ * caller first notices the clock has moved; everyone else carries on.
+ * </p>
+ * <p>
+ * Configured through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #TTL_PROPERTY} - how long a session lasts, in seconds</li>
+ *     <li>{@value #MAX_SESSIONS_PROPERTY} - the most sessions we'll hold at once</li>
+ * </ul>
+ */
+public class SessionStore {
+
+    public static final String TTL_PROPERTY = "demo.auth.session.ttlSeconds";
+    public static final String MAX_SESSIONS_PROPERTY = "demo.auth.session.maxSessions";
+
+    private static final int TOKEN_BYTES = 32;
+    private static final long TICK_MILLIS = 1000;
+
+    private final long ttlMillis;
+    private final int maxSessions;
+    private final LongSupplier clockMillis;
+    private final SecureRandom random = new SecureRandom();
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Queue<String>[] wheel;
+    private final ReentrantLock expiryLock = new ReentrantLock();
+
+    /**
+     * The last tick whose bucket has been emptied
+     */
+    private volatile long expiredThroughTick;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * A logged-in user and when their session runs out
+     */
+    public static final class Session {
+        public final String token;
+        public final String username;
+        public final long expiresAtMillis;
+
+        Session(String token, String username, long expiresAtMillis) {
+            this.token = token;
+            this.username = username;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * @param ttlSeconds  how long each session lasts
+     * @param maxSessions the most sessions held at once
+     * @param clockMillis the current time in milliseconds - {@link System#currentTimeMillis} outside of tests
+     */
+    @SuppressWarnings("unchecked")
+    public SessionStore(long ttlSeconds, int maxSessions, LongSupplier clockMillis) {
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("a session must last at least a second, was " + ttlSeconds);
+        }
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.maxSessions = maxSessions;
+        this.clockMillis = clockMillis;
+        // a little longer than a session lasts, so a new session never lands in a bucket about to be emptied
+        this.wheel = new Queue[(int) (ttlMillis / TICK_MILLIS) + 2];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.expiredThroughTick = clockMillis.getAsLong() / TICK_MILLIS;
+    }
+
+    public static SessionStore createFromSystemProperties() {
+        return new SessionStore(
+                Long.getLong(TTL_PROPERTY, 1800),
+                Integer.getInteger(MAX_SESSIONS_PROPERTY, 100_000),
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Start a session for a user who has just proven who they are.
+     *
+     * @return the new session, or empty if we are already holding as many sessions as we're allowed
+     */
+    public Optional<Session> create(String username) {
+        final long now = clockMillis.getAsLong();
+        expireDue(now);
+        if (sessions.size() >= maxSessions) {
+            return Optional.empty();
+        }
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        final String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        final Session session = new Session(token, username, now + ttlMillis);
+        sessions.put(token, session);
+        wheel[bucketFor(session.expiresAtMillis / TICK_MILLIS + 1)].add(token);
+        created.incrementAndGet();
+        return Optional.of(session);
+    }
+
+    /**
+     * Who does this token belong to?
+     *
+     * @return the session, or empty if the token is unknown or its session has expired
+     */
+    public Optional<Session> validate(String token) {
+        final long now = clockMillis.getAsLong();
+        expireDue(now);
+        final Session session = sessions.get(token);
+        if (session == null || session.expiresAtMillis <= now) {
+            return Optional.empty();
+        }
+        return Optional.of(session);
+    }
+
+    /**
+     * End a session early - that is, log out
+     */
+    public void invalidate(String token) {
+        sessions.remove(token);
+    }
+
+    /**
+     * Empty out the buckets for every tick the clock has moved past.  If another thread
+     * is already doing that, leave it to them.
+     */
+    private void expireDue(long now) {
+        final long currentTick = now / TICK_MILLIS;
+        if (currentTick <= expiredThroughTick || !expiryLock.tryLock()) {
+            return;
+        }
+        try {
+            // if we've been idle for longer than a full turn of the wheel, one turn covers everything
+            long tick = Math.max(expiredThroughTick + 1, currentTick - wheel.length + 1);
+            for (; tick <= currentTick; tick++) {
+                expireBucket(wheel[bucketFor(tick)], now);
+            }
+            expiredThroughTick = currentTick;
+        } finally {
+            expiryLock.unlock();
+        }
+    }
+
+    private void expireBucket(Queue<String> bucket, long now) {
+        // only look at what was there when we started, in case a token goes back into this same bucket
+        for (int remaining = bucket.size(); remaining > 0; remaining--) {
+            final String token = bucket.poll();
+            if (token == null) {
+                return;
+            }
+            final Session session = sessions.get(token);
+            if (session == null) {
+                // already logged out
+                continue;
+            }
+            if (session.expiresAtMillis <= now) {
+                if (sessions.remove(token, session)) {
+                    expired.incrementAndGet();
+                }
+            } else {
+                // added while the wheel was running behind - put it where it belongs
+                wheel[bucketFor(session.expiresAtMillis / TICK_MILLIS + 1)].add(token);
+            }
+        }
+    }
+
+    private int bucketFor(long tick) {
+        return (int) (tick % wheel.length);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.helpers.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Optional;
+
+/**
+ * The login sessions shared by every endpoint.  A client that logged in
+ * with a token (see {@link LoginServlet}) sends it back on each request as
+ * {@code Authorization: Bearer <token>}, and any endpoint that needs to know who's
+ * calling asks {@link #fromRequest} - no password, hash or database involved.
+ */
+public final class Sessions {
+
+    public static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    static SessionStore store = SessionStore.createFromSystemProperties();
+
+    private Sessions() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * @return the session for the bearer token on this request, or empty if there's
+     * no token, or it's unknown or expired
+     */
+    public static Optional<SessionStore.Session> fromRequest(HttpServletRequest request) {
+        return bearerToken(request).flatMap(store::validate);
+    }
+
+    /**
+     * @return the bearer token on this request, if there is one
+     */
+    static Optional<String> bearerToken(HttpServletRequest request) {
+        final String header = StringUtils.makeNotNullable(request.getHeader(AUTHORIZATION_HEADER));
+        if (!header.startsWith(BEARER_PREFIX) || header.length() == BEARER_PREFIX.length()) {
+            return Optional.empty();
+        }
+        return Optional.of(header.substring(BEARER_PREFIX.length()).trim());
+    }
+
+    public static SessionStore getStore() {
+        return store;
+    }
+
+}
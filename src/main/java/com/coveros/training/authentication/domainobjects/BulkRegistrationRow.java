@@ -0,0 +1,88 @@
+package com.coveros.training.authentication.domainobjects;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * One user to register, as read from a bulk registration upload.
+ * See {@link com.coveros.training.authentication.BulkRegistrationParser}
+ */
+public final class BulkRegistrationRow {
+
+    /**
+     * Which line of the upload this came from, counting from 1
+     */
+    public final int lineNumber;
+
+    public final String username;
+
+    public final String password;
+
+    /**
+     * Why the line couldn't be read, or empty if it could
+     */
+    public final String problem;
+
+    private BulkRegistrationRow(int lineNumber, String username, String password, String problem) {
+        this.lineNumber = lineNumber;
+        this.username = username;
+        this.password = password;
+        this.problem = problem;
+    }
+
+    public static BulkRegistrationRow of(int lineNumber, String username, String password) {
+        return new BulkRegistrationRow(lineNumber, username, password, "");
+    }
+
+    /**
+     * A line we couldn't make sense of
+     */
+    public static BulkRegistrationRow malformed(int lineNumber, String problem) {
+        return new BulkRegistrationRow(lineNumber, "", "", problem);
+    }
+
+    public boolean isMalformed() {
+        return !problem.isEmpty();
+    }
+
+    public final boolean equals(@Nullable Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (obj == this) {
+            return true;
+        }
+        if (obj.getClass() != getClass()) {
+            return false;
+        }
+        BulkRegistrationRow rhs = (BulkRegistrationRow) obj;
+        return new EqualsBuilder()
+                .append(lineNumber, rhs.lineNumber)
+                .append(username, rhs.username)
+                .append(password, rhs.password)
+                .append(problem, rhs.problem)
+                .isEquals();
+    }
+
+    public final int hashCode() {
+        // you pick a hard-coded, randomly chosen, non-zero, odd number
+        // ideally different for each class
+        return new HashCodeBuilder(21, 37).
+                append(lineNumber).
+                append(username).
+                append(password).
+                append(problem).
+                toHashCode();
+    }
+
+    /**
+     * Leaves the password out, so this is safe to log
+     */
+    public final String toString() {
+        return isMalformed()
+                ? String.format("line %d: %s", lineNumber, problem)
+                : String.format("line %d: %s", lineNumber, username);
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.coveros.training.authentication.domainobjects;
 
+import com.coveros.training.helpers.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -89,6 +90,13 @@ public final class PasswordResult {
                 String.format("Nbvcxz response: %s%n", message);
     }
 
+    public final String toJson() {
+        return String.format("{\"status\": \"%s\", \"entropy\": %s, \"timeToCrackOffline\": \"%s\", " +
+                        "\"timeToCrackOnline\": \"%s\", \"message\": \"%s\"}",
+                status, entropy, StringUtils.escapeForJson(timeToCrackOffline),
+                StringUtils.escapeForJson(timeToCrackOnline), StringUtils.escapeForJson(message));
+    }
+
     /**
      * Return this to represent an empty result.  Used primarily
      * when we are initializing a variable and don't want to use null.
@@ -18,6 +18,12 @@ public enum PasswordResultEnums {
      * as measured by a tool.  See implementation where this is used.
      */
     INSUFFICIENT_ENTROPY,
+
+    /**
+     * the password has turned up in a known data breach, so attackers
+     * will try it early.  See {@link com.coveros.training.authentication.BreachedPasswordList}
+     */
+    BREACHED,
     SUCCESS,
 
     /**
@@ -1,5 +1,6 @@
 package com.coveros.training.authentication.domainobjects;
 
+import com.coveros.training.helpers.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -63,6 +64,11 @@ public final class RegistrationResult {
                 String.format("message: %n%n%s%n", message);
     }
 
+    public final String toJson() {
+        return String.format("{\"registered\": %s, \"status\": \"%s\", \"message\": \"%s\"}",
+                wasSuccessfullyRegistered, status, StringUtils.escapeForJson(message));
+    }
+
     public static RegistrationResult createEmpty() {
         return new RegistrationResult(false, RegistrationStatusEnums.EMPTY);
     }
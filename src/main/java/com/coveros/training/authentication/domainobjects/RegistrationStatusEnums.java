@@ -10,6 +10,11 @@ public enum RegistrationStatusEnums {
     EMPTY_PASSWORD,
     SUCCESSFULLY_REGISTERED,
     BAD_PASSWORD,
+
+    /**
+     * a row of a bulk registration that couldn't be read.  See {@link BulkRegistrationRow}
+     */
+    INVALID_ROW,
     EMPTY // represents the state of no status.  Used by the empty registration result.
 
 }
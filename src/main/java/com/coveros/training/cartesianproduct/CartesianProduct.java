@@ -1,10 +1,427 @@
 package com.coveros.training.cartesianproduct;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class CartesianProduct {
+/**
+ * The cartesian product of some lists: every tuple with one item from each, in order -
+ * the first item of the last list changing fastest, like the digits of a number.
+ * <p>
+ * Nothing is made up front but the lists themselves.  Tuple k is worked out from k directly, as a number in
+ * mixed radix - its digit for each list is which item of that list it has - so any tuple can be had on its own,
+ * and the number of tuples is just the sizes multiplied together.  Going through them in order, each next
+ * tuple's digits are those of the one before plus one, carried along as needed.
+ * </p>
+ * <p>
+ * The {@link #stream()} splits by index, so a parallel stream hands each thread an even share of the tuples,
+ * however the lists are sized.
+ * </p>
+ * <p>
+ * As text, {@link #writeTo(Writer)} writes the tuples out as it goes, so a product of billions takes no more
+ * memory than one of four.
+ * </p>
+ * <p>
+ * When only some tuples are wanted, and whether a tuple is wanted can often be told from its first few
+ * items, {@link #where} gives a {@link PrunedProduct} that skips every tuple starting with a bad few at once.
+ * </p>
+ *
+ * @param <T> the type of the items
+ */
+public final class CartesianProduct<T> {
 
+    /**
+     * How many tuples {@link #writeTo(Writer)} puts on each line
+     */
+    public static final int TUPLES_PER_LINE = 4;
+
+    private static final int BUFFER_CHARS = 1 << 13;
+
+    final Object[][] dimensions;
+    final int[] radices;
+
+    /**
+     * The number of tuples, or -1 if it's more than a long can hold
+     */
+    private final long size;
+
+    private CartesianProduct(List<? extends Collection<? extends T>> lists) {
+        dimensions = new Object[lists.size()][];
+        radices = new int[lists.size()];
+        long product = 1;
+        for (int i = 0; i < dimensions.length; i++) {
+            dimensions[i] = lists.get(i).toArray();
+            radices[i] = dimensions[i].length;
+        }
+        for (int radix : radices) {
+            if (radix == 0) {
+                product = 0;
+                break;
+            }
+            if (product >= 0) {
+                product = product > Long.MAX_VALUE / radix ? -1 : product * radix;
+            }
+        }
+        this.size = product;
+    }
+
+    /**
+     * @param lists the items for each position of the tuples, in the order they're to be gone through.  Each
+     *              is copied, so changing it after makes no difference.
+     */
+    public static <T> CartesianProduct<T> of(List<? extends Collection<? extends T>> lists) {
+        return new CartesianProduct<>(lists);
+    }
+
+    @SafeVarargs
+    public static <T> CartesianProduct<T> of(Collection<? extends T>... lists) {
+        return new CartesianProduct<>(Arrays.asList(lists));
+    }
+
+    /**
+     * The product of some sets, as text - see {@link #writeTo(Writer)}
+     *
+     * @param setOfSets sets of items, in the order they should be gone through - so a
+     *                  {@link java.util.LinkedHashSet}, unless the order doesn't matter
+     */
     public static <T> String calculate(final Set<T> setOfSets) {
-        return "";
+        final StringWriter out = new StringWriter();
+        try {
+            calculate(setOfSets, out);
+        } catch (IOException ex) {
+            // a StringWriter never throws
+            throw new UncheckedIOException(ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the product of some sets to a writer, a buffer at a time - see {@link #writeTo(Writer)}
+     */
+    public static <T> void calculate(final Set<T> setOfSets, Writer out) throws IOException {
+        of(asLists(setOfSets)).writeTo(out);
+    }
+
+    /**
+     * Write the product of some sets to a stream, in UTF-8, a buffer at a time - see {@link #writeTo(Writer)}
+     */
+    public static <T> void calculate(final Set<T> setOfSets, OutputStream out) throws IOException {
+        of(asLists(setOfSets)).writeTo(out);
+    }
+
+    private static List<Collection<?>> asLists(Set<?> setOfSets) {
+        final List<Collection<?>> lists = new ArrayList<>();
+        for (Object set : setOfSets) {
+            if (!(set instanceof Collection)) {
+                throw new IllegalArgumentException("each item of the set should be a set of items, but one was " + set);
+            }
+            lists.add((Collection<?>) set);
+        }
+        return lists;
     }
+
+    /**
+     * How many items each tuple has
+     */
+    public int dimensions() {
+        return dimensions.length;
+    }
+
+    /**
+     * How many tuples there are
+     *
+     * @throws ArithmeticException if that's more than a long can hold - see {@link #bigSize()}
+     */
+    public long size() {
+        if (size < 0) {
+            throw new ArithmeticException("the product has more than " + Long.MAX_VALUE + " tuples: " + bigSize());
+        }
+        return size;
+    }
+
+    /**
+     * How many tuples there are, however many that is
+     */
+    public BigInteger bigSize() {
+        BigInteger product = BigInteger.ONE;
+        for (int radix : radices) {
+            product = product.multiply(BigInteger.valueOf(radix));
+        }
+        return product;
+    }
+
+    /**
+     * Tuple number k, counting from 0
+     *
+     * @throws IndexOutOfBoundsException if there's no such tuple
+     */
+    public List<T> get(long k) {
+        if (k < 0 || k >= size()) {
+            throw new IndexOutOfBoundsException("there are " + size + " tuples, so there's no number " + k);
+        }
+        final int[] digits = new int[radices.length];
+        decode(k, digits);
+        return tuple(digits);
+    }
+
+    /**
+     * Write k in our mixed radix, the last list's digit last
+     */
+    private void decode(long k, int[] digits) {
+        long remaining = k;
+        for (int i = radices.length - 1; i >= 0; i--) {
+            digits[i] = (int) (remaining % radices[i]);
+            remaining /= radices[i];
+        }
+    }
+
+    /**
+     * Move on to the next tuple's digits - add one to the last, carrying as needed
+     */
+    private void increment(int[] digits) {
+        for (int i = digits.length - 1; i >= 0; i--) {
+            if (++digits[i] < radices[i]) {
+                return;
+            }
+            digits[i] = 0;
+        }
+    }
+
+    private List<T> tuple(int[] digits) {
+        final Object[] items = new Object[digits.length];
+        for (int i = 0; i < digits.length; i++) {
+            items[i] = dimensions[i][digits[i]];
+        }
+        return new Tuple<>(items);
+    }
+
+    /**
+     * One tuple - a list that can't be changed, straight over its array
+     */
+    static final class Tuple<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] items;
+
+        Tuple(Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            return (T) items[index];
+        }
+
+        @Override
+        public int size() {
+            return items.length;
+        }
+    }
+
+    /**
+     * Every tuple, in order, each made only when it's reached
+     *
+     * @throws ArithmeticException if there are more than a long can count
+     */
+    public Stream<List<T>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Like {@link #stream()}, but parallel
+     */
+    public Stream<List<T>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Goes through every tuple, and splits in half by index
+     *
+     * @throws ArithmeticException if there are more than a long can count
+     */
+    public Spliterator<List<T>> spliterator() {
+        return new TupleSpliterator(0, size());
+    }
+
+    /**
+     * Only the tuples that pass a test of their first position + 1 items - so that, when a tuple's start fails
+     * it, none of the tuples starting that way are made, or even looked at.  More tests can be added to the
+     * result with {@link PrunedProduct#where}.
+     *
+     * @param position   which item this is the test for, from 0
+     * @param constraint a test of the items up to and including that one
+     */
+    public PrunedProduct<T> where(int position, Predicate<? super List<T>> constraint) {
+        return new PrunedProduct<>(this).where(position, constraint);
+    }
+
+    /**
+     * Write every tuple out as text, {@value #TUPLES_PER_LINE} to a line, like this:
+     * <pre>
+     * (a, 1, e), (a, 1, f), (a, 2, e), (a, 2, f),
+     * (a, 3, e), (a, 3, f), (a, 4, e), (a, 4, f)
+     * </pre>
+     * Each item is made into text just once, before starting, and the tuples are put together in one buffer
+     * that's written out whenever it fills - so however many tuples there are, this takes no more memory than
+     * that and the items' text.
+     */
+    public void writeTo(Writer out) throws IOException {
+        final long count = size();
+        final char[][][] texts = new char[dimensions.length][][];
+        for (int i = 0; i < dimensions.length; i++) {
+            texts[i] = new char[dimensions[i].length][];
+            for (int j = 0; j < dimensions[i].length; j++) {
+                texts[i][j] = String.valueOf(dimensions[i][j]).toCharArray();
+            }
+        }
+        final TextBuffer buffer = new TextBuffer(out);
+        final int[] digits = new int[radices.length];
+        for (long k = 0; k < count; k++) {
+            if (k > 0) {
+                buffer.append(',');
+                buffer.append(k % TUPLES_PER_LINE == 0 ? '\n' : ' ');
+                increment(digits);
+            }
+            buffer.append('(');
+            for (int i = 0; i < digits.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                    buffer.append(' ');
+                }
+                buffer.append(texts[i][digits[i]]);
+            }
+            buffer.append(')');
+        }
+        buffer.flush();
+    }
+
+    /**
+     * Like {@link #writeTo(Writer)}, in UTF-8
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writeTo(writer);
+        writer.flush();
+    }
+
+    /**
+     * Chars waiting to be written, in one array used over and over
+     */
+    private static final class TextBuffer {
+        private final Writer out;
+        private final char[] chars = new char[BUFFER_CHARS];
+        private int used;
+
+        TextBuffer(Writer out) {
+            this.out = out;
+        }
+
+        void append(char c) throws IOException {
+            if (used == chars.length) {
+                flush();
+            }
+            chars[used++] = c;
+        }
+
+        void append(char[] text) throws IOException {
+            if (text.length > chars.length - used) {
+                flush();
+                if (text.length > chars.length) {
+                    out.write(text);
+                    return;
+                }
+            }
+            System.arraycopy(text, 0, chars, used, text.length);
+            used += text.length;
+        }
+
+        void flush() throws IOException {
+            out.write(chars, 0, used);
+            used = 0;
+        }
+    }
+
+    /**
+     * Tuples from index up to (not including) end.  The digits of the next one are only worked out
+     * from its index when it's first needed - so splitting costs nothing - and after that are counted up.
+     */
+    private final class TupleSpliterator implements Spliterator<List<T>> {
+        private long index;
+        private final long end;
+        private int[] digits;
+
+        TupleSpliterator(long index, long end) {
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super List<T>> action) {
+            while (index < end) {
+                action.accept(next());
+            }
+        }
+
+        private List<T> next() {
+            if (digits == null) {
+                digits = new int[radices.length];
+                decode(index, digits);
+            } else {
+                increment(digits);
+            }
+            index++;
+            return tuple(digits);
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            final long remaining = end - index;
+            if (remaining < 2) {
+                return null;
+            }
+            final long middle = index + remaining / 2;
+            final TupleSpliterator prefix = new TupleSpliterator(index, middle);
+            // the first half carries on from where we'd got to, and we start afresh from the middle
+            prefix.digits = digits;
+            digits = null;
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+
 }
@@ -0,0 +1,95 @@
+package com.coveros.training.cartesianproduct;
+
+import com.coveros.training.helpers.ServletUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.annotation.MultipartConfig;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides an API endpoint for the cartesian product of some lists, given as cp_lists: the
+ * lists separated by semicolons or new lines, and their items by commas - "a,b; 1,2,3,4; e,f".
+ * <p>
+ * The tuples are streamed back as plain text, by {@link CartesianProduct#writeTo(OutputStream)}, as
+ * they're made - so a product of billions of tuples takes no more memory on the server than a small
+ * one, and if the client stops reading, we stop making them.
+ * </p>
+ * <p>
+ * Products of more than {@value #MAX_TUPLES_PROPERTY} tuples (a system property, default ten billion) are turned away.
+ * </p>
+ */
+@MultipartConfig
+@WebServlet(name = "CartesianProductServlet", urlPatterns = {"/cartesianproduct"}, loadOnStartup = 1)
+public class CartesianProductServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 3416908752204389185L;
+    public static final String RESULT = "result";
+    public static final String MAX_TUPLES_PROPERTY = "demo.cartesianproduct.maxTuples";
+    static Logger logger = LoggerFactory.getLogger(CartesianProductServlet.class);
+
+    static long maxTuples = Long.getLong(MAX_TUPLES_PROPERTY, 10_000_000_000L);
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+        final String lists = request.getParameter("cp_lists");
+        if (lists == null || lists.trim().isEmpty()) {
+            request.setAttribute(RESULT, "Error: cp_lists must give the lists, like a,b;1,2,3,4;e,f");
+            forwardToResult(request, response, logger);
+            return;
+        }
+        final CartesianProduct<String> product = CartesianProduct.of(parseLists(lists));
+        if (product.bigSize().bitLength() >= Long.SIZE || product.size() > maxTuples) {
+            request.setAttribute(RESULT, "Error: the product has " + product.bigSize() + " tuples - at most " + maxTuples + " at a time");
+            forwardToResult(request, response, logger);
+            return;
+        }
+        logger.info("received request for the cartesian product of {} lists, {} tuples", product.dimensions(), product.size());
+
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        try {
+            final OutputStream out = response.getOutputStream();
+            product.writeTo(out);
+            out.flush();
+            logger.info("streamed {} tuples", product.size());
+        } catch (IOException ex) {
+            logger.info("stopped streaming the cartesian product: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * "a,b; 1,2,3,4" as [[a, b], [1, 2, 3, 4]] - items trimmed, and empty ones left out
+     */
+    static List<List<String>> parseLists(String lists) {
+        final List<List<String>> parsed = new ArrayList<>();
+        for (String list : lists.split("[;\\n]")) {
+            if (list.trim().isEmpty()) {
+                continue;
+            }
+            final List<String> items = new ArrayList<>();
+            for (String item : list.split(",")) {
+                if (!item.trim().isEmpty()) {
+                    items.add(item.trim());
+                }
+            }
+            parsed.add(items);
+        }
+        return parsed;
+    }
+
+    /**
+     * Wrapping a static method call for testing.
+     */
+    void forwardToResult(HttpServletRequest request, HttpServletResponse response, Logger logger) {
+        ServletUtils.forwardToRestfulResult(request, response, logger);
+    }
+
+}
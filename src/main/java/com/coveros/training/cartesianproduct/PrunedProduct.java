@@ -0,0 +1,267 @@
+package com.coveros.training.cartesianproduct;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The tuples of a {@link CartesianProduct} that pass some tests - such as a test matrix, leaving out the
+ * combinations that can't go together.
+ * <p>
+ * Each test is for one position, and is given the tuple's items up to and including that one.  The tuples are
+ * gone through depth first, an item at a time, and each test is tried as soon as its items are chosen: if
+ * it fails, every tuple starting that way is skipped at once.  Say the first two items of 6 lists of ten
+ * can't go together a third of the time - a third of the million tuples are then never made, and
+ * that's decided by looking at 100 pairs rather than a million tuples.
+ * </p>
+ * <p>
+ * The items of the first list are split between threads for a {@link #parallelStream()} - so there's as much
+ * parallelism as the first list has items, and the lists are best given biggest first.
+ * </p>
+ * <p>
+ * The lists given to the tests are only good while the test runs - they change as the next items are
+ * chosen - so a test should copy one if it needs to keep it.  The tuples given out are fixed.
+ * </p>
+ *
+ * @param <T> the type of the items
+ */
+public final class PrunedProduct<T> {
+
+    private final CartesianProduct<T> product;
+
+    /**
+     * The test for each position, or null if there's none
+     */
+    private final Predicate<? super List<T>>[] constraints;
+
+    @SuppressWarnings("unchecked")
+    PrunedProduct(CartesianProduct<T> product) {
+        this(product, (Predicate<? super List<T>>[]) new Predicate[product.dimensions()]);
+    }
+
+    private PrunedProduct(CartesianProduct<T> product, Predicate<? super List<T>>[] constraints) {
+        this.product = product;
+        this.constraints = constraints;
+    }
+
+    /**
+     * Only the tuples that pass this test as well
+     *
+     * @param position   which item this is the test for, from 0
+     * @param constraint a test of the items up to and including that one
+     */
+    public PrunedProduct<T> where(int position, Predicate<? super List<T>> constraint) {
+        if (position < 0 || position >= constraints.length) {
+            throw new IllegalArgumentException("the tuples have " + constraints.length + " items, so there's no position " + position);
+        }
+        final Predicate<? super List<T>>[] more = constraints.clone();
+        final Predicate<? super List<T>> before = constraints[position];
+        more[position] = before == null ? constraint : prefix -> before.test(prefix) && constraint.test(prefix);
+        return new PrunedProduct<>(product, more);
+    }
+
+    /**
+     * The tuples that pass every test, in the same order as {@link CartesianProduct#stream()}
+     */
+    public Stream<List<T>> stream() {
+        return StreamSupport.stream(new PrunedSpliterator(0, firstRadix()), false);
+    }
+
+    /**
+     * Like {@link #stream()}, but parallel - split by the items of the first list
+     */
+    public Stream<List<T>> parallelStream() {
+        return StreamSupport.stream(new PrunedSpliterator(0, firstRadix()), true);
+    }
+
+    /**
+     * How many tuples pass every test - found by going through them, but without making them
+     */
+    public long count() {
+        final Cursor cursor = new Cursor(0, firstRadix());
+        long count = 0;
+        while (cursor.advance()) {
+            count++;
+        }
+        return count;
+    }
+
+    private int firstRadix() {
+        return product.radices.length == 0 ? 1 : product.radices[0];
+    }
+
+    /**
+     * Goes depth first through the tuples whose first item is from a range of the first list, stopping at
+     * each one that passes every test
+     */
+    private final class Cursor {
+        private final int[] digits;
+        private final Object[] items;
+        private final List<T>[] prefixes;
+        private final int to;
+        private int depth;
+        private boolean done;
+
+        @SuppressWarnings("unchecked")
+        Cursor(int from, int to) {
+            final int length = product.radices.length;
+            this.digits = new int[length];
+            this.items = new Object[length];
+            this.prefixes = (List<T>[]) new List[length];
+            for (int i = 0; i < length; i++) {
+                prefixes[i] = new Prefix<>(items, i + 1);
+            }
+            this.to = to;
+            if (length > 0) {
+                digits[0] = from - 1;
+            }
+        }
+
+        /**
+         * Move on to the next tuple that passes, if there is one
+         */
+        boolean advance() {
+            if (done) {
+                return false;
+            }
+            final int last = digits.length - 1;
+            if (last < 0) {
+                // no lists - just the one empty tuple
+                done = true;
+                return true;
+            }
+            while (depth >= 0) {
+                final int limit = depth == 0 ? to : product.radices[depth];
+                if (++digits[depth] >= limit) {
+                    depth--;
+                    continue;
+                }
+                items[depth] = product.dimensions[depth][digits[depth]];
+                if (constraints[depth] != null && !constraints[depth].test(prefixes[depth])) {
+                    continue;
+                }
+                if (depth == last) {
+                    return true;
+                }
+                depth++;
+                digits[depth] = -1;
+            }
+            done = true;
+            return false;
+        }
+
+        /**
+         * The tuple it's at
+         */
+        List<T> tuple() {
+            return new CartesianProduct.Tuple<>(items.clone());
+        }
+    }
+
+    /**
+     * The first so many items of a tuple being put together
+     */
+    private static final class Prefix<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] items;
+        private final int size;
+
+        Prefix(Object[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("only " + size + " items so far, so there's no item " + index);
+            }
+            return (T) items[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * The tuples whose first item is from a range of the first list.  Splits that range in half, until
+     * it's started going through it.  With no lists at all, the range is just the one empty tuple.
+     */
+    private final class PrunedSpliterator implements Spliterator<List<T>> {
+        private int from;
+        private final int to;
+        private Cursor cursor;
+
+        PrunedSpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private Cursor cursor() {
+            if (cursor == null) {
+                cursor = new Cursor(from, to);
+            }
+            return cursor;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            final Cursor at = cursor();
+            if (!at.advance()) {
+                return false;
+            }
+            action.accept(at.tuple());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super List<T>> action) {
+            final Cursor at = cursor();
+            while (at.advance()) {
+                action.accept(at.tuple());
+            }
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            if (to - from < 2 || cursor != null) {
+                return null;
+            }
+            final int middle = (from + to) >>> 1;
+            final PrunedSpliterator prefix = new PrunedSpliterator(from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        /**
+         * At most every tuple of the range - there's no telling how many the tests will leave
+         */
+        @Override
+        public long estimateSize() {
+            if (product.radices.length == 0) {
+                return 1;
+            }
+            long size = to - from;
+            for (int i = 1; i < product.radices.length; i++) {
+                if (size > Long.MAX_VALUE / Math.max(1, product.radices[i])) {
+                    return Long.MAX_VALUE;
+                }
+                size *= product.radices[i];
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | IMMUTABLE;
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.coveros.training.helpers;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings: a compact, probabilistic set.
+ * <p>
+ * {@link #mightContain} never says no to a string that was {@link #put} in, but now and
+ * then says yes to one that wasn't - about as often as the false-positive rate it
+ * was sized for, as long as no more than the expected number of strings go in.
+ * In exchange, it takes a handful of bits per string, however long the strings are.
+ * </p>
+ * <p>
+ * Safe to use from many threads at once, without locking.
+ * </p>
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+
+    private BloomFilter(long bitCount, int hashCount, long expectedInsertions) {
+        this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * @param expectedInsertions how many strings we expect to put in
+     * @param falsePositiveRate  how often {@link #mightContain} may say yes wrongly, between 0 and 1 exclusive
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("the false positive rate must be between 0 and 1, was " + falsePositiveRate);
+        }
+        final long n = Math.max(1, expectedInsertions);
+        final long bitCount = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (LN2 * LN2)));
+        final int hashCount = Math.max(1, (int) Math.round((double) bitCount / n * LN2));
+        return new BloomFilter(bitCount, hashCount, n);
+    }
+
+    public void put(String value) {
+        final long hash = hash(value);
+        final long h1 = mix(hash);
+        final long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Math.floorMod(h1 + i * h2, bitCount);
+            setBit(bit);
+        }
+    }
+
+    /**
+     * @return false if the value was definitely never put in, true if it might have been
+     */
+    public boolean mightContain(String value) {
+        final long hash = hash(value);
+        final long h1 = mix(hash);
+        final long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBit(long bit) {
+        final int index = (int) (bit >>> 6);
+        final long mask = 1L << bit;
+        long current = bits.get(index);
+        while ((current & mask) == 0 && !bits.compareAndSet(index, current, current | mask)) {
+            current = bits.get(index);
+        }
+    }
+
+    /**
+     * FNV-1a over the characters of the string
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of a hash around, so similar strings land far apart (the MurmurHash3 finalizer)
+     */
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * @return roughly how much memory the bits take up
+     */
+    public long getMemoryBytes() {
+        return bitCount / 8;
+    }
+
+}
@@ -0,0 +1,343 @@
+package com.coveros.training.helpers;
+
+import com.coveros.training.tracing.Span;
+import com.coveros.training.tracing.Tracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed number of threads with a bounded queue in front of them, for
+ * CPU-heavy work that should not run on the servlet container's request threads.
+ * <p>
+ * If too much work piles up, new work is turned away right away with a
+ * {@link RejectedExecutionException}, rather than queueing without limit.
+ * If a piece of work doesn't finish within the caller's timeout, the caller
+ * gets a {@link TaskTimeoutException} and the work is cancelled.  The pool
+ * keeps counts and timings of all of this, see {@link #toString()}.
+ * </p>
+ * <p>
+ * A task that is already running on one of the pool's threads and asks the
+ * pool for more work gets that work run right there, rather than queued -
+ * otherwise it could wait forever on a queue that only it could drain.
+ * </p>
+ * <p>
+ * Tasks run with the logging context and trace of whoever submitted them (see
+ * {@link Tracing#propagate}), so their log lines carry the request's correlation
+ * id, and their spans show up in the request's trace.
+ * </p>
+ */
+public class BoundedWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedWorkerPool.class);
+
+    public final String name;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    /**
+     * @param name           used to name the threads, and in the logs
+     * @param threads        how many tasks may run at once
+     * @param queueCapacity  how many tasks may wait for a thread before we start rejecting
+     * @param stackSizeBytes the stack size for each thread, or 0 to use the JVM's default
+     */
+    public BoundedWorkerPool(String name, int threads, int queueCapacity, long stackSizeBytes) {
+        this.name = name;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new WorkerThread(this, runnable, name + "-" + threadNumber.incrementAndGet(), stackSizeBytes);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Run a task on this pool, and wait for its result.
+     *
+     * @param taskName     describes the task, for the logs and traces
+     * @param task         the work to do
+     * @param timeoutNanos the longest we'll wait, including time waiting in the queue
+     * @throws RejectedExecutionException if the pool is too busy to take the task
+     * @throws TaskTimeoutException if the task didn't finish in time
+     */
+    public <T> T run(String taskName, Callable<T> task, long timeoutNanos) {
+        if (isOwnWorkerThread()) {
+            return callInline(task);
+        }
+        try (Span span = Tracing.span(name + ": " + taskName)) {
+            final long submitted = System.nanoTime();
+            final Future<T> future;
+            try {
+                future = executor.submit(Tracing.propagate(() -> {
+                    final long started = System.nanoTime();
+                    totalQueueNanos.addAndGet(started - submitted);
+                    try {
+                        return task.call();
+                    } finally {
+                        recordRunTime(taskName, System.nanoTime() - started);
+                    }
+                }));
+            } catch (RejectedExecutionException ex) {
+                rejected.incrementAndGet();
+                logger.warn("{} rejected task: {}.  {}", name, taskName, this);
+                throw ex;
+            }
+            return awaitResult(taskName, future, timeoutNanos);
+        }
+    }
+
+    private <T> T awaitResult(String taskName, Future<T> future, long timeoutNanos) {
+        try {
+            final T result = future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            completed.incrementAndGet();
+            return result;
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            logger.warn("{} task timed out: {}.  {}", name, taskName, this);
+            throw new TaskTimeoutException(taskName + " did not finish in time");
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TaskTimeoutException(taskName + " was interrupted while waiting");
+        } catch (ExecutionException ex) {
+            failed.incrementAndGet();
+            throw rethrow(ex.getCause());
+        }
+    }
+
+    /**
+     * Run a batch of tasks on this pool, as many at once as there are threads, and wait for all their results.
+     * <p>
+     * The batch is worked through by a few helpers, one per thread, each taking the next
+     * task until none are left.  Between tasks, a helper that sees other work waiting in the
+     * queue steps to the back of it, so a big batch slows other callers down rather than
+     * shutting them out.
+     * </p>
+     *
+     * @param taskName     describes the tasks, for the logs and traces
+     * @param tasks        the work to do
+     * @param timeoutNanos the longest we'll wait for the whole batch
+     * @return the results, in the same order as the tasks
+     * @throws RejectedExecutionException if the pool is too busy to start on the batch
+     * @throws TaskTimeoutException if the batch didn't finish in time
+     */
+    public <T> List<T> runAll(String taskName, List<? extends Callable<T>> tasks, long timeoutNanos) {
+        if (tasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (isOwnWorkerThread()) {
+            final List<T> results = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                results.add(callInline(task));
+            }
+            return results;
+        }
+        try (Span span = Tracing.span(name + ": " + taskName + " x" + tasks.size())) {
+            final Batch<T> batch = new Batch<>(taskName, tasks);
+            final int helpers = Math.min(tasks.size(), executor.getMaximumPoolSize());
+            for (int i = 0; i < helpers; i++) {
+                if (!batch.submitHelper()) {
+                    break;
+                }
+            }
+            if (batch.helpers.isEmpty()) {
+                rejected.incrementAndGet();
+                logger.warn("{} rejected batch: {}.  {}", name, taskName, this);
+                throw new RejectedExecutionException(name + " is too busy to start " + taskName);
+            }
+            return batch.await(timeoutNanos);
+        }
+    }
+
+    /**
+     * The state of one {@link #runAll} call, shared by the helpers working through it
+     */
+    private final class Batch<T> {
+        private final String taskName;
+        private final List<? extends Callable<T>> tasks;
+        private final Object[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger done = new AtomicInteger();
+        private final CompletableFuture<List<T>> finished = new CompletableFuture<>();
+        private final Queue<Future<?>> helpers = new ConcurrentLinkedQueue<>();
+
+        Batch(String taskName, List<? extends Callable<T>> tasks) {
+            this.taskName = taskName;
+            this.tasks = tasks;
+            this.results = new Object[tasks.size()];
+        }
+
+        /**
+         * @return false if the pool had no room for another helper
+         */
+        boolean submitHelper() {
+            try {
+                helpers.add(executor.submit(Tracing.propagate((Runnable) this::help)));
+                return true;
+            } catch (RejectedExecutionException ex) {
+                return false;
+            }
+        }
+
+        private void help() {
+            int index;
+            while (!finished.isDone() && (index = next.getAndIncrement()) < tasks.size()) {
+                final long started = System.nanoTime();
+                try {
+                    results[index] = tasks.get(index).call();
+                } catch (Exception | Error ex) {
+                    failed.incrementAndGet();
+                    finished.completeExceptionally(ex);
+                    return;
+                } finally {
+                    recordRunTime(taskName, System.nanoTime() - started);
+                }
+                completed.incrementAndGet();
+                if (done.incrementAndGet() == tasks.size()) {
+                    finished.complete(resultList());
+                    return;
+                }
+                if (!executor.getQueue().isEmpty() && next.get() < tasks.size() && submitHelper()) {
+                    // someone else is waiting - let them go first
+                    return;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<T> resultList() {
+            return (List<T>) Arrays.asList(results);
+        }
+
+        List<T> await(long timeoutNanos) {
+            try {
+                return finished.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                cancel();
+                timedOut.incrementAndGet();
+                logger.warn("{} batch timed out: {} ({} of {} done).  {}", name, taskName, done.get(), tasks.size(), BoundedWorkerPool.this);
+                throw new TaskTimeoutException(taskName + " did not finish in time");
+            } catch (InterruptedException ex) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new TaskTimeoutException(taskName + " was interrupted while waiting");
+            } catch (ExecutionException ex) {
+                cancel();
+                throw rethrow(ex.getCause());
+            }
+        }
+
+        private void cancel() {
+            finished.cancel(false);
+            helpers.forEach(helper -> helper.cancel(true));
+        }
+    }
+
+    /**
+     * Is the current thread one of ours?
+     */
+    private boolean isOwnWorkerThread() {
+        final Thread current = Thread.currentThread();
+        return current instanceof WorkerThread && ((WorkerThread) current).pool == this;
+    }
+
+    private static <T> T callInline(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * A thread that knows which pool it belongs to
+     */
+    private static final class WorkerThread extends Thread {
+        final BoundedWorkerPool pool;
+
+        WorkerThread(BoundedWorkerPool pool, Runnable runnable, String name, long stackSizeBytes) {
+            super(null, runnable, name, stackSizeBytes);
+            this.pool = pool;
+        }
+    }
+
+    private void recordRunTime(String taskName, long runNanos) {
+        totalRunNanos.addAndGet(runNanos);
+        maxRunNanos.accumulateAndGet(runNanos, Math::max);
+        logger.debug("{} ran {} in {} microseconds", name, taskName, runNanos / 1000);
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stop taking new work.  Work already queued still runs.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        final long ran = Math.max(1, completed.get() + timedOut.get() + failed.get());
+        return String.format("%s: active=%d queued=%d completed=%d rejected=%d timedOut=%d failed=%d " +
+                        "avgQueueMicros=%d avgRunMicros=%d maxRunMicros=%d",
+                name, executor.getActiveCount(), executor.getQueue().size(),
+                completed.get(), rejected.get(), timedOut.get(), failed.get(),
+                totalQueueNanos.get() / ran / 1000, totalRunNanos.get() / ran / 1000, maxRunNanos.get() / 1000);
+    }
+}
@@ -0,0 +1,14 @@
+package com.coveros.training.helpers;
+
+/**
+ * Thrown when work handed to a {@link BoundedWorkerPool} didn't
+ * finish in the time we were willing to wait for it.
+ */
+public class TaskTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 2291937153874501627L;
+
+    public TaskTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,7 @@
 package com.coveros.training.mathematics;
 
 import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,7 +11,33 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.math.BigInteger;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Provides an API endpoint to calculate Ackermann's function, A(m, n).
+ * <p>
+ * With ack_algorithm_choice=tail_recursive it steps through the recursion with {@link AckermannIterative}.
+ * Otherwise it uses {@link AckermannClosedForm}, which answers for any m and n at once: the value itself when it has
+ * at most {@value #MAX_RESULT_BITS_PROPERTY} bits (default 2^20, about 315,000 digits), and otherwise what can be
+ * known of it, as JSON - its form, its number of digits, and its last ack_last_digits digits (default 10, at
+ * most 18):
+ * </p>
+ * <pre>
+ * {"m": 4, "n": 3, "form": "2^^6 - 3", "digits": null, "lastDigits": "7437428733"}
+ * </pre>
+ * <p>
+ * Working out the value is only a shift, but writing it in decimal is not: A(3, 1,048,573) has 315,653
+ * digits, and takes most of a second.  So a value bigger than {@link FibServlet} streams (2^16 bits by
+ * default) is written out on the {@link MathWork} threads, within their time budget, and the text kept in
+ * the {@link MathResultCache}.
+ * </p>
+ * <p>
+ * Stepping through the recursion takes about as many steps as the answer is big, so that runs on the
+ * {@link MathWork} threads too, and gives up at their time budget with "Error: computation exceeded budget".
+ * What it does work out is kept in the {@link MathResultCache}.
+ * </p>
+ */
 @MultipartConfig
 @WebServlet(name = "AckServlet", urlPatterns = {"/ackermann"}, loadOnStartup = 1)
 public class AckServlet extends HttpServlet {
@@ -19,6 +46,11 @@ public class AckServlet extends HttpServlet {
     public static final String RESULT = "result";
     static Logger logger = LoggerFactory.getLogger(AckServlet.class);
 
+    public static final String MAX_RESULT_BITS_PROPERTY = "demo.math.ackermann.maxResultBits";
+    static long maxResultBits = Long.getLong(MAX_RESULT_BITS_PROPERTY, 1L << 20);
+
+    static final int DEFAULT_LAST_DIGITS = 10;
+
     private int putNumberInRequest(String itemName, HttpServletRequest request) {
         int item = Integer.parseInt(request.getParameter(itemName));
         request.setAttribute(itemName, item);
@@ -34,14 +66,24 @@ public class AckServlet extends HttpServlet {
 
             logger.info("received request to calculate Ackermann's with {} and {} and the {} algorithm", ackParamM, ackParamN, algorithm);
 
-            if (algorithm.equals("tail_recursive")) {
+            if (ackParamM < 0 || ackParamN < 0) {
+                request.setAttribute(RESULT, "Error: m and n must not be negative");
+            } else if ("tail_recursive".equals(algorithm)) {
                 tailRecursive(request, ackParamM, ackParamN);
             } else {
-                regularRecursive(request, ackParamM, ackParamN);
+                closedForm(request, ackParamM, ackParamN, lastDigitsWanted(request));
             }
 
         } catch (NumberFormatException ex) {
             request.setAttribute(RESULT, "Error: only accepts integers");
+        } catch (RejectedExecutionException ex) {
+            logger.warn("too busy to calculate Ackermann's function: {}", MathWork.getPool());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", MathWork.RETRY_AFTER_SECONDS);
+            request.setAttribute(RESULT, MathWork.BUSY_MESSAGE);
+        } catch (TaskTimeoutException | BudgetExceededException | CancellationException ex) {
+            logger.warn("gave up calculating Ackermann's function: {}", ex.getMessage());
+            request.setAttribute(RESULT, MathWork.EXCEEDED_BUDGET_MESSAGE);
         }
         forwardToResult(request, response, logger);
     }
@@ -53,21 +95,44 @@ public class AckServlet extends HttpServlet {
         ServletUtils.forwardToRestfulResult(request, response, logger);
     }
 
+    private static int lastDigitsWanted(HttpServletRequest request) {
+        final String lastDigits = request.getParameter("ack_last_digits");
+        if (lastDigits == null) {
+            return DEFAULT_LAST_DIGITS;
+        }
+        return Math.max(1, Math.min(AckermannClosedForm.MAX_LAST_DIGITS, Integer.parseInt(lastDigits)));
+    }
+
     /**
      * Wrapping a request set for easier testing and clarity.
+     * <p>
+     * This used to be {@link Ackermann#calculate}, recursing on every step - which runs out of stack
+     * by A(4, 1).
+     * </p>
      */
-    void regularRecursive(HttpServletRequest request, int itemA, int itemB) {
-        final BigInteger result = Ackermann.calculate(itemA, itemB);
-        logger.info("Ackermann's result is {}", result);
-        request.setAttribute(RESULT, result);
+    void closedForm(HttpServletRequest request, int itemA, int itemB, int lastDigits) {
+        final AckermannClosedForm value = AckermannClosedForm.of(itemA, itemB);
+        final BigInteger result = value.exact(maxResultBits);
+        if (result != null && result.bitLength() > FibServlet.streamAboveBits) {
+            logger.info("Ackermann's result is {}", FibServlet.describeForLog(result));
+            request.setAttribute(RESULT, MathWork.run(MathResultCache.key("ackermann", "closed_form", itemA, itemB),
+                    budget -> result.toString()));
+        } else if (result != null) {
+            logger.info("Ackermann's result is {}", FibServlet.describeForLog(result));
+            request.setAttribute(RESULT, result);
+        } else {
+            logger.info("Ackermann's result is too big to write out: {}", value);
+            request.setAttribute(RESULT, value.toJson(lastDigits));
+        }
     }
 
     /**
      * Wrapping a request set for easier testing and clarity.
      */
     void tailRecursive(HttpServletRequest request, int itemA, int itemB) {
-        final BigInteger result = AckermannIterative.calculate(itemA, itemB);
-        logger.info("Ackermann's result is {}", result);
+        final BigInteger result = MathWork.run(MathResultCache.key("ackermann", "tail_recursive", itemA, itemB),
+                budget -> AckermannIterative.calculate(itemA, itemB, budget));
+        logger.info("Ackermann's result is {}", FibServlet.describeForLog(result));
         request.setAttribute(RESULT, result);
     }
 
@@ -0,0 +1,270 @@
+package com.coveros.training.mathematics;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/**
+ * Ackermann's function A(m, n) by its closed forms, rather than by recursing.
+ * <p>
+ * Each m is a step up the ladder of operations on 2 - adding, multiplying, powers, towers of powers:
+ * </p>
+ * <pre>
+ *     A(0, n) = n + 1
+ *     A(1, n) = n + 2
+ *     A(2, n) = 2n + 3
+ *     A(3, n) = 2^(n+3) - 3
+ *     A(4, n) = 2^^(n+3) - 3       a tower of n + 3 twos: 2^2^...^2
+ *     A(m, n) = 2[m](n+3) - 3      the m-th hyperoperation
+ * </pre>
+ * <p>
+ * So up to m = 3 the value is a shift and a subtraction.  From m = 4 on it is always a tower of twos,
+ * less 3, but by A(4, 3) = 2^2^2^2^2^2 - 3 the number has more digits than there are atoms in the
+ * universe.  For those we give what can be known without writing the number out: its form, how many
+ * digits it has while that can still be counted, and its last few digits - which come from
+ * reducing the tower's exponents by Euler's theorem, and stop changing once the tower is tall enough,
+ * so we know them even for a tower whose height is itself too big to write down.
+ * </p>
+ */
+public final class AckermannClosedForm {
+
+    /**
+     * The most trailing digits we give - so they fit in a long
+     */
+    public static final int MAX_LAST_DIGITS = 18;
+
+    /**
+     * log10(2), to many more places than a double - enough to count the digits of 2^e for any long e
+     */
+    private static final BigDecimal LOG10_2 = new BigDecimal("0.30102999566398119521373889472449302676818988146210854131");
+
+    /**
+     * 2^^h for h = 0 to 4.  2^^5 = 2^65536 is too big for a long.
+     */
+    private static final long[] SMALL_TOWERS = {1, 2, 4, 16, 65536};
+
+    /**
+     * Past this height, a tower of twos has the same last 18 digits however much taller it gets - the chain of
+     * moduli in {@link #towerMod} reaches 1 well within it
+     */
+    private static final long STABLE_TOWER_HEIGHT = 200;
+
+    private static final BigInteger THREE = BigInteger.valueOf(3);
+
+    private final long m;
+    private final long n;
+
+    /**
+     * For m of 4 or more, A(m, n) = 2^^towerHeight - 3.  -1 where the height itself is too big for a long.
+     */
+    private final long towerHeight;
+
+    /**
+     * A(m, n) = 2^exponent - 3, for m = 3 and the smallest towers.  -1 where that's too big for a long.
+     */
+    private final long exponent;
+
+    private AckermannClosedForm(long m, long n) {
+        this.m = m;
+        this.n = n;
+        this.towerHeight = m < 4 ? 0 : towerHeight(m, n);
+        if (m == 3) {
+            this.exponent = n <= Long.MAX_VALUE - 3 ? n + 3 : -1;
+        } else if (m >= 4 && towerHeight >= 1 && towerHeight <= SMALL_TOWERS.length) {
+            this.exponent = SMALL_TOWERS[(int) towerHeight - 1];
+        } else {
+            this.exponent = -1;
+        }
+    }
+
+    /**
+     * @param m from 0
+     * @param n from 0
+     */
+    public static AckermannClosedForm of(long m, long n) {
+        if (m < 0 || n < 0) {
+            throw new IllegalArgumentException("m and n must not be negative, were " + m + " and " + n);
+        }
+        return new AckermannClosedForm(m, n);
+    }
+
+    /**
+     * How tall a tower of twos A(m, n) + 3 is, for m of 4 or more, or -1 if too tall to say
+     */
+    private static long towerHeight(long m, long n) {
+        if (m == 4) {
+            return n <= Long.MAX_VALUE - 3 ? n + 3 : -1;
+        }
+        // A(5, 0) = A(4, 1) = 2^^4 - 3, and A(5, 1) = A(6, 0) = A(4, 65533) = 2^^65536 - 3.  Anything past those is a
+        // tower whose height is itself a tower.
+        if (m == 5 && n == 0) {
+            return 4;
+        }
+        if ((m == 5 && n == 1) || (m == 6 && n == 0)) {
+            return 65536;
+        }
+        return -1;
+    }
+
+    /**
+     * @return A(m, n) in full, or null if it has more than maxBits bits
+     */
+    public BigInteger exact(long maxBits) {
+        if (m < 3) {
+            final BigInteger bigN = BigInteger.valueOf(n);
+            if (m == 0) {
+                return bigN.add(BigInteger.ONE);
+            }
+            return m == 1 ? bigN.add(BigInteger.valueOf(2)) : bigN.shiftLeft(1).add(THREE);
+        }
+        if (exponent < 0 || exponent > maxBits || exponent > Integer.MAX_VALUE) {
+            return null;
+        }
+        return BigInteger.ONE.shiftLeft((int) exponent).subtract(THREE);
+    }
+
+    /**
+     * @return how many decimal digits A(m, n) has, or null if that can't be counted
+     */
+    public BigInteger digitCount() {
+        if (m < 3) {
+            return BigInteger.valueOf(exact(Long.MAX_VALUE).toString().length());
+        }
+        if (m > 3 && exponent < 0) {
+            return null;
+        }
+        final BigInteger e = m == 3 ? BigInteger.valueOf(n).add(THREE) : BigInteger.valueOf(exponent);
+        // 2^e has floor(e log10(2)) + 1 digits, and taking 3 away never brings it down to a power of ten
+        return new BigDecimal(e).multiply(LOG10_2).setScale(0, RoundingMode.FLOOR).toBigInteger().add(BigInteger.ONE);
+    }
+
+    /**
+     * @param k how many, from 1 to {@link #MAX_LAST_DIGITS}
+     * @return the last k digits of A(m, n) - fewer if it doesn't have that many
+     */
+    public String lastDigits(int k) {
+        if (k < 1 || k > MAX_LAST_DIGITS) {
+            throw new IllegalArgumentException("can give from 1 to " + MAX_LAST_DIGITS + " digits, was asked for " + k);
+        }
+        final long modulus = BigInteger.TEN.pow(k).longValueExact();
+        final BigInteger small = exact(Long.SIZE);
+        if (small != null && small.compareTo(BigInteger.valueOf(modulus)) < 0) {
+            return small.toString();
+        }
+        final long digits;
+        if (m < 3) {
+            digits = small.mod(BigInteger.valueOf(modulus)).longValue();
+        } else {
+            final long twoToThePower;
+            if (m == 3) {
+                // 2^(n+3), without n + 3 overflowing
+                twoToThePower = FibonacciModular.multiplyMod(powerOfTwoMod(n, modulus), 8, modulus);
+            } else if (exponent >= 0) {
+                twoToThePower = powerOfTwoMod(exponent, modulus);
+            } else {
+                twoToThePower = towerMod(towerHeight < 0 ? STABLE_TOWER_HEIGHT : Math.min(towerHeight, STABLE_TOWER_HEIGHT), modulus);
+            }
+            digits = FibonacciModular.subtractMod(twoToThePower, 3, modulus);
+        }
+        final String text = Long.toString(digits);
+        return "000000000000000000".substring(0, k - text.length()) + text;
+    }
+
+    /**
+     * @return A(m, n) written as a formula
+     */
+    public String form() {
+        switch ((int) Math.min(m, 4)) {
+            case 0:
+                return n + " + 1";
+            case 1:
+                return n + " + 2";
+            case 2:
+                return "2*" + n + " + 3";
+            case 3:
+                return "2^(" + n + "+3) - 3";
+            default:
+                if (towerHeight > 0) {
+                    return "2^^" + towerHeight + " - 3";
+                }
+                return "2[" + m + "](" + n + "+3) - 3";
+        }
+    }
+
+    /**
+     * What we know about A(m, n), as JSON
+     *
+     * @param k how many of the last digits to give
+     */
+    public String toJson(int k) {
+        final BigInteger digits = digitCount();
+        return String.format(Locale.ROOT, "{\"m\": %d, \"n\": %d, \"form\": \"%s\", \"digits\": %s, \"lastDigits\": \"%s\"}",
+                m, n, form(), digits == null ? "null" : digits.toString(), lastDigits(k));
+    }
+
+    @Override
+    public String toString() {
+        return "A(" + m + ", " + n + ") = " + form();
+    }
+
+    /**
+     * 2^e mod the modulus
+     */
+    static long powerOfTwoMod(long e, long modulus) {
+        if (modulus == 1) {
+            return 0;
+        }
+        long result = 1;
+        long base = 2 % modulus;
+        for (long remaining = e; remaining > 0; remaining >>>= 1) {
+            if ((remaining & 1) == 1) {
+                result = FibonacciModular.multiplyMod(result, base, modulus);
+            }
+            base = FibonacciModular.multiplyMod(base, base, modulus);
+        }
+        return result;
+    }
+
+    /**
+     * 2^^height mod the modulus - a tower of twos that high.
+     * <p>
+     * For an exponent e at least as big as log2 of the modulus, 2^e = 2^(e mod phi + phi), where phi is
+     * Euler's totient of the modulus.  Past a height of 5 the exponent is at least 2^65536, so that
+     * always holds, and the exponent's own tower only needs working out mod phi - and so on down, until
+     * the modulus is 1.
+     * </p>
+     */
+    static long towerMod(long height, long modulus) {
+        if (modulus == 1) {
+            return 0;
+        }
+        if (height < SMALL_TOWERS.length) {
+            return SMALL_TOWERS[(int) height] % modulus;
+        }
+        final long phi = totient(modulus);
+        return powerOfTwoMod(towerMod(height - 1, phi) + phi, modulus);
+    }
+
+    /**
+     * Euler's totient, by trial division - quick for the moduli used here, which only have
+     * the prime factors 2 and 5, and those of their totients
+     */
+    static long totient(long modulus) {
+        long result = modulus;
+        long rest = modulus;
+        for (long p = 2; p * p <= rest; p++) {
+            if (rest % p == 0) {
+                while (rest % p == 0) {
+                    rest /= p;
+                }
+                result -= result / p;
+            }
+        }
+        if (rest > 1) {
+            result -= result / rest;
+        }
+        return result;
+    }
+
+}
@@ -1,149 +1,120 @@
 package com.coveros.training.mathematics;
 
 import java.math.BigInteger;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.function.BinaryOperator;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Arrays;
 
 /**
- * From https://rosettacode.org/wiki/Ackermann_function#Java
+ * Ackermann's function, stepping through its recursion on the {@link TailRecursive#trampoline}.
+ * <p>
+ * Adapted from https://rosettacode.org/wiki/Ackermann_function#Java - the pending values of m go on a
+ * stack, and n is carried along, with m of 0, 1 and 2 done in one step each.  The stack is a growable
+ * {@code long[]} and n a {@code long}, both changed in place, so a step makes no new objects.  Only if n
+ * outgrows a long does it carry on as a {@link BigInteger}.
+ * </p>
  */
-public interface AckermannIterative {
-    static BigInteger calculate(int m, int n) {
-        BigInteger bigM = BigInteger.valueOf(m);
-        BigInteger bigN = BigInteger.valueOf(n);
-        return $.main(bigM, bigN);
-    }
-    BigInteger number1();
-    BigInteger number2();
-
-    Deque<BigInteger> stack();
+public final class AckermannIterative {
 
-    boolean flag();
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+    private static final BigInteger THREE = BigInteger.valueOf(3);
 
-    enum $ {
-        END;
+    private AckermannIterative() {
+        // using a private constructor to hide the implicit public one.
+    }
 
-        private static final BigInteger ZERO = BigInteger.ZERO;
-        private static final BigInteger ONE = BigInteger.ONE;
-        private static final BigInteger TWO = BigInteger.valueOf(2);
-        private static final BigInteger THREE = BigInteger.valueOf(3);
+    /**
+     * A(m, n), with no limit on the steps
+     */
+    public static BigInteger calculate(int m, int n) {
+        return calculate(m, n, TailRecursive.Budget.unlimited());
+    }
 
-        private static AckermannIterative tail(BigInteger number1, BigInteger number2, Deque<BigInteger> stack, boolean flag) {
-            return (FunctionalAckermann) field -> {
-                switch (field) {
-                    case NUMBER_1: return number1;
-                    case NUMBER_2: return number2;
-                    case STACK: return stack;
-                    case FLAG: return flag;
-                    default: throw new UnsupportedOperationException(
-                            field instanceof Field
-                                    ? "Field checker has not been updated properly."
-                                    : "Field is not of the correct type."
-                    );
-                }
-            };
+    /**
+     * @return A(m, n)
+     * @throws BudgetExceededException                   if that would take more steps or time than the budget
+     * @throws java.util.concurrent.CancellationException if cancelled or interrupted part way
+     */
+    public static BigInteger calculate(long m, long n, TailRecursive.Budget budget) {
+        if (m < 0 || n < 0) {
+            throw new IllegalArgumentException("m and n must not be negative, were " + m + " and " + n);
         }
+        return TailRecursive.trampoline(new State(m, n), AckermannIterative::step, budget).result();
+    }
 
-        private static final BinaryOperator<BigInteger> ACKERMANN =
-                TailRecursive.tailie(
-                        (BigInteger number1, BigInteger number2) ->
-                                tail(
-                                        number1,
-                                        number2,
-                                        Stream.of(number1).collect(
-                                                Collectors.toCollection(ArrayDeque::new)
-                                        ),
-                                        false
-                                )
-                        ,
-                        ackermann -> {
-                            BigInteger number1 = ackermann.number1();
-                            BigInteger number2 = ackermann.number2();
-                            Deque<BigInteger> stack = ackermann.stack();
-                            if (!stack.isEmpty() && !ackermann.flag()) {
-                                number1 = stack.pop();
-                            }
-                            switch (number1.intValue()) {
-                                case 0:
-                                    return tail(
-                                            number1,
-                                            number2.add(ONE),
-                                            stack,
-                                            false
-                                    );
-                                case 1:
-                                    return tail(
-                                            number1,
-                                            number2.add(TWO),
-                                            stack,
-                                            false
-                                    );
-                                case 2:
-                                    return tail(
-                                            number1,
-                                            number2.multiply(TWO).add(THREE),
-                                            stack,
-                                            false
-                                    );
-                                default:
-                                    if (ZERO.equals(number2)) {
-                                        return tail(
-                                                number1.subtract(ONE),
-                                                ONE,
-                                                stack,
-                                                true
-                                        );
-                                    } else {
-                                        stack.push(number1.subtract(ONE));
-                                        return tail(
-                                                number1,
-                                                number2.subtract(ONE),
-                                                stack,
-                                                true
-                                        );
-                                    }
-                            }
-                        },
-                        ackermann -> ackermann.stack().isEmpty(),
-                        AckermannIterative::number2
-                )::apply
-                ;
-
-        private static BigInteger main(BigInteger m, BigInteger n) {
-            return ACKERMANN.apply(m, n);
+    /**
+     * Take the top m off the stack and work on it
+     *
+     * @return whether there's anything left on the stack
+     */
+    static boolean step(State state) {
+        final long top = state.stack[--state.size];
+        if (state.bigN != null) {
+            stepBig(state, top);
+        } else if (top == 0 && state.n < Long.MAX_VALUE) {
+            state.n = state.n + 1;
+        } else if (top == 1 && state.n < Long.MAX_VALUE - 1) {
+            state.n = state.n + 2;
+        } else if (top == 2 && state.n <= (Long.MAX_VALUE - 3) / 2) {
+            state.n = 2 * state.n + 3;
+        } else if (top <= 2) {
+            // n is about to outgrow a long
+            state.bigN = BigInteger.valueOf(state.n);
+            stepBig(state, top);
+        } else if (state.n == 0) {
+            state.push(top - 1);
+            state.n = 1;
+        } else {
+            state.push(top - 1);
+            state.push(top);
+            state.n = state.n - 1;
         }
+        return state.size > 0;
+    }
 
-        private enum Field {
-            NUMBER_1,
-            NUMBER_2,
-            STACK,
-            FLAG
+    private static void stepBig(State state, long top) {
+        if (top == 0) {
+            state.bigN = state.bigN.add(BigInteger.ONE);
+        } else if (top == 1) {
+            state.bigN = state.bigN.add(TWO);
+        } else if (top == 2) {
+            state.bigN = state.bigN.shiftLeft(1).add(THREE);
+        } else if (state.bigN.signum() == 0) {
+            state.push(top - 1);
+            state.bigN = BigInteger.ONE;
+        } else {
+            state.push(top - 1);
+            state.push(top);
+            state.bigN = state.bigN.subtract(BigInteger.ONE);
         }
+    }
 
-        @FunctionalInterface
-        private interface FunctionalAckermann extends FunctionalField<Field>, AckermannIterative {
-            @Override
-            default BigInteger number1() {
-                return field(Field.NUMBER_1);
-            }
+    /**
+     * Where one calculation has got to: the stack of pending m, and n
+     */
+    static final class State {
+        private long[] stack = new long[64];
+        private int size;
+        private long n;
 
-            @Override
-            default BigInteger number2() {
-                return field(Field.NUMBER_2);
-            }
+        /**
+         * n, once it's too big for a long
+         */
+        private BigInteger bigN;
 
-            @Override
-            default Deque<BigInteger> stack() {
-                return field(Field.STACK);
-            }
+        State(long m, long n) {
+            push(m);
+            this.n = n;
+        }
 
-            @Override
-            default boolean flag() {
-                return field(Field.FLAG);
+        private void push(long m) {
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
             }
+            stack[size++] = m;
+        }
+
+        BigInteger result() {
+            return bigN != null ? bigN : BigInteger.valueOf(n);
         }
     }
-}
\ No newline at end of file
+
+}
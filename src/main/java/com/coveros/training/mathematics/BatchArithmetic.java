@@ -0,0 +1,461 @@
+package com.coveros.training.mathematics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up many pairs of integers at once, for clients that would otherwise send
+ * /math one pair per request - and pay for a request, its parsing and its JSP
+ * every time.
+ * <p>
+ * The pairs come in as a stream in one of two {@link Encoding}s, and their sums go out the same way, in
+ * the same order, a block at a time - so a batch of any size takes no more memory than a block or two.
+ * Each block is decoded into an int array, summed in one plain loop, and encoded again.  Each sum is
+ * a + b as an int, like {@link Calculator#add(int, int)}, so it wraps around rather than overflowing.
+ * </p>
+ * <p>
+ * A block of at least {@value #PARALLEL_BYTES_PROPERTY} bytes (default 256 KB), when the pool has more than one
+ * thread, is worked on in parallel: binary blocks have their sums split across the pool, and CSV blocks -
+ * where reading and writing the text is nearly all the work - are cut at line ends into pieces that are
+ * each read, summed and written out by one thread, and then sent in order.
+ * </p>
+ * <p>
+ * On one core, binary goes at about 330 million sums a second - it's little more than copying.  CSV goes at
+ * about 10 million, nearly all of it reading and writing decimal text, which is about what the same pairs
+ * cost parsed, added and printed one at a time the way a single /math request does it.  What a CSV batch
+ * saves is everything else a request costs, a million times over.  See BatchArithmeticBenchmark.
+ * </p>
+ */
+public final class BatchArithmetic {
+
+    public static final String PARALLEL_BYTES_PROPERTY = "demo.math.batchParallelBytes";
+
+    static int parallelBytes = Integer.getInteger(PARALLEL_BYTES_PROPERTY, 256 * 1024);
+    static ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * How much of the body is read at a time.  A multiple of 8, so binary blocks hold whole pairs.
+     */
+    static final int BLOCK_BYTES = 1 << 20;
+
+    /**
+     * Once summing in parallel, pieces below this many pairs are done in one task
+     */
+    static final int TASK_PAIRS = 1 << 14;
+
+    private static final String NOT_A_PAIR = "should be two integers, separated by a comma";
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+    private static final byte[] MIN_VALUE_TEXT = Integer.toString(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private static final AtomicLong batches = new AtomicLong();
+    private static final AtomicLong pairs = new AtomicLong();
+    private static final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * The ways the pairs and their sums can be sent
+     */
+    public enum Encoding {
+        /**
+         * one pair a line, as "a,b", and one sum a line back
+         */
+        CSV("text/csv"),
+        /**
+         * 4-byte little-endian ints, a then b for each pair, and one such int for each sum back
+         */
+        BINARY("application/octet-stream");
+
+        private final String contentType;
+
+        Encoding(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @param contentType the request's content type, perhaps with a charset after it
+         * @return the encoding it names, or null if it isn't one of ours
+         */
+        public static Encoding fromContentType(String contentType) {
+            if (contentType == null) {
+                return null;
+            }
+            final String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+            for (Encoding encoding : values()) {
+                if (encoding.contentType.equals(mediaType)) {
+                    return encoding;
+                }
+            }
+            return null;
+        }
+    }
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private BatchArithmetic() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * Read pairs until the end of the input, and write their sums
+     *
+     * @return how many pairs were summed
+     * @throws IllegalArgumentException if the input isn't pairs in that encoding.  The sums before
+     *                                  the bad part will already have been written.
+     */
+    public static long addAll(InputStream in, OutputStream out, Encoding encoding) throws IOException {
+        final long started = System.nanoTime();
+        final long count = encoding == Encoding.BINARY ? addAllBinary(in, out) : addAllCsv(in, out);
+        batches.incrementAndGet();
+        pairs.addAndGet(count);
+        nanos.addAndGet(System.nanoTime() - started);
+        return count;
+    }
+
+    /**
+     * sums[i] = operands[2i] + operands[2i + 1], for pairs from up to (not including) to
+     */
+    static void add(int[] operands, int[] sums, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sums[i] = operands[2 * i] + operands[2 * i + 1];
+        }
+    }
+
+    private static void add(int[] operands, int[] sums, int count, boolean parallel) {
+        if (parallel) {
+            pool.invoke(new AddTask(operands, sums, 0, count));
+        } else {
+            add(operands, sums, 0, count);
+        }
+    }
+
+    private static boolean worthParallel(int bytes) {
+        return bytes >= parallelBytes && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Sums a range of pairs, splitting it while it's big enough
+     */
+    private static final class AddTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] operands;
+        private final int[] sums;
+        private final int from;
+        private final int to;
+
+        AddTask(int[] operands, int[] sums, int from, int to) {
+            this.operands = operands;
+            this.sums = sums;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_PAIRS) {
+                add(operands, sums, from, to);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new AddTask(operands, sums, from, middle), new AddTask(operands, sums, middle, to));
+        }
+    }
+
+    private static long addAllBinary(InputStream in, OutputStream out) throws IOException {
+        final byte[] block = new byte[BLOCK_BYTES];
+        final int[] operands = new int[BLOCK_BYTES / Integer.BYTES];
+        final int[] sums = new int[operands.length / 2];
+        final byte[] encoded = new byte[BLOCK_BYTES / 2];
+        long count = 0;
+        int read;
+        while ((read = in.readNBytes(block, 0, block.length)) > 0) {
+            if (read % (2 * Integer.BYTES) != 0) {
+                throw new IllegalArgumentException("the body should be pairs of 4-byte integers, but " +
+                        (count * 8 + read) + " bytes isn't a whole number of pairs");
+            }
+            final int blockPairs = read / (2 * Integer.BYTES);
+            ByteBuffer.wrap(block, 0, read).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(operands, 0, 2 * blockPairs);
+            add(operands, sums, blockPairs, worthParallel(read));
+            ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(sums, 0, blockPairs);
+            out.write(encoded, 0, blockPairs * Integer.BYTES);
+            count += blockPairs;
+        }
+        return count;
+    }
+
+    /**
+     * Reads a block at a time, holding back any line the block cuts off until the next
+     */
+    private static long addAllCsv(InputStream in, OutputStream out) throws IOException {
+        final byte[] block = new byte[BLOCK_BYTES];
+        int carried = 0;
+        long line = 1;
+        long count = 0;
+        while (true) {
+            final int read = in.readNBytes(block, carried, block.length - carried);
+            final int filled = carried + read;
+            final boolean last = filled < block.length;
+            final int end = last ? filled : lastLineEnd(block, filled);
+            if (end == 0 && !last) {
+                throw new IllegalArgumentException("line " + line + " is too long");
+            }
+            for (CsvPiece piece : addCsv(block, end)) {
+                if (piece.error != null) {
+                    throw new IllegalArgumentException("line " + (line + piece.lines) + " " + piece.error);
+                }
+                out.write(piece.text, 0, piece.length);
+                line += piece.lines;
+                count += piece.pairs;
+            }
+            if (last) {
+                return count;
+            }
+            carried = filled - end;
+            System.arraycopy(block, end, block, 0, carried);
+        }
+    }
+
+    /**
+     * @return just past the last newline, or 0 if there isn't one
+     */
+    private static int lastLineEnd(byte[] block, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (block[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sum the whole lines in a block, in pieces in parallel if it's big enough
+     */
+    private static List<CsvPiece> addCsv(byte[] block, int length) throws IOException {
+        final List<CsvPiece> pieces = new ArrayList<>();
+        if (!worthParallel(length)) {
+            pieces.add(CsvPiece.of(block, 0, length));
+            return pieces;
+        }
+        final int count = pool.getParallelism() * 4;
+        final List<Callable<CsvPiece>> tasks = new ArrayList<>();
+        int from = 0;
+        for (int i = 1; i <= count && from < length; i++) {
+            final int to = i == count ? length : lineEndAfter(block, (int) ((long) length * i / count), length);
+            final int pieceFrom = from;
+            tasks.add(() -> CsvPiece.of(block, pieceFrom, to));
+            from = to;
+        }
+        try {
+            for (Future<CsvPiece> piece : pool.invokeAll(tasks)) {
+                pieces.add(piece.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while adding", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+        return pieces;
+    }
+
+    private static int lineEndAfter(byte[] block, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (block[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * The sums for some whole lines of CSV, as text - or what was wrong with them, and on which line
+     * of the piece
+     */
+    private static final class CsvPiece {
+        final byte[] text;
+        final int length;
+        final int lines;
+        final int pairs;
+        final String error;
+
+        private CsvPiece(byte[] text, int length, int lines, int pairs, String error) {
+            this.text = text;
+            this.length = length;
+            this.lines = lines;
+            this.pairs = pairs;
+            this.error = error;
+        }
+
+        /**
+         * Read the pairs in block[from, to) into an int array, sum them, and write the sums out.  Spaces around
+         * the numbers, "\r\n" line ends and blank lines are all fine.
+         */
+        static CsvPiece of(byte[] block, int from, int to) {
+            final int[] operands = new int[(to - from) / 2 + 2];
+            int count = 0;
+            int lines = 0;
+            int position = from;
+            while (position < to) {
+                position = skipSpaces(block, position, to);
+                if (position < to && block[position] != '\n' && block[position] != '\r') {
+                    final int aEnd = numberEnd(block, position, to);
+                    final long a = valueOf(block, position, aEnd);
+                    position = skipSpaces(block, aEnd, to);
+                    if (a == NOT_A_NUMBER || position >= to || block[position] != ',') {
+                        return failed(lines, count, NOT_A_PAIR);
+                    }
+                    position = skipSpaces(block, position + 1, to);
+                    final int bEnd = numberEnd(block, position, to);
+                    final long b = valueOf(block, position, bEnd);
+                    position = skipSpaces(block, bEnd, to);
+                    if (b == NOT_A_NUMBER) {
+                        return failed(lines, count, NOT_A_PAIR);
+                    }
+                    if (a != (int) a || b != (int) b) {
+                        return failed(lines, count, "has a number outside -2147483648 to 2147483647");
+                    }
+                    operands[2 * count] = (int) a;
+                    operands[2 * count + 1] = (int) b;
+                    count++;
+                }
+                if (position < to && block[position] == '\r') {
+                    position++;
+                }
+                if (position < to && block[position++] != '\n') {
+                    return failed(lines, count, NOT_A_PAIR);
+                }
+                lines++;
+            }
+            final int[] sums = new int[count];
+            add(operands, sums, 0, count);
+            // "-2147483648\n" is the longest a sum can be
+            final byte[] text = new byte[count * 12];
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                length = writeInt(sums[i], text, length);
+                text[length++] = '\n';
+            }
+            return new CsvPiece(text, length, lines, count, null);
+        }
+
+        private static CsvPiece failed(int lines, int pairs, String error) {
+            return new CsvPiece(null, 0, lines, pairs, error);
+        }
+
+        private static int skipSpaces(byte[] block, int from, int to) {
+            int position = from;
+            while (position < to && (block[position] == ' ' || block[position] == '\t')) {
+                position++;
+            }
+            return position;
+        }
+
+        /**
+         * @return just past the optional sign and digits starting at from
+         */
+        private static int numberEnd(byte[] block, int from, int to) {
+            int position = from;
+            if (position < to && (block[position] == '-' || block[position] == '+')) {
+                position++;
+            }
+            while (position < to && block[position] >= '0' && block[position] <= '9') {
+                position++;
+            }
+            return position;
+        }
+
+        /**
+         * @return the number in block[from, to) - out of int range if it's too big for one - or
+         * {@link #NOT_A_NUMBER} if it has no digits
+         */
+        private static long valueOf(byte[] block, int from, int to) {
+            if (from == to) {
+                // at the very end of the block, block[from] is left over from the one before
+                return NOT_A_NUMBER;
+            }
+            final boolean signed = block[from] == '-' || block[from] == '+';
+            final int digitsFrom = signed ? from + 1 : from;
+            if (digitsFrom == to) {
+                return NOT_A_NUMBER;
+            }
+            if (to - digitsFrom > 11) {
+                return Long.MAX_VALUE;
+            }
+            long value = 0;
+            for (int i = digitsFrom; i < to; i++) {
+                value = value * 10 + (block[i] - '0');
+            }
+            return block[from] == '-' ? -value : value;
+        }
+    }
+
+    /**
+     * Write an int in decimal into a byte array
+     *
+     * @return just past where it ends
+     */
+    static int writeInt(int value, byte[] text, int at) {
+        if (value == Integer.MIN_VALUE) {
+            System.arraycopy(MIN_VALUE_TEXT, 0, text, at, MIN_VALUE_TEXT.length);
+            return at + MIN_VALUE_TEXT.length;
+        }
+        int position = at;
+        int remaining = value;
+        if (remaining < 0) {
+            text[position++] = '-';
+            remaining = -remaining;
+        }
+        int end = position + 1;
+        for (int power = 10; end - position < 10 && remaining >= power; power *= 10) {
+            end++;
+        }
+        // two digits at a time, from the right
+        int i = end;
+        while (remaining >= 100) {
+            final int hundredth = remaining / 100;
+            final int pair = 2 * (remaining - hundredth * 100);
+            text[--i] = DIGIT_PAIRS[pair + 1];
+            text[--i] = DIGIT_PAIRS[pair];
+            remaining = hundredth;
+        }
+        if (remaining >= 10) {
+            text[--i] = DIGIT_PAIRS[2 * remaining + 1];
+            text[--i] = DIGIT_PAIRS[2 * remaining];
+        } else {
+            text[--i] = (byte) ('0' + remaining);
+        }
+        return end;
+    }
+
+    /**
+     * How the batches have gone so far, as JSON
+     */
+    public static String toJson() {
+        final long pairCount = pairs.get();
+        final long nanoCount = nanos.get();
+        return String.format(Locale.ROOT, "{\"batches\": %d, \"pairs\": %d, \"pairsPerSecond\": %d}",
+                batches.get(), pairCount, nanoCount == 0 ? 0 : (long) (pairCount * 1e9 / nanoCount));
+    }
+
+}
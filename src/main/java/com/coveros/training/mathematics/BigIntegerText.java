@@ -0,0 +1,414 @@
+package com.coveros.training.mathematics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Writes out huge {@link BigInteger}s - in decimal, without first making one giant String, or in
+ * one of the cheaper forms in {@link Format}.
+ * <p>
+ * Decimal is divide and conquer: split x by a power of ten about the size of its square root,
+ * x = high * 10^d + low, and write out high and then low, padded to d digits - splitting those
+ * again until they're small enough for {@link BigInteger#toString()}.  The powers used,
+ * 10^(18 * 2^i), are worked out once and kept for every number after.  Each piece is written
+ * as soon as it's ready, so the text goes out as it's made.
+ * </p>
+ * <p>
+ * Above {@value #PARALLEL_THRESHOLD_PROPERTY} bits (default 2^20, about 315,000 digits), when the
+ * pool has more than one thread, the two halves are worked on as separate fork-join tasks instead,
+ * each writing its digits into its own part of one char array, which is then written out whole.
+ * That takes two bytes a digit while it's going on, but uses every core.
+ * </p>
+ */
+public final class BigIntegerText {
+
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "demo.math.parallelDecimalBits";
+
+    static int parallelThresholdBits = Integer.getInteger(PARALLEL_THRESHOLD_PROPERTY, 1 << 20);
+    static ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Below this, {@link BigInteger#toString()} is as quick as splitting
+     */
+    static final int LEAF_BITS = 2048;
+
+    /**
+     * Once converting in parallel, pieces below this are done in one task
+     */
+    static final int TASK_BITS = 1 << 16;
+
+    /**
+     * The most digits {@link Format#FIRST} and {@link Format#LAST} will give
+     */
+    public static final int MAX_EDGE_DIGITS = 100_000;
+
+    private static final int BASE_DIGITS = 18;
+
+    /**
+     * How many digits past the first k are worked out when estimating them
+     */
+    private static final int GUARD_DIGITS = 20;
+    private static final double LOG10_2 = Math.log10(2);
+    private static final char[] ZEROS = new char[1024];
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    static {
+        Arrays.fill(ZEROS, '0');
+    }
+
+    /**
+     * 10^(18 * 2^i), by i.  Guarded by itself.
+     */
+    private static final List<BigInteger> POWERS = new ArrayList<>();
+
+    /**
+     * The ways a number can be written out
+     */
+    public enum Format {
+        /**
+         * every digit
+         */
+        DECIMAL,
+        /**
+         * in hexadecimal, lower case
+         */
+        HEX,
+        /**
+         * its magnitude as big-endian bytes, in base64
+         */
+        BASE64,
+        /**
+         * just how many decimal digits it has
+         */
+        DIGITS,
+        /**
+         * its first k decimal digits
+         */
+        FIRST,
+        /**
+         * its last k decimal digits
+         */
+        LAST;
+
+        /**
+         * @param name one of the formats, in any case.  Null means decimal.
+         */
+        public static Format fromParameter(String name) {
+            return name == null ? DECIMAL : valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private BigIntegerText() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * @param k how many digits, for {@link Format#FIRST} and {@link Format#LAST}
+     */
+    public static void write(BigInteger x, Format format, int k, Writer out) throws IOException {
+        switch (format) {
+            case HEX:
+                writeHex(x, out);
+                break;
+            case BASE64:
+                writeBase64(x, out);
+                break;
+            case DIGITS:
+                out.write(Long.toString(digitCount(x)));
+                break;
+            case FIRST:
+                out.write(firstDigits(x, k));
+                break;
+            case LAST:
+                out.write(lastDigits(x, k));
+                break;
+            default:
+                writeDecimal(x, out);
+                break;
+        }
+    }
+
+    /**
+     * Write x in decimal, the same as {@link BigInteger#toString()} would
+     */
+    public static void writeDecimal(BigInteger x, Writer out) throws IOException {
+        if (x.signum() < 0) {
+            out.write('-');
+        }
+        final BigInteger magnitude = x.abs();
+        if (magnitude.bitLength() >= parallelThresholdBits && pool.getParallelism() > 1) {
+            final char[] digits = new char[maxDigits(magnitude)];
+            final int start = pool.invoke(new DecimalTask(magnitude, digits, digits.length, 0));
+            out.write(digits, start, digits.length - start);
+        } else {
+            writeDecimal(magnitude, 0, out);
+        }
+    }
+
+    /**
+     * @param width pad with zeros to this many digits, or 0 not to pad
+     */
+    private static void writeDecimal(BigInteger x, int width, Writer out) throws IOException {
+        if (x.bitLength() <= LEAF_BITS) {
+            final String text = x.toString();
+            if (width > 0) {
+                writeZeros(width - text.length(), out);
+            }
+            out.write(text);
+            return;
+        }
+        final int level = splitLevel(x);
+        final BigInteger[] highAndLow = x.divideAndRemainder(power(level));
+        final int lowDigits = BASE_DIGITS << level;
+        writeDecimal(highAndLow[0], width > 0 ? width - lowDigits : 0, out);
+        writeDecimal(highAndLow[1], lowDigits, out);
+    }
+
+    /**
+     * Works out the digits of a non-negative number into a char array, ending just before a given place
+     * and padded to a width, splitting the work while the number is big enough
+     */
+    private static final class DecimalTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final BigInteger x;
+        private final char[] digits;
+        private final int end;
+        private final int width;
+
+        DecimalTask(BigInteger x, char[] digits, int end, int width) {
+            this.x = x;
+            this.digits = digits;
+            this.end = end;
+            this.width = width;
+        }
+
+        /**
+         * @return where the digits start
+         */
+        @Override
+        protected Integer compute() {
+            if (x.bitLength() < TASK_BITS) {
+                return fill(x, digits, end, width);
+            }
+            final int level = splitLevel(x);
+            final BigInteger[] highAndLow = x.divideAndRemainder(power(level));
+            final int lowDigits = BASE_DIGITS << level;
+            final DecimalTask high = new DecimalTask(highAndLow[0], digits, end - lowDigits, width > 0 ? width - lowDigits : 0);
+            final DecimalTask low = new DecimalTask(highAndLow[1], digits, end, lowDigits);
+            invokeAll(high, low);
+            return high.join();
+        }
+    }
+
+    /**
+     * Write the digits of x into a char array, one thread's share of the parallel conversion
+     *
+     * @return where the digits start
+     */
+    private static int fill(BigInteger x, char[] digits, int end, int width) {
+        if (x.bitLength() <= LEAF_BITS) {
+            final String text = x.toString();
+            final int start = end - Math.max(width, text.length());
+            Arrays.fill(digits, start, end - text.length(), '0');
+            text.getChars(0, text.length(), digits, end - text.length());
+            return start;
+        }
+        final int level = splitLevel(x);
+        final BigInteger[] highAndLow = x.divideAndRemainder(power(level));
+        final int lowDigits = BASE_DIGITS << level;
+        fill(highAndLow[1], digits, end, lowDigits);
+        return fill(highAndLow[0], digits, end - lowDigits, width > 0 ? width - lowDigits : 0);
+    }
+
+    /**
+     * The level i at which to split x: the one with 10^(18 * 2^i) nearest its square root, so the halves
+     * are about the same size.  Going by digit counts means working out no power bigger than that.
+     */
+    private static int splitLevel(BigInteger x) {
+        final double halfDigits = x.bitLength() * LOG10_2 / 2;
+        int level = 0;
+        while ((BASE_DIGITS << (level + 1)) <= halfDigits * Math.sqrt(2)) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * 10^(18 * 2^level)
+     */
+    static BigInteger power(int level) {
+        synchronized (POWERS) {
+            if (POWERS.isEmpty()) {
+                POWERS.add(BigInteger.TEN.pow(BASE_DIGITS));
+            }
+            while (POWERS.size() <= level) {
+                final BigInteger last = POWERS.get(POWERS.size() - 1);
+                POWERS.add(last.multiply(last));
+            }
+            return POWERS.get(level);
+        }
+    }
+
+    private static int maxDigits(BigInteger x) {
+        return (int) (x.bitLength() * LOG10_2) + 1;
+    }
+
+    private static void writeZeros(int count, Writer out) throws IOException {
+        for (int left = count; left > 0; left -= ZEROS.length) {
+            out.write(ZEROS, 0, Math.min(left, ZEROS.length));
+        }
+    }
+
+    /**
+     * Hex straight from the bytes - no dividing at all
+     */
+    private static void writeHex(BigInteger x, Writer out) throws IOException {
+        if (x.signum() == 0) {
+            out.write('0');
+            return;
+        }
+        if (x.signum() < 0) {
+            out.write('-');
+        }
+        final byte[] bytes = x.abs().toByteArray();
+        final char[] buffer = new char[8192];
+        int used = 0;
+        boolean leading = true;
+        for (byte b : bytes) {
+            for (int shift = 4; shift >= 0; shift -= 4) {
+                final int nibble = (b >> shift) & 0xF;
+                if (leading && nibble == 0) {
+                    continue;
+                }
+                leading = false;
+                buffer[used++] = HEX_DIGITS[nibble];
+                if (used == buffer.length) {
+                    out.write(buffer, 0, used);
+                    used = 0;
+                }
+            }
+        }
+        out.write(buffer, 0, used);
+    }
+
+    /**
+     * The magnitude's bytes, big-endian and without the sign byte, in base64 - a block at a time, each a
+     * multiple of 3 bytes so only the last is padded
+     */
+    private static void writeBase64(BigInteger x, Writer out) throws IOException {
+        final byte[] bytes = x.abs().toByteArray();
+        final int skip = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        final Base64.Encoder encoder = Base64.getEncoder();
+        final int block = 3 * 4096;
+        for (int from = skip; from < bytes.length; from += block) {
+            final byte[] encoded = encoder.encode(Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + block)));
+            final char[] chars = new char[encoded.length];
+            for (int i = 0; i < encoded.length; i++) {
+                chars[i] = (char) encoded[i];
+            }
+            out.write(chars);
+        }
+    }
+
+    /**
+     * How many decimal digits x has.  Its log to base 10, from its top 64 bits and how far they're shifted,
+     * says - unless x is within a hair of a power of ten, when one power of ten is worked out to make sure.
+     */
+    public static long digitCount(BigInteger x) {
+        final BigInteger magnitude = x.abs();
+        if (magnitude.bitLength() < Long.SIZE) {
+            return Long.toString(magnitude.longValue()).length();
+        }
+        final int shift = magnitude.bitLength() - Long.SIZE;
+        final double log = Math.log10(magnitude.shiftRight(shift).doubleValue()) + shift * LOG10_2;
+        final double nearestPower = Math.rint(log);
+        if (Math.abs(log - nearestPower) > 1e-6) {
+            return (long) Math.floor(log) + 1;
+        }
+        final int k = (int) nearestPower;
+        return magnitude.compareTo(BigInteger.TEN.pow(k)) < 0 ? k : k + 1;
+    }
+
+    /**
+     * @param k from 1 to {@link #MAX_EDGE_DIGITS}
+     * @return the first k decimal digits of x, or all of them if it has no more than that
+     */
+    public static String firstDigits(BigInteger x, int k) {
+        checkEdgeDigits(k);
+        final BigInteger magnitude = x.abs();
+        final int keepBits = (int) Math.ceil((k + GUARD_DIGITS) / LOG10_2);
+        if (magnitude.bitLength() > 2 * keepBits) {
+            final String estimate = estimateFirstDigits(magnitude, k, keepBits);
+            if (estimate != null) {
+                return estimate;
+            }
+        }
+        final long digits = digitCount(magnitude);
+        if (digits <= k) {
+            return magnitude.toString();
+        }
+        // x / 10^a is (x / 2^a) / 5^a, and 5^a is a third smaller than 10^a to work out and divide by
+        final int a = (int) (digits - k);
+        return magnitude.shiftRight(a).divide(BigInteger.valueOf(5).pow(a)).toString();
+    }
+
+    /**
+     * The first k digits from x's top bits times a power of two, each only worked out to k and a few more
+     * digits - so a million-digit number costs no more than a small one.  Those few more say whether that's
+     * close enough: if they're all 0s or all 9s, the true digits could be either side, and we don't know.
+     *
+     * @return the first k digits, or null if they can't be told this way
+     */
+    private static String estimateFirstDigits(BigInteger x, int k, int keepBits) {
+        final int shift = x.bitLength() - keepBits;
+        final MathContext precision = new MathContext(k + GUARD_DIGITS, RoundingMode.DOWN);
+        final BigDecimal estimate = new BigDecimal(x.shiftRight(shift))
+                .multiply(BigDecimal.valueOf(2).pow(shift, precision), precision);
+        final String text = estimate.unscaledValue().toString();
+        if (text.length() < k + GUARD_DIGITS) {
+            return null;
+        }
+        final String guard = text.substring(k, k + GUARD_DIGITS - 5);
+        if (guard.chars().allMatch(c -> c == '0') || guard.chars().allMatch(c -> c == '9')) {
+            return null;
+        }
+        return text.substring(0, k);
+    }
+
+    /**
+     * @param k from 1 to {@link #MAX_EDGE_DIGITS}
+     * @return the last k decimal digits of x, with leading zeros if need be, or all of them if it has no more than that
+     */
+    public static String lastDigits(BigInteger x, int k) {
+        checkEdgeDigits(k);
+        final BigInteger modulus = BigInteger.TEN.pow(k);
+        final BigInteger magnitude = x.abs();
+        if (magnitude.compareTo(modulus) < 0) {
+            return magnitude.toString();
+        }
+        final String text = magnitude.mod(modulus).toString();
+        final StringBuilder padded = new StringBuilder(k);
+        for (int i = text.length(); i < k; i++) {
+            padded.append('0');
+        }
+        return padded.append(text).toString();
+    }
+
+    private static void checkEdgeDigits(int k) {
+        if (k < 1 || k > MAX_EDGE_DIGITS) {
+            throw new IllegalArgumentException("can give from 1 to " + MAX_EDGE_DIGITS + " digits, was asked for " + k);
+        }
+    }
+
+}
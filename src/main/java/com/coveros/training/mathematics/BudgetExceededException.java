@@ -0,0 +1,13 @@
+package com.coveros.training.mathematics;
+
+/**
+ * Thrown when a calculation has taken more steps, or more time, than it was allowed.
+ */
+public class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 6184012733568719124L;
+
+    public BudgetExceededException(String message) {
+        super(message);
+    }
+}
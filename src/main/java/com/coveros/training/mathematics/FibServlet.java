@@ -1,6 +1,7 @@
 package com.coveros.training.mathematics;
 
 import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,8 +10,62 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.math.BigInteger;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Provides an API endpoint to calculate the nth Fibonacci number, by one of several algorithms
+ * (the fib_algorithm_choice parameter):
+ * <ul>
+ *     <li>tail_recursive_1 - {@link FibonacciIterative#fibAlgo1}</li>
+ *     <li>tail_recursive_2 - {@link FibonacciIterative#fibAlgo2}, which takes n steps</li>
+ *     <li>anything else - {@link FibonacciFastDoubling}, through the shared {@link FibonacciCache}</li>
+ * </ul>
+ * <p>
+ * A value of n that would take too long to work out is turned away.  The limits are set through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #MAX_N_PROPERTY} - the largest n, default 1,000,000</li>
+ *     <li>{@value #MAX_LINEAR_N_PROPERTY} - the largest n for tail_recursive_2, default 100,000</li>
+ *     <li>{@value #MAX_RANGE_PROPERTY} - the most numbers in one range, default 100,000</li>
+ *     <li>{@value #MAX_RANGE_OUTPUT_PROPERTY} - about how many bytes of values one range may write, default 256 MB</li>
+ *     <li>{@value #STREAM_ABOVE_BITS_PROPERTY} - numbers bigger than this many bits are written straight out, default 2^16</li>
+ * </ul>
+ * <p>
+ * A single number can be given another way with fib_format (see {@link BigIntegerText.Format}): hex, base64
+ * of its bytes, digits for just how many it has, or first or last for its first or last fib_digits digits
+ * (default 20).  Those, and any number too big to be worth building into one String - F(100,000) has
+ * 20,899 digits - are written straight to the response as plain text by {@link BigIntegerText}.
+ * </p>
+ * <p>
+ * Given fib_from and fib_to instead of fib_param_n, it gives every Fibonacci number from one to the other,
+ * inclusive, worked out one from the last by {@link FibonacciRange}.  The response is NDJSON, written as
+ * the numbers are worked out and flushed every {@value #RANGE_FLUSH_LINES} lines, so neither side has to hold
+ * the whole range - and since writing waits while the client is slow to read, neither do we get ahead of it:
+ * </p>
+ * <pre>
+ * {"n": 10, "value": 55}
+ * {"n": 11, "value": 89}
+ * </pre>
+ * <p>
+ * With fib_output=digits each line has just the number of digits, and with fib_output=mod and fib_mod=m,
+ * the value mod m.
+ * </p>
+ * <p>
+ * Given fib_mod=m with fib_param_n, it gives F(n) mod m by {@link FibonacciModular} - which works for
+ * any n a long can hold, with no limit, and so do ranges of remainders.  With fib_pisano=true as well, n is
+ * first reduced by the Pisano period of m, for m up to {@value FibonacciModular#MAX_PISANO_MODULUS}.
+ * </p>
+ * <p>
+ * The numbers are worked out on the {@link MathWork} threads, within its time budget.  Past that the
+ * result is "Error: computation exceeded budget".  Single numbers are kept in its {@link MathResultCache} -
+ * except by the default algorithm, whose {@link FibonacciCache} already keeps them.
+ * </p>
+ */
 @MultipartConfig
 @WebServlet(name = "FibServlet", urlPatterns = {"/fibonacci"}, loadOnStartup = 1)
 public class FibServlet extends HttpServlet {
@@ -20,6 +75,33 @@ public class FibServlet extends HttpServlet {
     public static final String FIBONACCI_VALUE_IS = "Fibonacci value is {}";
     static Logger logger = LoggerFactory.getLogger(FibServlet.class);
 
+    public static final String MAX_N_PROPERTY = "demo.math.fibonacci.maxN";
+    public static final String MAX_LINEAR_N_PROPERTY = "demo.math.fibonacci.maxLinearN";
+    static int maxN = Integer.getInteger(MAX_N_PROPERTY, 1_000_000);
+    static int maxLinearN = Integer.getInteger(MAX_LINEAR_N_PROPERTY, 100_000);
+
+    public static final String MAX_RANGE_PROPERTY = "demo.math.fibonacci.maxRange";
+    public static final String MAX_RANGE_OUTPUT_PROPERTY = "demo.math.fibonacci.maxRangeOutputBytes";
+    static int maxRange = Integer.getInteger(MAX_RANGE_PROPERTY, 100_000);
+    static long maxRangeOutputBytes = Long.getLong(MAX_RANGE_OUTPUT_PROPERTY, 256L * 1024 * 1024);
+
+    static final int RANGE_FLUSH_LINES = 100;
+
+    public static final String STREAM_ABOVE_BITS_PROPERTY = "demo.math.fibonacci.streamAboveBits";
+    static int streamAboveBits = Integer.getInteger(STREAM_ABOVE_BITS_PROPERTY, 1 << 16);
+
+    static final int DEFAULT_EDGE_DIGITS = 20;
+
+    /**
+     * F(n) has about n * log10(golden ratio) digits
+     */
+    private static final double DIGITS_PER_N = Math.log10((1 + Math.sqrt(5)) / 2);
+
+    /**
+     * Shared by every request, so each can start from what earlier ones worked out
+     */
+    static FibonacciCache fibonacciCache = FibonacciCache.createFromSystemProperties();
+
     private int putNumberInRequest(String itemName, HttpServletRequest request) {
         int item = Integer.parseInt(request.getParameter(itemName));
         request.setAttribute(itemName, item);
@@ -28,35 +110,222 @@ public class FibServlet extends HttpServlet {
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+        if (request.getParameter("fib_from") != null) {
+            rangeCalculation(request, response);
+            return;
+        }
         try {
+            if (request.getParameter("fib_mod") != null) {
+                modularCalculation(request);
+                forwardToResult(request, response, logger);
+                return;
+            }
+            final BigIntegerText.Format format;
+            try {
+                format = BigIntegerText.Format.fromParameter(request.getParameter("fib_format"));
+            } catch (IllegalArgumentException ex) {
+                request.setAttribute(RESULT, "Error: fib_format must be decimal, hex, base64, digits, first or last");
+                forwardToResult(request, response, logger);
+                return;
+            }
             int fibParamN = putNumberInRequest("fib_param_n", request);
             String algorithm = request.getParameter("fib_algorithm_choice");
 
             logger.info("received request to calculate the {}th fibonacci number by {}", fibParamN, algorithm);
 
-            if (algorithm.equals("tail_recursive_1")) {
-                tailRecursiveAlgo1Calc(request, fibParamN);
-            } else if (algorithm.equals("tail_recursive_2")) {
-                tailRecursiveAlgo2Calc(request, fibParamN);
+            final int limit = "tail_recursive_2".equals(algorithm) ? maxLinearN : maxN;
+            BigInteger value = null;
+            if (fibParamN < 0) {
+                request.setAttribute(RESULT, "Error: n must not be negative");
+            } else if (fibParamN > limit) {
+                request.setAttribute(RESULT, "Error: n is too large - this algorithm allows at most " + limit);
+            } else if ("tail_recursive_1".equals(algorithm)) {
+                value = tailRecursiveAlgo1Calc(request, fibParamN);
+            } else if ("tail_recursive_2".equals(algorithm)) {
+                value = tailRecursiveAlgo2Calc(request, fibParamN);
             } else {
-                defaultRecursiveCalculation(request, fibParamN);
+                value = defaultRecursiveCalculation(request, fibParamN);
+            }
+            if (value != null && (format != BigIntegerText.Format.DECIMAL || value.bitLength() > streamAboveBits)) {
+                writeResult(response, value, format, edgeDigitsWanted(request));
+                return;
             }
         } catch (NumberFormatException ex) {
             request.setAttribute(RESULT, "Error: only accepts integers");
+        } catch (RejectedExecutionException ex) {
+            logger.warn("too busy to calculate a fibonacci number: {}", MathWork.getPool());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", MathWork.RETRY_AFTER_SECONDS);
+            request.setAttribute(RESULT, MathWork.BUSY_MESSAGE);
+        } catch (TaskTimeoutException | BudgetExceededException | CancellationException ex) {
+            logger.warn("gave up calculating a fibonacci number: {}", ex.getMessage());
+            request.setAttribute(RESULT, MathWork.EXCEEDED_BUDGET_MESSAGE);
         }
         forwardToResult(request, response, logger);
     }
 
-    void tailRecursiveAlgo2Calc(HttpServletRequest request, int fibParamN) {
-        final BigInteger result = FibonacciIterative.fibAlgo2(fibParamN);
-        logger.info(FIBONACCI_VALUE_IS, result);
+    /**
+     * F(n) mod m, for n up to the largest long
+     */
+    void modularCalculation(HttpServletRequest request) {
+        try {
+            final long n = Long.parseLong(request.getParameter("fib_param_n"));
+            final long modulus = Long.parseLong(request.getParameter("fib_mod"));
+            final boolean reduce = Boolean.parseBoolean(request.getParameter("fib_pisano"));
+            logger.info("received request to calculate the {}th fibonacci number mod {}", n, modulus);
+            if (n < 0) {
+                request.setAttribute(RESULT, "Error: n must not be negative");
+            } else if (modulus < 1) {
+                request.setAttribute(RESULT, "Error: fib_mod must be positive");
+            } else if (reduce && modulus > FibonacciModular.MAX_PISANO_MODULUS) {
+                request.setAttribute(RESULT, "Error: fib_pisano allows fib_mod up to at most " + FibonacciModular.MAX_PISANO_MODULUS);
+            } else {
+                final long result = MathWork.run(MathResultCache.key("fibonacci", reduce ? "pisano" : "mod", n, modulus),
+                        budget -> reduce ? FibonacciModular.calculateReduced(n, modulus) : FibonacciModular.calculate(n, modulus));
+                logger.info(FIBONACCI_VALUE_IS, result);
+                request.setAttribute(RESULT, result);
+            }
+        } catch (NumberFormatException ex) {
+            request.setAttribute(RESULT, "Error: only accepts integers");
+        }
+    }
+
+    /**
+     * Stream a range of Fibonacci numbers.  Anything wrong with the parameters is reported
+     * the same way as for a single number, before anything is streamed.
+     */
+    void rangeCalculation(HttpServletRequest request, HttpServletResponse response) {
+        final FibonacciRange range;
+        try {
+            final long from = Long.parseLong(request.getParameter("fib_from"));
+            final long to = Long.parseLong(request.getParameter("fib_to"));
+            final FibonacciRange.Output output = FibonacciRange.Output.fromParameter(request.getParameter("fib_output"));
+            final long modulus = output == FibonacciRange.Output.MOD ? Long.parseLong(request.getParameter("fib_mod")) : 0;
+            final String problem = checkRange(from, to, output, modulus);
+            if (problem != null) {
+                request.setAttribute(RESULT, problem);
+                forwardToResult(request, response, logger);
+                return;
+            }
+            logger.info("received request for the fibonacci numbers from {} to {}, as {}", from, to, output);
+            // only the start of the range needs any real work
+            range = MathWork.run("fibonacci from " + from, budget -> FibonacciRange.of(from, to, output, modulus, fibonacciCache));
+        } catch (NumberFormatException ex) {
+            request.setAttribute(RESULT, "Error: only accepts integers");
+            forwardToResult(request, response, logger);
+            return;
+        } catch (RejectedExecutionException ex) {
+            logger.warn("too busy to start a fibonacci range: {}", MathWork.getPool());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", MathWork.RETRY_AFTER_SECONDS);
+            request.setAttribute(RESULT, MathWork.BUSY_MESSAGE);
+            forwardToResult(request, response, logger);
+            return;
+        } catch (TaskTimeoutException | BudgetExceededException | CancellationException ex) {
+            logger.warn("gave up starting a fibonacci range: {}", ex.getMessage());
+            request.setAttribute(RESULT, MathWork.EXCEEDED_BUDGET_MESSAGE);
+            forwardToResult(request, response, logger);
+            return;
+        } catch (IllegalArgumentException ex) {
+            request.setAttribute(RESULT, "Error: fib_output must be value, digits or mod");
+            forwardToResult(request, response, logger);
+            return;
+        }
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        try {
+            final PrintWriter writer = response.getWriter();
+            final String field = range.getOutput().name().toLowerCase(Locale.ROOT);
+            int lines = 0;
+            while (range.hasNext()) {
+                writer.append("{\"n\": ").append(Long.toString(range.nextIndex())).append(", \"").append(field).append("\": ");
+                range.writeNext(writer);
+                writer.append("}\n");
+                if (++lines % RANGE_FLUSH_LINES == 0) {
+                    writer.flush();
+                    // a PrintWriter keeps quiet about errors - this is how we hear the client has gone
+                    if (writer.checkError()) {
+                        logger.info("client stopped reading the fibonacci range after {} lines", lines);
+                        return;
+                    }
+                }
+            }
+            writer.flush();
+            logger.info("streamed {} fibonacci numbers", lines);
+        } catch (IOException ex) {
+            logger.info("could not stream the fibonacci range: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * @return what's wrong with this range, or null if nothing
+     */
+    static String checkRange(long from, long to, FibonacciRange.Output output, long modulus) {
+        if (from < 0) {
+            return "Error: n must not be negative";
+        }
+        if (to < from) {
+            return "Error: fib_to must not be less than fib_from";
+        }
+        if (output == FibonacciRange.Output.MOD ? to == Long.MAX_VALUE : to > maxN) {
+            return "Error: n is too large - this algorithm allows at most " + (output == FibonacciRange.Output.MOD ? Long.MAX_VALUE - 1 : maxN);
+        }
+        if (to - from >= maxRange) {
+            return "Error: the range is too long - at most " + maxRange + " numbers at a time";
+        }
+        if (output == FibonacciRange.Output.MOD && modulus < 1) {
+            return "Error: fib_mod must be positive";
+        }
+        if (output == FibonacciRange.Output.VALUE && (to - from + 1) * (to * DIGITS_PER_N + 1) > maxRangeOutputBytes) {
+            return "Error: the range would be too much to write out - try fib_output=digits or fib_output=mod";
+        }
+        return null;
+    }
+
+    /**
+     * Write a number straight to the response, as plain text in the format asked for, rather than through the JSP
+     */
+    void writeResult(HttpServletResponse response, BigInteger value, BigIntegerText.Format format, int edgeDigits) {
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        try {
+            final PrintWriter writer = response.getWriter();
+            BigIntegerText.write(value, format, edgeDigits, writer);
+            writer.flush();
+        } catch (IOException ex) {
+            logger.info("could not write out the fibonacci number: {}", ex.getMessage());
+        }
+    }
+
+    private static int edgeDigitsWanted(HttpServletRequest request) {
+        final String digits = request.getParameter("fib_digits");
+        if (digits == null) {
+            return DEFAULT_EDGE_DIGITS;
+        }
+        return Math.max(1, Math.min(BigIntegerText.MAX_EDGE_DIGITS, Integer.parseInt(digits)));
+    }
+
+    BigInteger tailRecursiveAlgo2Calc(HttpServletRequest request, int fibParamN) {
+        final BigInteger result = MathWork.run(MathResultCache.key("fibonacci", "tail_recursive_2", fibParamN), budget -> FibonacciIterative.fibAlgo2(fibParamN));
+        logger.info(FIBONACCI_VALUE_IS, describeForLog(result));
         request.setAttribute(RESULT, result);
+        return result;
     }
 
-    void tailRecursiveAlgo1Calc(HttpServletRequest request, int fibParamN) {
-        final BigInteger result = FibonacciIterative.fibAlgo1(fibParamN);
-        logger.info(FIBONACCI_VALUE_IS, result);
+    BigInteger tailRecursiveAlgo1Calc(HttpServletRequest request, int fibParamN) {
+        final BigInteger result = MathWork.run(MathResultCache.key("fibonacci", "tail_recursive_1", fibParamN), budget -> FibonacciIterative.fibAlgo1(fibParamN));
+        logger.info(FIBONACCI_VALUE_IS, describeForLog(result));
         request.setAttribute(RESULT, result);
+        return result;
+    }
+
+    /**
+     * F(1,000,000) has over 200,000 digits - too many to write out in the log, and slow to
+     * turn into decimal just for that
+     */
+    static String describeForLog(BigInteger result) {
+        return result.bitLength() <= 256 ? result.toString() : "a number of " + result.bitLength() + " bits";
     }
 
     /**
@@ -68,11 +337,20 @@ public class FibServlet extends HttpServlet {
 
     /**
      * Wrapping a request set for easier testing and clarity.
+     * <p>
+     * This used to be {@link Fibonacci#calculate}, the textbook double recursion - which takes
+     * minutes by n = 50, and overflows a long past n = 92.  The same numbers come from
+     * fast doubling in a few microseconds.
+     * </p>
+     * <p>
+     * The {@link FibonacciCache} keeps what this works out, so it isn't kept again in the {@link MathResultCache}.
+     * </p>
      */
-    void defaultRecursiveCalculation(HttpServletRequest request, int itemA) {
-        final long result = Fibonacci.calculate(itemA);
-        logger.info(FIBONACCI_VALUE_IS, result);
+    BigInteger defaultRecursiveCalculation(HttpServletRequest request, int itemA) {
+        final BigInteger result = MathWork.run("fibonacci " + itemA, budget -> fibonacciCache.calculate(itemA));
+        logger.info(FIBONACCI_VALUE_IS, describeForLog(result));
         request.setAttribute(RESULT, result);
+        return result;
     }
 
 }
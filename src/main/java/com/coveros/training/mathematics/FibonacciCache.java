@@ -0,0 +1,172 @@
+package com.coveros.training.mathematics;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fibonacci numbers by {@link FibonacciFastDoubling}, remembering what was
+ * worked out along the way so later requests can start from it.
+ * <p>
+ * Working out F(n) passes through the pairs F(k), F(k+1) for every k that is a prefix
+ * of n's bits - for n = 1,000,000 that's 500,000, 250,000 and so on.  We keep those pairs,
+ * and for a later n we start from the longest prefix of its bits we have.  Asking for the
+ * same n again costs nothing, and asking for a nearby one, or one twice as big, costs a
+ * step or two.
+ * </p>
+ * <p>
+ * The pairs can be big - F(1,000,000) is about 87 KB - so the cache is limited by the
+ * total size of the numbers it holds, not by how many, and the least recently used are
+ * dropped first.  Small pairs are quick to work out again, and are not kept.
+ * </p>
+ * <p>
+ * Configured through the system property {@value #MAX_BYTES_PROPERTY}, default 64 MB.
+ * </p>
+ */
+public final class FibonacciCache {
+
+    public static final String MAX_BYTES_PROPERTY = "demo.math.fibonacci.cacheMaxBytes";
+
+    /**
+     * Pairs below this are cheaper to work out than to look after
+     */
+    static final long MIN_CACHED_N = 1024;
+
+    /**
+     * Roughly what a cached pair costs beyond its numbers - the entry, the key, two BigInteger objects
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    private long currentBytes;
+
+    /**
+     * F(k) and F(k+1), by k, in least-recently-used order.  Guarded by this.
+     */
+    private final LinkedHashMap<Long, BigInteger[]> pairs = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong partialHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * @param maxBytes about how much memory the cached numbers may take up.  0 turns the cache off.
+     */
+    public FibonacciCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static FibonacciCache createFromSystemProperties() {
+        return new FibonacciCache(Long.getLong(MAX_BYTES_PROPERTY, 64L * 1024 * 1024));
+    }
+
+    /**
+     * @param n which Fibonacci number, from 0
+     * @return F(n)
+     */
+    public BigInteger calculate(long n) {
+        return pair(n)[0];
+    }
+
+    /**
+     * @param n which Fibonacci number, from 0
+     * @return F(n) and F(n+1), for carrying on from
+     */
+    public BigInteger[] pair(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative, was " + n);
+        }
+        if (n < MIN_CACHED_N || maxBytes == 0) {
+            return FibonacciFastDoubling.pair(n);
+        }
+        long k = 0;
+        BigInteger[] start = {BigInteger.ZERO, BigInteger.ONE};
+        synchronized (this) {
+            for (long prefix = n; prefix >= MIN_CACHED_N; prefix >>>= 1) {
+                final BigInteger[] cached = pairs.get(prefix);
+                if (cached != null) {
+                    k = prefix;
+                    start = cached;
+                    break;
+                }
+            }
+        }
+        if (k == n) {
+            hits.incrementAndGet();
+            return start.clone();
+        }
+        (k == 0 ? misses : partialHits).incrementAndGet();
+        return FibonacciFastDoubling.walk(n, k, start[0], start[1], (step, fk, fk1) -> {
+            if (step >= MIN_CACHED_N) {
+                put(step, fk, fk1);
+            }
+        });
+    }
+
+    private synchronized void put(long k, BigInteger fk, BigInteger fk1) {
+        final BigInteger[] previous = pairs.put(k, new BigInteger[]{fk, fk1});
+        if (previous != null) {
+            currentBytes -= sizeOf(previous);
+        }
+        currentBytes += sizeOf(fk, fk1);
+        final Iterator<Map.Entry<Long, BigInteger[]>> eldest = pairs.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+            evicted.incrementAndGet();
+        }
+    }
+
+    private static long sizeOf(BigInteger... numbers) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (BigInteger number : numbers) {
+            bytes += number.bitLength() / 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return about how much memory the cached numbers take up
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int size() {
+        return pairs.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return how many times we started part way, from a pair we had for a prefix of n
+     */
+    public long getPartialHitCount() {
+        return partialHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * The cache's numbers, as JSON
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"hits\": %d, \"partialHits\": %d, \"misses\": %d, \"size\": %d, " +
+                        "\"bytes\": %d, \"evicted\": %d}",
+                hits.get(), partialHits.get(), misses.get(), size(), getCurrentBytes(), evicted.get());
+    }
+
+    @Override
+    public String toString() {
+        return "fibonacci cache: " + toJson();
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.coveros.training.mathematics;
+
+import java.math.BigInteger;
+
+/**
+ * Fibonacci numbers by fast doubling.
+ * <p>
+ * From F(k) and F(k+1) we get F(2k) and F(2k+1) in one step:
+ * </p>
+ * <pre>
+ *     F(2k)   = F(k) * (2 * F(k+1) - F(k))
+ *     F(2k+1) = F(k)^2 + F(k+1)^2
+ * </pre>
+ * <p>
+ * Walking down the bits of n from the top, each bit doubles k, and a set bit adds one
+ * more - so F(n) takes about log2(n) steps of three multiplications, rather than
+ * the n additions of {@link FibonacciIterative#fibAlgo2} or the exponential number
+ * of calls of {@link Fibonacci#calculate}.  The multiplications are of numbers
+ * that double in size each step, so the last few steps are nearly all the work.
+ * </p>
+ * <p>
+ * The walk can start part way down, from the pair for a prefix of n's bits - which is how
+ * {@link FibonacciCache} picks up from an earlier result.
+ * </p>
+ */
+public final class FibonacciFastDoubling {
+
+    private FibonacciFastDoubling() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * @param n which Fibonacci number, from 0
+     * @return F(n)
+     */
+    public static BigInteger calculate(long n) {
+        return pair(n)[0];
+    }
+
+    /**
+     * @return F(n) and F(n+1)
+     */
+    static BigInteger[] pair(long n) {
+        return walk(n, 0, BigInteger.ZERO, BigInteger.ONE, (k, fk, fk1) -> { });
+    }
+
+    /**
+     * Called with each pair the walk passes through, so they can be kept for later
+     */
+    @FunctionalInterface
+    interface StepListener {
+        void onStep(long k, BigInteger fk, BigInteger fk1);
+    }
+
+    /**
+     * Carry on from F(k) and F(k+1) to F(n) and F(n+1).
+     *
+     * @param n       which Fibonacci number we want
+     * @param k       where we're starting - must be n shifted right by some number of bits (0 always is)
+     * @param fk      F(k)
+     * @param fk1     F(k+1)
+     * @param visited told about each pair on the way, including the last
+     * @return F(n) and F(n+1)
+     */
+    static BigInteger[] walk(long n, long k, BigInteger fk, BigInteger fk1, StepListener visited) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative, was " + n);
+        }
+        final int remainingBits = k == 0 ? 64 - Long.numberOfLeadingZeros(n) : Long.numberOfLeadingZeros(k) - Long.numberOfLeadingZeros(n);
+        if (n >>> remainingBits != k) {
+            throw new IllegalArgumentException(k + " is not a prefix of the bits of " + n);
+        }
+        BigInteger a = fk;
+        BigInteger b = fk1;
+        long current = k;
+        for (int bit = remainingBits - 1; bit >= 0; bit--) {
+            // a.multiply(a) is recognized as a square, which is cheaper than a general multiply
+            final BigInteger doubled = a.multiply(b.shiftLeft(1).subtract(a));
+            final BigInteger doubledPlusOne = a.multiply(a).add(b.multiply(b));
+            if (((n >>> bit) & 1) == 0) {
+                a = doubled;
+                b = doubledPlusOne;
+                current = current << 1;
+            } else {
+                a = doubledPlusOne;
+                b = doubled.add(doubledPlusOne);
+                current = (current << 1) | 1;
+            }
+            visited.onStep(current, a, b);
+        }
+        return new BigInteger[]{a, b};
+    }
+
+}
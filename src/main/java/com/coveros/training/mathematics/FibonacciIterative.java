@@ -1,50 +1,72 @@
 package com.coveros.training.mathematics;
 
 import java.math.BigInteger;
+import java.util.concurrent.CancellationException;
 
 /**
- * From https://rosettacode.org/wiki/Fibonacci_sequence#Iterative_35
+ * Two ways to work out Fibonacci numbers without recursion.  {@link #fibAlgo2}
+ * is from https://rosettacode.org/wiki/Fibonacci_sequence#Iterative_35
  */
 public class FibonacciIterative {
 
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+    private static final BigInteger MINUS_TWO = BigInteger.valueOf(-2);
+
+    /**
+     * How many steps of {@link #fibAlgo2} between checking whether to stop
+     */
+    static final int CHECK_INTERVAL = 1 << 10;
+
     private FibonacciIterative() {
         throw new IllegalStateException("Utility class");
     }
 
     /**
-     * O(log(n))
+     * O(log(n)) steps, by fast doubling.
+     * <p>
+     * This walks the bits of n from the top, keeping the pair F(k-1), F(k) for k = the bits
+     * seen so far.  Each step doubles k with just two squarings:
+     * </p>
+     * <pre>
+     *     F(2k-1) = F(k)^2 + F(k-1)^2
+     *     F(2k+1) = 4F(k)^2 - F(k-1)^2 + 2(-1)^k
+     *     F(2k)   = F(2k+1) - F(2k-1)
+     * </pre>
+     * <p>
+     * and then moves on to 2k+1 instead if the next bit is set.  Squaring is cheaper than a
+     * general multiply, and for huge n the two squares are worked out in parallel
+     * (see {@link ParallelSquaring}).
+     * </p>
      */
     public static BigInteger fibAlgo1(long n) {
         if (n <= 0)
             return BigInteger.ZERO;
 
-        BigInteger i =  (BigInteger.valueOf(n).subtract(BigInteger.ONE));
-        BigInteger a = BigInteger.ONE;
-        BigInteger b = BigInteger.ZERO;
-        BigInteger c = BigInteger.ZERO;
-        BigInteger d = BigInteger.ONE;
-        BigInteger tmp1;
-        BigInteger tmp2;
-
-        while (i.compareTo(BigInteger.ZERO) > 0) {
-            if (!i.mod(BigInteger.valueOf(2)).equals(BigInteger.ZERO)) {
-                tmp1 = d.multiply(b).add(c.multiply(a));
-                tmp2 = d.multiply (b.add(a)).add(c.multiply(b));
-                a = tmp1;
-                b = tmp2;
+        // start at k = 1, which takes care of the top bit
+        BigInteger previous = BigInteger.ZERO;
+        BigInteger current = BigInteger.ONE;
+        boolean kIsOdd = true;
+        for (int bit = 62 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            final BigInteger[] squares = ParallelSquaring.squareBoth(current, previous);
+            final BigInteger twoKMinusOne = squares[0].add(squares[1]);
+            final BigInteger twoKPlusOne = squares[0].shiftLeft(2).subtract(squares[1]).add(kIsOdd ? MINUS_TWO : TWO);
+            final BigInteger twoK = twoKPlusOne.subtract(twoKMinusOne);
+            kIsOdd = ((n >>> bit) & 1) == 1;
+            if (kIsOdd) {
+                previous = twoK;
+                current = twoKPlusOne;
+            } else {
+                previous = twoKMinusOne;
+                current = twoK;
             }
-
-            tmp1 = c.pow(2).add(d.pow(2));
-            tmp2 = d.multiply(c.multiply(BigInteger.valueOf(2)).add(d));
-
-            c = tmp1;
-            d = tmp2;
-
-            i = i.divide(BigInteger.valueOf(2));
         }
-        return a.add(b);
+        return current;
     }
 
+    /**
+     * n steps, adding up each number from the two before.  This stops with a {@link CancellationException}
+     * if its thread is interrupted part way.
+     */
     public static BigInteger fibAlgo2(int n)
     {
         if (n < 2)
@@ -54,6 +76,8 @@ public class FibonacciIterative {
         BigInteger n2 =  BigInteger.ONE;
         for(n--; n > 0; n--)
         {
+            if ((n & (CHECK_INTERVAL - 1)) == 0 && Thread.currentThread().isInterrupted())
+                throw new CancellationException("cancelled with " + n + " steps to go");
             ans = n1.add(n2);
             n1 = n2;
             n2 = ans;
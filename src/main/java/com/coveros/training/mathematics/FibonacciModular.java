@@ -0,0 +1,253 @@
+package com.coveros.training.mathematics;
+
+/**
+ * F(n) mod m, for n as big as a {@code long} goes - F(10^18) has about 2 * 10^17 digits,
+ * far too many to work out, but its remainder takes microseconds.
+ * <p>
+ * This is the same fast doubling as {@link FibonacciFastDoubling}, with every step taken
+ * mod m, so the numbers never get bigger than m and everything fits in {@code long}s - no
+ * {@link java.math.BigInteger}s at all.  Multiplying two remainders takes up to 128 bits,
+ * from {@link Math#multiplyHigh}, and reducing that mod m is the hard part:
+ * </p>
+ * <ul>
+ *     <li>for odd m, the numbers are kept in Montgomery form - a * 2^64 mod m - where taking
+ *     the remainder of a product is a few multiplications, with no dividing</li>
+ *     <li>for even m small enough that the product fits in a long, it's a plain remainder</li>
+ *     <li>for bigger even m, which Montgomery form can't do, the product is reduced a bit at a
+ *     time, which is about a hundred times slower</li>
+ * </ul>
+ * <p>
+ * The remainders repeat: the period is the Pisano period of m, at most 6m.  {@link #pisanoPeriod}
+ * finds it, so n can be reduced first - which is worth it when the same m is used for many
+ * values of n.
+ * </p>
+ */
+public final class FibonacciModular {
+
+    /**
+     * Below this, the product of two remainders fits in a long
+     */
+    static final long SMALL_MODULUS = 3_037_000_499L;
+
+    /**
+     * The largest modulus {@link #pisanoPeriod} takes on - finding the period means factoring m,
+     * and this keeps the trial division to about a million steps
+     */
+    public static final long MAX_PISANO_MODULUS = 1_000_000_000_000L;
+
+    private FibonacciModular() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * @param n which Fibonacci number, from 0
+     * @param m the modulus, from 1
+     * @return F(n) mod m
+     */
+    public static long calculate(long n, long m) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative, was " + n);
+        }
+        if (m < 1) {
+            throw new IllegalArgumentException("the modulus must be positive, was " + m);
+        }
+        if (m == 1) {
+            return 0;
+        }
+        // for the Montgomery form, -1/m mod 2^64 and 1 in that form, 2^64 mod m.  0 means not using it.
+        final long negativeInverse = (m & 1) == 1 ? negativeInverse(m) : 0;
+        final long one = negativeInverse == 0 ? 1 : (Long.remainderUnsigned(-1L, m) + 1) % m;
+        long a = 0;
+        long b = one;
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            // F(2k) = F(k) * (2F(k+1) - F(k)), F(2k+1) = F(k)^2 + F(k+1)^2
+            final long doubled = multiply(a, subtractMod(addMod(b, b, m), a, m), m, negativeInverse);
+            final long doubledPlusOne = addMod(multiply(a, a, m, negativeInverse), multiply(b, b, m, negativeInverse), m);
+            if (((n >>> bit) & 1) == 0) {
+                a = doubled;
+                b = doubledPlusOne;
+            } else {
+                a = doubledPlusOne;
+                b = addMod(doubled, doubledPlusOne, m);
+            }
+        }
+        if (negativeInverse != 0) {
+            // out of Montgomery form, a * 1/2^64
+            return montgomeryReduce(0, a, m, negativeInverse);
+        }
+        return a;
+    }
+
+    /**
+     * F(n) mod m and F(n+1) mod m, for carrying on from
+     *
+     * @param n which Fibonacci number, from 0 to one less than {@link Long#MAX_VALUE}
+     */
+    static long[] pair(long n, long m) {
+        return new long[]{calculate(n, m), calculate(n + 1, m)};
+    }
+
+    /**
+     * F(n) mod m, with n first reduced by the Pisano period of m
+     *
+     * @param m the modulus, from 1 to {@link #MAX_PISANO_MODULUS}
+     */
+    public static long calculateReduced(long n, long m) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative, was " + n);
+        }
+        return calculate(n % pisanoPeriod(m), m);
+    }
+
+    /**
+     * The Pisano period of m - how often the Fibonacci numbers mod m repeat.
+     * <p>
+     * For a prime p it divides p - 1 if p is 1 or 4 mod 5, and 2(p + 1) if p is 2 or 3 mod 5, so we
+     * start from that and divide out what we can.  For a power of a prime it's p^(k-1) times the
+     * period for p, and for anything else the least common multiple of its prime powers' periods.
+     * The rule for prime powers is only known to give a multiple of the period - nobody has found
+     * a prime where it's more - and any multiple is as good for reducing n.
+     * </p>
+     *
+     * @param m the modulus, from 1 to {@link #MAX_PISANO_MODULUS}
+     */
+    public static long pisanoPeriod(long m) {
+        if (m < 1 || m > MAX_PISANO_MODULUS) {
+            throw new IllegalArgumentException("can only find the period for a modulus from 1 to " + MAX_PISANO_MODULUS + ", was " + m);
+        }
+        long period = 1;
+        long rest = m;
+        for (long p = 2; p * p <= rest; p++) {
+            if (rest % p == 0) {
+                long primePower = 1;
+                while (rest % p == 0) {
+                    rest /= p;
+                    primePower *= p;
+                }
+                period = lcm(period, primePeriod(p) * (primePower / p));
+            }
+        }
+        if (rest > 1) {
+            period = lcm(period, primePeriod(rest));
+        }
+        return period;
+    }
+
+    private static long primePeriod(long p) {
+        if (p == 2) {
+            return 3;
+        }
+        if (p == 5) {
+            return 20;
+        }
+        final long residue = p % 5;
+        long period = residue == 1 || residue == 4 ? p - 1 : 2 * (p + 1);
+        long rest = period;
+        for (long q = 2; q * q <= rest; q++) {
+            if (rest % q == 0) {
+                while (rest % q == 0) {
+                    rest /= q;
+                }
+                period = divideOut(period, q, p);
+            }
+        }
+        if (rest > 1) {
+            period = divideOut(period, rest, p);
+        }
+        return period;
+    }
+
+    /**
+     * Divide the period by q for as long as the sequence still repeats after that many
+     */
+    private static long divideOut(long period, long q, long p) {
+        while (period % q == 0 && repeatsAfter(period / q, p)) {
+            period /= q;
+        }
+        return period;
+    }
+
+    private static boolean repeatsAfter(long length, long m) {
+        return calculate(length, m) == 0 && calculate(length + 1, m) == 1 % m;
+    }
+
+    private static long lcm(long a, long b) {
+        return a / gcd(a, b) * b;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            final long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * a + b mod m, for a and b below m, without overflowing
+     */
+    static long addMod(long a, long b, long m) {
+        return a >= m - b ? a - (m - b) : a + b;
+    }
+
+    /**
+     * a - b mod m, for a and b below m
+     */
+    static long subtractMod(long a, long b, long m) {
+        return a >= b ? a - b : a + (m - b);
+    }
+
+    private static long multiply(long a, long b, long m, long negativeInverse) {
+        if (negativeInverse == 0) {
+            return multiplyMod(a, b, m);
+        }
+        return montgomeryReduce(Math.multiplyHigh(a, b), a * b, m, negativeInverse);
+    }
+
+    /**
+     * -1/m mod 2^64, for odd m.  Each step of Newton's method doubles the number of bits that are right,
+     * and m is its own inverse to 3 bits.
+     */
+    static long negativeInverse(long m) {
+        long inverse = m;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - m * inverse;
+        }
+        return -inverse;
+    }
+
+    /**
+     * The 128-bit number high * 2^64 + low, divided by 2^64 mod m - for a number below m * 2^64 and an odd m
+     */
+    static long montgomeryReduce(long high, long low, long m, long negativeInverse) {
+        // adding u * m makes the low half 0 without changing anything mod m, so the high half is what's left
+        final long u = low * negativeInverse;
+        // the high half of u * m, unsigned - m is positive, so only u's sign needs putting right
+        final long uTimesMHigh = Math.multiplyHigh(u, m) + ((u >> 63) & m);
+        final long carry = low == 0 ? 0 : 1;
+        final long result = high + uTimesMHigh + carry;
+        // below 2m, which can be past Long.MAX_VALUE
+        return Long.compareUnsigned(result, m) >= 0 ? result - m : result;
+    }
+
+    /**
+     * a * b mod m, for a and b below m
+     */
+    static long multiplyMod(long a, long b, long m) {
+        if (m <= SMALL_MODULUS) {
+            return a * b % m;
+        }
+        // the product is at most 126 bits.  Reduce the high half, then bring in the low half a bit at a time.
+        long remainder = Math.multiplyHigh(a, b) % m;
+        final long low = a * b;
+        for (int bit = 63; bit >= 0; bit--) {
+            remainder = addMod(remainder, remainder, m);
+            if (((low >>> bit) & 1) == 1) {
+                remainder = addMod(remainder, 1, m);
+            }
+        }
+        return remainder;
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.coveros.training.mathematics;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Locale;
+
+/**
+ * Steps through F(from) to F(to) one at a time, for writing out as we go.
+ * <p>
+ * Only the start needs any real work - F(from) and F(from+1), from a {@link FibonacciCache}, or
+ * for remainders from {@link FibonacciModular}, which can start anywhere a {@code long} goes.
+ * After that each number is just the sum of the two before, kept in two rolling
+ * accumulators, so a range of any length takes the same memory as a single value.
+ * </p>
+ * <p>
+ * Each number can be given as its value, as how many decimal digits it has, or as its
+ * remainder mod m (see {@link Output}).  Digit counts are kept up to date by comparing with the
+ * next power of ten, rather than writing each number out in decimal.  Remainders are added up
+ * in {@code long}s, so they never grow.
+ * </p>
+ */
+public final class FibonacciRange {
+
+    /**
+     * What to give for each number in the range
+     */
+    public enum Output {
+        VALUE, DIGITS, MOD;
+
+        /**
+         * @param name value, digits, or mod, in any case.  Null means value.
+         */
+        public static Output fromParameter(String name) {
+            return name == null ? VALUE : valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final long to;
+    private final Output output;
+    private final long modulus;
+    private long n;
+
+    private BigInteger current;
+    private BigInteger next;
+
+    private int digits;
+    private BigInteger nextPowerOfTen;
+
+    private long currentMod;
+    private long nextMod;
+
+    private FibonacciRange(long from, long to, Output output, long modulus, FibonacciCache cache) {
+        if (from < 0 || to < from || to == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("the range must start at 0 or more, and not end before it starts - was " + from + " to " + to);
+        }
+        if (output == Output.MOD && modulus < 1) {
+            throw new IllegalArgumentException("the modulus must be positive, was " + modulus);
+        }
+        this.to = to;
+        this.output = output;
+        this.modulus = modulus;
+        this.n = from;
+        if (output == Output.MOD) {
+            final long[] start = FibonacciModular.pair(from, modulus);
+            currentMod = start[0];
+            nextMod = start[1];
+        } else {
+            final BigInteger[] start = cache.pair(from);
+            current = start[0];
+            next = start[1];
+        }
+        if (output == Output.DIGITS) {
+            countDigits();
+        }
+    }
+
+    /**
+     * F(from) to F(to), inclusive
+     */
+    public static FibonacciRange of(long from, long to, Output output, long modulus, FibonacciCache cache) {
+        return new FibonacciRange(from, to, output, modulus, cache);
+    }
+
+    public boolean hasNext() {
+        return n <= to;
+    }
+
+    /**
+     * @return which Fibonacci number {@link #writeNext} will give
+     */
+    public long nextIndex() {
+        return n;
+    }
+
+    public Output getOutput() {
+        return output;
+    }
+
+    /**
+     * Write out the next number in the range - its value, digit count or remainder -
+     * and move on to the one after
+     */
+    public void writeNext(Appendable out) throws IOException {
+        if (!hasNext()) {
+            throw new IllegalStateException("already past the end of the range, at " + to);
+        }
+        switch (output) {
+            case MOD:
+                out.append(Long.toString(currentMod));
+                break;
+            case DIGITS:
+                out.append(Integer.toString(digits));
+                break;
+            default:
+                out.append(current.toString());
+                break;
+        }
+        advance();
+    }
+
+    private void advance() {
+        n++;
+        if (n > to) {
+            // nothing more will be asked for, so don't work out a number past the end
+            return;
+        }
+        if (output == Output.MOD) {
+            // both are below the modulus, so this is their sum mod m without overflowing
+            final long sum = currentMod >= modulus - nextMod ? currentMod - (modulus - nextMod) : currentMod + nextMod;
+            currentMod = nextMod;
+            nextMod = sum;
+            return;
+        }
+        final BigInteger sum = current.add(next);
+        current = next;
+        next = sum;
+        if (output == Output.DIGITS) {
+            // each number is less than twice the one before, so it has at most one more digit
+            if (current.compareTo(nextPowerOfTen) >= 0) {
+                digits++;
+                nextPowerOfTen = nextPowerOfTen.multiply(BigInteger.TEN);
+            }
+        }
+    }
+
+    /**
+     * Count the digits of the first number in the range from its size in bits - which
+     * gets within one - and put right by comparing with powers of ten
+     */
+    private void countDigits() {
+        if (current.signum() == 0) {
+            digits = 1;
+            nextPowerOfTen = BigInteger.TEN;
+            return;
+        }
+        digits = (int) ((current.bitLength() - 1) * Math.log10(2)) + 1;
+        final BigInteger lowestWithThatMany = BigInteger.TEN.pow(digits - 1);
+        if (current.compareTo(lowestWithThatMany) < 0) {
+            // rounding in the logarithm took us over
+            digits--;
+            nextPowerOfTen = lowestWithThatMany;
+            return;
+        }
+        nextPowerOfTen = lowestWithThatMany.multiply(BigInteger.TEN);
+        if (current.compareTo(nextPowerOfTen) >= 0) {
+            digits++;
+            nextPowerOfTen = nextPowerOfTen.multiply(BigInteger.TEN);
+        }
+    }
+
+}
@@ -0,0 +1,311 @@
+package com.coveros.training.mathematics;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the answers to /fibonacci and /ackermann questions, so the same question asked again - by
+ * anyone - isn't worked out again.
+ * <p>
+ * Answers are kept by what was asked: the function, the algorithm, and the numbers it was given.
+ * The cache is limited by the total size of the answers, and when it's full it drops whatever is the
+ * worst value for its room, by "GreedyDual-Size": each answer's worth is the time it took to work out,
+ * per byte it takes up.  A huge number that took a moment is dropped before a hundred small ones that
+ * each took as long, and an answer that's used again is worth keeping again.  So that nothing is kept for
+ * ever once it stops being used, each answer dropped raises a base level, and answers used or added are
+ * valued from that level.
+ * </p>
+ * <p>
+ * If the same question comes in while it's still being worked out, the second asker waits for that
+ * answer rather than starting another - and if working it out fails, both hear about it, and nothing is kept.
+ * </p>
+ * <p>
+ * Configured through the system property {@value #MAX_BYTES_PROPERTY}, default 64 MB.  0 turns the cache off,
+ * though identical questions at the same moment are still only worked out once.
+ * </p>
+ */
+public final class MathResultCache {
+
+    public static final String MAX_BYTES_PROPERTY = "demo.math.resultCache.maxBytes";
+
+    /**
+     * Roughly what a cached answer costs beyond its number - the entry, its key, the number's object
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private final long maxBytes;
+    private long currentBytes;
+
+    /**
+     * The base level of worth, raised to each dropped answer's worth as it's dropped.  Guarded by this.
+     */
+    private double inflation;
+    private long nextSequence;
+
+    /**
+     * Guarded by this, as is the ordering
+     */
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byWorth = new TreeSet<>((a, b) -> a.worth != b.worth
+            ? Double.compare(a.worth, b.worth)
+            : Long.compare(a.sequence, b.sequence));
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    /**
+     * What was asked
+     */
+    public static final class Key {
+        final String function;
+        final String algorithm;
+        final long[] params;
+
+        private Key(String function, String algorithm, long[] params) {
+            this.function = function;
+            this.algorithm = algorithm;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return function.equals(other.function) && algorithm.equals(other.algorithm) && Arrays.equals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return (function.hashCode() * 31 + algorithm.hashCode()) * 31 + Arrays.hashCode(params);
+        }
+
+        @Override
+        public String toString() {
+            return function + " " + Arrays.toString(params) + " by " + algorithm;
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final Object value;
+        final long bytes;
+        final long costNanos;
+        double worth;
+        long sequence;
+
+        Entry(Key key, Object value, long bytes, long costNanos) {
+            this.key = key;
+            this.value = value;
+            this.bytes = bytes;
+            this.costNanos = costNanos;
+        }
+    }
+
+    /**
+     * @param maxBytes about how much memory the cached answers may take up.  0 turns the cache off.
+     */
+    public MathResultCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("the cache size can't be negative, was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public static MathResultCache createFromSystemProperties() {
+        return new MathResultCache(Long.getLong(MAX_BYTES_PROPERTY, 64L * 1024 * 1024));
+    }
+
+    /**
+     * @param function  such as "fibonacci"
+     * @param algorithm how it's worked out, as the request named it
+     * @param params    what it was given
+     */
+    public static Key key(String function, String algorithm, long... params) {
+        return new Key(function, algorithm, params.clone());
+    }
+
+    /**
+     * The answer to this question - from the cache if we have it, or from whoever is already working it out,
+     * or else worked out now and remembered.
+     *
+     * @param compute works out the answer.  It must give the same answer every time for the same key, and
+     *                it should be a {@link BigInteger}, a {@link Long} or a {@link String} - anything else is
+     *                handed back but not kept.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> compute) {
+        final Entry cached = lookup(key);
+        if (cached != null) {
+            return (T) cached.value;
+        }
+        final CompletableFuture<Object> ours = new CompletableFuture<>();
+        final CompletableFuture<Object> theirs = inFlight.putIfAbsent(key, ours);
+        if (theirs != null) {
+            shared.incrementAndGet();
+            return (T) await(theirs);
+        }
+        try {
+            // whoever had it before us may have finished between our looking and our claiming it
+            final Entry justCached = lookup(key);
+            if (justCached != null) {
+                ours.complete(justCached.value);
+                return (T) justCached.value;
+            }
+            misses.incrementAndGet();
+            final long started = System.nanoTime();
+            final T value = compute.get();
+            put(key, value, System.nanoTime() - started);
+            ours.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            ours.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, ours);
+        }
+    }
+
+    private synchronized Entry lookup(Key key) {
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            savedNanos.addAndGet(entry.costNanos);
+            revalue(entry);
+        }
+        return entry;
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    synchronized void put(Key key, Object value, long costNanos) {
+        final long bytes = sizeOf(value);
+        if (bytes < 0 || bytes > maxBytes) {
+            return;
+        }
+        final Entry entry = new Entry(key, value, bytes, Math.max(1, costNanos));
+        final Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            byWorth.remove(previous);
+            currentBytes -= previous.bytes;
+        }
+        revalue(entry);
+        currentBytes += bytes;
+        while (currentBytes > maxBytes) {
+            final Entry least = byWorth.pollFirst();
+            entries.remove(least.key);
+            currentBytes -= least.bytes;
+            inflation = least.worth;
+            evicted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Value an entry from the current base level, and put it in order.  Guarded by this.
+     */
+    private void revalue(Entry entry) {
+        byWorth.remove(entry);
+        entry.worth = inflation + (double) entry.costNanos / entry.bytes;
+        entry.sequence = nextSequence++;
+        byWorth.add(entry);
+    }
+
+    /**
+     * Whether we have an answer for this, without counting it as a use
+     */
+    synchronized boolean contains(Key key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * @return about how much memory an answer takes up, or -1 if it isn't something we keep
+     */
+    static long sizeOf(Object value) {
+        if (value instanceof BigInteger) {
+            return ENTRY_OVERHEAD_BYTES + ((BigInteger) value).bitLength() / 8;
+        }
+        if (value instanceof Long) {
+            return ENTRY_OVERHEAD_BYTES;
+        }
+        if (value instanceof String) {
+            return ENTRY_OVERHEAD_BYTES + 2L * ((String) value).length();
+        }
+        return -1;
+    }
+
+    /**
+     * @return about how much memory the cached answers take up
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return how many times someone waited for an answer already being worked out, rather than working it out too
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    /**
+     * The cache's numbers, as JSON
+     */
+    public String toJson() {
+        final long hitCount = hits.get();
+        final long lookups = hitCount + misses.get() + shared.get();
+        return String.format(Locale.ROOT, "{\"hits\": %d, \"misses\": %d, \"shared\": %d, \"hitRate\": %.4f, " +
+                        "\"size\": %d, \"bytes\": %d, \"evicted\": %d, \"inFlight\": %d, \"savedMillis\": %d}",
+                hitCount, misses.get(), shared.get(), lookups == 0 ? 0.0 : (double) hitCount / lookups,
+                size(), getCurrentBytes(), evicted.get(), inFlight.size(), savedNanos.get() / 1_000_000);
+    }
+
+    @Override
+    public String toString() {
+        return "math result cache: " + toJson();
+    }
+
+}
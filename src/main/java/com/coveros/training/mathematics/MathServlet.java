@@ -9,7 +9,12 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
+/**
+ * Adds two integers, item_a and item_b - or, when the body is sent as text/csv or
+ * application/octet-stream, every pair in it, by {@link BatchArithmetic}.
+ */
 // Multipart config is necessary so that we can properly receive data when
 // sending via the "FormData" API.  Using FormData is part of the modern
 // API and also allows sending files.
@@ -28,6 +33,11 @@ public class MathServlet extends HttpServlet {
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+        final BatchArithmetic.Encoding encoding = BatchArithmetic.Encoding.fromContentType(request.getContentType());
+        if (encoding != null) {
+            addBatch(request, response, encoding);
+            return;
+        }
         try {
             int itemA = putNumberInRequest("item_a", request);
             int itemB = putNumberInRequest("item_b", request);
@@ -41,6 +51,36 @@ public class MathServlet extends HttpServlet {
         forwardToResult(request, response, logger);
     }
 
+    /**
+     * Add up every pair in the body, writing the sums back as they're ready.  If the body turns out to be
+     * bad before anything has gone back, the answer is a 400 saying why - after, all we can do is stop.
+     */
+    void addBatch(HttpServletRequest request, HttpServletResponse response, BatchArithmetic.Encoding encoding) {
+        response.setContentType(encoding.getContentType());
+        try {
+            final long pairs = BatchArithmetic.addAll(request.getInputStream(), response.getOutputStream(), encoding);
+            logger.info("added a batch of {} pairs", pairs);
+        } catch (IllegalArgumentException ex) {
+            logger.info("stopped adding a batch: {}", ex.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.setContentType("text/plain");
+                writeError(response, "Error: " + ex.getMessage());
+            }
+        } catch (IOException ex) {
+            logger.info("could not add a batch: {}", ex.getMessage());
+        }
+    }
+
+    private static void writeError(HttpServletResponse response, String message) {
+        try {
+            response.getWriter().print(message);
+        } catch (IOException ex) {
+            logger.info("could not send the error back: {}", ex.getMessage());
+        }
+    }
+
     /**
      * Wrapping a static method call for testing.
      */
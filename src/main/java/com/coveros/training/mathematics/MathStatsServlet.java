@@ -0,0 +1,39 @@
+package com.coveros.training.mathematics;
+
+import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Web API reporting, as JSON, how the machinery behind /fibonacci and
+ * /ackermann is doing - the math workers, the result cache and the
+ * Fibonacci cache - and how fast /math has been adding up batches.
+ */
+@WebServlet(name = "MathStatsServlet", urlPatterns = {"/mathstats"}, loadOnStartup = 1)
+public class MathStatsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 7163250984412093316L;
+    private static final Logger logger = LoggerFactory.getLogger(MathStatsServlet.class);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+        logger.info("received request for math stats");
+        request.setAttribute("result", toJson());
+        ServletUtils.forwardToRestfulResult(request, response, logger);
+    }
+
+    static String toJson() {
+        return String.format("{\"mathWorkers\": \"%s\", \"resultCache\": %s, \"fibonacciCache\": %s, \"batches\": %s}",
+                StringUtils.escapeForJson(MathWork.getPool().toString()),
+                MathWork.getResults().toJson(),
+                FibServlet.fibonacciCache.toJson(),
+                BatchArithmetic.toJson());
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.coveros.training.mathematics;
+
+import com.coveros.training.helpers.BoundedWorkerPool;
+import com.coveros.training.helpers.TaskTimeoutException;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The calculations behind /fibonacci and /ackermann run here, on a small dedicated
+ * {@link BoundedWorkerPool}, instead of on the request threads.  A request asking for something
+ * enormous uses up one of a few math workers for a while, and everything else keeps getting served.
+ * <p>
+ * Each calculation has a deadline.  When it passes, the caller stops waiting and the worker is
+ * interrupted.  A calculation that takes many steps - such as one on the {@link TailRecursive#trampoline} -
+ * is handed a {@link TailRecursive.Budget} for the same time, so it notices and stops soon after,
+ * freeing the worker.  The workers have big stacks, so anything that does recurse deeply has room to.
+ * </p>
+ * <p>
+ * Answers can be kept in the shared {@link MathResultCache}, so a question asked again - or asked by
+ * someone else while it's being worked out - doesn't use up another worker.
+ * </p>
+ * <p>
+ * When every worker is taken and the queue is full, a calculation is turned away at once.  The servlets
+ * answer that with a 503 and a Retry-After of a second, as the admission filter does.
+ * </p>
+ * <p>
+ * What stays on the request threads is only what is cheap for any input: the single addition in /math,
+ * a closed-form Ackermann value small enough to write out quickly, and the streaming of a Fibonacci range,
+ * which is paced by the client - its starting pair is worked out here.
+ * </p>
+ * <p>
+ * Configured through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #THREADS_PROPERTY} - how many calculations may run at once, default is half the cores (at least one)</li>
+ *     <li>{@value #QUEUE_PROPERTY} - how many may wait for a worker, default 16</li>
+ *     <li>{@value #STACK_PROPERTY} - the stack size of each worker, in bytes, default 256 MB</li>
+ *     <li>{@value #TIMEOUT_PROPERTY} - how long one calculation may take, in milliseconds, including any wait for a worker, default 5000</li>
+ * </ul>
+ */
+public final class MathWork {
+
+    public static final String THREADS_PROPERTY = "demo.math.workerThreads";
+    public static final String QUEUE_PROPERTY = "demo.math.workerQueue";
+    public static final String STACK_PROPERTY = "demo.math.workerStackBytes";
+    public static final String TIMEOUT_PROPERTY = "demo.math.timeoutMillis";
+
+    static final String EXCEEDED_BUDGET_MESSAGE = "Error: computation exceeded budget";
+    static final String BUSY_MESSAGE = "Error: the server is too busy to calculate this right now, please try again";
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    static long timeoutMillis = Long.getLong(TIMEOUT_PROPERTY, 5000);
+
+    static BoundedWorkerPool pool = new BoundedWorkerPool(
+            "math-work",
+            Integer.getInteger(THREADS_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Integer.getInteger(QUEUE_PROPERTY, 16),
+            Long.getLong(STACK_PROPERTY, 256L * 1024 * 1024));
+
+    static MathResultCache results = MathResultCache.createFromSystemProperties();
+
+    private MathWork() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * Run a calculation on the math workers, and wait for its result.
+     *
+     * @param task given the budget to keep to, if it can
+     * @throws RejectedExecutionException if the math workers are too busy
+     * @throws TaskTimeoutException       if the calculation didn't finish in time
+     * @throws BudgetExceededException    if the calculation stopped itself at the budget first
+     */
+    public static <T> T run(String taskName, Function<TailRecursive.Budget, T> task) {
+        final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        final TailRecursive.Budget budget = TailRecursive.Budget.of(Long.MAX_VALUE, timeoutNanos);
+        return pool.run(taskName, () -> task.apply(budget), timeoutNanos);
+    }
+
+    /**
+     * Like {@link #run(String, Function)}, but only if the answer isn't already in the result cache
+     * or being worked out.  What's worked out here is kept there.
+     *
+     * @param key what's being asked - the same key must always get the same answer
+     */
+    public static <T> T run(MathResultCache.Key key, Function<TailRecursive.Budget, T> task) {
+        return results.get(key, () -> run(key.toString(), task));
+    }
+
+    public static BoundedWorkerPool getPool() {
+        return pool;
+    }
+
+    public static MathResultCache getResults() {
+        return results;
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.coveros.training.mathematics;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Squares huge {@link BigInteger}s using several cores at once.
+ * <p>
+ * {@link BigInteger#multiply} runs on one thread, however big the numbers.  Above
+ * {@value #THRESHOLD_PROPERTY} bits (default 2^20, about 315,000 digits) we split a number
+ * into halves, x = high * 2^h + low, and work out the three squares
+ * </p>
+ * <pre>
+ *     high^2,  low^2,  (high + low)^2
+ * </pre>
+ * <p>
+ * as separate fork-join tasks - splitting those again if they're still big enough.  Then
+ * x^2 = high^2 * 2^2h + ((high + low)^2 - high^2 - low^2) * 2^h + low^2.  On one core the split
+ * is a little slower than squaring directly, so it's only done when the pool has more than one
+ * thread to give.
+ * </p>
+ */
+public final class ParallelSquaring {
+
+    public static final String THRESHOLD_PROPERTY = "demo.math.parallelSquaringBits";
+
+    static int thresholdBits = Integer.getInteger(THRESHOLD_PROPERTY, 1 << 20);
+    static ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private ParallelSquaring() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * @return x squared
+     */
+    public static BigInteger square(BigInteger x) {
+        if (!worthSplitting(x)) {
+            return x.multiply(x);
+        }
+        return pool.invoke(new SquareTask(x.abs()));
+    }
+
+    /**
+     * Square two numbers at once
+     *
+     * @return x squared and y squared
+     */
+    public static BigInteger[] squareBoth(BigInteger x, BigInteger y) {
+        if (!worthSplitting(x) && !worthSplitting(y)) {
+            return new BigInteger[]{x.multiply(x), y.multiply(y)};
+        }
+        final SquareTask first = new SquareTask(x.abs());
+        final SquareTask second = new SquareTask(y.abs());
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(first, second)));
+        return new BigInteger[]{first.join(), second.join()};
+    }
+
+    private static boolean worthSplitting(BigInteger x) {
+        return x.bitLength() >= thresholdBits && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Squares a non-negative number, splitting it while it's big enough to be worth it
+     */
+    private static final class SquareTask extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+        private final BigInteger x;
+
+        SquareTask(BigInteger x) {
+            this.x = x;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            if (x.bitLength() < thresholdBits) {
+                return x.multiply(x);
+            }
+            // split on a whole number of ints, so the shifts are just copies
+            final int half = (x.bitLength() / 2) & ~31;
+            final BigInteger high = x.shiftRight(half);
+            final BigInteger low = x.subtract(high.shiftLeft(half));
+            final SquareTask highSquared = new SquareTask(high);
+            final SquareTask lowSquared = new SquareTask(low);
+            final SquareTask sumSquared = new SquareTask(high.add(low));
+            invokeAll(highSquared, lowSquared, sumSquared);
+            final BigInteger hh = highSquared.join();
+            final BigInteger ll = lowSquared.join();
+            final BigInteger middle = sumSquared.join().subtract(hh).subtract(ll);
+            return hh.shiftLeft(2 * half).add(middle.shiftLeft(half)).add(ll);
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.coveros.training.mathematics;
 
+import java.util.concurrent.CancellationException;
 import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
@@ -21,6 +23,111 @@ public interface TailRecursive {
                 ;
     }
 
+    /**
+     * One step of a tail-recursive calculation, done by changing the state in place rather than
+     * making a new one - so a step need not allocate anything.
+     *
+     * @param <S> the calculation's state
+     */
+    @FunctionalInterface
+    interface Step<S> {
+
+        /**
+         * Take one step
+         *
+         * @return true if there are more steps to take, false once the state holds the answer
+         */
+        boolean step(S state);
+    }
+
+    /**
+     * Run a calculation step by step, in a loop, until it's done - a trampoline.
+     * <p>
+     * Unlike {@link #tailie}, nothing is made per step: the state is changed in place, and the loop
+     * only counts.  Every {@value Budget#CHECK_INTERVAL} steps it checks the time, whether the thread
+     * has been interrupted, and whether it's been cancelled.
+     * </p>
+     *
+     * @param state  where the calculation starts
+     * @param step   moves it on one step
+     * @param budget how far it may go
+     * @return the state, once the step says there's nothing more to do
+     * @throws BudgetExceededException if it takes more steps or time than the budget allows
+     * @throws CancellationException   if the thread is interrupted or the budget's cancellation hook says to stop.
+     *                                 An interruption is left set, for the caller to see.
+     */
+    static <S> S trampoline(S state, Step<? super S> step, Budget budget) {
+        final long startNanos = budget.maxNanos == Long.MAX_VALUE ? 0 : System.nanoTime();
+        long steps = 0;
+        while (step.step(state)) {
+            if (++steps == budget.maxSteps) {
+                throw new BudgetExceededException("gave up after " + steps + " steps");
+            }
+            if ((steps & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                budget.check(steps, startNanos);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * How far a {@link #trampoline} may go: at most so many steps, for at most so long, and
+     * stopping early if cancelled
+     */
+    final class Budget {
+
+        /**
+         * How many steps between looking at the clock and checking for cancellation
+         */
+        public static final int CHECK_INTERVAL = 1 << 12;
+
+        private static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, Long.MAX_VALUE, () -> false);
+
+        final long maxSteps;
+        final long maxNanos;
+        private final BooleanSupplier cancelled;
+
+        private Budget(long maxSteps, long maxNanos, BooleanSupplier cancelled) {
+            if (maxSteps < 1 || maxNanos < 1) {
+                throw new IllegalArgumentException("a budget must allow at least one step and some time");
+            }
+            this.maxSteps = maxSteps;
+            this.maxNanos = maxNanos;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * No limit on steps or time - though an interrupted thread still stops
+         */
+        public static Budget unlimited() {
+            return UNLIMITED;
+        }
+
+        /**
+         * @param maxSteps the most steps to take
+         * @param maxNanos the longest to run, in nanoseconds
+         */
+        public static Budget of(long maxSteps, long maxNanos) {
+            return new Budget(maxSteps, maxNanos, () -> false);
+        }
+
+        /**
+         * This budget, also stopping when the hook says it's been cancelled
+         */
+        public Budget withCancellation(BooleanSupplier cancelled) {
+            return new Budget(maxSteps, maxNanos, cancelled);
+        }
+
+        void check(long steps, long startNanos) {
+            if (Thread.currentThread().isInterrupted() || cancelled.getAsBoolean()) {
+                throw new CancellationException("cancelled after " + steps + " steps");
+            }
+            if (maxNanos != Long.MAX_VALUE && System.nanoTime() - startNanos > maxNanos) {
+                throw new BudgetExceededException("gave up after " + steps + " steps, having run out of time");
+            }
+        }
+    }
+
     enum $ {
         END;
 
@@ -6,8 +6,11 @@ import com.coveros.training.library.domainobjects.Borrower;
 import com.coveros.training.library.domainobjects.Loan;
 
 import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * This is the only place in our application allowed to speak
@@ -207,6 +210,25 @@ public interface IPersistenceLayer {
     Optional<User> searchForUserByName(String username);
 
 
+    /**
+     * Find which of a set of names are already registered, with one query
+     * for the lot rather than one per name
+     * @param usernames the names to look for
+     * @return those of the names that are registered
+     */
+    Set<String> findRegisteredUsernames(Collection<String> usernames);
+
+
+    /**
+     * Save many new users at once, each with their password.
+     *
+     * The passwords are hashed first, spread across the password workers,
+     * and then the users are all inserted in batches, in a single transaction.
+     * @param usernamesToPasswords each new user's name, and their password
+     */
+    void saveNewUsersWithPasswords(Map<String, String> usernamesToPasswords);
+
+
     /**
      * Check whether the credentials are valid
      * @param username a user's chosen username
@@ -5,19 +5,27 @@ import com.coveros.training.helpers.StringUtils;
 import com.coveros.training.library.domainobjects.Book;
 import com.coveros.training.library.domainobjects.Borrower;
 import com.coveros.training.library.domainobjects.Loan;
+import com.coveros.training.authentication.PasswordHasher;
+import com.coveros.training.authentication.PasswordWork;
 import com.coveros.training.authentication.domainobjects.User;
+import com.coveros.training.tracing.Span;
+import com.coveros.training.tracing.Tracing;
 import org.flywaydb.core.Flyway;
 import org.h2.jdbcx.JdbcConnectionPool;
 
 import javax.sql.DataSource;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 public class PersistenceLayer implements IPersistenceLayer {
@@ -33,13 +41,27 @@ public class PersistenceLayer implements IPersistenceLayer {
      */
 
     private final DataSource dataSource;
+    private final UsernameFilter usernameFilter;
+
+    static PasswordHasher passwordHasher = PasswordHasher.createFromSystemProperties();
+
+    /**
+     * Every default-constructed persistence layer talks to the same in-memory
+     * database, so they share one filter of its usernames
+     */
+    static final UsernameFilter sharedUsernameFilter = UsernameFilter.createFromSystemProperties();
 
     public PersistenceLayer() {
-        this(obtainConnectionPool());
+        this(obtainConnectionPool(), sharedUsernameFilter);
     }
 
     PersistenceLayer(DataSource ds) {
+        this(ds, UsernameFilter.createFromSystemProperties());
+    }
+
+    PersistenceLayer(DataSource ds, UsernameFilter usernameFilter) {
         dataSource = ds;
+        this.usernameFilter = usernameFilter;
     }
 
     private static JdbcConnectionPool obtainConnectionPool() {
@@ -70,7 +92,8 @@ public class PersistenceLayer implements IPersistenceLayer {
      */
     void executeUpdateTemplate(String description, String preparedStatement, Object ... params) {
         final SqlData<Object> sqlData = new SqlData<>(description, preparedStatement, params);
-        try (Connection connection = dataSource.getConnection()) {
+        try (Span span = startSqlSpan(sqlData);
+             Connection connection = dataSource.getConnection()) {
             try (PreparedStatement st = prepareStatementWithKeys(sqlData, connection)) {
                 executeUpdateOnPreparedStatement(sqlData, st);
             }
@@ -85,7 +108,8 @@ public class PersistenceLayer implements IPersistenceLayer {
             String preparedStatement,
             Object ... params) {
         final SqlData<Object> sqlData = new SqlData<>(description, preparedStatement, params);
-        try (Connection connection = dataSource.getConnection()) {
+        try (Span span = startSqlSpan(sqlData);
+             Connection connection = dataSource.getConnection()) {
             try (PreparedStatement st = prepareStatementWithKeys(sqlData, connection)) {
                 return executeInsertOnPreparedStatement(sqlData, st);
             }
@@ -133,7 +157,8 @@ public class PersistenceLayer implements IPersistenceLayer {
 
 
     <R> Optional<R> runQuery(SqlData<R> sqlData) {
-        try (Connection connection = dataSource.getConnection()) {
+        try (Span span = startSqlSpan(sqlData);
+             Connection connection = dataSource.getConnection()) {
             try (PreparedStatement st =
                          connection.prepareStatement(sqlData.preparedStatement)) {
                 sqlData.applyParametersToPreparedStatement(st);
@@ -148,6 +173,16 @@ public class PersistenceLayer implements IPersistenceLayer {
     }
 
 
+    /**
+     * Times a statement as part of the current request's trace, if there is one.
+     * The span is named after the statement's plain-English description,
+     * see {@link Tracing}
+     */
+    private static <T> Span startSqlSpan(SqlData<T> sqlData) {
+        return Tracing.span("SQL: " + sqlData.description);
+    }
+
+
     /**
      * This is an interface to a wrapper around {@link Function} so we can catch exceptions
      * in the generic function.
@@ -448,40 +483,196 @@ public class PersistenceLayer implements IPersistenceLayer {
     @Override
     public long saveNewUser(String username) {
         CheckUtils.StringMustNotBeNullOrEmpty(username);
-        return executeInsertTemplate(
+        final long id = executeInsertTemplate(
                 "Creates a new user in the database",
                 "INSERT INTO auth.user (name) VALUES (?);", username);
+        usernameFilter.add(username);
+        return id;
     }
 
 
     @Override
     public Optional<User> searchForUserByName(String username) {
         CheckUtils.StringMustNotBeNullOrEmpty(username);
+        if (!usernameFilter.mightBeRegistered(username, this::listAllUsernames)) {
+            return Optional.empty();
+        }
         Function<ResultSet, Optional<User>> extractor = createExtractor(rs -> {
             final long id = rs.getLong(1);
             return Optional.of(new User(username, id));
         });
 
-        return runQuery(new SqlData<>(
+        final Optional<User> user = runQuery(new SqlData<>(
                 "search for a user by id, return that user if found, otherwise return an empty user",
                 "SELECT id  FROM auth.user WHERE name = ?;",
                 extractor, username));
+        if (!user.isPresent()) {
+            usernameFilter.recordFalsePositive();
+        }
+        return user;
+    }
+
+
+    /**
+     * How many names go into one IN (...) list, or one batch of inserts
+     */
+    static final int BULK_CHUNK_SIZE = 1000;
+
+
+    @Override
+    public Set<String> findRegisteredUsernames(Collection<String> usernames) {
+        // the filter rules most new names out, and only the rest need looking for
+        final List<String> candidates = usernames.stream()
+                .filter(username -> usernameFilter.mightBeRegistered(username, this::listAllUsernames))
+                .distinct()
+                .collect(Collectors.toList());
+        final Set<String> registered = new HashSet<>();
+        for (int start = 0; start < candidates.size(); start += BULK_CHUNK_SIZE) {
+            final List<String> chunk = candidates.subList(start, Math.min(candidates.size(), start + BULK_CHUNK_SIZE));
+            final String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            Function<ResultSet, Optional<List<String>>> extractor = throwingFunctionWrapper(rs -> {
+                List<String> found = new ArrayList<>();
+                while (rs.next()) {
+                    found.add(StringUtils.makeNotNullable(rs.getString(1)));
+                }
+                return Optional.of(found);
+            });
+            final List<String> found = runQuery(new SqlData<>(
+                    "find which of a list of names are registered",
+                    "SELECT name FROM auth.user WHERE name IN (" + placeholders + ");",
+                    extractor, chunk.toArray())).orElse(new ArrayList<>());
+            final int registeredBefore = registered.size();
+            registered.addAll(found);
+            for (int i = registered.size() - registeredBefore; i < chunk.size(); i++) {
+                usernameFilter.recordFalsePositive();
+            }
+        }
+        return registered;
+    }
+
+
+    @Override
+    public void saveNewUsersWithPasswords(Map<String, String> usernamesToPasswords) {
+        if (usernamesToPasswords.isEmpty()) {
+            return;
+        }
+        final List<String> usernames = new ArrayList<>(usernamesToPasswords.keySet());
+        final List<Callable<String>> hashing = new ArrayList<>();
+        for (String username : usernames) {
+            CheckUtils.StringMustNotBeNullOrEmpty(username);
+            final String password = usernamesToPasswords.get(username);
+            CheckUtils.StringMustNotBeNullOrEmpty(password);
+            hashing.add(() -> passwordHasher.hash(password));
+        }
+        final List<String> hashes = PasswordWork.runAll("hash passwords", hashing);
+
+        try (Span span = Tracing.span("SQL: Creates new users in the database, in batches");
+             Connection connection = dataSource.getConnection()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement st = connection.prepareStatement(
+                    "INSERT INTO auth.user (name, password_hash) VALUES (?, ?);")) {
+                for (int i = 0; i < usernames.size(); i++) {
+                    st.setString(1, usernames.get(i));
+                    st.setString(2, hashes.get(i));
+                    st.addBatch();
+                    if ((i + 1) % BULK_CHUNK_SIZE == 0) {
+                        st.executeBatch();
+                    }
+                }
+                st.executeBatch();
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            throw new SqlRuntimeException(ex);
+        }
+        usernames.forEach(usernameFilter::add);
+    }
+
+
+    /**
+     * Every registered username, for filling the {@link UsernameFilter}
+     */
+    private List<String> listAllUsernames() {
+        Function<ResultSet, Optional<List<String>>> extractor = throwingFunctionWrapper(rs -> {
+            List<String> usernames = new ArrayList<>();
+            while (rs.next()) {
+                usernames.add(StringUtils.makeNotNullable(rs.getString(1)));
+            }
+            return Optional.of(usernames);
+        });
+
+        return runQuery(new SqlData<>(
+                "get the names of all the users",
+                "SELECT name FROM auth.user;",
+                extractor)).orElse(new ArrayList<>());
+    }
+
+
+    public static UsernameFilter getSharedUsernameFilter() {
+        return sharedUsernameFilter;
     }
 
 
     @Override
     public Optional<Boolean> areCredentialsValid(String username, String password) {
-        Function<ResultSet, Optional<Boolean>> extractor = createExtractor(rs -> {
+        CheckUtils.StringMustNotBeNullOrEmpty(password);
+        // a name that definitely isn't registered doesn't need a query - but it still
+        // gets the decoy hash check below, so it takes as long as a real one
+        final Optional<StoredPassword> stored = findStoredPassword(username);
+
+        final boolean isValid = PasswordWork.run("verify password", () -> stored
+                .map(s -> passwordHasher.verify(password, s.hash))
+                .orElseGet(() -> passwordHasher.verifyAgainstDecoy(password)));
+        if (!isValid) {
+            return Optional.empty();
+        }
+        if (passwordHasher.needsRehash(stored.get().hash)) {
+            // we only ever see the plain password at login, so that's
+            // our chance to move an old hash over to the current scheme.
+            updateUserWithPassword(stored.get().id, password);
+        }
+        return Optional.of(true);
+    }
+
+
+    private Optional<StoredPassword> findStoredPassword(String username) {
+        if (!usernameFilter.mightBeRegistered(username, this::listAllUsernames)) {
+            return Optional.empty();
+        }
+        Function<ResultSet, Optional<StoredPassword>> extractor = createExtractor(rs -> {
             final long id = rs.getLong(1);
             assert (id > 0);
-            return Optional.of(true);
+            return Optional.of(new StoredPassword(id, StringUtils.makeNotNullable(rs.getString(2))));
         });
 
-        final String hexHash = createHashedValueFromPassword(password);
-        return runQuery(new SqlData<>(
-                "check to see if the credentials for a user are valid",
-                "SELECT id FROM auth.user WHERE name = ? AND password_hash = ?;",
-                extractor, username, hexHash));
+        final Optional<StoredPassword> stored = runQuery(new SqlData<>(
+                "get the password hash for a user",
+                "SELECT id, password_hash FROM auth.user WHERE name = ?;",
+                extractor, username));
+        if (!stored.isPresent()) {
+            usernameFilter.recordFalsePositive();
+        }
+        return stored;
+    }
+
+
+    /**
+     * A user's id and stored password hash, as found by {@link #areCredentialsValid}
+     */
+    private static final class StoredPassword {
+        final long id;
+        final String hash;
+
+        StoredPassword(long id, String hash) {
+            this.id = id;
+            this.hash = hash;
+        }
     }
 
 
@@ -497,37 +688,14 @@ public class PersistenceLayer implements IPersistenceLayer {
 
     /**
      * Given a password (for example, "password123"), return a
-     * hash of that.
+     * salted hash of that.  See {@link PasswordHasher}
      * @param password a user's password
      * @return a hash of the password value.  a one-way function that returns a unique value,
      *          but different than the original, cannot be converted back to its original value.
      */
     private String createHashedValueFromPassword(String password) {
         CheckUtils.StringMustNotBeNullOrEmpty(password);
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] encodedhash = digest.digest(
-                    password.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(encodedhash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new SqlRuntimeException(e);
-        }
-    }
-
-
-    /**
-     * Converts an array of bytes to their corresponding hex string
-     * @param bytes an array of bytes
-     * @return a hex string of that array
-     */
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : bytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) hexString.append('0');
-            hexString.append(hex);
-        }
-        return hexString.toString();
+        return PasswordWork.run("hash password", () -> passwordHasher.hash(password));
     }
 
 
@@ -581,6 +749,9 @@ public class PersistenceLayer implements IPersistenceLayer {
             }
         } catch (SQLException ex) {
             throw new SqlRuntimeException(ex);
+        } finally {
+            // only once the restore is done, so a lookup part way through can't fill it from a half-dropped schema
+            usernameFilter.reset();
         }
     }
 
@@ -604,14 +775,23 @@ public class PersistenceLayer implements IPersistenceLayer {
 
     @Override
     public void cleanDatabase() {
-        Flyway flyway = configureFlyway();
-        flyway.clean();
+        try {
+            Flyway flyway = configureFlyway();
+            flyway.clean();
+        } finally {
+            usernameFilter.reset();
+        }
     }
 
     @Override
     public void migrateDatabase() {
-        Flyway flyway = configureFlyway();
-        flyway.migrate();
+        try {
+            Flyway flyway = configureFlyway();
+            flyway.migrate();
+        } finally {
+            // the migrations may add users
+            usernameFilter.reset();
+        }
     }
 
     private Flyway configureFlyway() {
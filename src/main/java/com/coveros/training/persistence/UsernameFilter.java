@@ -0,0 +1,184 @@
+package com.coveros.training.persistence;
+
+import com.coveros.training.helpers.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers, in a {@link BloomFilter}, which usernames are registered - so that when
+ * someone asks about a name that definitely isn't, we can answer without a trip
+ * to the database.  This matters most when someone throws lists of made-up
+ * usernames at /login.
+ * <p>
+ * The filter is filled from the database the first time it's needed, and after
+ * that each new user is added as they're saved.  Anything that changes the users
+ * behind our back (a restore, or a clean) should call {@link #reset}, and the filter
+ * will be filled again on next use.  If it fills up past the number of users it was
+ * sized for, it is rebuilt bigger.
+ * </p>
+ * <p>
+ * Configured through system properties:
+ * </p>
+ * <ul>
+ *     <li>{@value #FALSE_POSITIVE_RATE_PROPERTY} - how often a name that isn't registered still goes to
+ *     the database, default 1%</li>
+ *     <li>{@value #EXPECTED_USERS_PROPERTY} - how many users to size the filter for at first</li>
+ * </ul>
+ */
+public class UsernameFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameFilter.class);
+
+    public static final String FALSE_POSITIVE_RATE_PROPERTY = "demo.auth.usernameFilter.falsePositiveRate";
+    public static final String EXPECTED_USERS_PROPERTY = "demo.auth.usernameFilter.expectedUsers";
+
+    private final double falsePositiveRate;
+    private final long minimumExpectedUsers;
+
+    /**
+     * The filter we check against, or null if it needs filling from the database
+     */
+    private volatile BloomFilter filter;
+    private long usersInFilter;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong definiteMisses = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public UsernameFilter(double falsePositiveRate, long minimumExpectedUsers) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.minimumExpectedUsers = minimumExpectedUsers;
+    }
+
+    public static UsernameFilter createFromSystemProperties() {
+        return new UsernameFilter(
+                Double.parseDouble(System.getProperty(FALSE_POSITIVE_RATE_PROPERTY, "0.01")),
+                Long.getLong(EXPECTED_USERS_PROPERTY, 10_000));
+    }
+
+    /**
+     * Could this user be registered?
+     *
+     * @param username     the name to check
+     * @param allUsernames fetches every registered name, if the filter needs filling
+     * @return false if they definitely are not, true if they might be
+     */
+    public boolean mightBeRegistered(String username, Supplier<List<String>> allUsernames) {
+        lookups.incrementAndGet();
+        BloomFilter current = filter;
+        if (current == null) {
+            current = load(allUsernames);
+            if (current == null) {
+                // couldn't fill it, so we can't rule anyone out
+                return true;
+            }
+        }
+        final boolean mightContain = current.mightContain(username);
+        if (!mightContain) {
+            definiteMisses.incrementAndGet();
+        }
+        return mightContain;
+    }
+
+    /**
+     * A name got past the filter, but the database didn't have it
+     */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    /**
+     * Note a newly saved user.  Call this after the insert has happened.
+     */
+    public synchronized void add(String username) {
+        if (filter == null) {
+            // it'll be picked up from the database when the filter is next filled
+            return;
+        }
+        filter.put(username);
+        usersInFilter++;
+        if (usersInFilter > filter.getExpectedInsertions()) {
+            logger.info("username filter has outgrown its size, it will be rebuilt");
+            filter = null;
+        }
+    }
+
+    /**
+     * Forget everything - the filter will be filled from the database again on next use
+     */
+    public synchronized void reset() {
+        filter = null;
+    }
+
+    /**
+     * Fill the filter from the database.  This holds the lock while it queries, so a user saved in
+     * the meantime is either in the query's results, or added straight after.
+     */
+    private synchronized BloomFilter load(Supplier<List<String>> allUsernames) {
+        if (filter != null) {
+            return filter;
+        }
+        final List<String> usernames;
+        try {
+            usernames = allUsernames.get();
+        } catch (SqlRuntimeException ex) {
+            logger.warn("could not fill the username filter: {}", ex.getMessage());
+            return null;
+        }
+        final BloomFilter newFilter = BloomFilter.create(
+                Math.max(minimumExpectedUsers, usernames.size() * 2L), falsePositiveRate);
+        usernames.forEach(newFilter::put);
+        usersInFilter = usernames.size();
+        filter = newFilter;
+        loads.incrementAndGet();
+        logger.info("username filter filled with {} users. {}", usernames.size(), this);
+        return newFilter;
+    }
+
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    /**
+     * @return how many database queries the filter has saved us
+     */
+    public long getDefiniteMissCount() {
+        return definiteMisses.get();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.get();
+    }
+
+    /**
+     * @return how much memory the filter takes up, or 0 if it isn't filled
+     */
+    public long getMemoryBytes() {
+        final BloomFilter current = filter;
+        return current == null ? 0 : current.getMemoryBytes();
+    }
+
+    /**
+     * The filter's numbers, as JSON
+     */
+    public String toJson() {
+        final long lookupCount = lookups.get();
+        final long missCount = definiteMisses.get();
+        return String.format(Locale.ROOT, "{\"lookups\": %d, \"avoidedQueries\": %d, \"avoidedQueryRate\": %.4f, " +
+                        "\"falsePositives\": %d, \"memoryBytes\": %d, \"loads\": %d}",
+                lookupCount, missCount, lookupCount == 0 ? 0.0 : (double) missCount / lookupCount,
+                falsePositives.get(), getMemoryBytes(), loads.get());
+    }
+
+    @Override
+    public String toString() {
+        return "username filter: " + toJson();
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.coveros.training.tracing;
+
+import com.coveros.training.helpers.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * All the timed {@link Span}s recorded while handling one request,
+ * identified by a correlation id.  The same id is put into the logging
+ * context (see {@link Tracing#MDC_REQUEST_ID}) so every log line written
+ * while handling the request can be tied back to this trace.
+ * <p>
+ * A trace belongs to the thread handling the request - it is not meant to
+ * be shared between threads while it is still being recorded.  Work handed
+ * to another thread records into a {@link #branch} instead, which has its own
+ * open spans but hangs them under a span of this trace.
+ * </p>
+ */
+public final class RequestTrace {
+
+    /**
+     * The correlation id for this request
+     */
+    public final String id;
+
+    private final Span root;
+    private final Deque<Span> openSpans;
+
+    RequestTrace(String id, String rootName) {
+        this.id = id;
+        this.root = new Span(this, rootName, System.nanoTime());
+        this.openSpans = new ArrayDeque<>();
+        this.openSpans.push(root);
+    }
+
+    private RequestTrace(String id, Span parent) {
+        this.id = id;
+        this.root = parent;
+        this.openSpans = new ArrayDeque<>();
+        this.openSpans.push(parent);
+    }
+
+    /**
+     * A trace with the same id, for another thread, whose spans become children of the given
+     * span of this one
+     */
+    RequestTrace branch(Span parent) {
+        return new RequestTrace(id, parent);
+    }
+
+    /**
+     * The innermost span that's still open
+     */
+    Span openSpan() {
+        return openSpans.isEmpty() ? root : openSpans.peek();
+    }
+
+    /**
+     * Starts a new span as a child of whichever span is currently open.
+     */
+    Span startSpan(String name) {
+        final Span parent = openSpan();
+        final Span span = new Span(this, name, System.nanoTime());
+        parent.addChild(span);
+        openSpans.push(span);
+        return span;
+    }
+
+    /**
+     * Ends a span.  Any spans that were opened inside it and never closed
+     * are ended at the same time, so a forgotten close cannot corrupt the tree.
+     */
+    void endSpan(Span span) {
+        final long now = System.nanoTime();
+        if (!openSpans.contains(span)) {
+            span.finish(now);
+            return;
+        }
+        Span top;
+        do {
+            top = openSpans.pop();
+            top.finish(now);
+        } while (top != span);
+    }
+
+    /**
+     * Ends every span still open, including the root.
+     */
+    void finish() {
+        while (!openSpans.isEmpty()) {
+            endSpan(openSpans.peekLast());
+        }
+    }
+
+    /**
+     * Ends every span a {@link #branch} opened and didn't close - but not the span it hangs
+     * under, which belongs to the thread that handed the work over
+     */
+    void finishBranch() {
+        final long now = System.nanoTime();
+        while (openSpans.size() > 1) {
+            openSpans.pop().finish(now);
+        }
+    }
+
+    public Span root() {
+        return root;
+    }
+
+    public long durationNanos() {
+        return root.durationNanos();
+    }
+
+    /**
+     * A human-readable rendering of the span tree, suitable for a log file.
+     */
+    public String toTreeString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("trace ").append(id).append(System.lineSeparator());
+        root.appendTree(sb, 1);
+        return sb.toString();
+    }
+
+    /**
+     * The span tree as JSON, for offline analysis.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"id\":\"").append(StringUtils.escapeForJson(id)).append("\",\"root\":");
+        root.appendJson(sb, root.startNanos());
+        sb.append('}');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.coveros.training.tracing;
+
+import com.coveros.training.helpers.StringUtils;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Starts a {@link RequestTrace} for every request that comes in, and
+ * finishes it when the response is done.
+ * <p>
+ * A client may send its own correlation id in the {@value #REQUEST_ID_HEADER} header - up to
+ * 64 letters, digits, dots, underscores and dashes - otherwise we make one up.  An id that isn't
+ * like that is ignored, since it goes into the logs and the kept traces as-is.  Either way, it is
+ * sent back in the same header on the response.  Requests slower than the threshold (in milliseconds,
+ * set with the system property {@value #THRESHOLD_PROPERTY}) have their spans dumped to the trace log.
+ * </p>
+ * <p>
+ * It's mapped in web.xml, ahead of every other filter.
+ * </p>
+ */
+public class RequestTracingFilter implements Filter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String THRESHOLD_PROPERTY = "demo.trace.slowRequestMillis";
+    private static final long DEFAULT_THRESHOLD_MILLIS = 500;
+    private static final int RECENT_TRACES_KEPT = 100;
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    static SlowTraceRecorder recorder =
+            new SlowTraceRecorder(Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MILLIS), RECENT_TRACES_KEPT);
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final HttpServletRequest httpRequest = (HttpServletRequest) request;
+        final String requestId = validRequestId(httpRequest.getHeader(REQUEST_ID_HEADER));
+        final RequestTrace trace = Tracing.begin(requestId, httpRequest.getMethod() + " " + httpRequest.getServletPath());
+        ((HttpServletResponse) response).setHeader(REQUEST_ID_HEADER, trace.id);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Tracing.end().ifPresent(recorder::recordIfSlow);
+        }
+    }
+
+    /**
+     * The client's correlation id, or an empty string - so one is made up - if it sent none, or one we won't use
+     */
+    static String validRequestId(String header) {
+        final String requestId = StringUtils.makeNotNullable(header);
+        return VALID_REQUEST_ID.matcher(requestId).matches() ? requestId : "";
+    }
+
+}
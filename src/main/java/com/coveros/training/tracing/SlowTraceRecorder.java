@@ -0,0 +1,83 @@
+package com.coveros.training.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the traces of requests that took longer than a threshold.
+ * Each one is written to the trace log (see the "trace" logger in log4j2.xml),
+ * both as a readable tree and as a line of JSON, and the most recent ones are
+ * kept in memory so they can be pulled down by {@link TraceServlet}.
+ */
+public class SlowTraceRecorder {
+
+    /**
+     * The name of the logger that slow traces are written to
+     */
+    public static final String TRACE_LOGGER_NAME = "trace";
+
+    private static final Logger traceLogger = LoggerFactory.getLogger(TRACE_LOGGER_NAME);
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final Deque<RequestTrace> recentTraces;
+
+    /**
+     * @param thresholdMillis requests taking at least this long are recorded
+     * @param capacity        how many of the most recent slow traces to keep
+     */
+    public SlowTraceRecorder(long thresholdMillis, int capacity) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.capacity = capacity;
+        this.recentTraces = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Record the trace if its request was slow enough.
+     * @return true if it was recorded
+     */
+    public boolean recordIfSlow(RequestTrace trace) {
+        if (trace.durationNanos() < thresholdNanos) {
+            return false;
+        }
+        traceLogger.warn("slow request:{}{}", System.lineSeparator(), trace.toTreeString());
+        traceLogger.info(trace.toJson());
+        synchronized (recentTraces) {
+            if (recentTraces.size() >= capacity) {
+                recentTraces.removeFirst();
+            }
+            recentTraces.addLast(trace);
+        }
+        return true;
+    }
+
+    /**
+     * The most recent slow traces, oldest first
+     */
+    public List<RequestTrace> recentTraces() {
+        synchronized (recentTraces) {
+            return new ArrayList<>(recentTraces);
+        }
+    }
+
+    /**
+     * The most recent slow traces as a JSON array
+     */
+    public String toJson() {
+        final StringBuilder sb = new StringBuilder("[");
+        final List<RequestTrace> traces = recentTraces();
+        for (int i = 0; i < traces.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(traces.get(i).toJson());
+        }
+        return sb.append(']').toString();
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.coveros.training.tracing;
+
+import com.coveros.training.helpers.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A single timed piece of work inside a {@link RequestTrace} - for example,
+ * a servlet handling a request, a call into {@link com.coveros.training.library.LibraryUtils},
+ * or one SQL statement run by {@link com.coveros.training.persistence.PersistenceLayer}.
+ * <p>
+ * Spans nest.  Whatever span is open when a new one starts becomes its parent,
+ * so the spans of a request form a tree.  Work run on other threads, through
+ * {@link Tracing#propagate}, adds its spans to the tree too, so a span's children
+ * may be added from more than one thread.  Use them with try-with-resources,
+ * so they are always closed:
+ * </p>
+ * <pre>
+ *     try (Span span = Tracing.span("LibraryUtils.lendBook")) {
+ *         ...
+ *     }
+ * </pre>
+ */
+public final class Span implements AutoCloseable {
+
+    /**
+     * Handed out when there is no trace running on this thread, for
+     * example in unit tests or background work.  Closing it does nothing.
+     */
+    static final Span NOOP = new Span(null, "", 0);
+
+    /**
+     * What this span timed, e.g. "LibraryUtils.lendBook"
+     */
+    public final String name;
+
+    private final RequestTrace trace;
+    private final long startNanos;
+    private volatile long endNanos;
+    private final List<Span> children;
+
+    Span(RequestTrace trace, String name, long startNanos) {
+        this.trace = trace;
+        this.name = name;
+        this.startNanos = startNanos;
+        this.endNanos = -1;
+        this.children = new CopyOnWriteArrayList<>();
+    }
+
+    void addChild(Span child) {
+        children.add(child);
+    }
+
+    void finish(long endNanos) {
+        if (this.endNanos < 0) {
+            this.endNanos = endNanos;
+        }
+    }
+
+    public boolean isFinished() {
+        return endNanos >= 0;
+    }
+
+    /**
+     * How long this span ran.  If it is still running, this is how long
+     * it has run so far.
+     */
+    public long durationNanos() {
+        final long end = isFinished() ? endNanos : System.nanoTime();
+        return end - startNanos;
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    public List<Span> children() {
+        return Collections.unmodifiableList(children);
+    }
+
+    @Override
+    public void close() {
+        if (trace != null) {
+            trace.endSpan(this);
+        }
+    }
+
+    /**
+     * Writes this span and its children as an indented tree, one span per line,
+     * for example:
+     * <pre>
+     *   POST /lend 812.331ms
+     *     LibraryUtils.lendBook 810.002ms
+     *       SQL: search for a book by title 1.204ms
+     * </pre>
+     */
+    void appendTree(StringBuilder sb, int depth) {
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ");
+        }
+        sb.append(name).append(' ').append(String.format("%.3fms", durationNanos() / 1_000_000d)).append(System.lineSeparator());
+        for (Span child : children) {
+            child.appendTree(sb, depth + 1);
+        }
+    }
+
+    /**
+     * Writes this span and its children as JSON.  Times are in microseconds,
+     * with the start offset relative to the beginning of the whole trace, which
+     * is what flame-graph style tools expect.
+     */
+    void appendJson(StringBuilder sb, long traceStartNanos) {
+        sb.append("{\"name\":\"").append(StringUtils.escapeForJson(name)).append('"')
+                .append(",\"startMicros\":").append((startNanos - traceStartNanos) / 1000)
+                .append(",\"durationMicros\":").append(durationNanos() / 1000)
+                .append(",\"children\":[");
+        for (int i = 0; i < children.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            children.get(i).appendJson(sb, traceStartNanos);
+        }
+        sb.append("]}");
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.coveros.training.tracing;
+
+import com.coveros.training.helpers.ServletUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Web API to download the most recent slow request traces as JSON,
+ * for offline analysis (e.g. building a flame graph).  See {@link SlowTraceRecorder}
+ */
+@WebServlet(name = "TraceServlet", urlPatterns = {"/traces"}, loadOnStartup = 1)
+public class TraceServlet extends HttpServlet {
+
+    private static final long serialVersionUID = -3170946327513046532L;
+    private static final Logger logger = LoggerFactory.getLogger(TraceServlet.class);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+        logger.info("received request for the recent slow traces");
+        request.setAttribute("result", RequestTracingFilter.recorder.toJson());
+        ServletUtils.forwardToRestfulResult(request, response, logger);
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.coveros.training.tracing;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * The entry point for recording timed spans.  A trace is started by
+ * {@link RequestTracingFilter} at the beginning of each request and
+ * is held for the thread handling that request.  Code further down,
+ * like the "Utils" classes and the persistence layer, simply calls {@link #span}
+ * and doesn't need to know whether anything is being recorded.
+ */
+public class Tracing {
+
+    /**
+     * The key of the correlation id in the SLF4J mapped diagnostic context.
+     * See the pattern in log4j2.xml.
+     */
+    public static final String MDC_REQUEST_ID = "requestId";
+
+    private static final ThreadLocal<RequestTrace> currentTrace = new ThreadLocal<>();
+
+    private Tracing() {
+        // using a private constructor to hide the implicit public one.
+    }
+
+    /**
+     * Begin a new trace on this thread, replacing any that was there.
+     * @param requestId the correlation id.  If empty, a random one is generated.
+     * @param rootName  a name for the outermost span, e.g. "POST /lend"
+     */
+    public static RequestTrace begin(String requestId, String rootName) {
+        final String id = requestId.isEmpty() ? UUID.randomUUID().toString() : requestId;
+        final RequestTrace trace = new RequestTrace(id, rootName);
+        currentTrace.set(trace);
+        MDC.put(MDC_REQUEST_ID, id);
+        return trace;
+    }
+
+    /**
+     * Finish the trace on this thread and stop tracking it.
+     * @return the finished trace, or empty if there wasn't one.
+     */
+    public static Optional<RequestTrace> end() {
+        final RequestTrace trace = currentTrace.get();
+        currentTrace.remove();
+        MDC.remove(MDC_REQUEST_ID);
+        if (trace == null) {
+            return Optional.empty();
+        }
+        trace.finish();
+        return Optional.of(trace);
+    }
+
+    /**
+     * Start a timed span, nested under whatever span is currently open.
+     * If no trace is running on this thread, this returns a span that
+     * does nothing, so it is always safe to call.
+     */
+    public static Span span(String name) {
+        final RequestTrace trace = currentTrace.get();
+        if (trace == null) {
+            return Span.NOOP;
+        }
+        return trace.startSpan(name);
+    }
+
+    /**
+     * Wrap a task that is about to be handed to another thread, so it runs with this thread's
+     * logging context - the correlation id in particular - and its spans are recorded in this
+     * thread's trace, under whichever span is open now.  Whatever the running thread had before
+     * is put back afterwards.
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        final Map<String, String> mdc = MDC.getCopyOfContextMap();
+        final RequestTrace trace = currentTrace.get();
+        final Span parent = trace == null ? null : trace.openSpan();
+        return () -> {
+            final Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            final RequestTrace previousTrace = currentTrace.get();
+            setMdc(mdc);
+            final RequestTrace branch = trace == null ? null : trace.branch(parent);
+            setTrace(branch);
+            try {
+                return task.call();
+            } finally {
+                if (branch != null) {
+                    branch.finishBranch();
+                }
+                setTrace(previousTrace);
+                setMdc(previousMdc);
+            }
+        };
+    }
+
+    /**
+     * Like {@link #propagate(Callable)}, for a task with no result
+     */
+    public static Runnable propagate(Runnable task) {
+        final Callable<Void> callable = propagate(() -> {
+            task.run();
+            return null;
+        });
+        return () -> {
+            try {
+                callable.call();
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                // a Runnable can't throw anything checked
+                throw new IllegalStateException(ex);
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+
+    private static void setTrace(RequestTrace trace) {
+        if (trace == null) {
+            currentTrace.remove();
+        } else {
+            currentTrace.set(trace);
+        }
+    }
+
+    /**
+     * The trace running on this thread, if any
+     */
+    public static Optional<RequestTrace> current() {
+        return Optional.ofNullable(currentTrace.get());
+    }
+
+}
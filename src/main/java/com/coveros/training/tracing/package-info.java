@@ -0,0 +1,5 @@
+/**
+ * Request correlation ids and timed spans - lets us tie a slow request
+ * to the business calls and SQL statements it ran.
+ */
+package com.coveros.training.tracing;
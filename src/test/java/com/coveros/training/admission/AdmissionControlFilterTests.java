@@ -0,0 +1,147 @@
+package com.coveros.training.admission;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.FilterChain;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+public class AdmissionControlFilterTests {
+
+    private final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    private final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    private final FilterChain chain = Mockito.mock(FilterChain.class);
+    private final AdmissionControlFilter filter = new AdmissionControlFilter();
+    private final StringWriter responseBody = new StringWriter();
+    private Map<EndpointGroup, EndpointLimiter> originalLimiters;
+
+    @Before
+    public void before() throws Exception {
+        originalLimiters = AdmissionControlFilter.limiters;
+        Map<EndpointGroup, EndpointLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+        for (EndpointGroup group : EndpointGroup.values()) {
+            limiters.put(group, new EndpointLimiter(group.name(), new FixedLimit(1), 0, 0));
+        }
+        AdmissionControlFilter.limiters = limiters;
+        when(response.getWriter()).thenReturn(new PrintWriter(responseBody));
+    }
+
+    @After
+    public void after() {
+        AdmissionControlFilter.limiters = originalLimiters;
+    }
+
+    @Test
+    public void testShouldPassThroughWhenUnderLimit() throws Exception {
+        when(request.getServletPath()).thenReturn("/book");
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verify(response, never()).setStatus(anyInt());
+    }
+
+    /**
+     * When the group is full and there's no room to queue, reject with 503
+     */
+    @Test
+    public void testShouldRejectWhenOverLimit() throws Exception {
+        when(request.getServletPath()).thenReturn("/register");
+        AdmissionControlFilter.limiters.get(EndpointGroup.AUTHENTICATION).tryAcquire();
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(request, response);
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).setHeader("Retry-After", AdmissionControlFilter.RETRY_AFTER_SECONDS);
+        Assert.assertTrue(responseBody.toString().startsWith("Error: the server is too busy"));
+    }
+
+    /**
+     * A saturated expensive group must not affect the cheap one
+     */
+    @Test
+    public void testShouldIsolateGroups() throws Exception {
+        AdmissionControlFilter.limiters.get(EndpointGroup.MATH).tryAcquire();
+        when(request.getServletPath()).thenReturn("/book");
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+    }
+
+    /**
+     * Paths outside any group - static files and so on - are never limited
+     */
+    @Test
+    public void testShouldNotLimitUngroupedPaths() throws Exception {
+        for (EndpointLimiter limiter : AdmissionControlFilter.limiters.values()) {
+            limiter.tryAcquire();
+        }
+        when(request.getServletPath()).thenReturn("/index.html");
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    public void testShouldReleaseSlotAfterRequest() throws Exception {
+        when(request.getServletPath()).thenReturn("/lend");
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(2)).doFilter(request, response);
+    }
+
+    @Test
+    public void testShouldFindGroupForPath() {
+        Assert.assertEquals(EndpointGroup.MATH, EndpointGroup.forPath("/ackermann").get());
+        Assert.assertFalse(EndpointGroup.forPath("/console").isPresent());
+    }
+
+    /**
+     * A new servlet has to be put in a group, or listed as deliberately left out of them
+     */
+    @Test
+    public void testEveryServletShouldBeGroupedOrExempt() throws Exception {
+        final Path classes = Paths.get(getClass().getClassLoader().getResource("com/coveros/training/admission/EndpointGroup.class").toURI())
+                .getParent().getParent();
+        final List<String> paths = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList())) {
+                final String name = "com.coveros.training." + classes.relativize(file).toString()
+                        .replace(".class", "").replace(file.getFileSystem().getSeparator(), ".");
+                final WebServlet servlet = Class.forName(name, false, getClass().getClassLoader()).getAnnotation(WebServlet.class);
+                if (servlet != null) {
+                    paths.addAll(Arrays.asList(servlet.urlPatterns()));
+                }
+            }
+        }
+        Assert.assertTrue(paths.contains("/cartesianproduct"));
+        for (String path : paths) {
+            Assert.assertTrue(path + " should be in a group, or listed in EndpointGroup.UNLIMITED_PATHS",
+                    EndpointGroup.forPath(path).isPresent() ^ EndpointGroup.UNLIMITED_PATHS.contains(path));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.coveros.training.admission;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class EndpointLimiterTests {
+
+    @Test
+    public void testShouldAdmitUpToLimit() throws InterruptedException {
+        final EndpointLimiter limiter = new EndpointLimiter("test", new FixedLimit(2), 0, 0);
+
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+
+        Assert.assertEquals(2, limiter.getAdmittedCount());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+
+    /**
+     * Once a slot is released, the next request gets in
+     */
+    @Test
+    public void testShouldAdmitAfterRelease() throws InterruptedException {
+        final EndpointLimiter limiter = new EndpointLimiter("test", new FixedLimit(1), 0, 0);
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.release(1000);
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    /**
+     * A queued request gets the slot when it frees up within the wait time
+     */
+    @Test
+    public void testShouldAdmitQueuedRequestWhenSlotFrees() throws InterruptedException {
+        final EndpointLimiter limiter = new EndpointLimiter("test", new FixedLimit(1), 1, 10_000);
+        Assert.assertTrue(limiter.tryAcquire());
+
+        final AtomicBoolean queuedResult = new AtomicBoolean(false);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread waiter = new Thread(() -> {
+            try {
+                queuedResult.set(limiter.tryAcquire());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        waiter.start();
+        Thread.sleep(50);
+        limiter.release(1000);
+        done.await();
+
+        Assert.assertTrue(queuedResult.get());
+    }
+
+    /**
+     * A queued request that waits too long is turned away
+     */
+    @Test
+    public void testShouldRejectAfterMaxWait() throws InterruptedException {
+        final EndpointLimiter limiter = new EndpointLimiter("test", new FixedLimit(1), 1, 20);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+}
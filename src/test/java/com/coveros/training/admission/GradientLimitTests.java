@@ -0,0 +1,58 @@
+package com.coveros.training.admission;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GradientLimitTests {
+
+    /**
+     * When latency stays steady and we are using the limit, it should grow
+     */
+    @Test
+    public void testShouldGrowWhenLatencyIsSteady() {
+        final GradientLimit limit = new GradientLimit(10, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(1_000_000, limit.getLimit());
+        }
+        Assert.assertTrue(limit.toString(), limit.getLimit() > 10);
+        Assert.assertTrue(limit.getLimit() <= 100);
+    }
+
+    /**
+     * When latency shoots up well above the usual, the limit should shrink
+     */
+    @Test
+    public void testShouldShrinkWhenLatencyClimbs() {
+        final GradientLimit limit = new GradientLimit(50, 1, 100);
+        limit.onSample(1_000_000, 50);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(50_000_000, limit.getLimit());
+        }
+        Assert.assertTrue(limit.toString(), limit.getLimit() < 50);
+        Assert.assertTrue(limit.getLimit() >= 1);
+    }
+
+    /**
+     * If we aren't using much of the limit, there's no evidence it's safe to grow
+     */
+    @Test
+    public void testShouldNotGrowWhenMostlyIdle() {
+        final GradientLimit limit = new GradientLimit(10, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(1_000_000, 1);
+        }
+        Assert.assertEquals(10, limit.getLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectBadBounds() {
+        new GradientLimit(10, 20, 100);
+    }
+
+    @Test
+    public void testFixedLimitIgnoresLatency() {
+        final FixedLimit limit = new FixedLimit(4);
+        limit.onSample(1_000_000_000, 4);
+        Assert.assertEquals(4, limit.getLimit());
+    }
+}
@@ -0,0 +1,132 @@
+package com.coveros.training.admission;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowLimiterTests {
+
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private SlidingWindowLimiter limiter;
+
+    @Before
+    public void init() {
+        clock.set(WINDOW_MILLIS * 1000);
+        limiter = new SlidingWindowLimiter(3, WINDOW_MILLIS, 1000, clock::get);
+    }
+
+    @Test
+    public void testShouldAllowUpToTheLimit() {
+        limiter.record("alice");
+        limiter.record("alice");
+        assertFalse(limiter.isOverLimit("alice"));
+
+        limiter.record("alice");
+        assertTrue(limiter.isOverLimit("alice"));
+        assertFalse(limiter.isOverLimit("bob"));
+    }
+
+    /**
+     * Last window's events fade out as the sliding window moves past them
+     */
+    @Test
+    public void testShouldForgetEventsAsTheWindowSlides() {
+        limiter.record("alice");
+        limiter.record("alice");
+        limiter.record("alice");
+
+        clock.addAndGet(WINDOW_MILLIS + WINDOW_MILLIS / 2);
+        assertEquals(1.5, limiter.estimate("alice"), 0.01);
+        assertFalse(limiter.isOverLimit("alice"));
+
+        clock.addAndGet(WINDOW_MILLIS);
+        assertEquals(0, limiter.estimate("alice"), 0.01);
+    }
+
+    @Test
+    public void testShouldForgetAKeyOnReset() {
+        limiter.record("alice");
+        limiter.record("alice");
+        limiter.record("alice");
+
+        limiter.reset("alice");
+
+        assertFalse(limiter.isOverLimit("alice"));
+    }
+
+    /**
+     * However many keys come along, we only keep track of so many
+     */
+    @Test
+    public void testShouldBoundTheNumberOfKeys() {
+        for (int i = 0; i < 10_000; i++) {
+            limiter.record("user" + i);
+        }
+
+        assertTrue("keys kept: " + limiter.size(), limiter.size() <= 1000);
+        assertTrue(limiter.getEvictedCount() >= 9000);
+    }
+
+    /**
+     * Keys that have been quiet for a whole window are dropped as new keys arrive
+     */
+    @Test
+    public void testShouldEvictIdleKeys() {
+        final SlidingWindowLimiter roomyLimiter = new SlidingWindowLimiter(3, WINDOW_MILLIS, 100_000, clock::get);
+        roomyLimiter.record("alice");
+        clock.addAndGet(WINDOW_MILLIS * 3);
+
+        for (int i = 0; i < 1000; i++) {
+            roomyLimiter.record("user" + i);
+        }
+
+        assertEquals(1000, roomyLimiter.size());
+        assertEquals(1, roomyLimiter.getEvictedCount());
+    }
+
+    /**
+     * Ten thousand events a second, spread over two thousand keys, for two minutes.
+     * At the end, compare each key's estimate against its exact count over the last minute.
+     */
+    @Test
+    public void testShouldEstimateAccuratelyAtTenThousandKeysPerSecond() {
+        final int keys = 2000;
+        final int eventsPerSecond = 10_000;
+        final int seconds = 120;
+        final SlidingWindowLimiter counter = new SlidingWindowLimiter(Integer.MAX_VALUE, WINDOW_MILLIS, keys * 2, clock::get);
+        final long start = clock.get() + 7_300;
+        final long end = start + seconds * 1000L;
+        final int[] exact = new int[keys];
+        final SplittableRandom random = new SplittableRandom(42);
+
+        for (long event = 0; event < (long) eventsPerSecond * seconds; event++) {
+            final long time = start + event * 1000 / eventsPerSecond;
+            final int key = random.nextInt(keys);
+            clock.set(time);
+            counter.record("key" + key);
+            if (time > end - WINDOW_MILLIS) {
+                exact[key]++;
+            }
+        }
+
+        clock.set(end);
+        double totalError = 0;
+        for (int key = 0; key < keys; key++) {
+            totalError += Math.abs(counter.estimate("key" + key) - exact[key]) / exact[key];
+        }
+        final double meanError = totalError / keys;
+        assertTrue("mean relative error was " + meanError, meanError < 0.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectZeroLimit() {
+        new SlidingWindowLimiter(0, WINDOW_MILLIS, 1000, clock::get);
+    }
+
+}
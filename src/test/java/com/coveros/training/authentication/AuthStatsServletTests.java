@@ -0,0 +1,24 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.helpers.ServletUtils;
+import org.junit.Test;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Mockito.*;
+
+public class AuthStatsServletTests {
+
+    @Test
+    public void testShouldReportStatsAsJson() {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestDispatcher(ServletUtils.RESTFUL_RESULT_JSP)).thenReturn(mock(RequestDispatcher.class));
+
+        new AuthStatsServlet().doGet(request, mock(HttpServletResponse.class));
+
+        verify(request).setAttribute(eq("result"), startsWith("{\"usernameFilter\": {\"lookups\": "));
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.coveros.training.authentication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BreachedPasswordListTests {
+
+    private static final List<String> BREACHED = Arrays.asList("password1234", "qwertyuiop", "iloveyou2020", "letmein!!!");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testShouldFindBreachedPasswords() throws IOException {
+        final BreachedPasswordList list = buildFromPasswords(BREACHED, 8, 1000);
+
+        for (String password : BREACHED) {
+            assertTrue(password, list.contains(password));
+        }
+        assertFalse(list.contains("LpcVWwRkWSNVH"));
+        assertEquals(4, list.size());
+    }
+
+    /**
+     * Lists too big for memory get sorted in chunks, then merged - the result should be the same
+     */
+    @Test
+    public void testShouldMergeChunksAndDropDuplicates() throws IOException {
+        final List<String> passwords = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            passwords.add("password" + i);
+        }
+        passwords.add("password1");
+
+        final BreachedPasswordList list = buildFromPasswords(passwords, 8, 64);
+
+        assertEquals(1000, list.size());
+        for (String password : passwords) {
+            assertTrue(password, list.contains(password));
+        }
+        assertFalse(list.contains("password1000"));
+    }
+
+    @Test
+    public void testShouldWorkWithShorterPrefixes() throws IOException {
+        final BreachedPasswordList list = buildFromPasswords(BREACHED, 5, 1000);
+
+        assertEquals(5, list.getRecordBytes());
+        for (String password : BREACHED) {
+            assertTrue(password, list.contains(password));
+        }
+        assertFalse(list.contains("LpcVWwRkWSNVH"));
+    }
+
+    /**
+     * The Pwned Passwords downloads are uppercase hex SHA-1 hashes, each followed by a count
+     */
+    @Test
+    public void testShouldBuildFromHashList() throws IOException {
+        final Path input = folder.newFile("hashes.txt").toPath();
+        // the SHA-1 of "password1234"
+        Files.write(input, Arrays.asList("E6B6AFBD6D76BB5D2041542D7D2E3FAC5BB05593:2413"), StandardCharsets.UTF_8);
+        final Path output = folder.getRoot().toPath().resolve("breached.bin");
+
+        BreachedPasswordFileBuilder.build(input, output, true, 8, 1000);
+        final BreachedPasswordList list = BreachedPasswordList.open(output);
+
+        assertTrue(list.contains("password1234"));
+        assertFalse(list.contains("qwertyuiop"));
+    }
+
+    @Test
+    public void testEmptyListShouldContainNothing() {
+        assertFalse(BreachedPasswordList.empty().contains("password1234"));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testShouldRejectFileOfTheWrongFormat() throws IOException {
+        final Path notAList = folder.newFile("not-a-list.txt").toPath();
+        Files.write(notAList, Arrays.asList("hello there, this is not a breached password file"), StandardCharsets.UTF_8);
+
+        BreachedPasswordList.open(notAList);
+    }
+
+    private BreachedPasswordList buildFromPasswords(List<String> passwords, int recordBytes, int chunkSize) throws IOException {
+        final Path input = folder.newFile().toPath();
+        Files.write(input, passwords, StandardCharsets.UTF_8);
+        final Path output = folder.getRoot().toPath().resolve("breached-" + System.nanoTime() + ".bin");
+        BreachedPasswordFileBuilder.build(input, output, false, recordBytes, chunkSize);
+        return BreachedPasswordList.open(output);
+    }
+
+}
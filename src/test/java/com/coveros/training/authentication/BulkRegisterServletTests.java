@@ -0,0 +1,123 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.BulkRegistrationRow;
+import com.coveros.training.authentication.domainobjects.RegistrationResult;
+import com.coveros.training.authentication.domainobjects.RegistrationStatusEnums;
+import com.coveros.training.helpers.TaskTimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BulkRegisterServletTests {
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter output;
+    private final BulkRegisterServlet servlet = new BulkRegisterServlet();
+
+    @Before
+    public void before() throws IOException {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        output = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+        BulkRegisterServlet.registrationUtils = mock(RegistrationUtils.class);
+        BulkRegisterServlet.maxRows = 1000;
+        BulkRegisterServlet.chunkRows = 100;
+    }
+
+    /**
+     * Each row sent gets a line back, with its result
+     */
+    @Test
+    public void testShouldStreamResultPerRow() throws IOException {
+        givenBody("text/csv", "alice,LpcVWwRkWSNVH\nbob,short\n");
+        when(BulkRegisterServlet.registrationUtils.processBulkRegistration(Arrays.asList(
+                BulkRegistrationRow.of(1, "alice", "LpcVWwRkWSNVH"),
+                BulkRegistrationRow.of(2, "bob", "short")), new HashSet<>()))
+                .thenReturn(Arrays.asList(
+                        new RegistrationResult(true, RegistrationStatusEnums.SUCCESSFULLY_REGISTERED),
+                        new RegistrationResult(false, RegistrationStatusEnums.BAD_PASSWORD, "too \"short\"")));
+
+        servlet.doPost(request, response);
+
+        verify(response).setContentType("application/x-ndjson");
+        assertEquals("{\"line\": 1, \"username\": \"alice\", \"result\": " +
+                        "{\"registered\": true, \"status\": \"SUCCESSFULLY_REGISTERED\", \"message\": \"\"}}\n" +
+                        "{\"line\": 2, \"username\": \"bob\", \"result\": " +
+                        "{\"registered\": false, \"status\": \"BAD_PASSWORD\", \"message\": \"too \\\"short\\\"\"}}\n",
+                output.toString());
+    }
+
+    @Test
+    public void testShouldRefuseTooManyRows() throws IOException {
+        BulkRegisterServlet.maxRows = 1;
+        givenBody("text/csv", "alice,LpcVWwRkWSNVH\nbob,LpcVWwRkWSNVH\n");
+
+        servlet.doPost(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE), anyString());
+        verify(BulkRegisterServlet.registrationUtils, never()).processBulkRegistration(any(), any());
+    }
+
+    @Test
+    public void testShouldSayWhenTooBusy() throws IOException {
+        givenBody("application/x-ndjson", "{\"username\": \"alice\", \"password\": \"LpcVWwRkWSNVH\"}\n");
+        when(BulkRegisterServlet.registrationUtils.processBulkRegistration(any(), any()))
+                .thenThrow(new TaskTimeoutException("check password did not finish in time"));
+
+        servlet.doPost(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, BulkRegisterServlet.BUSY_MESSAGE);
+    }
+
+    @Test
+    public void testShouldHandleEmptyUpload() throws IOException {
+        givenBody("text/csv", "");
+
+        servlet.doPost(request, response);
+
+        assertEquals("", output.toString());
+    }
+
+    /**
+     * Each part's results are written as soon as it's done - so if a later part runs out of time,
+     * the users already registered are still reported
+     */
+    @Test
+    public void testShouldWriteEachPartAsItIsDone() throws IOException {
+        BulkRegisterServlet.chunkRows = 1;
+        givenBody("text/csv", "alice,LpcVWwRkWSNVH\nbob,LpcVWwRkWSNVH\n");
+        when(BulkRegisterServlet.registrationUtils.processBulkRegistration(any(), any()))
+                .thenReturn(Collections.singletonList(new RegistrationResult(true, RegistrationStatusEnums.SUCCESSFULLY_REGISTERED)))
+                .thenThrow(new TaskTimeoutException("check password did not finish in time"));
+
+        servlet.doPost(request, response);
+
+        assertEquals("{\"line\": 1, \"username\": \"alice\", \"result\": " +
+                        "{\"registered\": true, \"status\": \"SUCCESSFULLY_REGISTERED\", \"message\": \"\"}}\n" +
+                        "{\"line\": 2, \"error\": \"" + BulkRegisterServlet.BUSY_MESSAGE + "\"}\n",
+                output.toString());
+        verify(response, never()).sendError(anyInt(), anyString());
+    }
+
+    private void givenBody(String contentType, String body) throws IOException {
+        when(request.getContentType()).thenReturn(contentType);
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader(body)));
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.BulkRegistrationRow;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BulkRegistrationParserTests {
+
+    @Test
+    public void testShouldReadCsv() throws IOException {
+        final List<BulkRegistrationRow> rows = parse(BulkRegistrationParser.Format.CSV,
+                "username,password\nalice,LpcVWwRkWSNVH\n\nbob,\"with,comma and \"\"quote\"\"\"\n");
+
+        assertEquals(Arrays.asList(
+                BulkRegistrationRow.of(2, "alice", "LpcVWwRkWSNVH"),
+                BulkRegistrationRow.of(4, "bob", "with,comma and \"quote\"")), rows);
+    }
+
+    @Test
+    public void testShouldMarkBadCsvLines() throws IOException {
+        final List<BulkRegistrationRow> rows = parse(BulkRegistrationParser.Format.CSV,
+                "alice\nbob,\"unclosed\ncarol,a,b\n");
+
+        assertEquals(3, rows.size());
+        assertTrue(rows.stream().allMatch(BulkRegistrationRow::isMalformed));
+    }
+
+    @Test
+    public void testShouldReadNdjson() throws IOException {
+        final List<BulkRegistrationRow> rows = parse(BulkRegistrationParser.Format.NDJSON,
+                "{\"username\": \"alice\", \"password\": \"LpcVWwRkWSNVH\"}\n" +
+                        "{\"password\":\"tab\\there \\\"q\\\" \\u00e9\",\"username\":\"bob\"}\n");
+
+        assertEquals(Arrays.asList(
+                BulkRegistrationRow.of(1, "alice", "LpcVWwRkWSNVH"),
+                BulkRegistrationRow.of(2, "bob", "tab\there \"q\" \u00e9")), rows);
+    }
+
+    @Test
+    public void testShouldMarkBadNdjsonLines() throws IOException {
+        final List<BulkRegistrationRow> rows = parse(BulkRegistrationParser.Format.NDJSON,
+                "{\"username\": \"alice\"}\n" +
+                        "{\"username\": \"bob\", \"password\": 12}\n" +
+                        "{\"username\": \"carol\", \"password\": \"x\"} trailing\n" +
+                        "not json\n");
+
+        assertEquals(4, rows.size());
+        assertTrue(rows.stream().allMatch(BulkRegistrationRow::isMalformed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseTooManyRows() throws IOException {
+        BulkRegistrationParser.parse(new BufferedReader(new StringReader("a,b\nc,d\ne,f\n")),
+                BulkRegistrationParser.Format.CSV, 2);
+    }
+
+    @Test
+    public void testShouldPickFormatFromContentType() {
+        assertEquals(BulkRegistrationParser.Format.NDJSON, BulkRegistrationParser.Format.fromContentType("application/x-ndjson"));
+        assertEquals(BulkRegistrationParser.Format.CSV, BulkRegistrationParser.Format.fromContentType("text/csv; charset=utf-8"));
+        assertEquals(BulkRegistrationParser.Format.CSV, BulkRegistrationParser.Format.fromContentType(""));
+    }
+
+    private static List<BulkRegistrationRow> parse(BulkRegistrationParser.Format format, String text) throws IOException {
+        return BulkRegistrationParser.parse(new BufferedReader(new StringReader(text)), format, 100);
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.coveros.training.authentication;
 
 import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -8,7 +9,9 @@ import org.mockito.Mockito;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 /**
@@ -47,6 +50,7 @@ public class LoginServletTests {
         requestDispatcher = mock(RequestDispatcher.class);
         loginServlet = spy(new LoginServlet());
         LoginServlet.loginUtils = Mockito.mock(LoginUtils.class);
+        LoginServlet.loginThrottle = new LoginThrottle(3, 100, 60, 1000, System::currentTimeMillis);
 
         // this is always called in a static method, it's boilerplate for these tests.
         when(request.getRequestDispatcher(ServletUtils.RESULT_JSP)).thenReturn(requestDispatcher);
@@ -108,6 +112,91 @@ public class LoginServletTests {
         verifyExpectedResult("no password provided");
     }
 
+    /**
+     * A client that asks for a token gets one back, and can use it afterwards
+     */
+    @Test
+    public void testShouldIssueTokenWhenAsked() {
+        Sessions.store = new SessionStore(60, 10, System::currentTimeMillis);
+        setMock_UsernameAndPassword(DEFAULT_USERNAME, DEFAULT_PASSWORD);
+        when(request.getParameter("token")).thenReturn("true");
+        when(request.getRequestDispatcher(ServletUtils.RESTFUL_RESULT_JSP)).thenReturn(requestDispatcher);
+        setMock_LoginUtilsUserRegistered(DEFAULT_USERNAME, DEFAULT_PASSWORD, true);
+
+        loginServlet.doPost(request, response);
+
+        verify(request).setAttribute(eq("result"), startsWith("{\"token\": \""));
+        assertEquals(1, Sessions.store.size());
+    }
+
+    /**
+     * No token for bad credentials
+     */
+    @Test
+    public void testShouldNotIssueTokenIfAccessDenied() {
+        Sessions.store = new SessionStore(60, 10, System::currentTimeMillis);
+        setMock_UsernameAndPassword(DEFAULT_USERNAME, DEFAULT_PASSWORD);
+        when(request.getParameter("token")).thenReturn("true");
+        setMock_LoginUtilsUserRegistered(DEFAULT_USERNAME, DEFAULT_PASSWORD, false);
+
+        loginServlet.doPost(request, response);
+
+        verifyExpectedResult("access denied");
+        assertEquals(0, Sessions.store.size());
+    }
+
+    /**
+     * After too many failures, we stop checking passwords for that user for a while
+     */
+    @Test
+    public void testShouldThrottleAfterTooManyFailures() {
+        setMock_UsernameAndPassword(DEFAULT_USERNAME, DEFAULT_PASSWORD);
+        setMock_LoginUtilsUserRegistered(DEFAULT_USERNAME, DEFAULT_PASSWORD, false);
+        for (int i = 0; i < 3; i++) {
+            loginServlet.doPost(request, response);
+        }
+
+        loginServlet.doPost(request, response);
+
+        verifyExpectedResult(LoginServlet.THROTTLED_MESSAGE);
+        verify(response).setStatus(429);
+        verify(LoginServlet.loginUtils, times(3)).isUserRegistered(DEFAULT_USERNAME, DEFAULT_PASSWORD);
+    }
+
+    /**
+     * If the password workers are too busy to check the credentials,
+     * we tell the user so rather than leaving them waiting.
+     */
+    @Test
+    public void testShouldReportBusyIfPasswordWorkersAreFull() {
+        setMock_UsernameAndPassword(DEFAULT_USERNAME, DEFAULT_PASSWORD);
+        when(LoginServlet.loginUtils.isUserRegistered(DEFAULT_USERNAME, DEFAULT_PASSWORD))
+                .thenThrow(new RejectedExecutionException());
+
+        loginServlet.doPost(request, response);
+
+        verifyExpectedResult(LoginServlet.BUSY_MESSAGE);
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * If checking the credentials doesn't finish in time, we say that
+     * rather than that the server is busy.
+     */
+    @Test
+    public void testShouldReportTimeoutIfCheckTakesTooLong() {
+        setMock_UsernameAndPassword(DEFAULT_USERNAME, DEFAULT_PASSWORD);
+        when(LoginServlet.loginUtils.isUserRegistered(DEFAULT_USERNAME, DEFAULT_PASSWORD))
+                .thenThrow(new TaskTimeoutException("check credentials did not finish in time"));
+
+        loginServlet.doPost(request, response);
+
+        verifyExpectedResult(LoginServlet.TIMEOUT_MESSAGE);
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+    }
+
     /**
      * Mock out the username and password values on the request, the
      * user's input to this endpoint
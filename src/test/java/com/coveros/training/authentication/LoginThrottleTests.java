@@ -0,0 +1,66 @@
+package com.coveros.training.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class LoginThrottleTests {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private LoginThrottle throttle;
+
+    @Before
+    public void init() {
+        throttle = new LoginThrottle(3, 5, 60, 1000, clock::get);
+    }
+
+    @Test
+    public void testShouldThrottleUsernameAfterTooManyFailures() {
+        for (int i = 0; i < 3; i++) {
+            assertFalse(throttle.isThrottled("alice", "10.0.0." + i));
+            throttle.recordFailure("alice", "10.0.0." + i);
+        }
+
+        assertTrue(throttle.isThrottled("alice", "10.0.0.99"));
+        assertFalse(throttle.isThrottled("bob", "10.0.0.99"));
+    }
+
+    /**
+     * One address trying many different accounts gets throttled too
+     */
+    @Test
+    public void testShouldThrottleAddressAfterTooManyFailures() {
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure("user" + i, "10.0.0.1");
+        }
+
+        assertTrue(throttle.isThrottled("someone-new", "10.0.0.1"));
+        assertFalse(throttle.isThrottled("someone-new", "10.0.0.2"));
+    }
+
+    @Test
+    public void testSuccessShouldClearUsernameFailures() {
+        throttle.recordFailure("alice", "10.0.0.1");
+        throttle.recordFailure("alice", "10.0.0.2");
+        throttle.recordFailure("alice", "10.0.0.3");
+
+        throttle.recordSuccess("alice");
+
+        assertFalse(throttle.isThrottled("alice", "10.0.0.4"));
+    }
+
+    @Test
+    public void testShouldLetThroughAgainOnceTheWindowHasPassed() {
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("alice", "10.0.0.1");
+        }
+
+        clock.addAndGet(120_000);
+
+        assertFalse(throttle.isThrottled("alice", "10.0.0.1"));
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.coveros.training.authentication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PasswordHasherTests {
+
+    private static final String PASSWORD = "LpcVWwRkWSNVH";
+
+    /**
+     * Kept low so the tests run quickly - the cost doesn't change the logic
+     */
+    private final PasswordHasher hasher = new PasswordHasher(1000);
+
+    @Test
+    public void testShouldVerifyTheRightPassword() {
+        final String hash = hasher.hash(PASSWORD);
+
+        assertTrue(hasher.verify(PASSWORD, hash));
+        assertFalse(hasher.verify("not the password", hash));
+    }
+
+    /**
+     * Two people with the same password get different hashes, thanks to the salt
+     */
+    @Test
+    public void testShouldSaltEachHash() {
+        assertNotEquals(hasher.hash(PASSWORD), hasher.hash(PASSWORD));
+    }
+
+    @Test
+    public void testShouldRecordTheCostInTheHash() {
+        assertTrue(hasher.hash(PASSWORD).startsWith("pbkdf2$1000$"));
+    }
+
+    /**
+     * A hash made at an older cost still verifies, but should be upgraded
+     */
+    @Test
+    public void testShouldVerifyAndUpgradeLowerCostHash() {
+        final String cheapHash = new PasswordHasher(10).hash(PASSWORD);
+
+        assertTrue(hasher.verify(PASSWORD, cheapHash));
+        assertTrue(hasher.needsRehash(cheapHash));
+        assertFalse(hasher.needsRehash(hasher.hash(PASSWORD)));
+    }
+
+    /**
+     * Rows from before we salted our hashes hold a hex SHA-256
+     */
+    @Test
+    public void testShouldVerifyAndUpgradeLegacySha256Hash() {
+        final String legacyHash = "eea37797b7958c3eecd5ba1f40b1af56a3cc6b57932e418dca17905937073a21";
+
+        assertTrue(hasher.verify("LpcVWwRkWSNVH", legacyHash));
+        assertFalse(hasher.verify("abc123", legacyHash));
+        assertTrue(hasher.needsRehash(legacyHash));
+    }
+
+    @Test
+    public void testShouldNotVerifyMalformedHash() {
+        assertFalse(hasher.verify(PASSWORD, ""));
+        assertFalse(hasher.verify(PASSWORD, "pbkdf2$abc$$"));
+        assertFalse(hasher.verify(PASSWORD, "pbkdf2$1000$!!!$!!!"));
+    }
+
+    @Test
+    public void testDecoyShouldNeverVerify() {
+        assertFalse(hasher.verifyAgainstDecoy("decoy password"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectNonPositiveCost() {
+        new PasswordHasher(0);
+    }
+
+}
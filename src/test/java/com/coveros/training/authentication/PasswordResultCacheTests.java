@@ -0,0 +1,104 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.authentication.domainobjects.PasswordResult;
+import com.coveros.training.authentication.domainobjects.PasswordResultEnums;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class PasswordResultCacheTests {
+
+    private static final PasswordResult GOOD = new PasswordResult(PasswordResultEnums.SUCCESS, 60d, "years", "centuries", "ok");
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger estimates = new AtomicInteger();
+    private final Function<String, PasswordResult> estimator = password -> {
+        estimates.incrementAndGet();
+        return GOOD;
+    };
+    private PasswordResultCache cache;
+
+    @Before
+    public void init() {
+        cache = new PasswordResultCache(100, 1000, now::get);
+    }
+
+    /**
+     * Asking about the same password again is answered without estimating it again
+     */
+    @Test
+    public void testShouldRememberEstimate() {
+        assertEquals(GOOD, cache.get("LpcVWwRkWSNVH", estimator));
+        assertEquals(GOOD, cache.get("LpcVWwRkWSNVH", estimator));
+        cache.get("LpcVWwRkWSNVX", estimator);
+
+        assertEquals(2, estimates.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testShouldForgetEstimateAfterTtl() {
+        cache.get("LpcVWwRkWSNVH", estimator);
+        now.addAndGet(1000);
+        cache.get("LpcVWwRkWSNVH", estimator);
+
+        assertEquals(2, estimates.get());
+        assertTrue(cache.toJson().contains("\"expired\": 1"));
+    }
+
+    /**
+     * However many passwords come through, only so many are kept
+     */
+    @Test
+    public void testShouldStayWithinSize() {
+        for (int i = 0; i < 1000; i++) {
+            cache.get("password number " + i, estimator);
+        }
+
+        assertTrue("size was " + cache.size(), cache.size() <= 100);
+        assertTrue(cache.toJson().contains("\"evicted\": "));
+    }
+
+    @Test
+    public void testShouldEstimateEveryTimeWhenTurnedOff() {
+        cache = new PasswordResultCache(0, 1000, now::get);
+        cache.get("LpcVWwRkWSNVH", estimator);
+        cache.get("LpcVWwRkWSNVH", estimator);
+
+        assertEquals(2, estimates.get());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * A failed estimate - one that timed out, say - isn't remembered
+     */
+    @Test
+    public void testShouldNotRememberFailure() {
+        try {
+            cache.get("LpcVWwRkWSNVH", password -> {
+                throw new IllegalStateException("estimate failed");
+            });
+            fail("expected the estimate to fail");
+        } catch (IllegalStateException ex) {
+            assertEquals(0, cache.size());
+        }
+    }
+
+    /**
+     * Nothing about the password itself shows up in what the cache reports
+     */
+    @Test
+    public void testShouldNotRevealPasswords() {
+        cache.get("LpcVWwRkWSNVH", estimator);
+
+        assertFalse(cache.toJson().contains("LpcVWwRkWSNVH"));
+        assertFalse(cache.toString().contains("LpcVWwRkWSNVH"));
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.coveros.training.authentication;
+
+import me.gosimple.nbvcxz.resources.ConfigurationBuilder;
+import me.gosimple.nbvcxz.resources.Dictionary;
+import me.gosimple.nbvcxz.scoring.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PasswordStrengthEstimatorTests {
+
+    private static final String GOOD_PASSWORD = "LpcVWwRkWSNVH";
+
+    /**
+     * By default, we use every dictionary Nbvcxz ships with
+     */
+    @Test
+    public void testShouldUseAllBuiltInDictionariesByDefault() {
+        final List<Dictionary> dictionaries = PasswordStrengthEstimator.chooseDictionaries("", "");
+        Assert.assertEquals(ConfigurationBuilder.getDefaultDictionaries().size(), dictionaries.size());
+    }
+
+    @Test
+    public void testShouldChooseBuiltInDictionariesByName() {
+        final List<Dictionary> dictionaries = PasswordStrengthEstimator.chooseDictionaries("passwords, english", "");
+        Assert.assertEquals(2, dictionaries.size());
+        Assert.assertEquals("passwords", dictionaries.get(0).getDictionaryName());
+        Assert.assertEquals("english", dictionaries.get(1).getDictionaryName());
+    }
+
+    /**
+     * A word in the extra dictionary should be recognized as weak
+     */
+    @Test
+    public void testShouldLoadExtraDictionary() throws Exception {
+        final File wordList = File.createTempFile("words", ".txt");
+        wordList.deleteOnExit();
+        Files.write(wordList.toPath(), Collections.singletonList(GOOD_PASSWORD), StandardCharsets.UTF_8);
+
+        final List<Dictionary> dictionaries = PasswordStrengthEstimator.chooseDictionaries("passwords", wordList.getPath());
+        final PasswordStrengthEstimator estimator = new PasswordStrengthEstimator(
+                new ConfigurationBuilder().setDictionaries(dictionaries).createConfiguration(), 1);
+
+        Assert.assertFalse(estimator.estimate(GOOD_PASSWORD).isMinimumEntropyMet());
+    }
+
+    /**
+     * Many threads sharing the estimator should each get the same answer
+     * a single thread would.
+     */
+    @Test
+    public void testShouldEstimateConcurrently() throws Exception {
+        final PasswordStrengthEstimator estimator = new PasswordStrengthEstimator(
+                new ConfigurationBuilder().createConfiguration(), 2);
+        final double expectedEntropy = estimator.estimate(GOOD_PASSWORD).getEntropy();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Result>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> estimator.estimate(GOOD_PASSWORD)));
+            }
+            for (Future<Result> result : results) {
+                Assert.assertEquals(expectedEntropy, result.get().getEntropy(), 0.0001);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.coveros.training.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class PasswordStrengthServletTests {
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter output;
+    private final PasswordStrengthServlet servlet = new PasswordStrengthServlet();
+
+    @Before
+    public void before() throws IOException {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        output = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+        PasswordStrengthServlet.maxPasswords = 1000;
+        PasswordStrengthServlet.timeoutMillis = PasswordWork.REGISTER_TIMEOUT_MILLIS;
+    }
+
+    @Test
+    public void testShouldScoreOnePassword() throws IOException {
+        when(request.getParameter("password")).thenReturn("abc");
+
+        servlet.doPost(request, response);
+
+        verify(response).setContentType("application/x-ndjson");
+        assertTrue(output.toString(), output.toString().startsWith("{\"line\": 1, \"result\": {\"status\": \"TOO_SHORT\""));
+    }
+
+    /**
+     * Each line of the body gets its own line back
+     */
+    @Test
+    public void testShouldScoreEachLineOfBody() throws IOException {
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("abc\n\nLpcVWwRkWSNVH\n")));
+
+        servlet.doPost(request, response);
+
+        final String[] lines = output.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("{\"line\": 1, \"result\": {\"status\": \"TOO_SHORT\""));
+        assertTrue(lines[1], lines[1].startsWith("{\"line\": 3, \"result\": {\"status\": \"SUCCESS\""));
+    }
+
+    @Test
+    public void testShouldStopAtTooManyPasswords() throws IOException {
+        PasswordStrengthServlet.maxPasswords = 1;
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("abc\ndef\n")));
+
+        servlet.doPost(request, response);
+
+        final String[] lines = output.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"line\": 2, \"error\": \"" + PasswordStrengthServlet.TOO_MANY_MESSAGE + "\"}", lines[1]);
+    }
+
+    /**
+     * The whole request gets one time budget - once it's used up, a password that has to be
+     * worked out stops the request, though ones that needn't be are still answered
+     */
+    @Test
+    public void testShouldShareOneTimeBudget() throws IOException {
+        PasswordStrengthServlet.timeoutMillis = 0;
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("abc\n" + UUID.randomUUID() + "\nabc\n")));
+
+        servlet.doPost(request, response);
+
+        final String[] lines = output.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("{\"line\": 1, \"result\": {\"status\": \"TOO_SHORT\""));
+        assertEquals("{\"line\": 2, \"error\": \"" + PasswordStrengthServlet.BUSY_MESSAGE + "\"}", lines[1]);
+    }
+
+}
@@ -3,6 +3,7 @@ package com.coveros.training.authentication;
 import com.coveros.training.authentication.domainobjects.RegistrationResult;
 import com.coveros.training.authentication.domainobjects.RegistrationStatusEnums;
 import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -10,6 +11,7 @@ import org.mockito.Mockito;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.mockito.Mockito.*;
 
@@ -110,6 +112,44 @@ public class RegisterServletTests {
         Mockito.verify(request).setAttribute("result", "no password provided");
     }
 
+    /**
+     * If registering didn't finish within its time budget,
+     * we tell the user so, and to try again.
+     */
+    @Test
+    public void testShouldReportTimeoutIfRegistrationTimesOut() {
+        when(request.getRequestDispatcher(ServletUtils.RESULT_JSP)).thenReturn(requestDispatcher);
+        mockRequestParam("username", ALICE);
+        mockRequestParam("password", "password123");
+        when(RegisterServlet.registrationUtils.processRegistration(ALICE, "password123"))
+                .thenThrow(new TaskTimeoutException("hash password did not finish in time"));
+
+        registerServlet.doPost(request, response);
+
+        Mockito.verify(request).setAttribute("result", RegisterServlet.TIMEOUT_MESSAGE);
+        Mockito.verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        Mockito.verify(response).setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * If the password workers are too busy to take the registration,
+     * we tell the user the server is busy.
+     */
+    @Test
+    public void testShouldReportBusyIfPasswordWorkersAreFull() {
+        when(request.getRequestDispatcher(ServletUtils.RESULT_JSP)).thenReturn(requestDispatcher);
+        mockRequestParam("username", ALICE);
+        mockRequestParam("password", "password123");
+        when(RegisterServlet.registrationUtils.processRegistration(ALICE, "password123"))
+                .thenThrow(new RejectedExecutionException());
+
+        registerServlet.doPost(request, response);
+
+        Mockito.verify(request).setAttribute("result", RegisterServlet.BUSY_MESSAGE);
+        Mockito.verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        Mockito.verify(response).setHeader("Retry-After", PasswordWork.RETRY_AFTER_SECONDS);
+    }
+
 
     private void mockRegisterUserToReturnSomeResponse(RegistrationResult expectedResult) {
         when(RegisterServlet.registrationUtils.processRegistration(Mockito.anyString(), Mockito.anyString())).thenReturn(expectedResult);
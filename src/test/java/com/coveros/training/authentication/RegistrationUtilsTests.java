@@ -7,12 +7,25 @@ import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class RegistrationUtilsTests {
@@ -23,6 +36,9 @@ public class RegistrationUtilsTests {
     private final IPersistenceLayer persistenceLayer = mock(IPersistenceLayer.class);
     private final RegistrationUtils registrationUtils = new RegistrationUtils(persistenceLayer);
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * a really short password can be found by brute force extremely quickly,
      * making this highly insecure
@@ -71,6 +87,25 @@ public class RegistrationUtilsTests {
         Assert.assertEquals(PasswordResultEnums.SUCCESS, result.status);
     }
 
+    /**
+     * A password that would otherwise pass, but has shown up in a breach, is rejected
+     */
+    @Test
+    public void testShouldRejectBreachedPassword() throws IOException {
+        final Path input = folder.newFile().toPath();
+        Files.write(input, Arrays.asList(GOOD_PASSWORD), StandardCharsets.UTF_8);
+        final Path breachedFile = folder.getRoot().toPath().resolve("breached.bin");
+        BreachedPasswordFileBuilder.build(input, breachedFile, false, 8, 10);
+        final BreachedPasswordList original = RegistrationUtils.breachedPasswords;
+        RegistrationUtils.breachedPasswords = BreachedPasswordList.open(breachedFile);
+        try {
+            final PasswordResult result = RegistrationUtils.isPasswordGood(GOOD_PASSWORD);
+            Assert.assertEquals(PasswordResultEnums.BREACHED, result.status);
+        } finally {
+            RegistrationUtils.breachedPasswords = original;
+        }
+    }
+
     /**
      * Not really a lot to test here...
      */
@@ -146,6 +181,57 @@ public class RegistrationUtilsTests {
         Assert.assertEquals(expectedResult, registrationResult);
     }
 
+    /**
+     * Each row of a bulk registration gets its own result, in order, and only the
+     * users that pass every check are saved - all together
+     */
+    @Test
+    public void testShouldProcessBulkRegistration() {
+        when(persistenceLayer.findRegisteredUsernames(any())).thenReturn(Collections.singleton("bob"));
+        final List<BulkRegistrationRow> rows = Arrays.asList(
+                BulkRegistrationRow.of(1, ALICE, GOOD_PASSWORD),
+                BulkRegistrationRow.of(2, "bob", GOOD_PASSWORD),
+                BulkRegistrationRow.of(3, "carol", BAD_PASSWORD),
+                BulkRegistrationRow.of(4, ALICE, GOOD_PASSWORD),
+                BulkRegistrationRow.of(5, "", GOOD_PASSWORD),
+                BulkRegistrationRow.malformed(6, "expected 2 fields"),
+                BulkRegistrationRow.of(7, "dave", GOOD_PASSWORD));
+
+        final List<RegistrationResult> results = registrationUtils.processBulkRegistration(rows);
+
+        Assert.assertEquals(Arrays.asList(
+                RegistrationStatusEnums.SUCCESSFULLY_REGISTERED,
+                RegistrationStatusEnums.ALREADY_REGISTERED,
+                RegistrationStatusEnums.BAD_PASSWORD,
+                RegistrationStatusEnums.ALREADY_REGISTERED,
+                RegistrationStatusEnums.EMPTY_USERNAME,
+                RegistrationStatusEnums.INVALID_ROW,
+                RegistrationStatusEnums.SUCCESSFULLY_REGISTERED),
+                results.stream().map(r -> r.status).collect(Collectors.toList()));
+        final Map<String, String> expectedSaved = new LinkedHashMap<>();
+        expectedSaved.put(ALICE, GOOD_PASSWORD);
+        expectedSaved.put("dave", GOOD_PASSWORD);
+        verify(persistenceLayer).saveNewUsersWithPasswords(expectedSaved);
+    }
+
+    /**
+     * Done a part at a time, a username listed in an earlier part is still caught
+     */
+    @Test
+    public void testShouldCatchRepeatAcrossParts() {
+        when(persistenceLayer.findRegisteredUsernames(any())).thenReturn(Collections.emptySet());
+        final Set<String> listed = new HashSet<>();
+
+        registrationUtils.processBulkRegistration(Collections.singletonList(BulkRegistrationRow.of(1, ALICE, GOOD_PASSWORD)), listed);
+        final List<RegistrationResult> results = registrationUtils.processBulkRegistration(Arrays.asList(
+                BulkRegistrationRow.of(2, ALICE, GOOD_PASSWORD),
+                BulkRegistrationRow.of(3, "dave", GOOD_PASSWORD)), listed);
+
+        Assert.assertEquals(Arrays.asList(RegistrationStatusEnums.ALREADY_REGISTERED, RegistrationStatusEnums.SUCCESSFULLY_REGISTERED),
+                results.stream().map(r -> r.status).collect(Collectors.toList()));
+        verify(persistenceLayer).findRegisteredUsernames(Collections.singleton("dave"));
+    }
+
     @Test
     public void testEmptyObject() {
         final RegistrationUtils registrationUtils = RegistrationUtils.createEmpty();
@@ -0,0 +1,56 @@
+package com.coveros.training.authentication;
+
+import com.coveros.training.helpers.ServletUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.*;
+
+public class SessionServletTests {
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private final SessionServlet sessionServlet = new SessionServlet();
+
+    @Before
+    public void before() {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        when(request.getRequestDispatcher(ServletUtils.RESTFUL_RESULT_JSP)).thenReturn(mock(RequestDispatcher.class));
+        Sessions.store = new SessionStore(60, 10, System::currentTimeMillis);
+    }
+
+    @Test
+    public void testShouldTellWhoOwnsAValidToken() {
+        final String token = Sessions.store.create("alice").orElseThrow().token;
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+
+        sessionServlet.doGet(request, response);
+
+        verify(request).setAttribute(eq("result"), startsWith("{\"username\": \"alice\""));
+    }
+
+    @Test
+    public void testShouldRejectMissingToken() {
+        sessionServlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        verify(request).setAttribute("result", SessionServlet.INVALID_SESSION_MESSAGE);
+    }
+
+    @Test
+    public void testShouldLogOut() {
+        final String token = Sessions.store.create("alice").orElseThrow().token;
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+
+        sessionServlet.doDelete(request, response);
+
+        assertFalse(Sessions.store.validate(token).isPresent());
+    }
+
+}
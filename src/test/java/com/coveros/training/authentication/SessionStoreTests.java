@@ -0,0 +1,115 @@
+package com.coveros.training.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SessionStoreTests {
+
+    private static final long TTL_SECONDS = 60;
+
+    private final AtomicLong clock = new AtomicLong();
+    private SessionStore store;
+
+    @Before
+    public void init() {
+        clock.set(1_000_000);
+        store = new SessionStore(TTL_SECONDS, 3, clock::get);
+    }
+
+    @Test
+    public void testShouldValidateNewSession() {
+        final SessionStore.Session session = store.create("alice").orElseThrow();
+
+        final SessionStore.Session found = store.validate(session.token).orElseThrow();
+
+        assertEquals("alice", found.username);
+    }
+
+    @Test
+    public void testShouldNotValidateUnknownToken() {
+        assertFalse(store.validate("not a real token").isPresent());
+    }
+
+    @Test
+    public void testShouldGiveEachSessionADifferentToken() {
+        assertNotEquals(store.create("alice").orElseThrow().token, store.create("alice").orElseThrow().token);
+    }
+
+    /**
+     * Just before its time is up a session is still good, and just after it isn't
+     */
+    @Test
+    public void testShouldExpireSession() {
+        final String token = store.create("alice").orElseThrow().token;
+
+        clock.addAndGet(TTL_SECONDS * 1000 - 1);
+        assertTrue(store.validate(token).isPresent());
+
+        clock.addAndGet(1);
+        assertFalse(store.validate(token).isPresent());
+    }
+
+    /**
+     * Once the clock passes their tick, the wheel clears expired sessions out of memory
+     */
+    @Test
+    public void testShouldRemoveExpiredSessions() {
+        store.create("alice");
+        clock.addAndGet(30_000);
+        store.create("bob");
+
+        clock.addAndGet(31_000);
+        store.validate("anything");
+        assertEquals(1, store.size());
+
+        clock.addAndGet(30_000);
+        store.validate("anything");
+        assertEquals(0, store.size());
+        assertEquals(2, store.getExpiredCount());
+    }
+
+    /**
+     * After a long quiet spell - longer than a session lasts - everything still gets cleared
+     */
+    @Test
+    public void testShouldRemoveExpiredSessionsAfterLongIdle() {
+        store.create("alice");
+        store.create("bob");
+
+        clock.addAndGet(TTL_SECONDS * 1000 * 10);
+        store.validate("anything");
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testShouldLogOut() {
+        final String token = store.create("alice").orElseThrow().token;
+
+        store.invalidate(token);
+
+        assertFalse(store.validate(token).isPresent());
+    }
+
+    @Test
+    public void testShouldRefuseSessionsBeyondTheLimit() {
+        store.create("alice");
+        store.create("bob");
+        store.create("carol");
+
+        final Optional<SessionStore.Session> session = store.create("dave");
+
+        assertFalse(session.isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectZeroLifetime() {
+        new SessionStore(0, 3, clock::get);
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.coveros.training.authentication.domainobjects;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BulkRegistrationRowTests {
+
+    @Test
+    public void testShouldHaveEqualsAndHashcodeImplementedCorrectly() {
+        EqualsVerifier.forClass(BulkRegistrationRow.class).verify();
+    }
+
+    /**
+     * The row's password must never end up in the logs
+     */
+    @Test
+    public void testShouldLeavePasswordOutOfString() {
+        final String result = BulkRegistrationRow.of(3, "alice", "LpcVWwRkWSNVH").toString();
+
+        Assert.assertEquals("line 3: alice", result);
+    }
+
+    @Test
+    public void testShouldKnowWhenMalformed() {
+        Assert.assertTrue(BulkRegistrationRow.malformed(1, "no good").isMalformed());
+        Assert.assertFalse(BulkRegistrationRow.of(1, "alice", "LpcVWwRkWSNVH").isMalformed());
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.coveros.training.cartesianproduct;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class CartesianProductServletTests {
+
+    private final CartesianProductServlet servlet = Mockito.spy(new CartesianProductServlet());
+    private final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    private final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    private final long originalMaxTuples = CartesianProductServlet.maxTuples;
+
+    @After
+    public void restoreMaxTuples() {
+        CartesianProductServlet.maxTuples = originalMaxTuples;
+    }
+
+    /**
+     * The tuples are streamed straight back as text
+     */
+    @Test
+    public void testPostService_streams() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        when(request.getParameter("cp_lists")).thenReturn("a, b; 1,2\n x");
+        when(response.getOutputStream()).thenReturn(outputTo(output));
+
+        servlet.doPost(request, response);
+
+        assertEquals("(a, 1, x), (a, 2, x), (b, 1, x), (b, 2, x)", output.toString(StandardCharsets.UTF_8));
+        verify(response).setContentType("text/plain");
+        verify(servlet, never()).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testPostService_tooMany() {
+        CartesianProductServlet.maxTuples = 3;
+        when(request.getParameter("cp_lists")).thenReturn("a,b;1,2");
+        doNothing().when(servlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        servlet.doPost(request, response);
+
+        verify(request).setAttribute(CartesianProductServlet.RESULT, "Error: the product has 4 tuples - at most 3 at a time");
+    }
+
+    /**
+     * More than a long can count is turned away too, rather than failing
+     */
+    @Test
+    public void testPostService_overflow() {
+        when(request.getParameter("cp_lists")).thenReturn(String.join(";", Collections.nCopies(64, "0,1")));
+        doNothing().when(servlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        servlet.doPost(request, response);
+
+        verify(request).setAttribute(eq(CartesianProductServlet.RESULT), startsWith("Error: the product has 18446744073709551616 tuples"));
+    }
+
+    @Test
+    public void testPostService_noLists() {
+        doNothing().when(servlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        servlet.doPost(request, response);
+
+        verify(request).setAttribute(CartesianProductServlet.RESULT, "Error: cp_lists must give the lists, like a,b;1,2,3,4;e,f");
+    }
+
+    @Test
+    public void testShouldParseLists() {
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("1", "2", "3")),
+                CartesianProductServlet.parseLists(" a , b ;\r\n1,2,,3;;"));
+    }
+
+    private static ServletOutputStream outputTo(ByteArrayOutputStream out) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.coveros.training.cartesianproduct;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class CartesianProductTests {
+
+    private final CartesianProduct<String> product = CartesianProduct.of(
+            Arrays.asList("a", "b"),
+            Arrays.asList("1", "2", "3", "4"),
+            Arrays.asList("e", "f"));
+
+    @Test
+    public void testShouldGoThroughInOrder() {
+        final List<String> tuples = product.stream().map(tuple -> String.join("", tuple)).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(
+                "a1e", "a1f", "a2e", "a2f", "a3e", "a3f", "a4e", "a4f",
+                "b1e", "b1f", "b2e", "b2f", "b3e", "b3f", "b4e", "b4f"), tuples);
+        assertEquals(16, product.size());
+        assertEquals(3, product.dimensions());
+    }
+
+    @Test
+    public void testShouldGetAnyTuple() {
+        final List<List<String>> tuples = product.stream().collect(Collectors.toList());
+        for (int k = 0; k < tuples.size(); k++) {
+            assertEquals(tuples.get(k), product.get(k));
+        }
+        assertEquals(Arrays.asList("b", "3", "f"), product.get(13));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testShouldRefuseTupleOutOfRange() {
+        product.get(16);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTuplesCannotBeChanged() {
+        product.get(0).set(0, "z");
+    }
+
+    /**
+     * One empty list means no tuples at all, and no lists means just the one empty tuple
+     */
+    @Test
+    public void testShouldHandleEmpty() {
+        assertEquals(0, CartesianProduct.of(Arrays.asList("a", "b"), Collections.emptyList()).stream().count());
+        final CartesianProduct<String> none = CartesianProduct.of(Collections.emptyList());
+        assertEquals(1, none.size());
+        assertEquals(Collections.emptyList(), none.get(0));
+    }
+
+    /**
+     * 64 lists of two is 2^64 tuples - too many to count in a long, though the exact number is known
+     */
+    @Test
+    public void testShouldNoticeOverflow() {
+        final List<List<Integer>> lists = Collections.nCopies(64, Arrays.asList(0, 1));
+        final CartesianProduct<Integer> huge = CartesianProduct.of(lists);
+
+        assertEquals(BigInteger.ONE.shiftLeft(64), huge.bigSize());
+        try {
+            huge.size();
+            fail("should not fit in a long");
+        } catch (ArithmeticException ex) {
+            assertTrue(ex.getMessage().contains("18446744073709551616"));
+        }
+    }
+
+    /**
+     * Any tuple of a product far too big to go through is had straight from its index
+     */
+    @Test
+    public void testShouldGetTupleOfHugeProduct() {
+        final CartesianProduct<Integer> bits = CartesianProduct.of(Collections.nCopies(62, Arrays.asList(0, 1)));
+
+        assertEquals(1L << 62, bits.size());
+        assertEquals(Arrays.asList(1, 1, 0), bits.get((1L << 62) - 2).subList(59, 62));
+        assertEquals(Arrays.asList(0, 1, 0, 1), bits.get(5).subList(58, 62));
+    }
+
+    /**
+     * Splitting gives halves by index, which together still make every tuple in order
+     */
+    @Test
+    public void testShouldSplitEvenly() {
+        final Spliterator<List<String>> second = product.spliterator();
+        final Spliterator<List<String>> first = second.trySplit();
+
+        assertEquals(8, first.estimateSize());
+        assertEquals(8, second.estimateSize());
+        assertTrue(second.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        final List<List<String>> tuples = new ArrayList<>();
+        first.forEachRemaining(tuples::add);
+        second.forEachRemaining(tuples::add);
+        assertEquals(product.stream().collect(Collectors.toList()), tuples);
+    }
+
+    /**
+     * Split part way through, the first half carries on from where it had got to
+     */
+    @Test
+    public void testShouldSplitAfterStarting() {
+        final Spliterator<List<String>> spliterator = product.spliterator();
+        final List<List<String>> tuples = new ArrayList<>();
+        spliterator.tryAdvance(tuples::add);
+        spliterator.tryAdvance(tuples::add);
+        final Spliterator<List<String>> prefix = spliterator.trySplit();
+        prefix.forEachRemaining(tuples::add);
+        spliterator.forEachRemaining(tuples::add);
+
+        assertEquals(product.stream().collect(Collectors.toList()), tuples);
+    }
+
+    @Test
+    public void testParallelShouldMatchSequential() {
+        final List<List<Integer>> lists = Arrays.asList(
+                range(7), range(1), range(13), range(5), range(11));
+        final CartesianProduct<Integer> numbers = CartesianProduct.of(lists);
+
+        assertEquals(numbers.stream().collect(Collectors.toList()), numbers.parallelStream().collect(Collectors.toList()));
+        assertEquals(7 * 13 * 5 * 11, numbers.parallelStream().count());
+    }
+
+    /**
+     * As the feature file has it
+     */
+    @Test
+    public void testShouldWriteAsText() {
+        final Set<Set<String>> setOfSets = new LinkedHashSet<>();
+        setOfSets.add(new LinkedHashSet<>(Arrays.asList("a", "b")));
+        setOfSets.add(new LinkedHashSet<>(Arrays.asList("1", "2", "3", "4")));
+        setOfSets.add(new LinkedHashSet<>(Arrays.asList("e", "f")));
+
+        assertEquals("(a, 1, e), (a, 1, f), (a, 2, e), (a, 2, f),\n" +
+                        "(a, 3, e), (a, 3, f), (a, 4, e), (a, 4, f),\n" +
+                        "(b, 1, e), (b, 1, f), (b, 2, e), (b, 2, f),\n" +
+                        "(b, 3, e), (b, 3, f), (b, 4, e), (b, 4, f)",
+                CartesianProduct.calculate(setOfSets));
+    }
+
+    /**
+     * Much more text than the buffer holds, some items bigger than it, and some not ASCII
+     */
+    @Test
+    public void testShouldWriteMoreThanBuffer() throws IOException {
+        final String big = String.join("", Collections.nCopies(10_000, "x"));
+        final CartesianProduct<String> mixed = CartesianProduct.of(
+                Arrays.asList("\u00e9", big, "\u20ac"), range(300).stream().map(String::valueOf).collect(Collectors.toList()));
+        final StringBuilder expected = new StringBuilder();
+        for (long k = 0; k < mixed.size(); k++) {
+            if (k > 0) {
+                expected.append(k % CartesianProduct.TUPLES_PER_LINE == 0 ? ",\n" : ", ");
+            }
+            expected.append('(').append(String.join(", ", mixed.get(k))).append(')');
+        }
+
+        final StringWriter text = new StringWriter();
+        mixed.writeTo(text);
+        assertEquals(expected.toString(), text.toString());
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mixed.writeTo(bytes);
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testShouldWriteNothingForEmpty() {
+        final Set<Set<String>> setOfSets = new LinkedHashSet<>();
+        setOfSets.add(Collections.singleton("a"));
+        setOfSets.add(Collections.emptySet());
+
+        assertEquals("", CartesianProduct.calculate(setOfSets));
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.coveros.training.cartesianproduct;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class PrunedProductTests {
+
+    private final CartesianProduct<String> product = CartesianProduct.of(
+            Arrays.asList("chrome", "firefox", "safari"),
+            Arrays.asList("windows", "mac", "linux"),
+            Arrays.asList("en", "fr"));
+
+    /**
+     * A test matrix: safari only runs on a mac
+     */
+    @Test
+    public void testShouldLeaveOutWhatCantGoTogether() {
+        final PrunedProduct<String> matrix = product.where(1, prefix -> !prefix.get(0).equals("safari") || prefix.get(1).equals("mac"));
+
+        final List<List<String>> tuples = matrix.stream().collect(Collectors.toList());
+
+        assertEquals(product.stream()
+                .filter(tuple -> !tuple.get(0).equals("safari") || tuple.get(1).equals("mac"))
+                .collect(Collectors.toList()), tuples);
+        assertEquals(14, tuples.size());
+        assertEquals(14, matrix.count());
+    }
+
+    /**
+     * Once a start fails, nothing starting that way is looked at
+     */
+    @Test
+    public void testShouldPruneWholeSubtrees() {
+        final AtomicInteger looked = new AtomicInteger();
+        final PrunedProduct<String> noFirefox = product
+                .where(0, prefix -> !prefix.get(0).equals("firefox"))
+                .where(2, prefix -> {
+                    looked.incrementAndGet();
+                    return true;
+                });
+
+        assertEquals(12, noFirefox.count());
+        assertEquals(12, looked.get());
+    }
+
+    /**
+     * Tests at the same position must all pass
+     */
+    @Test
+    public void testShouldCombineTests() {
+        final PrunedProduct<String> pruned = product
+                .where(2, prefix -> prefix.get(2).equals("en"))
+                .where(2, prefix -> prefix.get(1).equals("linux"));
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("chrome", "linux", "en"),
+                Arrays.asList("firefox", "linux", "en"),
+                Arrays.asList("safari", "linux", "en")), pruned.stream().collect(Collectors.toList()));
+    }
+
+    /**
+     * A test is given only the items chosen so far
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPrefixShouldHaveOnlyChosenItems() {
+        product.where(0, prefix -> prefix.get(1) != null).count();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseMissingPosition() {
+        product.where(3, prefix -> true);
+    }
+
+    @Test
+    public void testParallelShouldMatchSequential() {
+        final List<List<Integer>> lists = Arrays.asList(range(17), range(9), range(1), range(8), range(7));
+        final Predicate<List<Integer>> sumsToMultipleOfThree = prefix -> (prefix.get(0) + prefix.get(1)) % 3 == 0;
+        final PrunedProduct<Integer> pruned = CartesianProduct.of(lists)
+                .where(1, sumsToMultipleOfThree)
+                .where(4, prefix -> prefix.get(3) < prefix.get(4));
+
+        final List<List<Integer>> sequential = pruned.stream().collect(Collectors.toList());
+
+        assertEquals(CartesianProduct.of(lists).stream()
+                .filter(sumsToMultipleOfThree)
+                .filter(tuple -> tuple.get(3) < tuple.get(4))
+                .collect(Collectors.toList()), sequential);
+        assertEquals(sequential, pruned.parallelStream().collect(Collectors.toList()));
+        assertEquals(sequential.size(), pruned.count());
+    }
+
+    @Test
+    public void testShouldHandleEmpty() {
+        assertEquals(0, CartesianProduct.of(Collections.<String>emptyList(), Arrays.asList("a")).where(1, prefix -> true).count());
+        assertEquals(0, CartesianProduct.of(Arrays.asList("a"), Collections.<String>emptyList()).where(0, prefix -> true).stream().count());
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.coveros.training.helpers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTests {
+
+    /**
+     * Whatever goes in is always found again
+     */
+    @Test
+    public void testShouldHaveNoFalseNegatives() {
+        final BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+    }
+
+    /**
+     * Filled to its expected size, the filter is wrong about as often as it was sized for
+     */
+    @Test
+    public void testShouldKeepNearTheFalsePositiveRate() {
+        final BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("stranger" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue("false positives: " + falsePositives, falsePositives < 2000);
+    }
+
+    @Test
+    public void testShouldSizeForTheRate() {
+        final BloomFilter filter = BloomFilter.create(10_000, 0.01);
+
+        // about 9.6 bits and 7 hashes per value, for 1%
+        assertEquals(7, filter.getHashCount());
+        assertTrue(filter.getMemoryBytes() > 11_000 && filter.getMemoryBytes() < 13_000);
+    }
+
+    @Test
+    public void testEmptyFilterShouldContainNothing() {
+        assertFalse(BloomFilter.create(100, 0.01).mightContain("alice"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectImpossibleRate() {
+        BloomFilter.create(100, 1.0);
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.coveros.training.helpers;
+
+import com.coveros.training.tracing.RequestTrace;
+import com.coveros.training.tracing.Span;
+import com.coveros.training.tracing.Tracing;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class BoundedWorkerPoolTests {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private BoundedWorkerPool pool;
+    private CountDownLatch release;
+
+    @Before
+    public void init() {
+        pool = new BoundedWorkerPool("test-pool", 1, 1, 0);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void cleanup() {
+        release.countDown();
+        pool.shutdown();
+    }
+
+    /**
+     * The caller gets back whatever the task returned
+     */
+    @Test
+    public void testShouldReturnTaskResult() {
+        final int result = pool.run("add", () -> 2 + 2, ONE_SECOND);
+
+        assertEquals(4, result);
+        assertEquals(1, pool.getCompletedCount());
+    }
+
+    /**
+     * An exception thrown by the task comes out as-is, not wrapped
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRethrowTaskException() {
+        pool.run("fail", () -> {
+            throw new IllegalArgumentException("bad input");
+        }, ONE_SECOND);
+    }
+
+    /**
+     * With the only thread busy and the queue full, more work is turned away right away
+     */
+    @Test
+    public void testShouldRejectWhenQueueIsFull() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        startInBackground(() -> pool.run("block", () -> {
+            started.countDown();
+            release.await();
+            return 0;
+        }, ONE_SECOND * 10));
+        started.await();
+        startInBackground(() -> pool.run("wait in queue", () -> 0, ONE_SECOND * 10));
+        while (pool.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            pool.run("one too many", () -> 0, ONE_SECOND);
+            fail("expected the pool to reject the task");
+        } catch (RejectedExecutionException ex) {
+            assertEquals(1, pool.getRejectedCount());
+        }
+    }
+
+    /**
+     * A task that runs too long is cancelled, and the caller gets a {@link TaskTimeoutException}
+     */
+    @Test
+    public void testShouldTimeOutSlowTask() {
+        try {
+            pool.run("slow", () -> {
+                release.await();
+                return 0;
+            }, TimeUnit.MILLISECONDS.toNanos(20));
+            fail("expected the task to time out");
+        } catch (TaskTimeoutException ex) {
+            assertEquals(1, pool.getTimedOutCount());
+        }
+    }
+
+    /**
+     * A batch comes back with every result, in the order the tasks were given
+     */
+    @Test
+    public void testShouldRunBatchInOrder() {
+        pool.shutdown();
+        pool = new BoundedWorkerPool("test-pool", 3, 10, 0);
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int n = i;
+            tasks.add(() -> n * n);
+        }
+
+        final List<Integer> results = pool.runAll("squares", tasks, ONE_SECOND * 10);
+
+        assertEquals(50, results.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i * i, (int) results.get(i));
+        }
+        assertEquals(50, pool.getCompletedCount());
+    }
+
+    /**
+     * If one task in a batch fails, the caller gets its exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRethrowBatchTaskException() {
+        pool.runAll("fail", Arrays.<Callable<Integer>>asList(() -> 1, () -> {
+            throw new IllegalArgumentException("bad input");
+        }, () -> 3), ONE_SECOND);
+    }
+
+    /**
+     * A batch that runs too long is given up on
+     */
+    @Test
+    public void testShouldTimeOutSlowBatch() {
+        try {
+            pool.runAll("slow", Arrays.<Callable<Integer>>asList(() -> 1, () -> {
+                release.await();
+                return 2;
+            }), TimeUnit.MILLISECONDS.toNanos(20));
+            fail("expected the batch to time out");
+        } catch (TaskTimeoutException ex) {
+            assertEquals(1, pool.getTimedOutCount());
+        }
+    }
+
+    /**
+     * A task running on the pool that asks the pool for more work gets it run right
+     * away - waiting in the queue behind itself, it would never finish
+     */
+    @Test
+    public void testShouldRunNestedTaskInline() {
+        final int result = pool.run("outer", () -> pool.run("inner", () -> 2 + 2, ONE_SECOND), ONE_SECOND);
+
+        assertEquals(4, result);
+    }
+
+    /**
+     * While a batch is being worked through, a task from someone else that is waiting
+     * in the queue gets its turn before the batch is done
+     */
+    @Test
+    public void testShouldLetQueuedTaskInBeforeBatchFinishes() throws InterruptedException {
+        pool.shutdown();
+        pool = new BoundedWorkerPool("test-pool", 1, 10, 0);
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final AtomicBoolean otherRan = new AtomicBoolean();
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            firstStarted.countDown();
+            release.await();
+            return true;
+        });
+        // did the other caller's task get to run before this one?
+        tasks.add(otherRan::get);
+        final List<List<Boolean>> batchResults = new ArrayList<>();
+        final Thread batch = new Thread(() -> batchResults.add(pool.runAll("batch", tasks, ONE_SECOND * 10)));
+        batch.start();
+        firstStarted.await();
+        startInBackground(() -> pool.run("other", () -> {
+            otherRan.set(true);
+            return 0;
+        }, ONE_SECOND * 10));
+        while (pool.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+
+        release.countDown();
+        batch.join();
+
+        assertEquals(Arrays.asList(true, true), batchResults.get(0));
+    }
+
+    private static void startInBackground(Runnable runnable) {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * A task logs with its caller's correlation id, and its spans go into its caller's trace -
+     * and none of that is left behind on the worker afterwards
+     */
+    @Test
+    public void testShouldCarryRequestContextToWorkers() {
+        final RequestTrace trace = Tracing.begin("request-42", "POST /register");
+        final List<String> requestIds;
+        try {
+            pool.run("hash", () -> {
+                try (Span span = Tracing.span("hashing")) {
+                    return MDC.get(Tracing.MDC_REQUEST_ID);
+                }
+            }, ONE_SECOND);
+            requestIds = pool.runAll("check", Arrays.asList(
+                    () -> MDC.get(Tracing.MDC_REQUEST_ID),
+                    () -> MDC.get(Tracing.MDC_REQUEST_ID)), ONE_SECOND);
+        } finally {
+            Tracing.end();
+        }
+
+        assertEquals(Arrays.asList("request-42", "request-42"), requestIds);
+        final List<Span> spans = trace.root().children();
+        assertEquals("test-pool: hash", spans.get(0).name);
+        assertEquals("hashing", spans.get(0).children().get(0).name);
+        assertTrue(spans.get(0).children().get(0).isFinished());
+        assertEquals(Arrays.asList(null, false), pool.run("look", () -> Arrays.asList(
+                MDC.get(Tracing.MDC_REQUEST_ID), Tracing.current().isPresent()), ONE_SECOND));
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.coveros.training.mathematics;
 
+import com.coveros.training.helpers.BoundedWorkerPool;
 import com.coveros.training.helpers.ServletUtils;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -10,7 +11,10 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class AckServletTests {
@@ -32,7 +36,63 @@ public class AckServletTests {
 
         ackServlet.doPost(request, response);
 
-        verify(ackServlet).regularRecursive(request, 2, 3);
+        verify(ackServlet).closedForm(request, 2, 3, AckServlet.DEFAULT_LAST_DIGITS);
+        verify(request).setAttribute("result", BigInteger.valueOf(9));
+    }
+
+    /**
+     * Past what can be written out, we describe the number instead
+     */
+    @Test
+    public void testPostService_tooBigToWriteOut() {
+        when(request.getParameter("ack_param_m")).thenReturn("4");
+        when(request.getParameter("ack_param_n")).thenReturn("3");
+        when(request.getParameter("ack_algorithm_choice")).thenReturn("default_recursive");
+        when(request.getParameter("ack_last_digits")).thenReturn("4");
+        doNothing().when(ackServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        ackServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", AckermannClosedForm.of(4, 3).toJson(4));
+    }
+
+    /**
+     * A number too big to write out on the request thread is written out once on the math workers, and kept
+     */
+    @Test
+    public void testPostService_bigDecimalOnMathWork() {
+        final int originalStreamAboveBits = FibServlet.streamAboveBits;
+        final MathResultCache originalResults = MathWork.results;
+        FibServlet.streamAboveBits = 64;
+        MathWork.results = new MathResultCache(1_000_000);
+        try {
+            when(request.getParameter("ack_param_m")).thenReturn("3");
+            when(request.getParameter("ack_param_n")).thenReturn("70");
+            when(request.getParameter("ack_algorithm_choice")).thenReturn("regular_recursive");
+            doNothing().when(ackServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+            ackServlet.doPost(request, response);
+            ackServlet.doPost(request, response);
+
+            verify(request, times(2)).setAttribute("result", BigInteger.ONE.shiftLeft(73).subtract(BigInteger.valueOf(3)).toString());
+            assertEquals(1, MathWork.results.getMissCount());
+            assertEquals(1, MathWork.results.getHitCount());
+        } finally {
+            FibServlet.streamAboveBits = originalStreamAboveBits;
+            MathWork.results = originalResults;
+        }
+    }
+
+    @Test
+    public void testPostService_negative() {
+        when(request.getParameter("ack_param_m")).thenReturn("-1");
+        when(request.getParameter("ack_param_n")).thenReturn("3");
+        when(request.getParameter("ack_algorithm_choice")).thenReturn("default_recursive");
+        doNothing().when(ackServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        ackServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", "Error: m and n must not be negative");
     }
 
     /**
@@ -50,6 +110,51 @@ public class AckServletTests {
         verify(ackServlet).tailRecursive(request, 2, 3);
     }
 
+    /**
+     * A(4, 2) would take about as many steps as it has digits - 19,729 of them - so it gives up
+     */
+    @Test
+    public void testPostService_TailRecursiveExceedsBudget() {
+        final long originalTimeout = MathWork.timeoutMillis;
+        MathWork.timeoutMillis = 200;
+        try {
+            when(request.getParameter("ack_param_m")).thenReturn("4");
+            when(request.getParameter("ack_param_n")).thenReturn("2");
+            when(request.getParameter("ack_algorithm_choice")).thenReturn("tail_recursive");
+            doNothing().when(ackServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+            ackServlet.doPost(request, response);
+
+            verify(request).setAttribute("result", MathWork.EXCEEDED_BUDGET_MESSAGE);
+        } finally {
+            MathWork.timeoutMillis = originalTimeout;
+        }
+    }
+
+    @Test
+    public void testPostService_TailRecursiveTooBusy() {
+        final BoundedWorkerPool originalPool = MathWork.pool;
+        final MathResultCache originalResults = MathWork.results;
+        MathWork.pool = mock(BoundedWorkerPool.class);
+        MathWork.results = new MathResultCache(0);
+        when(MathWork.pool.run(anyString(), any(), anyLong())).thenThrow(new RejectedExecutionException());
+        try {
+            when(request.getParameter("ack_param_m")).thenReturn("2");
+            when(request.getParameter("ack_param_n")).thenReturn("3");
+            when(request.getParameter("ack_algorithm_choice")).thenReturn("tail_recursive");
+            doNothing().when(ackServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+            ackServlet.doPost(request, response);
+
+            verify(request).setAttribute("result", MathWork.BUSY_MESSAGE);
+            verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            verify(response).setHeader("Retry-After", MathWork.RETRY_AFTER_SECONDS);
+        } finally {
+            MathWork.pool = originalPool;
+            MathWork.results = originalResults;
+        }
+    }
+
     /**
      * Here we allow a call into the actual forwardToResult method.
      */
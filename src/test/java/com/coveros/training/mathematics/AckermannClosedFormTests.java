@@ -0,0 +1,133 @@
+package com.coveros.training.mathematics;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+public class AckermannClosedFormTests {
+
+    private static final BigInteger TEN_TO_THE_18 = BigInteger.TEN.pow(18);
+
+    /**
+     * The same as recursing, everywhere recursing can get to
+     */
+    @Test
+    public void testShouldMatchRecursion() {
+        for (int m = 0; m <= 3; m++) {
+            for (int n = 0; n <= 5; n++) {
+                assertEquals("for A(" + m + ", " + n + ")", Ackermann.calculate(m, n), AckermannClosedForm.of(m, n).exact(Long.MAX_VALUE));
+            }
+        }
+        assertEquals(BigInteger.valueOf(13), AckermannClosedForm.of(4, 0).exact(64));
+        assertEquals(BigInteger.valueOf(65533), AckermannClosedForm.of(4, 1).exact(64));
+        assertEquals(BigInteger.valueOf(65533), AckermannClosedForm.of(5, 0).exact(64));
+    }
+
+    @Test
+    public void testShouldGiveA42() {
+        final BigInteger expected = BigInteger.ONE.shiftLeft(65536).subtract(BigInteger.valueOf(3));
+
+        assertEquals(expected, AckermannClosedForm.of(4, 2).exact(1 << 20));
+        assertEquals(expected, AckermannIterative.calculate(4, 2));
+    }
+
+    @Test
+    public void testShouldNotWriteOutTooManyBits() {
+        assertNull(AckermannClosedForm.of(3, 100).exact(100));
+        assertNotNull(AckermannClosedForm.of(3, 97).exact(100));
+        assertNull(AckermannClosedForm.of(4, 3).exact(Long.MAX_VALUE));
+        assertNull(AckermannClosedForm.of(5, 2).exact(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testShouldCountDigits() {
+        for (int n = 0; n <= 1000; n += 37) {
+            final AckermannClosedForm value = AckermannClosedForm.of(3, n);
+            assertEquals("for n = " + n, BigInteger.valueOf(value.exact(Long.MAX_VALUE).toString().length()), value.digitCount());
+        }
+        assertEquals(BigInteger.valueOf(19729), AckermannClosedForm.of(4, 2).digitCount());
+        assertEquals(BigInteger.valueOf(3), AckermannClosedForm.of(2, 50).digitCount());
+        assertNull(AckermannClosedForm.of(4, 3).digitCount());
+    }
+
+    /**
+     * A(3, 10^18) has about 3 * 10^17 digits - too many to write, but easy to count
+     */
+    @Test
+    public void testShouldCountDigitsOfHugePowers() {
+        assertEquals(new BigInteger("301029995663981196"), AckermannClosedForm.of(3, 1_000_000_000_000_000_000L - 3).digitCount());
+    }
+
+    @Test
+    public void testShouldGiveLastDigitsOfWhatCanBeWritten() {
+        for (long[] mn : new long[][]{{1, 5}, {2, 1000}, {3, 0}, {3, 10}, {3, 200}, {4, 1}, {4, 2}}) {
+            final AckermannClosedForm value = AckermannClosedForm.of(mn[0], mn[1]);
+            final String full = value.exact(Long.MAX_VALUE).toString();
+            for (int k : new int[]{1, 4, 18}) {
+                assertEquals("for A(" + mn[0] + ", " + mn[1] + ")", full.substring(Math.max(0, full.length() - k)), value.lastDigits(k));
+            }
+        }
+    }
+
+    /**
+     * 2^2^2^2^2^2 can't be written out, but its exponent can - so BigInteger's modPow can check its last digits
+     */
+    @Test
+    public void testShouldGiveLastDigitsOfA43() {
+        final BigInteger twoToThe65536 = BigInteger.ONE.shiftLeft(65536);
+        final BigInteger expected = BigInteger.valueOf(2).modPow(twoToThe65536, TEN_TO_THE_18).subtract(BigInteger.valueOf(3));
+
+        assertEquals(String.format("%018d", expected), AckermannClosedForm.of(4, 3).lastDigits(18));
+        assertEquals(expected.toString().substring(8), AckermannClosedForm.of(4, 3).lastDigits(10));
+    }
+
+    /**
+     * The last digits of a tall enough tower don't change as it gets taller - so they're
+     * known even for A(5, 1), a tower 65536 twos high, and A(6, 6), whose height can't be written down
+     */
+    @Test
+    public void testShouldGiveLastDigitsOfEndlessTowers() {
+        final String stable = AckermannClosedForm.of(4, 1000).lastDigits(18);
+
+        assertEquals(stable, AckermannClosedForm.of(4, 100).lastDigits(18));
+        assertEquals(stable, AckermannClosedForm.of(5, 1).lastDigits(18));
+        assertEquals(stable, AckermannClosedForm.of(6, 6).lastDigits(18));
+        assertEquals(AckermannClosedForm.towerMod(80, 1_000_000_000_000_000_000L), AckermannClosedForm.towerMod(81, 1_000_000_000_000_000_000L));
+    }
+
+    @Test
+    public void testShouldDescribeForm() {
+        assertEquals("2^(5+3) - 3", AckermannClosedForm.of(3, 5).form());
+        assertEquals("2^^6 - 3", AckermannClosedForm.of(4, 3).form());
+        assertEquals("2^^65536 - 3", AckermannClosedForm.of(6, 0).form());
+        assertEquals("2[5](2+3) - 3", AckermannClosedForm.of(5, 2).form());
+    }
+
+    @Test
+    public void testShouldGiveJson() {
+        assertEquals("{\"m\": 4, \"n\": 2, \"form\": \"2^^5 - 3\", \"digits\": 19729, \"lastDigits\": \"156733\"}",
+                AckermannClosedForm.of(4, 2).toJson(6));
+        assertTrue(AckermannClosedForm.of(4, 3).toJson(3).contains("\"digits\": null"));
+    }
+
+    @Test
+    public void testShouldFindTotients() {
+        assertEquals(1, AckermannClosedForm.totient(1));
+        assertEquals(4, AckermannClosedForm.totient(10));
+        assertEquals(400_000_000_000_000_000L, AckermannClosedForm.totient(1_000_000_000_000_000_000L));
+        assertEquals(96, AckermannClosedForm.totient(97));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseNegative() {
+        AckermannClosedForm.of(-1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseTooManyDigits() {
+        AckermannClosedForm.of(4, 3).lastDigits(19);
+    }
+
+}
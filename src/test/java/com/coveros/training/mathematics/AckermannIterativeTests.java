@@ -0,0 +1,73 @@
+package com.coveros.training.mathematics;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AckermannIterativeTests {
+
+    @Test
+    public void testShouldMatchClosedForm() {
+        for (int m = 0; m <= 3; m++) {
+            for (int n = 0; n <= 8; n++) {
+                assertEquals("for A(" + m + ", " + n + ")", AckermannClosedForm.of(m, n).exact(Long.MAX_VALUE), AckermannIterative.calculate(m, n));
+            }
+        }
+        assertEquals(BigInteger.valueOf(13), AckermannIterative.calculate(4, 0));
+        assertEquals(BigInteger.valueOf(65533), AckermannIterative.calculate(4, 1));
+        assertEquals(BigInteger.valueOf(65533), AckermannIterative.calculate(5, 0));
+    }
+
+    /**
+     * A(3, 61) = 2^64 - 3 is too big for a long, so n has to carry on as a BigInteger - and A(3, 200)
+     * needs a deeper stack than it starts with
+     */
+    @Test
+    public void testShouldCarryOnPastLong() {
+        for (int n = 58; n <= 70; n++) {
+            assertEquals("for A(3, " + n + ")", AckermannClosedForm.of(3, n).exact(Long.MAX_VALUE), AckermannIterative.calculate(3, n));
+        }
+        assertEquals(AckermannClosedForm.of(3, 200).exact(Long.MAX_VALUE), AckermannIterative.calculate(3, 200));
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE),
+                AckermannIterative.calculate(0, Long.MAX_VALUE, TailRecursive.Budget.of(10, Long.MAX_VALUE)));
+    }
+
+    /**
+     * A(3, 0) = A(2, 1) takes two steps: one to put 2 on the stack, one to work it out
+     */
+    @Test
+    public void testShouldStopAtBudget() {
+        assertEquals(BigInteger.valueOf(5), AckermannIterative.calculate(3, 0, TailRecursive.Budget.of(2, Long.MAX_VALUE)));
+        try {
+            AckermannIterative.calculate(3, 0, TailRecursive.Budget.of(1, Long.MAX_VALUE));
+            fail("should have run out of steps");
+        } catch (BudgetExceededException ex) {
+            assertTrue(ex.getMessage().contains("1 steps"));
+        }
+    }
+
+    /**
+     * Being cancelled is checked every so often, not every step
+     */
+    @Test
+    public void testShouldStopWhenCancelled() {
+        final AtomicInteger asked = new AtomicInteger();
+        try {
+            AckermannIterative.calculate(4, 3, TailRecursive.Budget.unlimited().withCancellation(() -> asked.incrementAndGet() == 3));
+            fail("should have been cancelled");
+        } catch (CancellationException ex) {
+            assertEquals(3, asked.get());
+            assertTrue(ex.getMessage().contains(String.valueOf(3L * TailRecursive.Budget.CHECK_INTERVAL)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseNegative() {
+        AckermannIterative.calculate(1, -1);
+    }
+
+}
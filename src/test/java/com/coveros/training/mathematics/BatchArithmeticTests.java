@@ -0,0 +1,167 @@
+package com.coveros.training.mathematics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BatchArithmeticTests {
+
+    private final int originalParallelBytes = BatchArithmetic.parallelBytes;
+    private final ForkJoinPool originalPool = BatchArithmetic.pool;
+
+    @After
+    public void cleanup() {
+        if (BatchArithmetic.pool != originalPool) {
+            BatchArithmetic.pool.shutdown();
+        }
+        BatchArithmetic.parallelBytes = originalParallelBytes;
+        BatchArithmetic.pool = originalPool;
+    }
+
+    private static String addCsv(String csv) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BatchArithmetic.addAll(new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)), out, BatchArithmetic.Encoding.CSV);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static int[] addBinary(int[] operands) throws IOException {
+        final ByteBuffer body = ByteBuffer.allocate(operands.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        body.asIntBuffer().put(operands);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final long pairs = BatchArithmetic.addAll(new ByteArrayInputStream(body.array()), out, BatchArithmetic.Encoding.BINARY);
+        assertEquals(operands.length / 2, pairs);
+        final int[] sums = new int[(int) pairs];
+        ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(sums);
+        return sums;
+    }
+
+    @Test
+    public void testShouldAddCsv() throws IOException {
+        assertEquals("5\n-1\n0\n", addCsv("2,3\n-4,3\n0,0\n"));
+    }
+
+    /**
+     * Spaces, Windows line ends, blank lines and a missing last line end are all fine
+     */
+    @Test
+    public void testShouldReadLooseCsv() throws IOException {
+        assertEquals("5\n7\n", addCsv(" 2 , 3\r\n\n+3,\t4"));
+        assertEquals("", addCsv(""));
+    }
+
+    /**
+     * Like {@link Calculator#add(int, int)}, a sum too big for an int wraps around
+     */
+    @Test
+    public void testShouldWrapLikeCalculator() throws IOException {
+        assertEquals(Calculator.add(Integer.MAX_VALUE, 1) + "\n-2147483648\n",
+                addCsv("2147483647,1\n-2147483648,0\n"));
+        assertArrayEquals(new int[]{Calculator.add(Integer.MIN_VALUE, -1)}, addBinary(new int[]{Integer.MIN_VALUE, -1}));
+    }
+
+    @Test
+    public void testShouldSayWhichLineIsBad() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            BatchArithmetic.addAll(new ByteArrayInputStream("1,2\n\n3;4\n".getBytes(StandardCharsets.US_ASCII)), out, BatchArithmetic.Encoding.CSV);
+            fail("should have refused line 3");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("line 3 should be two integers, separated by a comma", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testShouldRefuseNumbersOutOfRange() throws IOException {
+        try {
+            addCsv("1,2147483648\n");
+            fail("should have refused the number");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("line 1 has a number outside -2147483648 to 2147483647", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testShouldAddBinary() throws IOException {
+        assertArrayEquals(new int[]{5, -1, 0}, addBinary(new int[]{2, 3, -4, 3, 0, 0}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseHalfPair() throws IOException {
+        BatchArithmetic.addAll(new ByteArrayInputStream(new byte[12]), new ByteArrayOutputStream(), BatchArithmetic.Encoding.BINARY);
+    }
+
+    /**
+     * Bigger than a block, so lines are carried from one block to the next, and summed in parallel
+     */
+    @Test
+    public void testShouldAddManyInParallel() throws IOException {
+        BatchArithmetic.parallelBytes = 1000;
+        BatchArithmetic.pool = new ForkJoinPool(4);
+        final Random random = new Random(42);
+        final int count = 200_000;
+        final int[] operands = random.ints(2 * count).toArray();
+        final StringBuilder csv = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            csv.append(operands[2 * i]).append(',').append(operands[2 * i + 1]).append('\n');
+            expected.append(operands[2 * i] + operands[2 * i + 1]).append('\n');
+        }
+        assertTrue(csv.length() > BatchArithmetic.BLOCK_BYTES);
+
+        assertEquals(expected.toString(), addCsv(csv.toString()));
+
+        final int[] sums = addBinary(operands);
+        for (int i = 0; i < count; i++) {
+            assertEquals(operands[2 * i] + operands[2 * i + 1], sums[i]);
+        }
+    }
+
+    /**
+     * A second number missing at the very end of a later block is refused, whatever the block
+     * before left behind - here a '-' just where it would be
+     */
+    @Test
+    public void testShouldRefuseHalfPairAfterFullBlock() throws IOException {
+        final StringBuilder csv = new StringBuilder("1,-1   \n");
+        while (csv.length() < BatchArithmetic.BLOCK_BYTES) {
+            csv.append("0,0\n");
+        }
+        assertEquals(BatchArithmetic.BLOCK_BYTES, csv.length());
+        final long lines = csv.chars().filter(c -> c == '\n').count();
+        csv.append("3,");
+        try {
+            addCsv(csv.toString());
+            fail("should have refused the last line");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("line " + (lines + 1) + " should be two integers, separated by a comma", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testShouldWriteInts() {
+        final byte[] text = new byte[12];
+        for (int value : new int[]{0, 7, -7, 1234567890, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            final int end = BatchArithmetic.writeInt(value, text, 0);
+            assertEquals(Integer.toString(value), new String(text, 0, end, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void testShouldKnowContentTypes() {
+        assertEquals(BatchArithmetic.Encoding.CSV, BatchArithmetic.Encoding.fromContentType("text/csv; charset=UTF-8"));
+        assertEquals(BatchArithmetic.Encoding.BINARY, BatchArithmetic.Encoding.fromContentType("application/octet-stream"));
+        assertNull(BatchArithmetic.Encoding.fromContentType("multipart/form-data; boundary=x"));
+        assertNull(BatchArithmetic.Encoding.fromContentType(null));
+    }
+
+}
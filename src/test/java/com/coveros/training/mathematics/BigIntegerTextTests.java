@@ -0,0 +1,138 @@
+package com.coveros.training.mathematics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BigIntegerTextTests {
+
+    private final int originalThreshold = BigIntegerText.parallelThresholdBits;
+    private final ForkJoinPool originalPool = BigIntegerText.pool;
+
+    @After
+    public void cleanup() {
+        if (BigIntegerText.pool != originalPool) {
+            BigIntegerText.pool.shutdown();
+        }
+        BigIntegerText.parallelThresholdBits = originalThreshold;
+        BigIntegerText.pool = originalPool;
+    }
+
+    private static String write(BigInteger x, BigIntegerText.Format format, int k) throws IOException {
+        final StringWriter out = new StringWriter();
+        BigIntegerText.write(x, format, k, out);
+        return out.toString();
+    }
+
+    @Test
+    public void testShouldWriteDecimalLikeToString() throws IOException {
+        final Random random = new Random(42);
+        for (int bits : new int[]{1, 63, 2048, 2049, 10_000, 77_777, 300_000}) {
+            final BigInteger x = new BigInteger(bits, random);
+
+            assertEquals("for " + bits + " bits", x.toString(), write(x, BigIntegerText.Format.DECIMAL, 0));
+            assertEquals("for -" + bits + " bits", x.negate().toString(), write(x.negate(), BigIntegerText.Format.DECIMAL, 0));
+        }
+        assertEquals("0", write(BigInteger.ZERO, BigIntegerText.Format.DECIMAL, 0));
+    }
+
+    /**
+     * Pieces that start with zeros - the low half of 10^k, say - have to keep them
+     */
+    @Test
+    public void testShouldKeepInnerZeros() throws IOException {
+        for (int k : new int[]{700, 1234, 5000, 20_000}) {
+            final BigInteger power = BigInteger.TEN.pow(k);
+            for (BigInteger x : new BigInteger[]{power, power.add(BigInteger.ONE), power.subtract(BigInteger.ONE), power.shiftLeft(1)}) {
+                assertEquals(x.toString(), write(x, BigIntegerText.Format.DECIMAL, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testShouldWriteDecimalInParallel() throws IOException {
+        BigIntegerText.parallelThresholdBits = 1000;
+        BigIntegerText.pool = new ForkJoinPool(4);
+        final Random random = new Random(7);
+        for (int bits : new int[]{1000, 70_000, 400_000}) {
+            final BigInteger x = new BigInteger(bits, random).setBit(bits - 1);
+
+            assertEquals("for " + bits + " bits", x.toString(), write(x, BigIntegerText.Format.DECIMAL, 0));
+            assertEquals(x.negate().toString(), write(x.negate(), BigIntegerText.Format.DECIMAL, 0));
+        }
+        final BigInteger power = BigInteger.TEN.pow(100_000);
+        assertEquals(power.toString(), write(power, BigIntegerText.Format.DECIMAL, 0));
+    }
+
+    @Test
+    public void testShouldWriteHex() throws IOException {
+        final BigInteger x = new BigInteger(50_000, new Random(3));
+        assertEquals(x.toString(16), write(x, BigIntegerText.Format.HEX, 0));
+        assertEquals(x.negate().toString(16), write(x.negate(), BigIntegerText.Format.HEX, 0));
+        assertEquals("0", write(BigInteger.ZERO, BigIntegerText.Format.HEX, 0));
+        assertEquals("ff", write(BigInteger.valueOf(255), BigIntegerText.Format.HEX, 0));
+    }
+
+    /**
+     * The bytes of the magnitude, big-endian, with no extra sign byte
+     */
+    @Test
+    public void testShouldWriteBase64() throws IOException {
+        assertEquals("/w==", write(BigInteger.valueOf(255), BigIntegerText.Format.BASE64, 0));
+        assertEquals("AA==", write(BigInteger.ZERO, BigIntegerText.Format.BASE64, 0));
+        final BigInteger x = new BigInteger(200_003, new Random(5));
+        final byte[] decoded = Base64.getDecoder().decode(write(x, BigIntegerText.Format.BASE64, 0));
+        assertEquals(x, new BigInteger(1, decoded));
+        assertArrayEquals(decoded, Base64.getDecoder().decode(write(x.negate(), BigIntegerText.Format.BASE64, 0)));
+    }
+
+    @Test
+    public void testShouldCountDigits() {
+        for (int k = 1; k < 400; k += 7) {
+            final BigInteger power = BigInteger.TEN.pow(k);
+            assertEquals(k + 1, BigIntegerText.digitCount(power));
+            assertEquals(k, BigIntegerText.digitCount(power.subtract(BigInteger.ONE)));
+            assertEquals(k, BigIntegerText.digitCount(power.subtract(BigInteger.ONE).negate()));
+        }
+        assertEquals(1, BigIntegerText.digitCount(BigInteger.ZERO));
+    }
+
+    @Test
+    public void testShouldGiveFirstAndLastDigits() throws IOException {
+        // F(100) = 354224848179261915075
+        final BigInteger fib100 = new BigInteger("354224848179261915075");
+        assertEquals("35422", write(fib100, BigIntegerText.Format.FIRST, 5));
+        assertEquals("15075", write(fib100, BigIntegerText.Format.LAST, 5));
+        assertEquals("354224848179261915075", write(fib100, BigIntegerText.Format.FIRST, 50));
+        assertEquals("354224848179261915075", write(fib100, BigIntegerText.Format.LAST, 50));
+        assertEquals("21", write(fib100, BigIntegerText.Format.DIGITS, 0));
+        assertEquals("000", BigIntegerText.lastDigits(BigInteger.TEN.pow(30), 3));
+        assertEquals("100", BigIntegerText.firstDigits(BigInteger.TEN.pow(30), 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseTooManyEdgeDigits() {
+        BigIntegerText.lastDigits(BigInteger.ONE, BigIntegerText.MAX_EDGE_DIGITS + 1);
+    }
+
+    @Test
+    public void testShouldReadFormat() {
+        assertEquals(BigIntegerText.Format.DECIMAL, BigIntegerText.Format.fromParameter(null));
+        assertEquals(BigIntegerText.Format.BASE64, BigIntegerText.Format.fromParameter("base64"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseUnknownFormat() {
+        BigIntegerText.Format.fromParameter("roman");
+    }
+
+}
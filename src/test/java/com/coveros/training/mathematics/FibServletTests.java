@@ -1,6 +1,8 @@
 package com.coveros.training.mathematics;
 
+import com.coveros.training.helpers.BoundedWorkerPool;
 import com.coveros.training.helpers.ServletUtils;
+import com.coveros.training.helpers.TaskTimeoutException;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
@@ -10,7 +12,13 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
 public class FibServletTests {
@@ -62,6 +70,344 @@ public class FibServletTests {
         verify(fibServlet).tailRecursiveAlgo2Calc(request, 2);
     }
 
+    /**
+     * Asking the same question again is answered from the result cache
+     */
+    @Test
+    public void testPostService_cachedResult() {
+        final MathResultCache originalResults = MathWork.results;
+        MathWork.results = new MathResultCache(1_000_000);
+        try {
+            when(request.getParameter("fib_param_n")).thenReturn("5000");
+            when(request.getParameter("fib_algorithm_choice")).thenReturn("tail_recursive_2");
+            doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+            fibServlet.doPost(request, response);
+            fibServlet.doPost(request, response);
+
+            verify(request, times(2)).setAttribute(FibServlet.RESULT, FibonacciIterative.fibAlgo2(5000));
+            assertEquals(1, MathWork.results.getMissCount());
+            assertEquals(1, MathWork.results.getHitCount());
+        } finally {
+            MathWork.results = originalResults;
+        }
+    }
+
+    /**
+     * The default algorithm's own cache keeps its numbers, so they aren't kept twice
+     */
+    @Test
+    public void testPostService_defaultNotCachedTwice() {
+        final MathResultCache originalResults = MathWork.results;
+        final FibonacciCache originalFibonacciCache = FibServlet.fibonacciCache;
+        MathWork.results = new MathResultCache(1_000_000);
+        FibServlet.fibonacciCache = new FibonacciCache(1_000_000);
+        try {
+            when(request.getParameter("fib_param_n")).thenReturn("5000");
+            doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+            fibServlet.doPost(request, response);
+            fibServlet.doPost(request, response);
+
+            verify(request, times(2)).setAttribute(FibServlet.RESULT, FibonacciIterative.fibAlgo2(5000));
+            assertEquals(0, MathWork.results.size());
+            assertEquals(1, FibServlet.fibonacciCache.getHitCount());
+        } finally {
+            MathWork.results = originalResults;
+            FibServlet.fibonacciCache = originalFibonacciCache;
+        }
+    }
+
+    /**
+     * A calculation that runs past the math workers' time budget is reported, not waited on
+     */
+    @Test
+    public void testPostService_exceededBudget() {
+        final BoundedWorkerPool originalPool = MathWork.pool;
+        final MathResultCache originalResults = MathWork.results;
+        MathWork.pool = mock(BoundedWorkerPool.class);
+        MathWork.results = new MathResultCache(0);
+        when(MathWork.pool.run(anyString(), any(), anyLong())).thenThrow(new TaskTimeoutException("fibonacci did not finish in time"));
+        try {
+            when(request.getParameter("fib_param_n")).thenReturn("100000");
+            when(request.getParameter("fib_algorithm_choice")).thenReturn("tail_recursive_2");
+            doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+            fibServlet.doPost(request, response);
+
+            verify(request).setAttribute(FibServlet.RESULT, MathWork.EXCEEDED_BUDGET_MESSAGE);
+        } finally {
+            MathWork.pool = originalPool;
+            MathWork.results = originalResults;
+        }
+    }
+
+    @Test
+    public void testPostService_tooBusy() {
+        final BoundedWorkerPool originalPool = MathWork.pool;
+        final MathResultCache originalResults = MathWork.results;
+        MathWork.pool = mock(BoundedWorkerPool.class);
+        MathWork.results = new MathResultCache(0);
+        when(MathWork.pool.run(anyString(), any(), anyLong())).thenThrow(new RejectedExecutionException());
+        try {
+            when(request.getParameter("fib_param_n")).thenReturn("100");
+            when(request.getParameter("fib_mod")).thenReturn("7");
+            doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+            fibServlet.doPost(request, response);
+
+            verify(request).setAttribute(FibServlet.RESULT, MathWork.BUSY_MESSAGE);
+            verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            verify(response).setHeader("Retry-After", MathWork.RETRY_AFTER_SECONDS);
+        } finally {
+            MathWork.pool = originalPool;
+            MathWork.results = originalResults;
+        }
+    }
+
+    /**
+     * The default algorithm now gives the right answer past where a long overflows
+     */
+    @Test
+    public void testPostService_defaultPastLongOverflow() {
+        when(request.getParameter("fib_param_n")).thenReturn("100");
+        when(request.getParameter("fib_algorithm_choice")).thenReturn("default_recursive");
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", new BigInteger("354224848179261915075"));
+    }
+
+    /**
+     * Values that would take too long are turned away, with a limit for each algorithm
+     */
+    @Test
+    public void testPostService_tooLarge() {
+        when(request.getParameter("fib_param_n")).thenReturn(String.valueOf(FibServlet.maxLinearN + 1));
+        when(request.getParameter("fib_algorithm_choice")).thenReturn("tail_recursive_2");
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        fibServlet.doPost(request, response);
+
+        verify(fibServlet, never()).tailRecursiveAlgo2Calc(Mockito.any(), Mockito.anyInt());
+        verify(request).setAttribute("result", "Error: n is too large - this algorithm allows at most " + FibServlet.maxLinearN);
+    }
+
+    @Test
+    public void testPostService_negative() {
+        when(request.getParameter("fib_param_n")).thenReturn("-3");
+        when(request.getParameter("fib_algorithm_choice")).thenReturn("tail_recursive_1");
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", "Error: n must not be negative");
+    }
+
+    /**
+     * A range is streamed as NDJSON, one number a line
+     */
+    @Test
+    public void testPostService_range() throws IOException {
+        final StringWriter output = new StringWriter();
+        when(request.getParameter("fib_from")).thenReturn("10");
+        when(request.getParameter("fib_to")).thenReturn("12");
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        fibServlet.doPost(request, response);
+
+        assertEquals("{\"n\": 10, \"value\": 55}\n{\"n\": 11, \"value\": 89}\n{\"n\": 12, \"value\": 144}\n",
+                output.toString());
+        verify(response).setContentType("application/x-ndjson");
+        verify(fibServlet, never()).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testPostService_rangeMod() throws IOException {
+        final StringWriter output = new StringWriter();
+        when(request.getParameter("fib_from")).thenReturn("100");
+        when(request.getParameter("fib_to")).thenReturn("101");
+        when(request.getParameter("fib_output")).thenReturn("mod");
+        when(request.getParameter("fib_mod")).thenReturn("1000");
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        fibServlet.doPost(request, response);
+
+        // F(100) = 354224848179261915075, F(101) = 573147844013817084101
+        assertEquals("{\"n\": 100, \"mod\": 75}\n{\"n\": 101, \"mod\": 101}\n", output.toString());
+    }
+
+    @Test
+    public void testPostService_rangeDigits() throws IOException {
+        final StringWriter output = new StringWriter();
+        when(request.getParameter("fib_from")).thenReturn("100");
+        when(request.getParameter("fib_to")).thenReturn("100");
+        when(request.getParameter("fib_output")).thenReturn("digits");
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        fibServlet.doPost(request, response);
+
+        assertEquals("{\"n\": 100, \"digits\": 21}\n", output.toString());
+    }
+
+    /**
+     * Asked for another format, the number is written straight out as plain text
+     */
+    @Test
+    public void testPostService_format() throws IOException {
+        final StringWriter output = new StringWriter();
+        when(request.getParameter("fib_param_n")).thenReturn("100");
+        when(request.getParameter("fib_algorithm_choice")).thenReturn("tail_recursive_2");
+        when(request.getParameter("fib_format")).thenReturn("last");
+        when(request.getParameter("fib_digits")).thenReturn("5");
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        fibServlet.doPost(request, response);
+
+        // F(100) = 354224848179261915075
+        assertEquals("15075", output.toString());
+        verify(response).setContentType("text/plain");
+        verify(fibServlet, never()).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * A number too big to be worth making into one String is streamed even in decimal
+     */
+    @Test
+    public void testPostService_streamBigDecimal() throws IOException {
+        final int originalStreamAboveBits = FibServlet.streamAboveBits;
+        FibServlet.streamAboveBits = 64;
+        try {
+            final StringWriter output = new StringWriter();
+            when(request.getParameter("fib_param_n")).thenReturn("100");
+            when(request.getParameter("fib_algorithm_choice")).thenReturn("tail_recursive_2");
+            when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+            fibServlet.doPost(request, response);
+
+            assertEquals("354224848179261915075", output.toString());
+            verify(fibServlet, never()).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+        } finally {
+            FibServlet.streamAboveBits = originalStreamAboveBits;
+        }
+    }
+
+    @Test
+    public void testPostService_badFormat() {
+        when(request.getParameter("fib_param_n")).thenReturn("100");
+        when(request.getParameter("fib_format")).thenReturn("roman");
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", "Error: fib_format must be decimal, hex, base64, digits, first or last");
+    }
+
+    /**
+     * Once the client stops reading, we stop working out numbers for it
+     */
+    @Test
+    public void testPostService_rangeClientGone() throws IOException {
+        final PrintWriter writer = mock(PrintWriter.class, RETURNS_SELF);
+        when(writer.checkError()).thenReturn(true);
+        when(request.getParameter("fib_from")).thenReturn("0");
+        when(request.getParameter("fib_to")).thenReturn("10000");
+        when(request.getParameter("fib_output")).thenReturn("digits");
+        when(response.getWriter()).thenReturn(writer);
+
+        fibServlet.doPost(request, response);
+
+        verify(writer, times(1)).flush();
+        verify(writer, times(FibServlet.RANGE_FLUSH_LINES)).append("}\n");
+    }
+
+    @Test
+    public void testPostService_rangeProblems() {
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+        when(request.getParameter("fib_from")).thenReturn("5");
+        when(request.getParameter("fib_to")).thenReturn("4");
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", "Error: fib_to must not be less than fib_from");
+        assertEquals("Error: the range is too long - at most " + FibServlet.maxRange + " numbers at a time",
+                FibServlet.checkRange(0, FibServlet.maxRange, FibonacciRange.Output.DIGITS, 0));
+        assertEquals("Error: fib_mod must be positive",
+                FibServlet.checkRange(0, 10, FibonacciRange.Output.MOD, 0));
+        assertEquals("Error: the range would be too much to write out - try fib_output=digits or fib_output=mod",
+                FibServlet.checkRange(FibServlet.maxN - 50_000, FibServlet.maxN, FibonacciRange.Output.VALUE, 0));
+        assertNull(FibServlet.checkRange(FibServlet.maxN - 50_000, FibServlet.maxN, FibonacciRange.Output.DIGITS, 0));
+    }
+
+    @Test
+    public void testPostService_rangeBadOutput() {
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+        when(request.getParameter("fib_from")).thenReturn("5");
+        when(request.getParameter("fib_to")).thenReturn("6");
+        when(request.getParameter("fib_output")).thenReturn("roman");
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", "Error: fib_output must be value, digits or mod");
+    }
+
+    /**
+     * Remainders work for n far past what could be worked out whole
+     */
+    @Test
+    public void testPostService_modular() {
+        when(request.getParameter("fib_param_n")).thenReturn("1000000000000000000");
+        when(request.getParameter("fib_mod")).thenReturn("1000000007");
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", FibonacciModular.calculate(1_000_000_000_000_000_000L, 1_000_000_007L));
+    }
+
+    @Test
+    public void testPostService_modularPisano() {
+        when(request.getParameter("fib_param_n")).thenReturn("100");
+        when(request.getParameter("fib_mod")).thenReturn("1000");
+        when(request.getParameter("fib_pisano")).thenReturn("true");
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", 75L);
+    }
+
+    @Test
+    public void testPostService_modularProblems() {
+        doNothing().when(fibServlet).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+        when(request.getParameter("fib_param_n")).thenReturn("100");
+        when(request.getParameter("fib_mod")).thenReturn("0");
+
+        fibServlet.doPost(request, response);
+
+        verify(request).setAttribute("result", "Error: fib_mod must be positive");
+    }
+
+    /**
+     * A range of remainders can start anywhere
+     */
+    @Test
+    public void testPostService_rangeModPastMaxN() throws IOException {
+        final StringWriter output = new StringWriter();
+        final long from = 1_000_000_000_000L;
+        when(request.getParameter("fib_from")).thenReturn(String.valueOf(from));
+        when(request.getParameter("fib_to")).thenReturn(String.valueOf(from + 1));
+        when(request.getParameter("fib_output")).thenReturn("mod");
+        when(request.getParameter("fib_mod")).thenReturn("97");
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        fibServlet.doPost(request, response);
+
+        assertEquals("{\"n\": " + from + ", \"mod\": " + FibonacciModular.calculate(from, 97) + "}\n" +
+                "{\"n\": " + (from + 1) + ", \"mod\": " + FibonacciModular.calculate(from + 1, 97) + "}\n", output.toString());
+    }
+
     /**
      * Here we allow a call into the actual forwardToResult method.
      */
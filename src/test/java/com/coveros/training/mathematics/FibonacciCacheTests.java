@@ -0,0 +1,79 @@
+package com.coveros.training.mathematics;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+public class FibonacciCacheTests {
+
+    @Test
+    public void testShouldCalculateLikeFastDoubling() {
+        final FibonacciCache cache = new FibonacciCache(1024 * 1024);
+
+        for (long n : new long[]{0, 1, 2, 92, 93, 1023, 1024, 5000, 5001, 10_000, 2500}) {
+            assertEquals("for n = " + n, FibonacciFastDoubling.calculate(n), cache.calculate(n));
+        }
+    }
+
+    /**
+     * A hit hands back the pair to carry on from, without letting the caller change what's cached
+     */
+    @Test
+    public void testShouldGivePairs() {
+        final FibonacciCache cache = new FibonacciCache(1024 * 1024);
+        cache.calculate(3000);
+
+        final BigInteger[] pair = cache.pair(3000);
+        assertArrayEquals(FibonacciFastDoubling.pair(3000), pair);
+        pair[0] = BigInteger.ZERO;
+
+        assertEquals(FibonacciFastDoubling.calculate(3000), cache.calculate(3000));
+        assertArrayEquals(FibonacciFastDoubling.pair(10), cache.pair(10));
+    }
+
+    /**
+     * The same n again is answered straight from the cache, and an n whose leading bits
+     * match an earlier one carries on from where that one got to
+     */
+    @Test
+    public void testShouldSeedLaterRequests() {
+        final FibonacciCache cache = new FibonacciCache(1024 * 1024);
+
+        cache.calculate(100_000);
+        cache.calculate(100_000);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        // 400,001 is 100,000 with two more bits on the end
+        assertEquals(FibonacciFastDoubling.calculate(400_001), cache.calculate(400_001));
+        assertEquals(1, cache.getPartialHitCount());
+    }
+
+    @Test
+    public void testShouldStayWithinMemoryLimit() {
+        final FibonacciCache cache = new FibonacciCache(20_000);
+
+        for (long n = 50_000; n < 60_000; n += 1000) {
+            cache.calculate(n);
+        }
+
+        assertTrue("was " + cache.getCurrentBytes(), cache.getCurrentBytes() <= 20_000);
+        assertTrue(cache.toJson().contains("\"evicted\": "));
+    }
+
+    @Test
+    public void testShouldWorkWhenTurnedOff() {
+        final FibonacciCache cache = new FibonacciCache(0);
+
+        assertEquals(FibonacciFastDoubling.calculate(5000), cache.calculate(5000));
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseNegative() {
+        new FibonacciCache(1024).calculate(-5);
+    }
+
+}
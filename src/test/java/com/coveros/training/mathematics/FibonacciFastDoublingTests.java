@@ -0,0 +1,66 @@
+package com.coveros.training.mathematics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FibonacciFastDoublingTests {
+
+    private static final String FIB_FOR_2000 = "4224696333392304878706725602341482782579852840250681098010280137314308584370130707224123599639141511088446087538909603607640194711643596029271983312598737326253555802606991585915229492453904998722256795316982874482472992263901833716778060607011615497886719879858311468870876264597369086722884023654422295243347964480139515349562972087652656069529806499841977448720155612802665404554171717881930324025204312082516817125";
+
+    /**
+     * Agrees with the simple, n-step version for every n up to a few thousand
+     */
+    @Test
+    public void testShouldMatchIterativeVersion() {
+        for (int n = 0; n <= 3000; n++) {
+            Assert.assertEquals("for n = " + n, FibonacciIterative.fibAlgo2(n), FibonacciFastDoubling.calculate(n));
+        }
+    }
+
+    @Test
+    public void testLargerValue() {
+        Assert.assertEquals(new BigInteger(FIB_FOR_2000), FibonacciFastDoubling.calculate(2000));
+    }
+
+    /**
+     * Starting part way, from the pair for a prefix of n's bits, gives the same answer
+     */
+    @Test
+    public void testShouldContinueFromPrefix() {
+        final long n = 0b1011_0110_1101L;
+        final BigInteger[] prefix = FibonacciFastDoubling.pair(0b1011_0L);
+
+        final BigInteger[] result = FibonacciFastDoubling.walk(n, 0b1011_0L, prefix[0], prefix[1], (k, fk, fk1) -> { });
+
+        Assert.assertEquals(FibonacciIterative.fibAlgo2((int) n), result[0]);
+        Assert.assertEquals(FibonacciIterative.fibAlgo2((int) n + 1), result[1]);
+    }
+
+    /**
+     * The walk tells us about each pair it passes through
+     */
+    @Test
+    public void testShouldReportEachStep() {
+        final List<Long> steps = new ArrayList<>();
+
+        FibonacciFastDoubling.walk(0b1101L, 0, BigInteger.ZERO, BigInteger.ONE, (k, fk, fk1) -> steps.add(k));
+
+        Assert.assertEquals(Arrays.asList(0b1L, 0b11L, 0b110L, 0b1101L), steps);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseNonPrefix() {
+        FibonacciFastDoubling.walk(0b1101L, 0b10L, BigInteger.ONE, BigInteger.ONE, (k, fk, fk1) -> { });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseNegative() {
+        FibonacciFastDoubling.calculate(-1);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.coveros.training.mathematics;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FibonacciModularTests {
+
+    /**
+     * Small enough to multiply directly, odd ones too big for that, and even ones too big for that
+     */
+    private static final long[] MODULI = {1, 2, 10, 1_000_000_007L, FibonacciModular.SMALL_MODULUS,
+            FibonacciModular.SMALL_MODULUS + 1, FibonacciModular.SMALL_MODULUS + 2, (1L << 54) + 1,
+            1_000_000_000_000_000_003L, 1L << 62, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+
+    /**
+     * The same remainders as working out the whole number, both where a product of
+     * remainders fits in a long and where it doesn't
+     */
+    @Test
+    public void testShouldMatchBigInteger() {
+        for (long m : MODULI) {
+            final BigInteger modulus = BigInteger.valueOf(m);
+            for (long n : new long[]{0, 1, 2, 3, 92, 93, 94, 1000, 1001, 4097}) {
+                assertEquals("for n = " + n + " mod " + m,
+                        FibonacciFastDoubling.calculate(n).mod(modulus).longValue(), FibonacciModular.calculate(n, m));
+            }
+        }
+    }
+
+    @Test
+    public void testShouldMultiplyWithoutOverflow() {
+        final Random random = new Random(11);
+        for (int i = 0; i < 1000; i++) {
+            // moduli of every size, so each way of reducing the product gets tried
+            final long m = Math.max(2, (random.nextLong() >>> 1) >>> random.nextInt(40));
+            final long a = (random.nextLong() >>> 1) % m;
+            final long b = (random.nextLong() >>> 1) % m;
+            assertEquals(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(BigInteger.valueOf(m)).longValue(),
+                    FibonacciModular.multiplyMod(a, b, m));
+        }
+    }
+
+    @Test
+    public void testShouldFindNegativeInverse() {
+        final Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            final long m = (random.nextLong() >>> 1) | 1;
+            assertEquals(-1L, m * FibonacciModular.negativeInverse(m));
+        }
+    }
+
+    @Test
+    public void testShouldFindPisanoPeriods() {
+        assertEquals(1, FibonacciModular.pisanoPeriod(1));
+        assertEquals(3, FibonacciModular.pisanoPeriod(2));
+        assertEquals(20, FibonacciModular.pisanoPeriod(5));
+        assertEquals(16, FibonacciModular.pisanoPeriod(7));
+        assertEquals(60, FibonacciModular.pisanoPeriod(10));
+        assertEquals(10, FibonacciModular.pisanoPeriod(11));
+        assertEquals(100, FibonacciModular.pisanoPeriod(25));
+        assertEquals(1500, FibonacciModular.pisanoPeriod(1000));
+        assertEquals(2_000_000_016L, FibonacciModular.pisanoPeriod(1_000_000_007L));
+    }
+
+    /**
+     * Against stepping through the sequence until it comes back to 0, 1
+     */
+    @Test
+    public void testShouldFindSamePeriodAsCounting() {
+        for (long m = 1; m <= 500; m++) {
+            assertEquals("for m = " + m, countPeriod(m), FibonacciModular.pisanoPeriod(m));
+        }
+    }
+
+    @Test
+    public void testShouldReduceByPeriod() {
+        final long n = 1_000_000_000_000_000_000L;
+        for (long m : new long[]{1, 10, 1_000_000_007L, 999_999_999_989L}) {
+            assertEquals("mod " + m, FibonacciModular.calculate(n, m), FibonacciModular.calculateReduced(n, m));
+        }
+        assertEquals(FibonacciModular.calculate(Long.MAX_VALUE, 1000), FibonacciModular.calculateReduced(Long.MAX_VALUE, 1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseZeroModulus() {
+        FibonacciModular.calculate(10, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseNegativeN() {
+        FibonacciModular.calculate(-1, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseTooBigForPeriod() {
+        FibonacciModular.pisanoPeriod(FibonacciModular.MAX_PISANO_MODULUS + 1);
+    }
+
+    private static long countPeriod(long m) {
+        if (m == 1) {
+            return 1;
+        }
+        long a = 0;
+        long b = 1;
+        for (long i = 1; ; i++) {
+            final long sum = (a + b) % m;
+            a = b;
+            b = sum;
+            if (a == 0 && b == 1) {
+                return i;
+            }
+        }
+    }
+
+}
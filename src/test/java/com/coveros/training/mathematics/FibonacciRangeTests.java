@@ -0,0 +1,104 @@
+package com.coveros.training.mathematics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+public class FibonacciRangeTests {
+
+    private final FibonacciCache cache = new FibonacciCache(1024 * 1024);
+
+    @Test
+    public void testShouldGiveValues() throws IOException {
+        final FibonacciRange range = FibonacciRange.of(0, 300, FibonacciRange.Output.VALUE, 0, cache);
+
+        for (int n = 0; n <= 300; n++) {
+            assertEquals(n, range.nextIndex());
+            assertEquals(FibonacciIterative.fibAlgo2(n).toString(), next(range));
+        }
+        assertFalse(range.hasNext());
+    }
+
+    /**
+     * Starting part way, from a pair worked out by fast doubling
+     */
+    @Test
+    public void testShouldStartPartWay() throws IOException {
+        final FibonacciRange range = FibonacciRange.of(5000, 5010, FibonacciRange.Output.VALUE, 0, cache);
+
+        for (long n = 5000; n <= 5010; n++) {
+            assertEquals(FibonacciFastDoubling.calculate(n).toString(), next(range));
+        }
+        assertFalse(range.hasNext());
+    }
+
+    /**
+     * Digit counts match writing the numbers out, including where they go up
+     * by one, both from the start and from part way
+     */
+    @Test
+    public void testShouldCountDigits() throws IOException {
+        for (long from : new long[]{0, 1, 45, 1000, 20_000}) {
+            final FibonacciRange range = FibonacciRange.of(from, from + 500, FibonacciRange.Output.DIGITS, 0, cache);
+            for (long n = from; n <= from + 500; n++) {
+                assertEquals("for n = " + n, Integer.toString(FibonacciFastDoubling.calculate(n).toString().length()), next(range));
+            }
+        }
+    }
+
+    /**
+     * Remainders stay right even for a modulus so big that adding two of them overflows a long
+     */
+    @Test
+    public void testShouldGiveRemainders() throws IOException {
+        for (long modulus : new long[]{1, 2, 10, 1_000_000_007L, Long.MAX_VALUE}) {
+            final FibonacciRange range = FibonacciRange.of(1500, 1700, FibonacciRange.Output.MOD, modulus, cache);
+            final BigInteger m = BigInteger.valueOf(modulus);
+            for (long n = 1500; n <= 1700; n++) {
+                assertEquals("for n = " + n + " mod " + modulus, FibonacciFastDoubling.calculate(n).mod(m).toString(), next(range));
+            }
+        }
+    }
+
+    @Test
+    public void testShouldGiveOneNumberRange() throws IOException {
+        final FibonacciRange range = FibonacciRange.of(10, 10, FibonacciRange.Output.VALUE, 0, cache);
+
+        assertEquals("55", next(range));
+        assertFalse(range.hasNext());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShouldNotGoPastTheEnd() throws IOException {
+        final FibonacciRange range = FibonacciRange.of(10, 10, FibonacciRange.Output.VALUE, 0, cache);
+        next(range);
+        next(range);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseBackwardsRange() {
+        FibonacciRange.of(10, 9, FibonacciRange.Output.VALUE, 0, cache);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseZeroModulus() {
+        FibonacciRange.of(1, 9, FibonacciRange.Output.MOD, 0, cache);
+    }
+
+    @Test
+    public void testShouldReadOutputParameter() {
+        assertEquals(FibonacciRange.Output.VALUE, FibonacciRange.Output.fromParameter(null));
+        assertEquals(FibonacciRange.Output.DIGITS, FibonacciRange.Output.fromParameter("digits"));
+        assertEquals(FibonacciRange.Output.MOD, FibonacciRange.Output.fromParameter("Mod"));
+    }
+
+    private static String next(FibonacciRange range) throws IOException {
+        final StringBuilder out = new StringBuilder();
+        range.writeNext(out);
+        return out.toString();
+    }
+
+}
@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.util.concurrent.CancellationException;
 
 public class FibonacciTests {
 
@@ -23,6 +24,19 @@ public class FibonacciTests {
         Assert.assertEquals(new BigInteger(FIB_FOR_43), fib);
     }
 
+    /**
+     * An interrupted thread stops part way, rather than finishing a long calculation nobody is waiting for
+     */
+    @Test(expected = CancellationException.class)
+    public void testFibAlgo2StopsWhenInterrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            FibonacciIterative.fibAlgo2(100_000);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
     @Test
     public void testLargeValuesFibAlgo1() {
         final BigInteger fib = FibonacciIterative.fibAlgo1(200);
@@ -46,4 +60,15 @@ public class FibonacciTests {
         final BigInteger fib = FibonacciIterative.fibAlgo2(2000);
         Assert.assertEquals(new BigInteger(FIB_FOR_2000), fib);
     }
+
+    /**
+     * The fast-doubling rewrite of fibAlgo1 agrees with the simple version all the way up,
+     * across every combination of bits in n
+     */
+    @Test
+    public void testFibAlgo1MatchesFibAlgo2() {
+        for (int n = 0; n <= 3000; n++) {
+            Assert.assertEquals("for n = " + n, FibonacciIterative.fibAlgo2(n), FibonacciIterative.fibAlgo1(n));
+        }
+    }
 }
@@ -0,0 +1,191 @@
+package com.coveros.training.mathematics;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MathResultCacheTests {
+
+    private static final long SMALL_BYTES = MathResultCache.sizeOf(0L);
+
+    private final AtomicInteger computed = new AtomicInteger();
+
+    @Test
+    public void testShouldRememberAnswer() {
+        final MathResultCache cache = new MathResultCache(1_000_000);
+
+        assertEquals(BigInteger.valueOf(55), cache.get(MathResultCache.key("fibonacci", "default", 10), this::fib10));
+        assertEquals(BigInteger.valueOf(55), cache.get(MathResultCache.key("fibonacci", "default", 10), this::fib10));
+        cache.get(MathResultCache.key("fibonacci", "tail_recursive_1", 10), this::fib10);
+
+        assertEquals(2, computed.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testKeysShouldCompareByContent() {
+        assertEquals(MathResultCache.key("ackermann", "tail_recursive", 3, 4), MathResultCache.key("ackermann", "tail_recursive", 3, 4));
+        assertEquals(MathResultCache.key("ackermann", "tail_recursive", 3, 4).hashCode(), MathResultCache.key("ackermann", "tail_recursive", 3, 4).hashCode());
+        assertNotEquals(MathResultCache.key("ackermann", "tail_recursive", 3, 4), MathResultCache.key("ackermann", "tail_recursive", 4, 3));
+        assertNotEquals(MathResultCache.key("fibonacci", "mod", 3, 4), MathResultCache.key("fibonacci", "pisano", 3, 4));
+    }
+
+    /**
+     * A big answer that was quick to work out goes before the small ones that took as long
+     */
+    @Test
+    public void testShouldDropCheapBigAnswerFirst() {
+        final MathResultCache cache = new MathResultCache(SMALL_BYTES * 5 + 1200);
+        final MathResultCache.Key big = MathResultCache.key("fibonacci", "default", 100_000);
+        for (int i = 0; i < 5; i++) {
+            cache.put(MathResultCache.key("fibonacci", "mod", i, 7), (long) i, 1000);
+        }
+        cache.put(big, BigInteger.ONE.shiftLeft(8000), 1000);
+        assertTrue(cache.contains(big));
+
+        cache.put(MathResultCache.key("fibonacci", "mod", 5, 7), 5L, 1000);
+
+        assertFalse(cache.contains(big));
+        assertEquals(6, cache.size());
+        assertEquals(1, cache.getEvictedCount());
+    }
+
+    /**
+     * ...but one that took long enough to work out is worth its room
+     */
+    @Test
+    public void testShouldKeepCostlyBigAnswer() {
+        final MathResultCache cache = new MathResultCache(SMALL_BYTES * 5 + 1200);
+        final MathResultCache.Key big = MathResultCache.key("fibonacci", "default", 100_000);
+        for (int i = 0; i < 5; i++) {
+            cache.put(MathResultCache.key("fibonacci", "mod", i, 7), (long) i, 1000);
+        }
+        cache.put(big, BigInteger.ONE.shiftLeft(8000), 10_000_000);
+
+        cache.put(MathResultCache.key("fibonacci", "mod", 5, 7), 5L, 1000);
+
+        assertTrue(cache.contains(big));
+        assertFalse("the oldest small answer should have gone", cache.contains(MathResultCache.key("fibonacci", "mod", 0, 7)));
+    }
+
+    /**
+     * An answer that's used again is valued again, so it stays ahead of ones that aren't
+     */
+    @Test
+    public void testShouldKeepAnswerInUse() {
+        final MathResultCache cache = new MathResultCache(SMALL_BYTES * 3);
+        final MathResultCache.Key first = MathResultCache.key("fibonacci", "mod", 0, 7);
+        cache.put(first, 0L, 1000);
+        cache.put(MathResultCache.key("fibonacci", "mod", 1, 7), 1L, 1000);
+        cache.put(MathResultCache.key("fibonacci", "mod", 2, 7), 1L, 1000);
+        for (int i = 3; i < 10; i++) {
+            cache.get(first, () -> {
+                throw new AssertionError("should have been cached");
+            });
+            cache.put(MathResultCache.key("fibonacci", "mod", i, 7), 2L, 1000);
+        }
+
+        assertTrue(cache.contains(first));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testShouldNotKeepWhatDoesNotFit() {
+        final MathResultCache cache = new MathResultCache(SMALL_BYTES);
+        cache.put(MathResultCache.key("fibonacci", "default", 100_000), BigInteger.ONE.shiftLeft(8000), 1000);
+        cache.get(MathResultCache.key("fibonacci", "default", 10), this::fib10);
+
+        assertEquals(1, cache.size());
+        assertEquals(MathResultCache.sizeOf(BigInteger.valueOf(55)), cache.getCurrentBytes());
+        assertEquals(0, cache.getEvictedCount());
+    }
+
+    /**
+     * Asking the same question while it's being worked out waits for that answer
+     */
+    @Test
+    public void testShouldShareAnswerInFlight() throws Exception {
+        final MathResultCache cache = new MathResultCache(0);
+        final MathResultCache.Key key = MathResultCache.key("ackermann", "tail_recursive", 3, 10);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<BigInteger> first = executor.submit(() -> cache.get(key, () -> {
+                started.countDown();
+                awaitQuietly(release);
+                computed.incrementAndGet();
+                return BigInteger.valueOf(8189);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<BigInteger> second = executor.submit(() -> cache.get(key, () -> {
+                computed.incrementAndGet();
+                return BigInteger.ZERO;
+            }));
+            while (cache.getSharedCount() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertEquals(BigInteger.valueOf(8189), first.get(5, TimeUnit.SECONDS));
+            assertEquals(BigInteger.valueOf(8189), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, computed.get());
+            assertEquals(0, cache.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A failure isn't remembered, so the next ask tries again
+     */
+    @Test
+    public void testShouldNotKeepFailure() {
+        final MathResultCache cache = new MathResultCache(1_000_000);
+        final MathResultCache.Key key = MathResultCache.key("fibonacci", "tail_recursive_2", 100_000);
+        try {
+            cache.get(key, () -> {
+                throw new BudgetExceededException("too slow");
+            });
+            fail("should have passed on the failure");
+        } catch (BudgetExceededException ex) {
+            assertEquals("too slow", ex.getMessage());
+        }
+
+        assertEquals(BigInteger.valueOf(55), cache.get(key, this::fib10));
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testShouldReportAsJson() {
+        final MathResultCache cache = new MathResultCache(1_000_000);
+        cache.get(MathResultCache.key("fibonacci", "default", 10), this::fib10);
+        cache.get(MathResultCache.key("fibonacci", "default", 10), this::fib10);
+
+        assertTrue(cache.toJson(), cache.toJson().startsWith("{\"hits\": 1, \"misses\": 1, \"shared\": 0, \"hitRate\": 0.5000, \"size\": 1, "));
+    }
+
+    private BigInteger fib10() {
+        computed.incrementAndGet();
+        return BigInteger.valueOf(55);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -5,12 +5,22 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 
+import javax.servlet.ReadListener;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class MathServletTests {
@@ -34,6 +44,94 @@ public class MathServletTests {
         verify(mathServlet).setResultToSum(request, 2, 3);
     }
 
+    /**
+     * A body sent as CSV is added up a line at a time, and the sums sent straight back
+     */
+    @Test
+    public void testPostService_batch() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        when(request.getContentType()).thenReturn("text/csv");
+        when(request.getInputStream()).thenReturn(inputOf("2,3\n40,2\n"));
+        when(response.getOutputStream()).thenReturn(outputTo(output));
+
+        mathServlet.doPost(request, response);
+
+        assertEquals("5\n42\n", output.toString(StandardCharsets.US_ASCII));
+        verify(response).setContentType("text/csv");
+        verify(mathServlet, never()).forwardToResult(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * If nothing has gone back yet, a bad batch gets a 400 saying what was wrong
+     */
+    @Test
+    public void testPostService_badBatch() throws IOException {
+        final StringWriter error = new StringWriter();
+        when(request.getContentType()).thenReturn("text/csv");
+        when(request.getInputStream()).thenReturn(inputOf("2,3\nfour,5\n"));
+        when(response.getOutputStream()).thenReturn(outputTo(new ByteArrayOutputStream()));
+        when(response.getWriter()).thenReturn(new PrintWriter(error, true));
+
+        mathServlet.doPost(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        assertEquals("Error: line 2 should be two integers, separated by a comma", error.toString());
+    }
+
+    private static ServletInputStream inputOf(String body) {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII));
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+        };
+    }
+
+    private static ServletOutputStream outputTo(ByteArrayOutputStream out) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                out.write(b, off, len);
+            }
+        };
+    }
+
     /**
      * Here we allow a call into the actual forwardToResult method.
      */
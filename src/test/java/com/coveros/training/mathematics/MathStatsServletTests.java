@@ -0,0 +1,24 @@
+package com.coveros.training.mathematics;
+
+import com.coveros.training.helpers.ServletUtils;
+import org.junit.Test;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Mockito.*;
+
+public class MathStatsServletTests {
+
+    @Test
+    public void testShouldReportStatsAsJson() {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestDispatcher(ServletUtils.RESTFUL_RESULT_JSP)).thenReturn(mock(RequestDispatcher.class));
+
+        new MathStatsServlet().doGet(request, mock(HttpServletResponse.class));
+
+        verify(request).setAttribute(eq("result"), startsWith("{\"mathWorkers\": \"math-work: active="));
+    }
+
+}
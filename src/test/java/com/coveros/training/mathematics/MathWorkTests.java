@@ -0,0 +1,67 @@
+package com.coveros.training.mathematics;
+
+import com.coveros.training.helpers.TaskTimeoutException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MathWorkTests {
+
+    private final long originalTimeout = MathWork.timeoutMillis;
+
+    @After
+    public void restoreTimeout() {
+        MathWork.timeoutMillis = originalTimeout;
+    }
+
+    @Test
+    public void testShouldRunOnMathWorker() {
+        final String threadName = MathWork.run("thread name", budget -> Thread.currentThread().getName());
+        assertTrue(threadName, threadName.startsWith("math-work-"));
+    }
+
+    /**
+     * The caller stops waiting at the deadline, and the calculation - which checks for being
+     * interrupted - stops soon after, rather than keeping the worker busy
+     */
+    @Test
+    public void testShouldCancelAtDeadline() throws InterruptedException {
+        MathWork.timeoutMillis = 100;
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final AtomicReference<Throwable> stoppedBy = new AtomicReference<>();
+        try {
+            MathWork.run("ackermann 4, 2", budget -> {
+                try {
+                    return AckermannIterative.calculate(4, 2, TailRecursive.Budget.unlimited());
+                } catch (RuntimeException ex) {
+                    stoppedBy.set(ex);
+                    throw ex;
+                } finally {
+                    stopped.countDown();
+                }
+            });
+            fail("should have run out of time");
+        } catch (TaskTimeoutException ex) {
+            assertTrue("the worker should have stopped", stopped.await(5, TimeUnit.SECONDS));
+            assertNotNull(stoppedBy.get());
+        }
+    }
+
+    /**
+     * The calculation is handed a budget of the same time, so it can stop itself
+     */
+    @Test
+    public void testShouldPassBudget() {
+        MathWork.timeoutMillis = 60_000;
+        final TailRecursive.Budget budget = MathWork.run("budget", b -> b);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(60_000), budget.maxNanos);
+        assertEquals(BigInteger.valueOf(61), MathWork.run("ackermann 3, 3", b -> AckermannIterative.calculate(3, 3, b)));
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.coveros.training.mathematics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelSquaringTests {
+
+    private int originalThreshold;
+    private ForkJoinPool originalPool;
+
+    @Before
+    public void init() {
+        originalThreshold = ParallelSquaring.thresholdBits;
+        originalPool = ParallelSquaring.pool;
+        // small enough that the numbers below get split a few levels deep
+        ParallelSquaring.thresholdBits = 1000;
+        ParallelSquaring.pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void cleanup() {
+        ParallelSquaring.pool.shutdown();
+        ParallelSquaring.thresholdBits = originalThreshold;
+        ParallelSquaring.pool = originalPool;
+    }
+
+    @Test
+    public void testShouldSquareLikeMultiply() {
+        final Random random = new Random(42);
+        for (int bits : new int[]{10, 999, 1000, 1001, 4096, 20_000, 77_777}) {
+            final BigInteger x = new BigInteger(bits, random);
+
+            assertEquals("for " + bits + " bits", x.multiply(x), ParallelSquaring.square(x));
+        }
+    }
+
+    @Test
+    public void testShouldSquareBoth() {
+        final Random random = new Random(7);
+        final BigInteger x = new BigInteger(30_000, random);
+        final BigInteger y = new BigInteger(12_345, random);
+
+        final BigInteger[] squares = ParallelSquaring.squareBoth(x, y);
+
+        assertEquals(x.multiply(x), squares[0]);
+        assertEquals(y.multiply(y), squares[1]);
+    }
+
+    /**
+     * Squares are never negative, whatever the sign going in
+     */
+    @Test
+    public void testShouldSquareNegative() {
+        final BigInteger x = new BigInteger(5000, new Random(3)).negate();
+
+        assertEquals(x.multiply(x), ParallelSquaring.square(x));
+    }
+
+    /**
+     * Fibonacci numbers come out the same when the squaring is split
+     */
+    @Test
+    public void testShouldGiveSameFibonacciNumbers() {
+        assertEquals(FibonacciFastDoubling.calculate(100_000), FibonacciIterative.fibAlgo1(100_000));
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.coveros.training.mathematics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TailRecursiveTests {
+
+    /**
+     * Counts down to zero, a step at a time
+     */
+    private static final class Countdown {
+        long remaining;
+        long stepsTaken;
+
+        Countdown(long remaining) {
+            this.remaining = remaining;
+        }
+
+        boolean step() {
+            stepsTaken++;
+            return --remaining > 0;
+        }
+    }
+
+    @After
+    public void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void testShouldRunToTheEnd() {
+        final Countdown countdown = TailRecursive.trampoline(new Countdown(1_000_000), Countdown::step, TailRecursive.Budget.unlimited());
+        assertEquals(0, countdown.remaining);
+        assertEquals(1_000_000, countdown.stepsTaken);
+    }
+
+    /**
+     * A budget of k steps lets through a calculation of exactly k, and no more
+     */
+    @Test
+    public void testShouldStopAtStepBudget() {
+        final TailRecursive.Budget budget = TailRecursive.Budget.of(100, Long.MAX_VALUE);
+        assertEquals(100, TailRecursive.trampoline(new Countdown(100), Countdown::step, budget).stepsTaken);
+
+        final Countdown countdown = new Countdown(101);
+        try {
+            TailRecursive.trampoline(countdown, Countdown::step, budget);
+            fail("should have run out of steps");
+        } catch (BudgetExceededException ex) {
+            assertEquals(100, countdown.stepsTaken);
+        }
+    }
+
+    @Test(expected = BudgetExceededException.class)
+    public void testShouldStopAtDeadline() {
+        final TailRecursive.Budget budget = TailRecursive.Budget.of(Long.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(10));
+        TailRecursive.trampoline(new Countdown(Long.MAX_VALUE), state -> {
+            Thread.yield();
+            return state.step();
+        }, budget);
+    }
+
+    @Test
+    public void testShouldStopWhenInterrupted() {
+        final Countdown countdown = new Countdown(Long.MAX_VALUE);
+        Thread.currentThread().interrupt();
+        try {
+            TailRecursive.trampoline(countdown, Countdown::step, TailRecursive.Budget.unlimited());
+            fail("should have stopped");
+        } catch (CancellationException ex) {
+            assertEquals(TailRecursive.Budget.CHECK_INTERVAL, countdown.stepsTaken);
+            assertTrue("the interruption should be left for the caller", Thread.currentThread().isInterrupted());
+        }
+    }
+
+    /**
+     * Being cancelled is checked every so often, not every step
+     */
+    @Test
+    public void testShouldStopWhenCancelled() {
+        final AtomicInteger asked = new AtomicInteger();
+        final TailRecursive.Budget budget = TailRecursive.Budget.unlimited().withCancellation(() -> asked.incrementAndGet() == 3);
+        final Countdown countdown = new Countdown(Long.MAX_VALUE);
+        try {
+            TailRecursive.trampoline(countdown, Countdown::step, budget);
+            fail("should have been cancelled");
+        } catch (CancellationException ex) {
+            assertEquals(3L * TailRecursive.Budget.CHECK_INTERVAL, countdown.stepsTaken);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRefuseEmptyBudget() {
+        TailRecursive.Budget.of(0, 1000);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.coveros.training.persistence;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class UsernameFilterTests {
+
+    private final List<String> registered = new ArrayList<>(Arrays.asList("alice", "bob"));
+    private final AtomicInteger loadCount = new AtomicInteger();
+    private final Supplier<List<String>> loader = () -> {
+        loadCount.incrementAndGet();
+        return new ArrayList<>(registered);
+    };
+    private UsernameFilter filter;
+
+    @Before
+    public void init() {
+        filter = new UsernameFilter(0.01, 100);
+    }
+
+    @Test
+    public void testShouldLetRegisteredUsersThrough() {
+        assertTrue(filter.mightBeRegistered("alice", loader));
+        assertTrue(filter.mightBeRegistered("bob", loader));
+    }
+
+    @Test
+    public void testShouldRuleOutUnknownUsers() {
+        assertFalse(filter.mightBeRegistered("mallory", loader));
+        assertEquals(1, filter.getDefiniteMissCount());
+    }
+
+    /**
+     * We only go to the database the first time
+     */
+    @Test
+    public void testShouldFillOnlyOnce() {
+        filter.mightBeRegistered("alice", loader);
+        filter.mightBeRegistered("mallory", loader);
+
+        assertEquals(1, loadCount.get());
+        assertTrue(filter.getMemoryBytes() > 0);
+    }
+
+    @Test
+    public void testShouldKnowAboutNewlySavedUsers() {
+        filter.mightBeRegistered("alice", loader);
+
+        filter.add("carol");
+
+        assertTrue(filter.mightBeRegistered("carol", loader));
+    }
+
+    /**
+     * After a restore, the filter has to be filled again, or it would miss the restored users
+     */
+    @Test
+    public void testShouldRefillAfterReset() {
+        filter.mightBeRegistered("alice", loader);
+        registered.add("dave");
+
+        filter.reset();
+
+        assertTrue(filter.mightBeRegistered("dave", loader));
+        assertEquals(2, loadCount.get());
+    }
+
+    /**
+     * Past the number of users it was sized for, the filter gets rebuilt
+     */
+    @Test
+    public void testShouldRebuildWhenOutgrown() {
+        filter.mightBeRegistered("alice", loader);
+        for (int i = 0; i < 100; i++) {
+            registered.add("user" + i);
+            filter.add("user" + i);
+        }
+
+        assertTrue(filter.mightBeRegistered("user99", loader));
+        assertEquals(2, loadCount.get());
+    }
+
+    /**
+     * If the users can't be fetched, nobody can be ruled out
+     */
+    @Test
+    public void testShouldLetEveryoneThroughIfItCannotFill() {
+        final boolean result = filter.mightBeRegistered("mallory", () -> {
+            throw new SqlRuntimeException("no such table");
+        });
+
+        assertTrue(result);
+    }
+
+    @Test
+    public void testShouldReportStatsAsJson() {
+        filter.mightBeRegistered("alice", loader);
+        filter.mightBeRegistered("mallory", loader);
+
+        assertTrue(filter.toJson().contains("\"lookups\": 2, \"avoidedQueries\": 1, \"avoidedQueryRate\": 0.5000"));
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.coveros.training.tracing;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.List;
+
+public class RequestTraceTests {
+
+    @After
+    public void after() {
+        Tracing.end();
+    }
+
+    /**
+     * Spans opened inside other spans should end up as their children
+     */
+    @Test
+    public void testShouldNestSpans() {
+        final RequestTrace trace = Tracing.begin("abc", "POST /lend");
+        try (Span outer = Tracing.span("LibraryUtils.lendBook")) {
+            try (Span inner = Tracing.span("SQL: search for a book by title")) {
+                Assert.assertFalse(inner.isFinished());
+            }
+        }
+        try (Span sibling = Tracing.span("LibraryUtils.createLoan")) {
+            Assert.assertNotNull(sibling);
+        }
+        Tracing.end();
+
+        final List<Span> children = trace.root().children();
+        Assert.assertEquals(2, children.size());
+        Assert.assertEquals("LibraryUtils.lendBook", children.get(0).name);
+        Assert.assertEquals("SQL: search for a book by title", children.get(0).children().get(0).name);
+        Assert.assertEquals("LibraryUtils.createLoan", children.get(1).name);
+        Assert.assertTrue(trace.root().isFinished());
+    }
+
+    /**
+     * If a span is never closed, ending the trace must still end it
+     */
+    @Test
+    public void testShouldFinishUnclosedSpans() {
+        final RequestTrace trace = Tracing.begin("abc", "GET /book");
+        final Span neverClosed = Tracing.span("forgotten");
+        Tracing.end();
+
+        Assert.assertTrue(neverClosed.isFinished());
+    }
+
+    /**
+     * With no trace running, spans should be harmless no-ops
+     */
+    @Test
+    public void testShouldProvideNoopSpanWithoutTrace() {
+        try (Span span = Tracing.span("anything")) {
+            Assert.assertSame(Span.NOOP, span);
+        }
+        Assert.assertFalse(Tracing.current().isPresent());
+    }
+
+    /**
+     * The correlation id must be in the logging context for the
+     * length of the request, and removed afterwards
+     */
+    @Test
+    public void testShouldPutRequestIdInMdc() {
+        Tracing.begin("my-request", "GET /book");
+        Assert.assertEquals("my-request", MDC.get(Tracing.MDC_REQUEST_ID));
+        Tracing.end();
+        Assert.assertNull(MDC.get(Tracing.MDC_REQUEST_ID));
+    }
+
+    @Test
+    public void testShouldGenerateIdIfNoneGiven() {
+        final RequestTrace trace = Tracing.begin("", "GET /book");
+        Assert.assertFalse(trace.id.isEmpty());
+    }
+
+    @Test
+    public void testShouldExportJson() {
+        final RequestTrace trace = Tracing.begin("a\"b", "POST /lend");
+        try (Span span = Tracing.span("child")) {
+            Assert.assertNotNull(span);
+        }
+        Tracing.end();
+
+        final String json = trace.toJson();
+        Assert.assertTrue(json, json.startsWith("{\"id\":\"a\\\"b\",\"root\":{\"name\":\"POST /lend\",\"startMicros\":0,"));
+        Assert.assertTrue(json, json.contains("\"children\":[{\"name\":\"child\","));
+    }
+
+    @Test
+    public void testShouldRenderTree() {
+        final RequestTrace trace = Tracing.begin("xyz", "POST /lend");
+        try (Span span = Tracing.span("child")) {
+            Assert.assertNotNull(span);
+        }
+        Tracing.end();
+
+        final String tree = trace.toTreeString();
+        Assert.assertTrue(tree, tree.startsWith("trace xyz"));
+        Assert.assertTrue(tree, tree.contains("    child "));
+    }
+}
@@ -0,0 +1,106 @@
+package com.coveros.training.tracing;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+public class RequestTracingFilterTests {
+
+    private final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    private final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    private final FilterChain chain = Mockito.mock(FilterChain.class);
+    private final RequestTracingFilter filter = new RequestTracingFilter();
+
+    @Before
+    public void before() {
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getServletPath()).thenReturn("/lend");
+    }
+
+    /**
+     * A correlation id sent by the client should be used and sent back
+     */
+    @Test
+    public void testShouldEchoClientRequestId() throws Exception {
+        when(request.getHeader(RequestTracingFilter.REQUEST_ID_HEADER)).thenReturn("client-id-1");
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setHeader(RequestTracingFilter.REQUEST_ID_HEADER, "client-id-1");
+        verify(chain).doFilter(request, response);
+    }
+
+    /**
+     * An id that could forge log lines, or is just too long, is replaced with one of ours
+     */
+    @Test
+    public void testShouldReplaceUnsafeRequestId() {
+        Assert.assertEquals("abc-1.2_3", RequestTracingFilter.validRequestId("abc-1.2_3"));
+        Assert.assertEquals("", RequestTracingFilter.validRequestId("id\n2026-10-19 INFO forged"));
+        Assert.assertEquals("", RequestTracingFilter.validRequestId(String.join("", Collections.nCopies(65, "a"))));
+        Assert.assertEquals("", RequestTracingFilter.validRequestId(null));
+    }
+
+    @Test
+    public void testShouldMakeUpIdForUnsafeOne() throws Exception {
+        when(request.getHeader(RequestTracingFilter.REQUEST_ID_HEADER)).thenReturn("<script>");
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setHeader(eq(RequestTracingFilter.REQUEST_ID_HEADER), matches("[0-9a-f-]{36}"));
+    }
+
+    /**
+     * While the request is being handled, there should be a trace running.
+     * Afterwards, there shouldn't.
+     */
+    @Test
+    public void testShouldTraceDuringRequestOnly() throws Exception {
+        doAnswer(invocation -> {
+            Assert.assertTrue(Tracing.current().isPresent());
+            Assert.assertEquals("POST /lend", Tracing.current().get().root().name);
+            return null;
+        }).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        Assert.assertFalse(Tracing.current().isPresent());
+    }
+
+    /**
+     * Requests over the threshold get recorded
+     */
+    @Test
+    public void testShouldRecordSlowRequests() throws Exception {
+        final SlowTraceRecorder original = RequestTracingFilter.recorder;
+        RequestTracingFilter.recorder = new SlowTraceRecorder(0, 2);
+        try {
+            filter.doFilter(request, response, chain);
+            filter.doFilter(request, response, chain);
+            filter.doFilter(request, response, chain);
+
+            Assert.assertEquals(2, RequestTracingFilter.recorder.recentTraces().size());
+            Assert.assertTrue(RequestTracingFilter.recorder.toJson().startsWith("[{\"id\":"));
+        } finally {
+            RequestTracingFilter.recorder = original;
+        }
+    }
+
+    @Test
+    public void testShouldNotRecordFastRequests() {
+        final SlowTraceRecorder recorder = new SlowTraceRecorder(60_000, 2);
+        final RequestTrace trace = Tracing.begin("", "GET /book");
+        Tracing.end();
+
+        Assert.assertFalse(recorder.recordIfSlow(trace));
+        Assert.assertEquals("[]", recorder.toJson());
+    }
+}